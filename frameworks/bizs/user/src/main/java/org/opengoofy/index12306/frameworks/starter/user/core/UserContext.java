@@ -39,6 +39,15 @@ public final class UserContext {
         USER_THREAD_LOCAL.set(user);
     }
 
+    /**
+     * 获取上下文中用户详情信息，用于在同一线程内切换用户后恢复
+     *
+     * @return 用户详情信息
+     */
+    public static UserInfoDTO getUser() {
+        return USER_THREAD_LOCAL.get();
+    }
+
     /**
      * 获取上下文中用户 ID
      *
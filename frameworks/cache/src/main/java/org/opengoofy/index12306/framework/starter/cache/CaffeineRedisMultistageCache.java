@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.framework.starter.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.opengoofy.index12306.framework.starter.cache.config.RedisDistributedProperties;
+import org.opengoofy.index12306.framework.starter.cache.core.CacheLoader;
+import org.opengoofy.index12306.framework.starter.cache.toolkit.CacheUtil;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多级缓存，Caffeine 本地缓存 + Redis 分布式缓存
+ * 本地缓存按 Key 前缀配置过期时间以及数量上限，写入以及删除时通过 Redis 频道广播失效所有节点本地缓存
+ * 广播消息丢失时本地缓存最长在策略过期时间后失效，适用于车次、车站等几乎不变的热点数据，本地缓存值只读
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Slf4j
+public class CaffeineRedisMultistageCache implements MultistageCache, MessageListener {
+
+    private final DistributedCache distributedCache;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final String invalidateChannel;
+
+    /**
+     * Key 前缀 -> 本地缓存，按前缀长度倒序，优先匹配最长前缀
+     */
+    private final Map<String, com.github.benmanes.caffeine.cache.Cache<String, Object>> localCaches;
+
+    public CaffeineRedisMultistageCache(DistributedCache distributedCache, RedisDistributedProperties redisDistributedProperties) {
+        this.distributedCache = distributedCache;
+        this.stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        this.invalidateChannel = redisDistributedProperties.getMultistageInvalidateChannel();
+        Map<String, com.github.benmanes.caffeine.cache.Cache<String, Object>> actualLocalCaches = new LinkedHashMap<>();
+        redisDistributedProperties.getMultistageLocalPolicies().stream()
+                .sorted(Comparator.comparing((RedisDistributedProperties.LocalCachePolicy each) -> each.getKeyPrefix().length()).reversed())
+                .forEach(each -> actualLocalCaches.put(each.getKeyPrefix(), Caffeine.newBuilder()
+                        .expireAfterWrite(each.getExpireMillis(), TimeUnit.MILLISECONDS)
+                        .maximumSize(each.getMaximumSize())
+                        .recordStats()
+                        .build()));
+        this.localCaches = Collections.unmodifiableMap(actualLocalCaches);
+    }
+
+    @Override
+    public <T> T get(@NotBlank String key, Class<T> clazz) {
+        com.github.benmanes.caffeine.cache.Cache<String, Object> localCache = localCache(key);
+        if (localCache == null) {
+            return distributedCache.get(key, clazz);
+        }
+        Object result = localCache.get(key, each -> {
+            T actual = distributedCache.get(each, clazz);
+            return CacheUtil.isNullOrBlank(actual) ? null : actual;
+        });
+        return clazz.isInstance(result) ? (T) result : distributedCache.get(key, clazz);
+    }
+
+    @Override
+    public <T> T safeGet(@NotBlank String key, Class<T> clazz, CacheLoader<T> cacheLoader, long timeout, TimeUnit timeUnit) {
+        com.github.benmanes.caffeine.cache.Cache<String, Object> localCache = localCache(key);
+        if (localCache == null) {
+            return distributedCache.safeGet(key, clazz, cacheLoader, timeout, timeUnit);
+        }
+        // 本地缓存未命中时同一 Key 只有一个线程访问 Redis，空值不写入本地缓存
+        Object result = localCache.get(key, each -> {
+            T actual = distributedCache.safeGet(each, clazz, cacheLoader, timeout, timeUnit);
+            return CacheUtil.isNullOrBlank(actual) ? null : actual;
+        });
+        return clazz.isInstance(result) ? (T) result : distributedCache.safeGet(key, clazz, cacheLoader, timeout, timeUnit);
+    }
+
+    @Override
+    public void put(@NotBlank String key, Object value) {
+        distributedCache.put(key, value);
+        invalidate(key);
+    }
+
+    @Override
+    public void put(@NotBlank String key, Object value, long timeout, TimeUnit timeUnit) {
+        distributedCache.put(key, value, timeout, timeUnit);
+        invalidate(key);
+    }
+
+    @Override
+    public Boolean putIfAllAbsent(@NotNull Collection<String> keys) {
+        return distributedCache.putIfAllAbsent(keys);
+    }
+
+    @Override
+    public Boolean delete(@NotBlank String key) {
+        Boolean result = distributedCache.delete(key);
+        invalidate(key);
+        return result;
+    }
+
+    @Override
+    public Long delete(@NotNull Collection<String> keys) {
+        Long result = distributedCache.delete(keys);
+        keys.forEach(this::invalidate);
+        return result;
+    }
+
+    @Override
+    public Boolean hasKey(@NotBlank String key) {
+        com.github.benmanes.caffeine.cache.Cache<String, Object> localCache = localCache(key);
+        if (localCache != null && localCache.getIfPresent(key) != null) {
+            return true;
+        }
+        return distributedCache.hasKey(key);
+    }
+
+    @Override
+    public Object getInstance() {
+        return stringRedisTemplate;
+    }
+
+    @Override
+    public void invalidateLocal(@NotBlank String key) {
+        com.github.benmanes.caffeine.cache.Cache<String, Object> localCache = localCache(key);
+        if (localCache != null) {
+            localCache.invalidate(key);
+        }
+    }
+
+    /**
+     * 接收其它节点广播的失效消息
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        invalidateLocal(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return Key 前缀 -> 本地缓存，用于统计命中率
+     */
+    public Map<String, com.github.benmanes.caffeine.cache.Cache<String, Object>> getLocalCaches() {
+        return localCaches;
+    }
+
+    /**
+     * 失效当前节点本地缓存，并广播通知其它节点，未配置本地缓存的 Key 无需广播
+     */
+    private void invalidate(String key) {
+        if (localCache(key) == null) {
+            return;
+        }
+        invalidateLocal(key);
+        try {
+            stringRedisTemplate.convertAndSend(invalidateChannel, key);
+        } catch (Throwable ex) {
+            log.error("多级缓存广播本地缓存失效消息失败，Key：{}", key, ex);
+        }
+    }
+
+    private com.github.benmanes.caffeine.cache.Cache<String, Object> localCache(String key) {
+        for (Map.Entry<String, com.github.benmanes.caffeine.cache.Cache<String, Object>> each : localCaches.entrySet()) {
+            if (key.startsWith(each.getKey())) {
+                return each.getValue();
+            }
+        }
+        return null;
+    }
+}
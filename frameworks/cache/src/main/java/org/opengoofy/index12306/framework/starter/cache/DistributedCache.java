@@ -19,11 +19,13 @@ package org.opengoofy.index12306.framework.starter.cache;
 
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.NotBlank;
+import org.opengoofy.index12306.framework.starter.cache.core.CacheBatchLoader;
 import org.opengoofy.index12306.framework.starter.cache.core.CacheGetFilter;
 import org.opengoofy.index12306.framework.starter.cache.core.CacheGetIfAbsent;
 import org.opengoofy.index12306.framework.starter.cache.core.CacheLoader;
 import org.redisson.api.RBloomFilter;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -93,6 +95,17 @@ public interface DistributedCache extends Cache {
     <T> T safeGet(@NotBlank String key, Class<T> clazz, CacheLoader<T> cacheLoader, long timeout, TimeUnit timeUnit,
                   RBloomFilter<String> bloomFilter, CacheGetFilter<String> cacheCheckFilter, CacheGetIfAbsent<String> cacheGetIfAbsent);
 
+    /**
+     * 批量获取缓存，一次网络 IO 完成，返回结果与 keys 顺序一致，不存在的 Key 对应位置为 null
+     */
+    <T> List<T> multiGet(@NotNull List<String> keys, Class<T> clazz);
+
+    /**
+     * 以一种"安全"的方式批量获取缓存，未命中的 Key 只调用一次 {@link CacheBatchLoader} 加载，并通过一次网络 IO 写回缓存
+     * 进程内相同 Key 正在被其它线程加载时等待其加载结果，返回结果与 keys 顺序一致
+     */
+    <T> List<T> safeMultiGet(@NotNull List<String> keys, Class<T> clazz, CacheBatchLoader<T> batchLoader, long timeout, TimeUnit timeUnit);
+
     /**
      * 放入缓存，自定义超时时间
      */
@@ -17,10 +17,31 @@
 
 package org.opengoofy.index12306.framework.starter.cache;
 
+import jakarta.validation.constraints.NotBlank;
+import org.opengoofy.index12306.framework.starter.cache.core.CacheLoader;
+
+import java.util.concurrent.TimeUnit;
+
 /**
  * 多级缓存
+ * 本地缓存在前、分布式缓存在后，写入以及删除时广播通知所有节点失效本地缓存
  *
  * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
  */
 public interface MultistageCache extends Cache {
+
+    /**
+     * 以一种"安全"的方式获取缓存，本地缓存未命中时通过 {@link DistributedCache#safeGet} 获取后写入本地缓存
+     */
+    <T> T safeGet(@NotBlank String key, Class<T> clazz, CacheLoader<T> cacheLoader, long timeout, TimeUnit timeUnit);
+
+    /**
+     * 放入缓存，自定义超时时间，并通知所有节点失效本地缓存
+     */
+    void put(@NotBlank String key, Object value, long timeout, TimeUnit timeUnit);
+
+    /**
+     * 失效当前节点本地缓存
+     */
+    void invalidateLocal(@NotBlank String key);
 }
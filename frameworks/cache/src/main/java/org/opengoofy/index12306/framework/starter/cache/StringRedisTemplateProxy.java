@@ -17,53 +17,96 @@
 
 package org.opengoofy.index12306.framework.starter.cache;
 
-import com.alibaba.fastjson2.JSON;
 import com.google.common.collect.Lists;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.opengoofy.index12306.framework.starter.bases.Singleton;
+import org.opengoofy.index12306.framework.starter.cache.codec.CacheValueSerializer;
+import org.opengoofy.index12306.framework.starter.cache.config.LogicalExpireProperties;
 import org.opengoofy.index12306.framework.starter.cache.config.RedisDistributedProperties;
+import org.opengoofy.index12306.framework.starter.cache.core.CacheBatchLoader;
 import org.opengoofy.index12306.framework.starter.cache.core.CacheGetFilter;
 import org.opengoofy.index12306.framework.starter.cache.core.CacheGetIfAbsent;
 import org.opengoofy.index12306.framework.starter.cache.core.CacheLoader;
 import org.opengoofy.index12306.framework.starter.cache.toolkit.CacheUtil;
-import org.opengoofy.index12306.framework.starter.cache.toolkit.FastJson2Util;
 import org.redisson.api.RBloomFilter;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.scripting.support.ResourceScriptSource;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
  * 分布式缓存之操作 Redis 模版代理
  * 底层通过 {@link RedissonClient}、{@link StringRedisTemplate} 完成外观接口行为
+ * safeGet 缓存未命中时同一进程内相同 Key 只有一个线程获取分布式锁并加载数据，其余线程等待加载结果
  *
  * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
  */
+@Slf4j
 @RequiredArgsConstructor
-public class StringRedisTemplateProxy implements DistributedCache {
+public class StringRedisTemplateProxy implements DistributedCache, DisposableBean {
 
     private final StringRedisTemplate stringRedisTemplate;
     private final RedisDistributedProperties redisProperties;
     private final RedissonClient redissonClient;
+    private final LogicalExpireProperties logicalExpireProperties;
+    private final CacheValueSerializer cacheValueSerializer;
 
     private static final String LUA_PUT_IF_ALL_ABSENT_SCRIPT_PATH = "lua/putIfAllAbsent.lua";
     private static final String SAFE_GET_DISTRIBUTED_LOCK_KEY_PREFIX = "safe_get_distributed_lock_get:";
 
+    /**
+     * 进程内正在加载的缓存 Key 以及加载结果
+     */
+    private final Map<String, CompletableFuture<Object>> inFlightLoads = new ConcurrentHashMap<>();
+
+    /**
+     * 进程内正在后台刷新的逻辑过期缓存 Key
+     */
+    private final Set<String> refreshingKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 逻辑过期缓存后台刷新线程池，队列已满时放弃本次刷新，由下一次读取重新触发
+     */
+    private final ThreadPoolExecutor refreshExecutor = buildRefreshExecutor();
+
     @Override
     public <T> T get(String key, Class<T> clazz) {
-        String value = stringRedisTemplate.opsForValue().get(key);
-        if (String.class.isAssignableFrom(clazz)) {
-            return (T) value;
-        }
-        return JSON.parseObject(value, FastJson2Util.buildType(clazz));
+        byte[] rawKey = rawKey(key);
+        byte[] value = stringRedisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(rawKey));
+        return cacheValueSerializer.deserialize(value, clazz);
+    }
+
+    /**
+     * 通过 Key 序列化器拼接缓存前缀，缓存值按字节读写并由 {@link CacheValueSerializer} 编解码
+     */
+    private byte[] rawKey(String key) {
+        return ((RedisSerializer<String>) stringRedisTemplate.getKeySerializer()).serialize(key);
     }
 
     @Override
@@ -146,14 +189,117 @@ public class StringRedisTemplateProxy implements DistributedCache {
     @Override
     public <T> T safeGet(String key, Class<T> clazz, CacheLoader<T> cacheLoader, long timeout, TimeUnit timeUnit,
                          RBloomFilter<String> bloomFilter, CacheGetFilter<String> cacheGetFilter, CacheGetIfAbsent<String> cacheGetIfAbsent) {
-        // 先读redis缓存
-        T result = get(key, clazz);
+        // 先读redis缓存，开启逻辑过期时临近过期的缓存直接返回并异步刷新
+        T result = isLogicalExpire(key)
+                ? getWithLogicalExpire(key, clazz, cacheLoader, timeout, timeUnit, bloomFilter)
+                : get(key, clazz);
         // 缓存结果不等于空或空字符串直接返回；通过函数判断是否返回空，为了适配布隆过滤器无法删除的场景；两者都不成立，判断布隆过滤器是否存在，不存在返回空
         if (!CacheUtil.isNullOrBlank(result)
                 || Optional.ofNullable(cacheGetFilter).map(each -> each.filter(key)).orElse(false)
                 || Optional.ofNullable(bloomFilter).map(each -> !each.contains(key)).orElse(false)) {
             return result;
         }
+        // 进程内相同 Key 只有一个线程访问分布式锁，其余线程等待加载结果，避免同一节点的线程在分布式锁上排队
+        CompletableFuture<Object> loadFuture = new CompletableFuture<>();
+        CompletableFuture<Object> inFlightLoad = inFlightLoads.putIfAbsent(key, loadFuture);
+        if (inFlightLoad != null) {
+            try {
+                return (T) inFlightLoad.join();
+            } catch (CompletionException ex) {
+                throw ex.getCause() instanceof RuntimeException runtimeException ? runtimeException : ex;
+            }
+        }
+        try {
+            result = lockAndLoad(key, clazz, cacheLoader, timeout, timeUnit, bloomFilter, cacheGetIfAbsent);
+            loadFuture.complete(result);
+            return result;
+        } catch (Throwable ex) {
+            loadFuture.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlightLoads.remove(key, loadFuture);
+        }
+    }
+
+    @Override
+    public <T> List<T> multiGet(@NotNull List<String> keys, Class<T> clazz) {
+        if (keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // MGET 与单 Key 读取一样经过 Key 序列化器，统一拼接缓存前缀
+        byte[][] rawKeys = keys.stream().map(this::rawKey).toArray(byte[][]::new);
+        List<byte[]> values = stringRedisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(rawKeys));
+        List<T> result = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] value = values == null ? null : values.get(i);
+            result.add(cacheValueSerializer.deserialize(value, clazz));
+        }
+        return result;
+    }
+
+    @Override
+    public <T> List<T> safeMultiGet(@NotNull List<String> keys, Class<T> clazz, CacheBatchLoader<T> batchLoader, long timeout, TimeUnit timeUnit) {
+        List<T> result = multiGet(keys, clazz);
+        // 未命中的 Key 中，当前线程负责加载的部分以及所有需要等待结果的位置
+        Map<String, CompletableFuture<Object>> ownedLoads = new LinkedHashMap<>();
+        Map<Integer, CompletableFuture<Object>> pendingLoads = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            if (!CacheUtil.isNullOrBlank(result.get(i))) {
+                continue;
+            }
+            String key = keys.get(i);
+            CompletableFuture<Object> loadFuture = new CompletableFuture<>();
+            CompletableFuture<Object> inFlightLoad = inFlightLoads.putIfAbsent(key, loadFuture);
+            if (inFlightLoad == null) {
+                ownedLoads.put(key, loadFuture);
+                inFlightLoad = loadFuture;
+            }
+            pendingLoads.put(i, inFlightLoad);
+        }
+        if (!ownedLoads.isEmpty()) {
+            try {
+                Map<String, T> loaded = Optional.ofNullable(batchLoader.load(new ArrayList<>(ownedLoads.keySet()))).orElseGet(HashMap::new);
+                Map<String, T> actual = new LinkedHashMap<>();
+                loaded.forEach((key, value) -> {
+                    if (ownedLoads.containsKey(key) && !CacheUtil.isNullOrBlank(value)) {
+                        actual.put(key, value);
+                    }
+                });
+                multiPut(actual, timeout, timeUnit);
+                ownedLoads.forEach((key, loadFuture) -> loadFuture.complete(actual.get(key)));
+            } catch (Throwable ex) {
+                ownedLoads.values().forEach(each -> each.completeExceptionally(ex));
+                throw ex;
+            } finally {
+                ownedLoads.forEach(inFlightLoads::remove);
+            }
+        }
+        try {
+            pendingLoads.forEach((index, loadFuture) -> result.set(index, (T) loadFuture.join()));
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException runtimeException ? runtimeException : ex;
+        }
+        return result;
+    }
+
+    /**
+     * 一次网络 IO 批量写入缓存，Key 通过 Key 序列化器拼接缓存前缀
+     */
+    private void multiPut(Map<String, ?> values, long timeout, TimeUnit timeUnit) {
+        if (values.isEmpty()) {
+            return;
+        }
+        Expiration expiration = Expiration.from(timeout, timeUnit);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            values.forEach((key, value) -> connection.stringCommands()
+                    .set(rawKey(key), cacheValueSerializer.serialize(key, value), expiration, RedisStringCommands.SetOption.upsert()));
+            return null;
+        });
+    }
+
+    private <T> T lockAndLoad(String key, Class<T> clazz, CacheLoader<T> cacheLoader, long timeout, TimeUnit timeUnit,
+                              RBloomFilter<String> bloomFilter, CacheGetIfAbsent<String> cacheGetIfAbsent) {
+        T result;
         RLock lock = redissonClient.getLock(SAFE_GET_DISTRIBUTED_LOCK_KEY_PREFIX + key);
         lock.lock();
         try {
@@ -170,6 +316,94 @@ public class StringRedisTemplateProxy implements DistributedCache {
         return result;
     }
 
+    private boolean isLogicalExpire(String key) {
+        if (!Boolean.TRUE.equals(logicalExpireProperties.getEnabled())) {
+            return false;
+        }
+        List<String> keyPrefixes = logicalExpireProperties.getKeyPrefixes();
+        return keyPrefixes == null || keyPrefixes.isEmpty() || keyPrefixes.stream().anyMatch(key::startsWith);
+    }
+
+    /**
+     * 一次网络 IO 读取缓存值以及剩余过期时间，剩余过期时间低于刷新阈值时提交后台刷新并返回旧值
+     */
+    private <T> T getWithLogicalExpire(String key, Class<T> clazz, CacheLoader<T> cacheLoader, long timeout, TimeUnit timeUnit, RBloomFilter<String> bloomFilter) {
+        byte[] rawKey = rawKey(key);
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.stringCommands().get(rawKey);
+            connection.keyCommands().pTtl(rawKey);
+            return null;
+        }, RedisSerializer.byteArray());
+        byte[] value = (byte[]) results.get(0);
+        if (value == null) {
+            return null;
+        }
+        Long remainingMillis = (Long) results.get(1);
+        if (remainingMillis != null && remainingMillis >= 0 && remainingMillis <= refreshThresholdMillis(timeout, timeUnit)) {
+            submitRefresh(key, cacheLoader, timeout, timeUnit, bloomFilter);
+        }
+        return cacheValueSerializer.deserialize(value, clazz);
+    }
+
+    /**
+     * 后台刷新逻辑过期缓存，只有刷新任务获取分布式锁，获取失败说明其它节点正在刷新
+     */
+    private <T> void submitRefresh(String key, CacheLoader<T> cacheLoader, long timeout, TimeUnit timeUnit, RBloomFilter<String> bloomFilter) {
+        if (!refreshingKeys.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                RLock lock = redissonClient.getLock(SAFE_GET_DISTRIBUTED_LOCK_KEY_PREFIX + key);
+                try {
+                    if (!lock.tryLock()) {
+                        return;
+                    }
+                    try {
+                        // 双重判定，其它节点已刷新时剩余过期时间高于刷新阈值
+                        Long remainingMillis = stringRedisTemplate.getExpire(key, TimeUnit.MILLISECONDS);
+                        if (remainingMillis == null || remainingMillis < 0 || remainingMillis <= refreshThresholdMillis(timeout, timeUnit)) {
+                            loadAndSet(key, cacheLoader, timeout, timeUnit, true, bloomFilter);
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                } catch (Throwable ex) {
+                    log.warn("逻辑过期缓存后台刷新失败，Key：{}", key, ex);
+                } finally {
+                    refreshingKeys.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            refreshingKeys.remove(key);
+        }
+    }
+
+    private long refreshThresholdMillis(long timeout, TimeUnit timeUnit) {
+        return (long) (timeUnit.toMillis(timeout) * logicalExpireProperties.getRefreshRatio());
+    }
+
+    private static ThreadPoolExecutor buildRefreshExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                2,
+                2,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(1024),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cache-logical-expire-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Override
+    public void destroy() {
+        refreshExecutor.shutdown();
+    }
+
     @Override
     public void put(String key, Object value, long timeout) {
         put(key, value, timeout, redisProperties.getValueTimeUnit());
@@ -177,8 +411,10 @@ public class StringRedisTemplateProxy implements DistributedCache {
 
     @Override
     public void put(String key, Object value, long timeout, TimeUnit timeUnit) {
-        String actual = value instanceof String ? (String) value : JSON.toJSONString(value);
-        stringRedisTemplate.opsForValue().set(key, actual, timeout, timeUnit);
+        byte[] rawKey = rawKey(key);
+        byte[] rawValue = cacheValueSerializer.serialize(key, value);
+        stringRedisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands()
+                .set(rawKey, rawValue, Expiration.from(timeout, timeUnit), RedisStringCommands.SetOption.upsert()));
     }
 
     @Override
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.framework.starter.cache.codec;
+
+/**
+ * 缓存值编解码器，注册为 Spring Bean 即可扩展，通过 {@link #name()} 按 Key 前缀选择
+ * {@link #id()} 写入缓存值头部用于解码，发布后不可修改
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+public interface CacheValueCodec {
+
+    /**
+     * 编解码器名称，对应配置 framework.cache.redis.value-codec.key-prefix-codecs[].codec
+     */
+    String name();
+
+    /**
+     * 编解码器标识，全局唯一，取值范围 1 - 127
+     */
+    byte id();
+
+    /**
+     * 编码缓存值
+     */
+    byte[] encode(Object value);
+
+    /**
+     * 解码缓存值
+     */
+    <T> T decode(byte[] bytes, Class<T> clazz);
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.framework.starter.cache.codec;
+
+import org.opengoofy.index12306.framework.starter.cache.config.CacheValueCodecProperties;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 缓存值序列化器，按 Key 前缀选择 {@link CacheValueCodec}
+ * 编码格式：魔数(1 byte) + 版本(1 byte) + 编解码器标识(1 byte) + 压缩算法(1 byte) + 数据
+ * 魔数为 0x00，JSON 文本以及普通字符串不会以其开头，据此兼容读取未携带头部的历史缓存值
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+public class CacheValueSerializer {
+
+    private static final byte MAGIC = 0x00;
+    private static final byte VERSION = 0x01;
+    private static final int HEADER_LENGTH = 4;
+
+    private static final byte COMPRESSION_NONE = 0;
+    private static final byte COMPRESSION_DEFLATE = 1;
+
+    private final CacheValueCodec defaultCodec = new FastJson2CacheValueCodec();
+    private final Map<Byte, CacheValueCodec> codecsById = new HashMap<>();
+
+    /**
+     * Key 前缀编解码器，按前缀长度倒序，优先匹配更具体的前缀
+     */
+    private final List<Map.Entry<String, CacheValueCodec>> keyPrefixCodecs;
+    private final int compressThreshold;
+
+    public CacheValueSerializer(List<CacheValueCodec> codecs, CacheValueCodecProperties codecProperties) {
+        Map<String, CacheValueCodec> codecsByName = new HashMap<>();
+        for (CacheValueCodec each : codecs) {
+            if (each.id() <= 0) {
+                throw new IllegalArgumentException(String.format("Cache value codec [%s] id must be between 1 and 127.", each.name()));
+            }
+            CacheValueCodec existing = codecsById.putIfAbsent(each.id(), each);
+            if (existing != null) {
+                throw new IllegalArgumentException(String.format("Cache value codec [%s] id conflicts with [%s].", each.name(), existing.name()));
+            }
+            codecsByName.put(each.name(), each);
+        }
+        this.keyPrefixCodecs = codecProperties.getKeyPrefixCodecs().stream()
+                .map(each -> {
+                    CacheValueCodec codec = codecsByName.get(each.getCodec());
+                    if (codec == null) {
+                        throw new IllegalArgumentException(String.format("Cache value codec [%s] is undefined.", each.getCodec()));
+                    }
+                    return Map.entry(each.getKeyPrefix(), codec);
+                })
+                .sorted(Comparator.comparingInt((Map.Entry<String, CacheValueCodec> each) -> each.getKey().length()).reversed())
+                .toList();
+        this.compressThreshold = codecProperties.getCompressThreshold() == null ? 0 : codecProperties.getCompressThreshold();
+    }
+
+    /**
+     * 序列化缓存值，未配置编解码器的 Key 与历史格式一致
+     */
+    public byte[] serialize(String key, Object value) {
+        CacheValueCodec codec = selectCodec(key);
+        if (codec == null) {
+            return defaultCodec.encode(value);
+        }
+        byte[] payload = codec.encode(value);
+        byte compression = COMPRESSION_NONE;
+        if (compressThreshold > 0 && payload.length > compressThreshold) {
+            byte[] compressed = deflate(payload);
+            // 压缩收益不足时保留原始数据，避免解码时额外解压
+            if (compressed.length < payload.length) {
+                payload = compressed;
+                compression = COMPRESSION_DEFLATE;
+            }
+        }
+        byte[] result = new byte[HEADER_LENGTH + payload.length];
+        result[0] = MAGIC;
+        result[1] = VERSION;
+        result[2] = codec.id();
+        result[3] = compression;
+        System.arraycopy(payload, 0, result, HEADER_LENGTH, payload.length);
+        return result;
+    }
+
+    /**
+     * 反序列化缓存值，通过头部识别编解码器，与 Key 当前配置无关
+     */
+    public <T> T deserialize(byte[] bytes, Class<T> clazz) {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length < HEADER_LENGTH || bytes[0] != MAGIC) {
+            return defaultCodec.decode(bytes, clazz);
+        }
+        if (bytes[1] != VERSION) {
+            throw new IllegalStateException(String.format("Unsupported cache value version [%d].", bytes[1]));
+        }
+        CacheValueCodec codec = codecsById.get(bytes[2]);
+        if (codec == null) {
+            throw new IllegalStateException(String.format("Cache value codec id [%d] is undefined.", bytes[2]));
+        }
+        byte[] payload = Arrays.copyOfRange(bytes, HEADER_LENGTH, bytes.length);
+        return codec.decode(bytes[3] == COMPRESSION_DEFLATE ? inflate(payload) : payload, clazz);
+    }
+
+    private CacheValueCodec selectCodec(String key) {
+        for (Map.Entry<String, CacheValueCodec> each : keyPrefixCodecs) {
+            if (key.startsWith(each.getKey())) {
+                return each.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (DeflaterOutputStream deflaterOut = new DeflaterOutputStream(out, deflater)) {
+            deflaterOut.write(bytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] bytes) {
+        try (InflaterInputStream inflaterIn = new InflaterInputStream(new ByteArrayInputStream(bytes))) {
+            return inflaterIn.readAllBytes();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -17,15 +17,29 @@
 
 package org.opengoofy.index12306.framework.starter.cache.config;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.AllArgsConstructor;
+import org.opengoofy.index12306.framework.starter.cache.CaffeineRedisMultistageCache;
 import org.opengoofy.index12306.framework.starter.cache.RedisKeySerializer;
 import org.opengoofy.index12306.framework.starter.cache.StringRedisTemplateProxy;
+import org.opengoofy.index12306.framework.starter.cache.codec.CacheValueCodec;
+import org.opengoofy.index12306.framework.starter.cache.codec.CacheValueSerializer;
+import org.opengoofy.index12306.framework.starter.cache.codec.FastJson2CacheValueCodec;
+import org.opengoofy.index12306.framework.starter.cache.codec.FastJson2JsonbCacheValueCodec;
 import org.redisson.api.RBloomFilter;
 import org.redisson.api.RedissonClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.List;
 
 /**
  * 缓存配置自动装配
@@ -33,7 +47,7 @@ import org.springframework.data.redis.core.StringRedisTemplate;
  * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
  */
 @AllArgsConstructor
-@EnableConfigurationProperties({RedisDistributedProperties.class, BloomFilterPenetrateProperties.class})
+@EnableConfigurationProperties({RedisDistributedProperties.class, BloomFilterPenetrateProperties.class, LogicalExpireProperties.class, CacheValueCodecProperties.class})
 public class CacheAutoConfiguration {
 
     private final RedisDistributedProperties redisDistributedProperties;
@@ -59,12 +73,73 @@ public class CacheAutoConfiguration {
         return cachePenetrationBloomFilter;
     }
 
+    /**
+     * FastJson2 文本编解码器
+     */
+    @Bean
+    public FastJson2CacheValueCodec fastJson2CacheValueCodec() {
+        return new FastJson2CacheValueCodec();
+    }
+
+    /**
+     * FastJson2 JSONB 二进制编解码器
+     */
+    @Bean
+    public FastJson2JsonbCacheValueCodec fastJson2JsonbCacheValueCodec() {
+        return new FastJson2JsonbCacheValueCodec();
+    }
+
+    /**
+     * 缓存值序列化器，汇总容器内所有 {@link CacheValueCodec}，按 Key 前缀选择编解码器
+     */
+    @Bean
+    public CacheValueSerializer cacheValueSerializer(List<CacheValueCodec> cacheValueCodecs, CacheValueCodecProperties cacheValueCodecProperties) {
+        return new CacheValueSerializer(cacheValueCodecs, cacheValueCodecProperties);
+    }
+
     @Bean
     // 静态代理模式: Redis 客户端代理类增强
     public StringRedisTemplateProxy stringRedisTemplateProxy(RedisKeySerializer redisKeySerializer,
                                                              StringRedisTemplate stringRedisTemplate,
-                                                             RedissonClient redissonClient) {
+                                                             RedissonClient redissonClient,
+                                                             LogicalExpireProperties logicalExpireProperties,
+                                                             CacheValueSerializer cacheValueSerializer) {
         stringRedisTemplate.setKeySerializer(redisKeySerializer);
-        return new StringRedisTemplateProxy(stringRedisTemplate, redisDistributedProperties, redissonClient);
+        return new StringRedisTemplateProxy(stringRedisTemplate, redisDistributedProperties, redissonClient, logicalExpireProperties, cacheValueSerializer);
+    }
+
+    /**
+     * 多级缓存，未配置本地缓存策略时直接访问分布式缓存
+     */
+    @Bean
+    public CaffeineRedisMultistageCache multistageCache(StringRedisTemplateProxy stringRedisTemplateProxy) {
+        return new CaffeineRedisMultistageCache(stringRedisTemplateProxy, redisDistributedProperties);
+    }
+
+    /**
+     * 订阅多级缓存本地缓存失效广播，配置本地缓存策略后生效
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = RedisDistributedProperties.PREFIX, name = "multistage-local-policies[0].key-prefix")
+    public RedisMessageListenerContainer multistageCacheInvalidateListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                                    CaffeineRedisMultistageCache multistageCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(multistageCache, new ChannelTopic(redisDistributedProperties.getMultistageInvalidateChannel()));
+        return container;
+    }
+
+    /**
+     * 多级缓存本地缓存命中率统计
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    static class MultistageCacheMetricsConfiguration {
+
+        @Bean
+        public MeterBinder multistageCacheMeterBinder(CaffeineRedisMultistageCache multistageCache) {
+            return registry -> multistageCache.getLocalCaches()
+                    .forEach((keyPrefix, localCache) -> CaffeineCacheMetrics.monitor(registry, localCache, "multistage-cache", "keyPrefix", keyPrefix));
+        }
     }
 }
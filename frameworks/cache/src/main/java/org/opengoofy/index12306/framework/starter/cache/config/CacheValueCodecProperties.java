@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.framework.starter.cache.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 缓存值编解码配置
+ * 读取时通过缓存值头部识别编码格式，未携带头部的按 JSON 文本解码；滚动发布时先全量发布，再配置 Key 前缀编解码器
+ * 配置编解码器的 Key 只能通过 {@link org.opengoofy.index12306.framework.starter.cache.DistributedCache} 读写
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Data
+@ConfigurationProperties(prefix = CacheValueCodecProperties.PREFIX)
+public class CacheValueCodecProperties {
+
+    public static final String PREFIX = "framework.cache.redis.value-codec";
+
+    /**
+     * 编码后超过该字节数时压缩，小于等于 0 时不压缩，只对配置编解码器的 Key 生效
+     */
+    private Integer compressThreshold = 2048;
+
+    /**
+     * Key 前缀编解码器，未匹配到的 Key 按 JSON 文本写入且不携带头部
+     */
+    private List<KeyPrefixCodec> keyPrefixCodecs = new ArrayList<>();
+
+    /**
+     * Key 前缀编解码器
+     */
+    @Data
+    public static class KeyPrefixCodec {
+
+        /**
+         * Key 前缀
+         */
+        private String keyPrefix;
+
+        /**
+         * 编解码器名称
+         */
+        private String codec = "jsonb";
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.framework.starter.cache.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 缓存逻辑过期配置
+ * 逻辑过期时间由 Key 剩余过期时间推导，缓存值格式保持不变，其它直接读取 Redis 的场景不受影响
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Data
+@ConfigurationProperties(prefix = LogicalExpireProperties.PREFIX)
+public class LogicalExpireProperties {
+
+    public static final String PREFIX = "framework.cache.redis.logical-expire";
+
+    /**
+     * 是否开启逻辑过期，开启后 safeGet 读取到临近过期的缓存时直接返回旧值，并由后台任务异步刷新
+     */
+    private Boolean enabled = false;
+
+    /**
+     * 开启逻辑过期的 Key 前缀，为空时所有 safeGet 读取的 Key 均开启
+     */
+    private List<String> keyPrefixes = new ArrayList<>();
+
+    /**
+     * 剩余过期时间低于 safeGet 过期时间的该比例时视为逻辑过期
+     */
+    private Double refreshRatio = 0.1D;
+}
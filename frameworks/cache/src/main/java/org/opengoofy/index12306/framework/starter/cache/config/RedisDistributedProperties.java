@@ -20,6 +20,8 @@ package org.opengoofy.index12306.framework.starter.cache.config;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -52,4 +54,36 @@ public class RedisDistributedProperties {
      * 时间单位
      */
     private TimeUnit valueTimeUnit = TimeUnit.MILLISECONDS;
+
+    /**
+     * 多级缓存本地缓存失效广播频道
+     */
+    private String multistageInvalidateChannel = "index12306:multistage-cache:invalidate";
+
+    /**
+     * 多级缓存本地缓存策略，按 Key 前缀配置，未匹配到策略的 Key 不使用本地缓存
+     */
+    private List<LocalCachePolicy> multistageLocalPolicies = new ArrayList<>();
+
+    /**
+     * 多级缓存本地缓存策略
+     */
+    @Data
+    public static class LocalCachePolicy {
+
+        /**
+         * Key 前缀
+         */
+        private String keyPrefix;
+
+        /**
+         * 写入本地缓存后过期时间，单位毫秒
+         */
+        private Long expireMillis = 60000L;
+
+        /**
+         * 本地缓存数量上限
+         */
+        private Long maximumSize = 1024L;
+    }
 }
@@ -15,12 +15,21 @@
  * limitations under the License.
  */
 
-package org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.base;
+package org.opengoofy.index12306.framework.starter.cache.core;
+
+import java.util.List;
+import java.util.Map;
 
 /**
- * 高铁验证座位接口
+ * 缓存批量加载器
  *
  * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
  */
-public interface TrainBitMapCheckSeat extends BitMapCheckSeat {
+@FunctionalInterface
+public interface CacheBatchLoader<T> {
+
+    /**
+     * 批量加载缓存，返回 Key 与加载结果的映射，未加载到数据的 Key 可以不返回
+     */
+    Map<String, T> load(List<String> keys);
 }
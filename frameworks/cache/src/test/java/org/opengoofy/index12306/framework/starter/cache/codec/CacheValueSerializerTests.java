@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.framework.starter.cache.codec;
+
+import com.alibaba.fastjson2.JSON;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opengoofy.index12306.framework.starter.cache.config.CacheValueCodecProperties;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 缓存值序列化器头部识别、压缩以及历史格式兼容测试
+ */
+class CacheValueSerializerTests {
+
+    private static final String JSONB_KEY_PREFIX = "index12306-ticket-service:train:";
+
+    @Test
+    void testLegacyJsonWithoutHeader() {
+        CacheValueSerializer serializer = buildSerializer(2048);
+        TrainCacheValue value = new TrainCacheValue("G35", "北京南", 12306L);
+        // 未配置编解码器的 Key 写入 JSON 文本且不携带头部
+        byte[] legacy = serializer.serialize("index12306-ticket-service:station:1", value);
+        Assertions.assertArrayEquals(JSON.toJSONString(value).getBytes(StandardCharsets.UTF_8), legacy);
+        Assertions.assertEquals(value, serializer.deserialize(legacy, TrainCacheValue.class));
+        // 配置编解码器前写入的历史缓存值仍按 JSON 文本解码
+        Assertions.assertEquals(value, serializer.deserialize(JSON.toJSONString(value).getBytes(StandardCharsets.UTF_8), TrainCacheValue.class));
+        Assertions.assertEquals("plain", serializer.deserialize("plain".getBytes(StandardCharsets.UTF_8), String.class));
+    }
+
+    @Test
+    void testJsonbWithHeader() {
+        CacheValueSerializer serializer = buildSerializer(2048);
+        TrainCacheValue value = new TrainCacheValue("G35", "北京南", 12306L);
+        byte[] bytes = serializer.serialize(JSONB_KEY_PREFIX + "1", value);
+        Assertions.assertArrayEquals(new byte[]{0x00, 0x01, 2, 0}, new byte[]{bytes[0], bytes[1], bytes[2], bytes[3]});
+        Assertions.assertEquals(value, serializer.deserialize(bytes, TrainCacheValue.class));
+    }
+
+    @Test
+    void testDeflateAboveThreshold() {
+        CacheValueSerializer serializer = buildSerializer(64);
+        TrainCacheValue value = new TrainCacheValue("G35", "北京南".repeat(200), 12306L);
+        byte[] bytes = serializer.serialize(JSONB_KEY_PREFIX + "1", value);
+        Assertions.assertEquals(1, bytes[3]);
+        Assertions.assertTrue(bytes.length < new FastJson2JsonbCacheValueCodec().encode(value).length);
+        Assertions.assertEquals(value, serializer.deserialize(bytes, TrainCacheValue.class));
+        // 未超过阈值时不压缩
+        TrainCacheValue smallValue = new TrainCacheValue("G35", "北京南", 1L);
+        byte[] smallBytes = serializer.serialize(JSONB_KEY_PREFIX + "2", smallValue);
+        Assertions.assertEquals(0, smallBytes[3]);
+        Assertions.assertEquals(smallValue, serializer.deserialize(smallBytes, TrainCacheValue.class));
+    }
+
+    @Test
+    void testUnknownCodecId() {
+        CacheValueSerializer serializer = buildSerializer(2048);
+        byte[] bytes = {0x00, 0x01, 99, 0, 1, 2, 3};
+        Assertions.assertThrows(IllegalStateException.class, () -> serializer.deserialize(bytes, TrainCacheValue.class));
+        byte[] unsupportedVersion = {0x00, 0x02, 2, 0, 1, 2, 3};
+        Assertions.assertThrows(IllegalStateException.class, () -> serializer.deserialize(unsupportedVersion, TrainCacheValue.class));
+    }
+
+    @Test
+    void testUndefinedCodecName() {
+        CacheValueCodecProperties codecProperties = new CacheValueCodecProperties();
+        CacheValueCodecProperties.KeyPrefixCodec keyPrefixCodec = new CacheValueCodecProperties.KeyPrefixCodec();
+        keyPrefixCodec.setKeyPrefix(JSONB_KEY_PREFIX);
+        keyPrefixCodec.setCodec("protobuf");
+        codecProperties.setKeyPrefixCodecs(List.of(keyPrefixCodec));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new CacheValueSerializer(List.of(new FastJson2CacheValueCodec(), new FastJson2JsonbCacheValueCodec()), codecProperties));
+    }
+
+    private static CacheValueSerializer buildSerializer(int compressThreshold) {
+        CacheValueCodecProperties codecProperties = new CacheValueCodecProperties();
+        codecProperties.setCompressThreshold(compressThreshold);
+        CacheValueCodecProperties.KeyPrefixCodec keyPrefixCodec = new CacheValueCodecProperties.KeyPrefixCodec();
+        keyPrefixCodec.setKeyPrefix(JSONB_KEY_PREFIX);
+        keyPrefixCodec.setCodec(FastJson2JsonbCacheValueCodec.NAME);
+        codecProperties.setKeyPrefixCodecs(List.of(keyPrefixCodec));
+        return new CacheValueSerializer(List.of(new FastJson2CacheValueCodec(), new FastJson2JsonbCacheValueCodec()), codecProperties);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TrainCacheValue {
+
+        private String trainNumber;
+
+        private String startStation;
+
+        private Long trainId;
+    }
+}
@@ -20,14 +20,12 @@ package org.opengoofy.index12306.framework.starter.designpattern.chain;
 import org.opengoofy.index12306.framework.starter.bases.ApplicationContextHolder;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.core.Ordered;
-import org.springframework.util.CollectionUtils;
 
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * 抽象责任链上下文
@@ -36,7 +34,15 @@ import java.util.stream.Collectors;
  */
 public final class AbstractChainContext<T> implements CommandLineRunner {
 
-    private final Map<String, List<AbstractChainHandler>> abstractChainHandlerContainer = new HashMap<>();
+    /**
+     * 责任链容器，启动时按组件标识排序后固化为数组，运行时只读
+     */
+    private volatile Map<String, AbstractChainHandler[]> abstractChainHandlerContainer = Map.of();
+
+    /**
+     * 责任链组件执行耗时记录器，为空时不统计耗时
+     */
+    private volatile ChainHandlerMetricsRecorder metricsRecorder;
 
     /**
      * 责任链组件执行
@@ -46,13 +52,27 @@ public final class AbstractChainContext<T> implements CommandLineRunner {
      */
     public void handler(String mark, T requestParam) {
         // 根据责任链组件标识获取责任链容器
-        List<AbstractChainHandler> abstractChainHandlers = abstractChainHandlerContainer.get(mark);
+        AbstractChainHandler[] abstractChainHandlers = abstractChainHandlerContainer.get(mark);
         // 如果责任链容器为空，则为非法责任链组件标识
-        if (CollectionUtils.isEmpty(abstractChainHandlers)) {
+        if (abstractChainHandlers == null || abstractChainHandlers.length == 0) {
             throw new RuntimeException(String.format("[%s] Chain of Responsibility ID is undefined.", mark));
         }
         // 执行责任链容器中的责任链组件
-        abstractChainHandlers.forEach(each -> each.handler(requestParam));
+        ChainHandlerMetricsRecorder recorder = metricsRecorder;
+        if (recorder == null) {
+            for (AbstractChainHandler each : abstractChainHandlers) {
+                each.handler(requestParam);
+            }
+            return;
+        }
+        for (AbstractChainHandler each : abstractChainHandlers) {
+            long start = System.nanoTime();
+            try {
+                each.handler(requestParam);
+            } finally {
+                recorder.record(mark, each, System.nanoTime() - start);
+            }
+        }
     }
 
     // 运行时初始化责任链容器
@@ -62,21 +82,18 @@ public final class AbstractChainContext<T> implements CommandLineRunner {
         // 从 ApplicationContextHolder 获取所有的 AbstractChainHandler 实现类
         Map<String, AbstractChainHandler> chainFilterMap = ApplicationContextHolder
                 .getBeansOfType(AbstractChainHandler.class);
-        chainFilterMap.forEach((beanName, bean) -> {
-            // 根据 AbstractChainHandler 实现类的 mark 方法获取责任链组件标识
-            List<AbstractChainHandler> abstractChainHandlers = abstractChainHandlerContainer.get(bean.mark());
-            // 如果为空，则初始化责任链容器
-            if (CollectionUtils.isEmpty(abstractChainHandlers)) {
-                abstractChainHandlers = new ArrayList();
-            }
-            // 将 AbstractChainHandler 实现类添加到责任链容器中
-            abstractChainHandlers.add(bean);
-            // 根据 AbstractChainHandler 实现类的 getOrder 方法排序
-            List<AbstractChainHandler> actualAbstractChainHandlers = abstractChainHandlers.stream()
-                    .sorted(Comparator.comparing(Ordered::getOrder))
-                    .collect(Collectors.toList());
-            // 将排序后的责任链组件添加到责任链容器中
-            abstractChainHandlerContainer.put(bean.mark(), actualAbstractChainHandlers);
+        // 根据 AbstractChainHandler 实现类的 mark 方法获取责任链组件标识并分组
+        Map<String, List<AbstractChainHandler>> chainHandlerGroup = new HashMap<>();
+        chainFilterMap.forEach((beanName, bean) -> chainHandlerGroup.computeIfAbsent(bean.mark(), key -> new ArrayList<>()).add(bean));
+        // 根据 AbstractChainHandler 实现类的 getOrder 方法排序后固化为数组
+        Map<String, AbstractChainHandler[]> actualContainer = new HashMap<>();
+        chainHandlerGroup.forEach((mark, handlers) -> {
+            handlers.sort(Comparator.comparing(Ordered::getOrder));
+            actualContainer.put(mark, handlers.toArray(new AbstractChainHandler[0]));
         });
+        abstractChainHandlerContainer = Map.copyOf(actualContainer);
+        metricsRecorder = ApplicationContextHolder.getBeansOfType(ChainHandlerMetricsRecorder.class).values().stream()
+                .findFirst()
+                .orElse(null);
     }
 }
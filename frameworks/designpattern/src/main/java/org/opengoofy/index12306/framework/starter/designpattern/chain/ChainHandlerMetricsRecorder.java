@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.framework.starter.designpattern.chain;
+
+/**
+ * 责任链组件执行耗时记录器，容器中存在该类型 Bean 时责任链上下文记录每个组件的执行耗时
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+public interface ChainHandlerMetricsRecorder {
+
+    /**
+     * 记录责任链组件执行耗时，组件执行抛出异常时同样记录
+     *
+     * @param mark         责任链组件标识
+     * @param handler      责任链组件
+     * @param elapsedNanos 执行耗时，单位纳秒
+     */
+    void record(String mark, AbstractChainHandler handler, long elapsedNanos);
+}
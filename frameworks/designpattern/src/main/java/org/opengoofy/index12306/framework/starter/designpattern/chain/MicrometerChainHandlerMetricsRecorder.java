@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.framework.starter.designpattern.chain;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.util.ClassUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 Micrometer 的责任链组件执行耗时记录器，按责任链组件标识以及组件类名输出耗时直方图
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@RequiredArgsConstructor
+public class MicrometerChainHandlerMetricsRecorder implements ChainHandlerMetricsRecorder {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<AbstractChainHandler, Timer> timerMap = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(String mark, AbstractChainHandler handler, long elapsedNanos) {
+        Timer timer = timerMap.computeIfAbsent(handler, each -> Timer.builder("chain.handler.duration")
+                .description("责任链组件执行耗时")
+                .tag("mark", mark)
+                .tag("handler", ClassUtils.getUserClass(each).getSimpleName())
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -17,11 +17,18 @@
 
 package org.opengoofy.index12306.framework.starter.designpattern.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.opengoofy.index12306.framework.starter.bases.config.ApplicationBaseAutoConfiguration;
 import org.opengoofy.index12306.framework.starter.designpattern.chain.AbstractChainContext;
+import org.opengoofy.index12306.framework.starter.designpattern.chain.ChainHandlerMetricsRecorder;
+import org.opengoofy.index12306.framework.starter.designpattern.chain.MicrometerChainHandlerMetricsRecorder;
 import org.opengoofy.index12306.framework.starter.designpattern.strategy.AbstractStrategyChoose;
 import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 
 /**
  * 设计模式自动装配
@@ -46,4 +53,19 @@ public class DesignPatternAutoConfiguration {
     public AbstractChainContext abstractChainContext() {
         return new AbstractChainContext();
     }
+
+    /**
+     * 责任链组件执行耗时统计，默认关闭
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnProperty(name = "framework.design-pattern.chain.metrics.enabled", havingValue = "true")
+    static class ChainHandlerMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(ChainHandlerMetricsRecorder.class)
+        public ChainHandlerMetricsRecorder chainHandlerMetricsRecorder(MeterRegistry meterRegistry) {
+            return new MicrometerChainHandlerMetricsRecorder(meterRegistry);
+        }
+    }
 }
@@ -23,9 +23,12 @@ import org.opengoofy.index12306.framework.starter.convention.exception.ServiceEx
 import org.springframework.context.ApplicationListener;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 /**
@@ -40,6 +43,21 @@ public class AbstractStrategyChoose implements ApplicationListener<ApplicationIn
      */
     private final Map<String, AbstractExecuteStrategy> abstractExecuteStrategyMap = new HashMap<>();
 
+    /**
+     * 范匹配策略集合，启动时预编译正则表达式，避免每次选择策略时重复编译
+     */
+    private final List<PatternMatchStrategy> patternMatchStrategies = new ArrayList<>();
+
+    /**
+     * 范匹配结果缓存，未匹配到策略同样缓存，避免 Canal 等高频调用场景重复匹配
+     */
+    private final Map<String, Optional<AbstractExecuteStrategy>> patternMatchCache = new ConcurrentHashMap<>();
+
+    /**
+     * 范匹配结果缓存数量上限，标识来源于外部输入时防止缓存无限增长
+     */
+    private static final int PATTERN_MATCH_CACHE_MAX_SIZE = 4096;
+
     /**
      * 根据 mark 查询具体策略
      *
@@ -49,11 +67,14 @@ public class AbstractStrategyChoose implements ApplicationListener<ApplicationIn
      */
     public AbstractExecuteStrategy choose(String mark, Boolean predicateFlag) {
         if (predicateFlag != null && predicateFlag) {
-            return abstractExecuteStrategyMap.values().stream()
-                    .filter(each -> StringUtils.hasText(each.patternMatchMark()))
-                    .filter(each -> Pattern.compile(each.patternMatchMark()).matcher(mark).matches())
-                    .findFirst()
-                    .orElseThrow(() -> new ServiceException("策略未定义"));
+            Optional<AbstractExecuteStrategy> matched = patternMatchCache.get(mark);
+            if (matched == null) {
+                matched = patternMatch(mark);
+                if (patternMatchCache.size() < PATTERN_MATCH_CACHE_MAX_SIZE) {
+                    patternMatchCache.putIfAbsent(mark, matched);
+                }
+            }
+            return matched.orElseThrow(() -> new ServiceException("策略未定义"));
         }
         return Optional.ofNullable(abstractExecuteStrategyMap.get(mark))
                 .orElseThrow(() -> new ServiceException(String.format("[%s] 策略未定义", mark)));
@@ -98,6 +119,30 @@ public class AbstractStrategyChoose implements ApplicationListener<ApplicationIn
         return (RESPONSE) executeStrategy.executeResp(requestParam);
     }
 
+    /**
+     * 根据 mark 查询具体策略并执行，带返回结果
+     *
+     * @param mark          策略标识
+     * @param requestParam  执行策略入参
+     * @param predicateFlag 匹配范解析标识
+     * @param <REQUEST>     执行策略入参范型
+     * @param <RESPONSE>    执行策略出参范型
+     * @return
+     */
+    public <REQUEST, RESPONSE> RESPONSE chooseAndExecuteResp(String mark, REQUEST requestParam, Boolean predicateFlag) {
+        AbstractExecuteStrategy executeStrategy = choose(mark, predicateFlag);
+        return (RESPONSE) executeStrategy.executeResp(requestParam);
+    }
+
+    private Optional<AbstractExecuteStrategy> patternMatch(String mark) {
+        for (PatternMatchStrategy each : patternMatchStrategies) {
+            if (each.pattern().matcher(mark).matches()) {
+                return Optional.of(each.strategy());
+            }
+        }
+        return Optional.empty();
+    }
+
     @Override
     public void onApplicationEvent(ApplicationInitializingEvent event) {
         Map<String, AbstractExecuteStrategy> actual = ApplicationContextHolder.getBeansOfType(AbstractExecuteStrategy.class);
@@ -108,5 +153,13 @@ public class AbstractStrategyChoose implements ApplicationListener<ApplicationIn
             }
             abstractExecuteStrategyMap.put(bean.mark(), bean);
         });
+        patternMatchStrategies.clear();
+        abstractExecuteStrategyMap.values().stream()
+                .filter(each -> StringUtils.hasText(each.patternMatchMark()))
+                .forEach(each -> patternMatchStrategies.add(new PatternMatchStrategy(Pattern.compile(each.patternMatchMark()), each)));
+        patternMatchCache.clear();
+    }
+
+    private record PatternMatchStrategy(Pattern pattern, AbstractExecuteStrategy strategy) {
     }
 }
@@ -37,7 +37,7 @@ import org.springframework.context.annotation.Bean;
  *
  * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
  */
-@EnableConfigurationProperties(IdempotentProperties.class)
+@EnableConfigurationProperties({IdempotentProperties.class, IdempotentParamProperties.class})
 public class IdempotentAutoConfiguration {
 
     /**
@@ -53,8 +53,9 @@ public class IdempotentAutoConfiguration {
      */
     @Bean
     @ConditionalOnMissingBean
-    public IdempotentParamService idempotentParamExecuteHandler(RedissonClient redissonClient) {
-        return new IdempotentParamExecuteHandler(redissonClient);
+    public IdempotentParamService idempotentParamExecuteHandler(RedissonClient redissonClient,
+                                                                IdempotentParamProperties idempotentParamProperties) {
+        return new IdempotentParamExecuteHandler(redissonClient, idempotentParamProperties);
     }
 
     /**
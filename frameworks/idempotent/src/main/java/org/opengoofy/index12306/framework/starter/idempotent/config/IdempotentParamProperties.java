@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.framework.starter.idempotent.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 参数方式幂等属性配置
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Data
+@ConfigurationProperties(prefix = IdempotentParamProperties.PREFIX)
+public class IdempotentParamProperties {
+
+    public static final String PREFIX = "framework.idempotent.param";
+
+    /**
+     * 是否开启本地请求指纹去重，开启后同一节点正在处理的重复请求不访问 Redis 直接拒绝
+     */
+    private Boolean localEnabled = false;
+
+    /**
+     * 本地请求指纹最长保留时间，单位毫秒，请求执行结束后指纹立即移除，该时间仅用于兜底清理未正常移除的指纹
+     */
+    private Long localWindowMillis = 1000L;
+
+    /**
+     * 本地请求指纹数量上限
+     */
+    private Long localMaximumSize = 100000L;
+}
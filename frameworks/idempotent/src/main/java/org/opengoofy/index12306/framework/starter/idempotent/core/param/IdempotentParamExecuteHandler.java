@@ -18,11 +18,15 @@
 package org.opengoofy.index12306.framework.starter.idempotent.core.param;
 
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.crypto.digest.DigestUtil;
 import com.alibaba.fastjson2.JSON;
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.opengoofy.index12306.framework.starter.convention.exception.ClientException;
+import org.opengoofy.index12306.framework.starter.idempotent.config.IdempotentParamProperties;
 import org.opengoofy.index12306.framework.starter.idempotent.core.AbstractIdempotentExecuteHandler;
 import org.opengoofy.index12306.framework.starter.idempotent.core.IdempotentContext;
 import org.opengoofy.index12306.framework.starter.idempotent.core.IdempotentParamWrapper;
@@ -32,21 +36,40 @@ import org.redisson.api.RedissonClient;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * 基于方法参数验证请求幂等性
+ * 开启本地请求指纹去重后，同一节点正在处理的重复请求直接拒绝，本地未命中时再通过分布式锁判断其它节点是否正在处理
+ * 本地指纹与分布式锁语义一致，请求执行结束后即移除，不拦截首次请求完成后的正常重复请求
  *
  * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
  */
-@RequiredArgsConstructor
 public final class IdempotentParamExecuteHandler extends AbstractIdempotentExecuteHandler implements IdempotentParamService {
 
     private final RedissonClient redissonClient;
 
+    /**
+     * 本地请求指纹集合，未开启本地去重时为空
+     */
+    private final Cache<String, Boolean> localFingerprints;
+
     private final static String LOCK = "lock:param:restAPI";
+    private final static String LOCAL_FINGERPRINT = "fingerprint:param:restAPI";
+
+    public IdempotentParamExecuteHandler(RedissonClient redissonClient, IdempotentParamProperties idempotentParamProperties) {
+        this.redissonClient = redissonClient;
+        this.localFingerprints = Boolean.TRUE.equals(idempotentParamProperties.getLocalEnabled())
+                ? Caffeine.newBuilder()
+                .expireAfterWrite(idempotentParamProperties.getLocalWindowMillis(), TimeUnit.MILLISECONDS)
+                .maximumSize(idempotentParamProperties.getLocalMaximumSize())
+                .build()
+                : null;
+    }
 
     @Override
     protected IdempotentParamWrapper buildWrapper(ProceedingJoinPoint joinPoint) {
-        String lockKey = String.format("idempotent:path:%s:currentUserId:%s:md5:%s", getServletPath(), getCurrentUserId(), calcArgsMD5(joinPoint));
+        String lockKey = String.format("idempotent:path:%s:currentUserId:%s:digest:%s", getServletPath(), getCurrentUserId(), calcArgsDigest(joinPoint));
         return IdempotentParamWrapper.builder().lockKey(lockKey).joinPoint(joinPoint).build();
     }
 
@@ -70,21 +93,43 @@ public final class IdempotentParamExecuteHandler extends AbstractIdempotentExecu
     }
 
     /**
-     * @return joinPoint md5
+     * 参数序列化结果直接写入 Murmur3 128 位摘要，不生成完整 JSON 字节数组
+     *
+     * @return joinPoint 参数摘要
      */
-    private String calcArgsMD5(ProceedingJoinPoint joinPoint) {
-        String md5 = DigestUtil.md5Hex(JSON.toJSONBytes(joinPoint.getArgs()));
-        return md5;
+    private String calcArgsDigest(ProceedingJoinPoint joinPoint) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        JSON.writeTo(Funnels.asOutputStream(hasher), joinPoint.getArgs());
+        return hasher.hash().toString();
     }
 
     @Override
     public void handler(IdempotentParamWrapper wrapper) {
         String lockKey = wrapper.getLockKey();
+        if (localFingerprints != null) {
+            // 同一节点正在处理相同请求，无需访问 Redis
+            if (localFingerprints.asMap().putIfAbsent(lockKey, Boolean.TRUE) != null) {
+                throw new ClientException(wrapper.getIdempotent().message());
+            }
+        }
         RLock lock = redissonClient.getLock(lockKey);
         if (!lock.tryLock()) {
+            // 其它节点正在处理，本次请求未执行，移除本地指纹避免误拒绝后续请求
+            if (localFingerprints != null) {
+                localFingerprints.invalidate(lockKey);
+            }
             throw new ClientException(wrapper.getIdempotent().message());
         }
         IdempotentContext.put(LOCK, lock);
+        if (localFingerprints != null) {
+            IdempotentContext.put(LOCAL_FINGERPRINT, lockKey);
+        }
+    }
+
+    @Override
+    public void exceptionProcessing() {
+        // 业务执行异常同样释放分布式锁以及本地指纹，允许立即重试
+        postProcessing();
     }
 
     @Override
@@ -93,8 +138,15 @@ public final class IdempotentParamExecuteHandler extends AbstractIdempotentExecu
         try {
             lock = (RLock) IdempotentContext.getKey(LOCK);
         } finally {
-            if (lock != null) {
-                lock.unlock();
+            try {
+                if (lock != null) {
+                    lock.unlock();
+                }
+            } finally {
+                String fingerprint = IdempotentContext.getString(LOCAL_FINGERPRINT);
+                if (fingerprint != null) {
+                    localFingerprints.invalidate(fingerprint);
+                }
             }
         }
     }
@@ -21,6 +21,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.opengoofy.index12306.framework.starter.bases.Singleton;
 import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
 import org.opengoofy.index12306.framework.starter.idempotent.annotation.Idempotent;
 import org.opengoofy.index12306.framework.starter.idempotent.core.AbstractIdempotentExecuteHandler;
@@ -31,8 +32,12 @@ import org.opengoofy.index12306.framework.starter.idempotent.core.RepeatConsumpt
 import org.opengoofy.index12306.framework.starter.idempotent.enums.IdempotentMQConsumeStatusEnum;
 import org.opengoofy.index12306.framework.starter.idempotent.toolkit.LogUtil;
 import org.opengoofy.index12306.framework.starter.idempotent.toolkit.SpELUtil;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
 
+import java.util.Collections;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -47,6 +52,7 @@ public final class IdempotentSpELByMQExecuteHandler extends AbstractIdempotentEx
 
     private final static int TIMEOUT = 600;
     private final static String WRAPPER = "wrapper:spEL:MQ";
+    private final static String LUA_CONSUME_STATUS_CHECK_AND_SET_PATH = "lua/idempotent_mq_consume_status_check_and_set.lua";
 
     @SneakyThrows
     @Override
@@ -63,11 +69,13 @@ public final class IdempotentSpELByMQExecuteHandler extends AbstractIdempotentEx
         // 写入 key 时判断 key 是否存在，防止重复消费
         // 1. 未消费，设置消费中
         // 2. 已消费，抛出异常
-        Boolean setIfAbsent = ((StringRedisTemplate) distributedCache.getInstance())
-                .opsForValue()
-                .setIfAbsent(uniqueKey, IdempotentMQConsumeStatusEnum.CONSUMING.getCode(), TIMEOUT, TimeUnit.SECONDS);
-        if (setIfAbsent != null && !setIfAbsent) {
-            String consumeStatus = distributedCache.get(uniqueKey, String.class);
+        // Lua 脚本一次网络 IO 完成判断和写入，返回写入前的消费状态，为空代表未消费
+        String consumeStatus = ((StringRedisTemplate) distributedCache.getInstance()).execute(
+                getConsumeStatusScript(),
+                Collections.singletonList(uniqueKey),
+                IdempotentMQConsumeStatusEnum.CONSUMING.getCode(),
+                String.valueOf(TIMEOUT));
+        if (consumeStatus != null) {
             boolean error = IdempotentMQConsumeStatusEnum.isError(consumeStatus);
             LogUtil.getLog(wrapper.getJoinPoint()).warn("[{}] MQ repeated consumption, {}.", uniqueKey, error ? "Wait for the client to delay consumption" : "Status is completed");
             throw new RepeatConsumptionException(error);
@@ -75,6 +83,15 @@ public final class IdempotentSpELByMQExecuteHandler extends AbstractIdempotentEx
         IdempotentContext.put(WRAPPER, wrapper);
     }
 
+    private static DefaultRedisScript<String> getConsumeStatusScript() {
+        return Singleton.get(LUA_CONSUME_STATUS_CHECK_AND_SET_PATH, () -> {
+            DefaultRedisScript<String> redisScript = new DefaultRedisScript<>();
+            redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource(LUA_CONSUME_STATUS_CHECK_AND_SET_PATH)));
+            redisScript.setResultType(String.class);
+            return redisScript;
+        });
+    }
+
     @Override
     public void exceptionProcessing() {
         IdempotentParamWrapper wrapper = (IdempotentParamWrapper) IdempotentContext.getKey(WRAPPER);
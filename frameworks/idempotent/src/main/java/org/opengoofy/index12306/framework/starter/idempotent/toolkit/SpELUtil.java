@@ -18,24 +18,43 @@
 package org.opengoofy.index12306.framework.starter.idempotent.toolkit;
 
 import cn.hutool.core.util.ArrayUtil;
-import com.google.common.collect.Lists;
 import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.expression.Expression;
-import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * SpEL 表达式解析工具
+ * 表达式按方法解析一次后缓存，并开启 SpEL 编译器 MIXED 模式，多次执行后编译为字节码，类型变化时自动回退解释执行
  *
  * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
  */
 public class SpELUtil {
 
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, SpELUtil.class.getClassLoader()));
+
+    private static final ParameterNameDiscoverer DISCOVERER = new DefaultParameterNameDiscoverer();
+
+    private static final String[] EMPTY_PARAMETER_NAMES = new String[0];
+
+    /**
+     * 方法 + 表达式 -> 已解析表达式
+     */
+    private static final Map<ExpressionKey, Expression> EXPRESSION_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 方法 -> 参数名称，ConcurrentHashMap 不支持空值，获取不到参数名称时缓存空数组
+     */
+    private static final Map<Method, String[]> PARAMETER_NAMES_CACHE = new ConcurrentHashMap<>();
+
     /**
      * 校验并返回实际使用的 spEL 表达式
      *
@@ -43,9 +62,7 @@ public class SpELUtil {
      * @return 实际使用的 spEL 表达式
      */
     public static Object parseKey(String spEl, Method method, Object[] contextObj) {
-        ArrayList<String> spELFlag = Lists.newArrayList("#", "T(");
-        Optional<String> optional = spELFlag.stream().filter(spEl::contains).findFirst();
-        if (optional.isPresent()) {
+        if (spEl.contains("#") || spEl.contains("T(")) {
             return parse(spEl, method, contextObj);
         }
         return spEl;
@@ -59,10 +76,11 @@ public class SpELUtil {
      * @return 解析的字符串值
      */
     public static Object parse(String spEl, Method method, Object[] contextObj) {
-        DefaultParameterNameDiscoverer discoverer = new DefaultParameterNameDiscoverer();
-        ExpressionParser parser = new SpelExpressionParser();
-        Expression exp = parser.parseExpression(spEl);
-        String[] params = discoverer.getParameterNames(method);
+        Expression exp = EXPRESSION_CACHE.computeIfAbsent(new ExpressionKey(method, spEl), key -> PARSER.parseExpression(key.spEl()));
+        String[] params = PARAMETER_NAMES_CACHE.computeIfAbsent(method, key -> {
+            String[] parameterNames = DISCOVERER.getParameterNames(key);
+            return parameterNames == null ? EMPTY_PARAMETER_NAMES : parameterNames;
+        });
         StandardEvaluationContext context = new StandardEvaluationContext();
         if (ArrayUtil.isNotEmpty(params)) {
             for (int len = 0; len < params.length; len++) {
@@ -71,4 +89,7 @@ public class SpELUtil {
         }
         return exp.getValue(context);
     }
+
+    private record ExpressionKey(Method method, String spEl) {
+    }
 }
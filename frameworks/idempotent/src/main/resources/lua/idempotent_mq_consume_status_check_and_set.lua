@@ -0,0 +1,10 @@
+-- KEYS[1]：MQ 幂等 Key
+-- ARGV[1]：消费中状态，ARGV[2]：消费中状态过期时间（秒）
+-- 已存在消费状态时返回原状态，不存在时写入消费中状态并返回空
+local status = redis.call('get', KEYS[1])
+if status then
+    return status
+end
+redis.call('set', KEYS[1], ARGV[1], 'EX', ARGV[2])
+
+return nil
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.framework.starter.idempotent.core.param;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opengoofy.index12306.framework.starter.convention.exception.ClientException;
+import org.opengoofy.index12306.framework.starter.idempotent.annotation.Idempotent;
+import org.opengoofy.index12306.framework.starter.idempotent.config.IdempotentParamProperties;
+import org.opengoofy.index12306.framework.starter.idempotent.core.IdempotentContext;
+import org.opengoofy.index12306.framework.starter.idempotent.core.IdempotentParamWrapper;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 参数幂等本地请求指纹以及分布式锁释放测试
+ */
+class IdempotentParamExecuteHandlerTests {
+
+    private static final String LOCK_KEY = "idempotent:path:/api/ticket-service/ticket/purchase:currentUserId:1:digest:0";
+
+    /**
+     * 模拟 Redisson 分布式锁，记录当前持有的锁
+     */
+    private final Set<String> lockedKeys = new HashSet<>();
+    private final RLock lock = mock(RLock.class);
+    private final RedissonClient redissonClient = mock(RedissonClient.class);
+
+    @BeforeEach
+    void initLock() {
+        when(redissonClient.getLock(LOCK_KEY)).thenReturn(lock);
+        when(lock.tryLock()).thenAnswer(invocation -> lockedKeys.add(LOCK_KEY));
+        doAnswer(invocation -> lockedKeys.remove(LOCK_KEY)).when(lock).unlock();
+    }
+
+    @AfterEach
+    void cleanContext() {
+        IdempotentContext.clean();
+    }
+
+    @Test
+    void testLocalTierRejectsInFlightRepeatWithoutRedis() {
+        IdempotentParamExecuteHandler handler = buildHandler(true);
+        handler.handler(buildWrapper());
+        IdempotentContext.clean();
+
+        // 同一节点相同请求仍在处理，直接由本地指纹拒绝
+        Assertions.assertThrows(ClientException.class, () -> handler.handler(buildWrapper()));
+        verify(redissonClient, times(1)).getLock(LOCK_KEY);
+    }
+
+    @Test
+    void testLocalTierAllowsSequentialRepeatAfterSuccess() {
+        IdempotentParamExecuteHandler handler = buildHandler(true);
+        handler.handler(buildWrapper());
+        handler.postProcessing();
+        IdempotentContext.clean();
+        verify(lock, times(1)).unlock();
+
+        // 首次请求执行成功后，相同参数的后续请求不应被本地指纹拒绝
+        Assertions.assertDoesNotThrow(() -> handler.handler(buildWrapper()));
+        verify(redissonClient, times(2)).getLock(LOCK_KEY);
+    }
+
+    @Test
+    void testLockMissRemovesFingerprint() {
+        IdempotentParamExecuteHandler handler = buildHandler(true);
+        // 其它节点持有分布式锁
+        lockedKeys.add(LOCK_KEY);
+        Assertions.assertThrows(ClientException.class, () -> handler.handler(buildWrapper()));
+        IdempotentContext.clean();
+        lockedKeys.remove(LOCK_KEY);
+
+        // 未执行的请求不保留本地指纹，重试时仍访问分布式锁
+        Assertions.assertDoesNotThrow(() -> handler.handler(buildWrapper()));
+        verify(redissonClient, times(2)).getLock(LOCK_KEY);
+    }
+
+    @Test
+    void testExceptionReleasesLockAndFingerprint() {
+        IdempotentParamExecuteHandler handler = buildHandler(true);
+        handler.handler(buildWrapper());
+        Assertions.assertTrue(lockedKeys.contains(LOCK_KEY));
+        handler.exceptionProcessing();
+        IdempotentContext.clean();
+
+        // 业务异常后分布式锁已释放，本地指纹已移除，允许立即重试
+        verify(lock, times(1)).unlock();
+        Assertions.assertFalse(lockedKeys.contains(LOCK_KEY));
+        Assertions.assertDoesNotThrow(() -> handler.handler(buildWrapper()));
+        verify(redissonClient, times(2)).getLock(LOCK_KEY);
+    }
+
+    @Test
+    void testRedisLockOnlyWhenLocalTierDisabled() {
+        IdempotentParamExecuteHandler handler = buildHandler(false);
+        handler.handler(buildWrapper());
+        IdempotentContext.clean();
+
+        // 未开启本地指纹时由分布式锁拒绝重复请求
+        Assertions.assertThrows(ClientException.class, () -> handler.handler(buildWrapper()));
+        verify(redissonClient, times(2)).getLock(LOCK_KEY);
+    }
+
+    private IdempotentParamExecuteHandler buildHandler(boolean localEnabled) {
+        IdempotentParamProperties idempotentParamProperties = new IdempotentParamProperties();
+        idempotentParamProperties.setLocalEnabled(localEnabled);
+        return new IdempotentParamExecuteHandler(redissonClient, idempotentParamProperties);
+    }
+
+    private static IdempotentParamWrapper buildWrapper() {
+        try {
+            Idempotent idempotent = IdempotentParamExecuteHandlerTests.class.getDeclaredMethod("purchase").getAnnotation(Idempotent.class);
+            return IdempotentParamWrapper.builder().idempotent(idempotent).lockKey(LOCK_KEY).build();
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Idempotent(message = "正在执行下单流程，请稍后...")
+    private static void purchase() {
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.framework.starter.idempotent.toolkit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+
+/**
+ * SpEL 表达式缓存以及编译模式解析测试
+ */
+class SpELUtilTests {
+
+    @Test
+    void testLiteralKeyNotParsed() throws NoSuchMethodException {
+        Method method = SpELUtilTests.class.getDeclaredMethod("consume", Object.class);
+        Assertions.assertEquals("index12306-ticket:pay_result", SpELUtil.parseKey("index12306-ticket:pay_result", method, new Object[]{null}));
+    }
+
+    @Test
+    void testCachedExpressionEvaluatesEachInvocation() throws NoSuchMethodException {
+        Method method = SpELUtilTests.class.getDeclaredMethod("consume", Object.class);
+        String spEl = "'index12306-order:' + #message.orderSn";
+        // 超过编译阈值后仍按每次调用的参数求值
+        for (int i = 0; i < 200; i++) {
+            Assertions.assertEquals("index12306-order:" + i, SpELUtil.parseKey(spEl, method, new Object[]{new OrderMessage(String.valueOf(i))}));
+        }
+        // 参数类型变化时编译后的表达式回退解释执行
+        Assertions.assertEquals("index12306-order:refund", SpELUtil.parseKey(spEl, method, new Object[]{new RefundMessage("refund")}));
+    }
+
+    @Test
+    void testSameExpressionOnDifferentMethods() throws NoSuchMethodException {
+        Method consume = SpELUtilTests.class.getDeclaredMethod("consume", Object.class);
+        Method consumeWithTag = SpELUtilTests.class.getDeclaredMethod("consumeWithTag", String.class, Object.class);
+        // 相同表达式在不同方法上按各自参数名求值
+        Assertions.assertEquals("1", SpELUtil.parseKey("#message.orderSn", consume, new Object[]{new OrderMessage("1")}));
+        Assertions.assertEquals("2", SpELUtil.parseKey("#message.orderSn", consumeWithTag, new Object[]{"pay", new OrderMessage("2")}));
+        Assertions.assertEquals("pay", SpELUtil.parseKey("#tag", consumeWithTag, new Object[]{"pay", new OrderMessage("2")}));
+    }
+
+    private static void consume(Object message) {
+    }
+
+    private static void consumeWithTag(String tag, Object message) {
+    }
+
+    public static class OrderMessage {
+
+        private final String orderSn;
+
+        public OrderMessage(String orderSn) {
+            this.orderSn = orderSn;
+        }
+
+        public String getOrderSn() {
+            return orderSn;
+        }
+    }
+
+    public static class RefundMessage {
+
+        private final String orderSn;
+
+        public RefundMessage(String orderSn) {
+            this.orderSn = orderSn;
+        }
+
+        public String getOrderSn() {
+            return orderSn;
+        }
+    }
+}
@@ -45,6 +45,21 @@ CREATE TABLE `t_seat`
     KEY               `idx_train_id` (`train_id`) USING BTREE
 ) ENGINE=InnoDB AUTO_INCREMENT=1683022080920494081 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='座位表';
 
+CREATE TABLE `t_seat_segment`
+(
+    `id`              bigint(20) unsigned NOT NULL AUTO_INCREMENT COMMENT 'ID',
+    `train_id`        bigint(20) DEFAULT NULL COMMENT '列车ID',
+    `carriage_number` varchar(64) COLLATE utf8mb4_unicode_ci DEFAULT NULL COMMENT '车厢号',
+    `seat_number`     varchar(64) COLLATE utf8mb4_unicode_ci DEFAULT NULL COMMENT '座位号',
+    `seat_type`       int(3) DEFAULT NULL COMMENT '座位类型',
+    `occupancy`       bigint(20) NOT NULL DEFAULT '0' COMMENT '区段占用位图，第 i 位代表第 i 个区段，最多 63 个区段，不使用符号位',
+    `create_time`     datetime                               DEFAULT NULL COMMENT '创建时间',
+    `update_time`     datetime                               DEFAULT NULL COMMENT '修改时间',
+    `del_flag`        tinyint(1) DEFAULT NULL COMMENT '删除标识',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY        `uk_train_carriage_seat` (`train_id`,`carriage_number`,`seat_number`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='座位区段占用表';
+
 CREATE TABLE `t_station`
 (
     `id`          bigint(20) unsigned NOT NULL AUTO_INCREMENT COMMENT 'ID',
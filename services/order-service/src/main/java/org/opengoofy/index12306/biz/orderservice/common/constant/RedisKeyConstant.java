@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.orderservice.common.constant;
+
+/**
+ * Redis Key 定义常量类
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+public final class RedisKeyConstant {
+
+    /**
+     * 创建车票订单请求与订单号映射，Key Prefix + 请求 ID
+     */
+    public static final String TICKET_ORDER_CREATE_REQUEST = "index12306-order-service:ticket_order_create_request:";
+
+    /**
+     * 创建车票订单请求处理中标记，Key Prefix + 请求 ID，事务结束后删除
+     */
+    public static final String TICKET_ORDER_CREATE_REQUEST_PROCESSING = "index12306-order-service:ticket_order_create_request_processing:";
+
+    /**
+     * 延迟关闭订单队列，ZSet 成员为订单号，分值为订单关闭截止时间戳，购票服务按截止时间批量拉取
+     */
+    public static final String ORDER_DELAY_CLOSE_QUEUE = "index12306-order-service:order_delay_close:queue";
+
+    /**
+     * 延迟关闭订单事件，Hash Field 为订单号，Value 为延迟关闭订单事件 JSON
+     */
+    public static final String ORDER_DELAY_CLOSE_PAYLOAD = "index12306-order-service:order_delay_close:payload";
+}
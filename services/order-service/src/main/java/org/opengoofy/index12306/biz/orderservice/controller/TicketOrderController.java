@@ -24,6 +24,7 @@ import org.opengoofy.index12306.biz.orderservice.dto.req.TicketOrderCreateReqDTO
 import org.opengoofy.index12306.biz.orderservice.dto.req.TicketOrderItemQueryReqDTO;
 import org.opengoofy.index12306.biz.orderservice.dto.req.TicketOrderPageQueryReqDTO;
 import org.opengoofy.index12306.biz.orderservice.dto.req.TicketOrderSelfPageQueryReqDTO;
+import org.opengoofy.index12306.biz.orderservice.dto.resp.TicketOrderBatchCloseRespDTO;
 import org.opengoofy.index12306.biz.orderservice.dto.resp.TicketOrderDetailRespDTO;
 import org.opengoofy.index12306.biz.orderservice.dto.resp.TicketOrderDetailSelfRespDTO;
 import org.opengoofy.index12306.biz.orderservice.dto.resp.TicketOrderPassengerDetailRespDTO;
@@ -60,6 +61,14 @@ public class TicketOrderController {
         return Results.success(orderService.queryTicketOrderByOrderSn(orderSn));
     }
 
+    /**
+     * 根据订单号集合批量查询车票订单
+     */
+    @PostMapping("/api/order-service/order/ticket/query/batch")
+    public Result<List<TicketOrderDetailRespDTO>> queryTicketOrderByOrderSns(@RequestBody List<String> orderSns) {
+        return Results.success(orderService.queryTicketOrderByOrderSns(orderSns));
+    }
+
     /**
      * 根据子订单记录id查询车票子订单详情
      */
@@ -93,6 +102,14 @@ public class TicketOrderController {
         return Results.success(orderService.createTicketOrder(requestParam));
     }
 
+    /**
+     * 跟据创建订单请求 ID 查询订单号
+     */
+    @GetMapping("/api/order-service/order/ticket/query/request-id")
+    public Result<String> queryOrderSnByRequestId(@RequestParam(value = "requestId") String requestId) {
+        return Results.success(orderService.queryOrderSnByRequestId(requestId));
+    }
+
     /**
      * 车票订单关闭
      */
@@ -101,6 +118,14 @@ public class TicketOrderController {
         return Results.success(orderService.closeTickOrder(requestParam));
     }
 
+    /**
+     * 车票订单批量关闭
+     */
+    @PostMapping("/api/order-service/order/ticket/close/batch")
+    public Result<TicketOrderBatchCloseRespDTO> closeTickOrderBatch(@RequestBody List<String> orderSns) {
+        return Results.success(orderService.closeTickOrderBatch(orderSns));
+    }
+
     /**
      * 车票订单取消
      */
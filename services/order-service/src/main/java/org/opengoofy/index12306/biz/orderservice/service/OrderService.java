@@ -22,11 +22,14 @@ import org.opengoofy.index12306.biz.orderservice.dto.req.CancelTicketOrderReqDTO
 import org.opengoofy.index12306.biz.orderservice.dto.req.TicketOrderCreateReqDTO;
 import org.opengoofy.index12306.biz.orderservice.dto.req.TicketOrderPageQueryReqDTO;
 import org.opengoofy.index12306.biz.orderservice.dto.req.TicketOrderSelfPageQueryReqDTO;
+import org.opengoofy.index12306.biz.orderservice.dto.resp.TicketOrderBatchCloseRespDTO;
 import org.opengoofy.index12306.biz.orderservice.dto.resp.TicketOrderDetailRespDTO;
 import org.opengoofy.index12306.biz.orderservice.dto.resp.TicketOrderDetailSelfRespDTO;
 import org.opengoofy.index12306.biz.orderservice.mq.event.PayResultCallbackOrderEvent;
 import org.opengoofy.index12306.framework.starter.convention.page.PageResponse;
 
+import java.util.List;
+
 /**
  * 订单接口层
  *
@@ -42,6 +45,23 @@ public interface OrderService {
      */
     TicketOrderDetailRespDTO queryTicketOrderByOrderSn(String orderSn);
 
+    /**
+     * 跟据订单号集合批量查询车票订单，订单以及子订单各通过一次查询获取
+     *
+     * @param orderSns 订单号集合
+     * @return 订单详情集合，不存在的订单号不返回
+     */
+    List<TicketOrderDetailRespDTO> queryTicketOrderByOrderSns(List<String> orderSns);
+
+    /**
+     * 跟据创建订单请求 ID 查询已提交的订单号
+     *
+     * @param requestId 创建订单请求 ID
+     * @return 订单号，订单未创建时返回 null
+     * @throws org.opengoofy.index12306.framework.starter.convention.exception.ServiceException 订单仍在创建中
+     */
+    String queryOrderSnByRequestId(String requestId);
+
     /**
      * 跟据用户名分页查询车票订单
      *
@@ -65,6 +85,14 @@ public interface OrderService {
      */
     boolean closeTickOrder(CancelTicketOrderReqDTO requestParam);
 
+    /**
+     * 批量关闭火车票订单，单个订单关闭异常不影响其它订单
+     *
+     * @param orderSns 订单号集合
+     * @return 关闭成功以及关闭异常的订单号，已支付或已关闭的订单两者均不包含
+     */
+    TicketOrderBatchCloseRespDTO closeTickOrderBatch(List<String> orderSns);
+
     /**
      * 取消火车票订单
      *
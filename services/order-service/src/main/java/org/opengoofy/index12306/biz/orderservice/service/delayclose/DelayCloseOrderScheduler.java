@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.orderservice.service.delayclose;
+
+import org.opengoofy.index12306.biz.orderservice.mq.event.DelayCloseOrderEvent;
+
+/**
+ * 延迟关闭订单调度器，通过 order.close.delay.type 选择 RocketMQ 延迟消息或 Redis 有序集合实现
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+public interface DelayCloseOrderScheduler {
+
+    /**
+     * 登记延迟关闭订单任务，到达订单关闭截止时间后关闭未支付订单
+     *
+     * @param delayCloseOrderEvent 延迟关闭订单事件
+     */
+    void schedule(DelayCloseOrderEvent delayCloseOrderEvent);
+
+    /**
+     * 撤销延迟关闭订单任务，一般为订单支付成功或用户主动取消触发
+     *
+     * @param orderSn 订单号
+     */
+    void cancel(String orderSn);
+}
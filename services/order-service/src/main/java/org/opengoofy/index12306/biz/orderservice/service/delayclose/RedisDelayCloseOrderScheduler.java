@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.orderservice.service.delayclose;
+
+import com.alibaba.fastjson2.JSON;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.opengoofy.index12306.biz.orderservice.mq.event.DelayCloseOrderEvent;
+import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.opengoofy.index12306.biz.orderservice.common.constant.RedisKeyConstant.ORDER_DELAY_CLOSE_PAYLOAD;
+import static org.opengoofy.index12306.biz.orderservice.common.constant.RedisKeyConstant.ORDER_DELAY_CLOSE_QUEUE;
+
+/**
+ * 基于 Redis 有序集合的延迟关闭订单调度器
+ * 订单号按关闭截止时间写入有序集合，购票服务按截止时间批量拉取到期订单后批量关闭
+ * 订单支付成功后从有序集合移除，时间复杂度 O(log n)，无需等待失效任务触发
+ * 在订单事务内登记，登记失败时订单事务回滚；订单事务回滚时同步移除已登记的任务
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "order.close.delay.type", havingValue = "redis")
+public class RedisDelayCloseOrderScheduler implements DelayCloseOrderScheduler {
+
+    private final DistributedCache distributedCache;
+
+    /**
+     * 订单未支付自动关闭时长，与 RocketMQ 延迟级别 14 保持一致
+     */
+    @Value("${order.close.delay.timeout-minutes:10}")
+    private long timeoutMinutes;
+
+    @Override
+    public void schedule(DelayCloseOrderEvent delayCloseOrderEvent) {
+        // 在订单事务内登记，登记失败随订单事务回滚，避免订单永远不会被关闭
+        doSchedule(delayCloseOrderEvent);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    return;
+                }
+                // 关闭订单仅处理待支付订单，移除失败时拉取到已回滚的订单直接确认
+                try {
+                    cancel(delayCloseOrderEvent.getOrderSn());
+                } catch (Throwable ex) {
+                    log.error("订单事务回滚移除延迟关闭订单任务失败，订单号：{}", delayCloseOrderEvent.getOrderSn(), ex);
+                }
+            }
+        });
+    }
+
+    private void doSchedule(DelayCloseOrderEvent delayCloseOrderEvent) {
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        String orderSn = delayCloseOrderEvent.getOrderSn();
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        // 先写入事件再登记截止时间，拉取到订单号时事件一定存在
+        stringRedisTemplate.opsForHash().put(ORDER_DELAY_CLOSE_PAYLOAD, orderSn, JSON.toJSONString(delayCloseOrderEvent));
+        stringRedisTemplate.opsForZSet().add(ORDER_DELAY_CLOSE_QUEUE, orderSn, deadline);
+    }
+
+    @Override
+    public void cancel(String orderSn) {
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        stringRedisTemplate.opsForZSet().remove(ORDER_DELAY_CLOSE_QUEUE, orderSn);
+        stringRedisTemplate.opsForHash().delete(ORDER_DELAY_CLOSE_PAYLOAD, orderSn);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.orderservice.service.delayclose;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.client.producer.SendStatus;
+import org.opengoofy.index12306.biz.orderservice.mq.event.DelayCloseOrderEvent;
+import org.opengoofy.index12306.biz.orderservice.mq.produce.DelayCloseOrderSendProduce;
+import org.opengoofy.index12306.framework.starter.convention.exception.ServiceException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * 基于 RocketMQ 延迟消息的延迟关闭订单调度器
+ * 延迟消息无法撤销，订单支付后消息依然投递，由购票服务关闭订单时判断订单状态后忽略
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "order.close.delay.type", havingValue = "rocketmq", matchIfMissing = true)
+public class RocketMQDelayCloseOrderScheduler implements DelayCloseOrderScheduler {
+
+    private final DelayCloseOrderSendProduce delayCloseOrderSendProduce;
+
+    @Override
+    public void schedule(DelayCloseOrderEvent delayCloseOrderEvent) {
+        // 创建订单并支付后延时关闭订单消息怎么办？详情查看：https://nageoffer.com/12306/question
+        SendResult sendResult = delayCloseOrderSendProduce.sendMessage(delayCloseOrderEvent);
+        if (!Objects.equals(sendResult.getSendStatus(), SendStatus.SEND_OK)) {
+            throw new ServiceException("投递延迟关闭订单消息队列失败");
+        }
+    }
+
+    @Override
+    public void cancel(String orderSn) {
+    }
+}
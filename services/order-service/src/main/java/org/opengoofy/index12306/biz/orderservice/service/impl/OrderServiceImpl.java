@@ -17,8 +17,10 @@
 
 package org.opengoofy.index12306.biz.orderservice.service.impl;
 
+import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.collection.ListUtil;
 import cn.hutool.core.text.StrBuilder;
+import cn.hutool.core.util.StrUtil;
 import com.alibaba.fastjson2.JSON;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
@@ -26,8 +28,6 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.rocketmq.client.producer.SendResult;
-import org.apache.rocketmq.client.producer.SendStatus;
 import org.opengoofy.index12306.biz.orderservice.common.enums.OrderCanalErrorCodeEnum;
 import org.opengoofy.index12306.biz.orderservice.common.enums.OrderItemStatusEnum;
 import org.opengoofy.index12306.biz.orderservice.common.enums.OrderStatusEnum;
@@ -42,18 +42,20 @@ import org.opengoofy.index12306.biz.orderservice.dto.req.TicketOrderCreateReqDTO
 import org.opengoofy.index12306.biz.orderservice.dto.req.TicketOrderItemCreateReqDTO;
 import org.opengoofy.index12306.biz.orderservice.dto.req.TicketOrderPageQueryReqDTO;
 import org.opengoofy.index12306.biz.orderservice.dto.req.TicketOrderSelfPageQueryReqDTO;
+import org.opengoofy.index12306.biz.orderservice.dto.resp.TicketOrderBatchCloseRespDTO;
 import org.opengoofy.index12306.biz.orderservice.dto.resp.TicketOrderDetailRespDTO;
 import org.opengoofy.index12306.biz.orderservice.dto.resp.TicketOrderDetailSelfRespDTO;
 import org.opengoofy.index12306.biz.orderservice.dto.resp.TicketOrderPassengerDetailRespDTO;
 import org.opengoofy.index12306.biz.orderservice.mq.event.DelayCloseOrderEvent;
 import org.opengoofy.index12306.biz.orderservice.mq.event.PayResultCallbackOrderEvent;
-import org.opengoofy.index12306.biz.orderservice.mq.produce.DelayCloseOrderSendProduce;
 import org.opengoofy.index12306.biz.orderservice.remote.UserRemoteService;
 import org.opengoofy.index12306.biz.orderservice.remote.dto.UserQueryActualRespDTO;
 import org.opengoofy.index12306.biz.orderservice.service.OrderItemService;
 import org.opengoofy.index12306.biz.orderservice.service.OrderPassengerRelationService;
 import org.opengoofy.index12306.biz.orderservice.service.OrderService;
+import org.opengoofy.index12306.biz.orderservice.service.delayclose.DelayCloseOrderScheduler;
 import org.opengoofy.index12306.biz.orderservice.service.orderid.OrderIdGeneratorManager;
+import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
 import org.opengoofy.index12306.framework.starter.common.toolkit.BeanUtil;
 import org.opengoofy.index12306.framework.starter.convention.exception.ClientException;
 import org.opengoofy.index12306.framework.starter.convention.exception.ServiceException;
@@ -63,12 +65,21 @@ import org.opengoofy.index12306.framework.starter.database.toolkit.PageUtil;
 import org.opengoofy.index12306.frameworks.starter.user.core.UserContext;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.opengoofy.index12306.biz.orderservice.common.constant.RedisKeyConstant.TICKET_ORDER_CREATE_REQUEST;
+import static org.opengoofy.index12306.biz.orderservice.common.constant.RedisKeyConstant.TICKET_ORDER_CREATE_REQUEST_PROCESSING;
 
 /**
  * 订单服务接口层实现
@@ -85,8 +96,9 @@ public class OrderServiceImpl implements OrderService {
     private final OrderItemService orderItemService;
     private final OrderPassengerRelationService orderPassengerRelationService;
     private final RedissonClient redissonClient;
-    private final DelayCloseOrderSendProduce delayCloseOrderSendProduce;
+    private final DelayCloseOrderScheduler delayCloseOrderScheduler;
     private final UserRemoteService userRemoteService;
+    private final DistributedCache distributedCache;
 
     @Override
     public TicketOrderDetailRespDTO queryTicketOrderByOrderSn(String orderSn) {
@@ -101,6 +113,30 @@ public class OrderServiceImpl implements OrderService {
         return result;
     }
 
+    @Override
+    public List<TicketOrderDetailRespDTO> queryTicketOrderByOrderSns(List<String> orderSns) {
+        if (CollUtil.isEmpty(orderSns)) {
+            return new ArrayList<>();
+        }
+        LambdaQueryWrapper<OrderDO> queryWrapper = Wrappers.lambdaQuery(OrderDO.class)
+                .in(OrderDO::getOrderSn, orderSns);
+        List<OrderDO> orderDOList = orderMapper.selectList(queryWrapper);
+        if (CollUtil.isEmpty(orderDOList)) {
+            return new ArrayList<>();
+        }
+        LambdaQueryWrapper<OrderItemDO> orderItemQueryWrapper = Wrappers.lambdaQuery(OrderItemDO.class)
+                .in(OrderItemDO::getOrderSn, orderDOList.stream().map(OrderDO::getOrderSn).toList());
+        Map<String, List<OrderItemDO>> orderItemMap = orderItemMapper.selectList(orderItemQueryWrapper).stream()
+                .collect(Collectors.groupingBy(OrderItemDO::getOrderSn));
+        return orderDOList.stream()
+                .map(each -> {
+                    TicketOrderDetailRespDTO result = BeanUtil.convert(each, TicketOrderDetailRespDTO.class);
+                    result.setPassengerDetails(BeanUtil.convert(orderItemMap.getOrDefault(each.getOrderSn(), new ArrayList<>()), TicketOrderPassengerDetailRespDTO.class));
+                    return result;
+                })
+                .toList();
+    }
+
     @Override
     public PageResponse<TicketOrderDetailRespDTO> pageTicketOrder(TicketOrderPageQueryReqDTO requestParam) {
         LambdaQueryWrapper<OrderDO> queryWrapper = Wrappers.lambdaQuery(OrderDO.class)
@@ -123,6 +159,11 @@ public class OrderServiceImpl implements OrderService {
     public String createTicketOrder(TicketOrderCreateReqDTO requestParam) {
         // 通过基因法将用户 ID 融入到订单号
         String orderSn = OrderIdGeneratorManager.generateId(requestParam.getUserId());
+        // 购票服务重试创建订单时携带相同请求 ID，直接返回首次已提交的订单号，首次请求仍在处理时返回可重试异常
+        String existOrderSn = claimCreateRequest(requestParam.getRequestId(), orderSn);
+        if (StrUtil.isNotBlank(existOrderSn)) {
+            return existOrderSn;
+        }
         OrderDO orderDO = OrderDO.builder().orderSn(orderSn)
                 .orderTime(requestParam.getOrderTime())
                 .departure(requestParam.getDeparture())
@@ -168,7 +209,7 @@ public class OrderServiceImpl implements OrderService {
         orderItemService.saveBatch(orderItemDOList);
         orderPassengerRelationService.saveBatch(orderPassengerRelationDOList);
         try {
-            // 发送 RocketMQ 延时消息，指定时间后取消订单
+            // 登记延迟关闭订单任务，指定时间后取消订单
             DelayCloseOrderEvent delayCloseOrderEvent = DelayCloseOrderEvent.builder()
                     .trainId(String.valueOf(requestParam.getTrainId()))
                     .departure(requestParam.getDeparture())
@@ -176,18 +217,75 @@ public class OrderServiceImpl implements OrderService {
                     .orderSn(orderSn)
                     .trainPurchaseTicketResults(requestParam.getTicketOrderItems())
                     .build();
-            // 创建订单并支付后延时关闭订单消息怎么办？详情查看：https://nageoffer.com/12306/question
-            SendResult sendResult = delayCloseOrderSendProduce.sendMessage(delayCloseOrderEvent);
-            if (!Objects.equals(sendResult.getSendStatus(), SendStatus.SEND_OK)) {
-                throw new ServiceException("投递延迟关闭订单消息队列失败");
-            }
+            delayCloseOrderScheduler.schedule(delayCloseOrderEvent);
         } catch (Throwable ex) {
-            log.error("延迟关闭订单消息队列发送错误，请求参数：{}", JSON.toJSONString(requestParam), ex);
+            log.error("延迟关闭订单任务登记错误，请求参数：{}", JSON.toJSONString(requestParam), ex);
             throw ex;
         }
         return orderSn;
     }
 
+    /**
+     * 占用创建订单请求 ID，请求 ID 与订单号的映射在事务提交后写入，事务结束后删除处理中标记
+     *
+     * @return 请求 ID 对应订单已提交时返回订单号，否则返回 null
+     * @throws ServiceException 相同请求 ID 的订单仍在创建中，调用方可稍后重试
+     */
+    private String claimCreateRequest(String requestId, String orderSn) {
+        if (StrUtil.isBlank(requestId)) {
+            return null;
+        }
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        String requestKey = TICKET_ORDER_CREATE_REQUEST + requestId;
+        String existOrderSn = stringRedisTemplate.opsForValue().get(requestKey);
+        if (StrUtil.isNotBlank(existOrderSn)) {
+            return existOrderSn;
+        }
+        String processingKey = TICKET_ORDER_CREATE_REQUEST_PROCESSING + requestId;
+        Boolean claimed = stringRedisTemplate.opsForValue().setIfAbsent(processingKey, orderSn, 5, TimeUnit.MINUTES);
+        if (!Boolean.TRUE.equals(claimed)) {
+            // 处理中标记占用失败时首次请求可能刚好提交，再次确认映射
+            existOrderSn = stringRedisTemplate.opsForValue().get(requestKey);
+            if (StrUtil.isNotBlank(existOrderSn)) {
+                return existOrderSn;
+            }
+            throw new ServiceException("订单创建中，请稍后重试");
+        }
+        // 映射先于处理中标记删除写入，占用成功后再次确认首次请求未在此期间提交
+        existOrderSn = stringRedisTemplate.opsForValue().get(requestKey);
+        if (StrUtil.isNotBlank(existOrderSn)) {
+            stringRedisTemplate.delete(processingKey);
+            return existOrderSn;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            @Override
+            public void afterCommit() {
+                stringRedisTemplate.opsForValue().set(requestKey, orderSn, 30, TimeUnit.MINUTES);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                stringRedisTemplate.delete(processingKey);
+            }
+        });
+        return null;
+    }
+
+    @Override
+    public String queryOrderSnByRequestId(String requestId) {
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        String orderSn = stringRedisTemplate.opsForValue().get(TICKET_ORDER_CREATE_REQUEST + requestId);
+        if (StrUtil.isNotBlank(orderSn)) {
+            return orderSn;
+        }
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(TICKET_ORDER_CREATE_REQUEST_PROCESSING + requestId))) {
+            throw new ServiceException("订单创建中，请稍后重试");
+        }
+        // 事务提交与处理中标记删除之间可能有并发，再次确认映射
+        return stringRedisTemplate.opsForValue().get(TICKET_ORDER_CREATE_REQUEST + requestId);
+    }
+
     @Override
     public boolean closeTickOrder(CancelTicketOrderReqDTO requestParam) {
         String orderSn = requestParam.getOrderSn();
@@ -202,6 +300,81 @@ public class OrderServiceImpl implements OrderService {
         return cancelTickOrder(requestParam);
     }
 
+    @Override
+    public TicketOrderBatchCloseRespDTO closeTickOrderBatch(List<String> orderSns) {
+        List<String> closedOrderSns = new ArrayList<>();
+        List<String> failedOrderSns = new ArrayList<>();
+        if (CollUtil.isEmpty(orderSns)) {
+            return new TicketOrderBatchCloseRespDTO(closedOrderSns, failedOrderSns);
+        }
+        // 一次查询过滤掉已支付或已关闭的订单，仅对待支付订单加锁
+        List<String> pendingOrderSns = listOrderSnByStatus(orderSns, OrderStatusEnum.PENDING_PAYMENT.getStatus());
+        List<RLock> lockList = new ArrayList<>(pendingOrderSns.size());
+        List<String> lockedOrderSns = new ArrayList<>(pendingOrderSns.size());
+        try {
+            for (String each : pendingOrderSns) {
+                RLock lock = redissonClient.getLock(StrBuilder.create("order:canal:order_sn_").append(each).toString());
+                if (lock.tryLock()) {
+                    lockList.add(lock);
+                    lockedOrderSns.add(each);
+                } else {
+                    failedOrderSns.add(each);
+                }
+            }
+            if (lockedOrderSns.isEmpty()) {
+                return new TicketOrderBatchCloseRespDTO(closedOrderSns, failedOrderSns);
+            }
+            // 加锁后其他请求无法关闭或取消这些订单，此时仍待支付的订单由本次关闭
+            List<String> closingOrderSns = listOrderSnByStatus(lockedOrderSns, OrderStatusEnum.PENDING_PAYMENT.getStatus());
+            if (closingOrderSns.isEmpty()) {
+                return new TicketOrderBatchCloseRespDTO(closedOrderSns, failedOrderSns);
+            }
+            try {
+                // 订单和订单明细各一条语句批量关闭，带待支付状态条件避免覆盖并发支付成功的订单
+                OrderDO updateOrderDO = new OrderDO();
+                updateOrderDO.setStatus(OrderStatusEnum.CLOSED.getStatus());
+                LambdaUpdateWrapper<OrderDO> updateWrapper = Wrappers.lambdaUpdate(OrderDO.class)
+                        .in(OrderDO::getOrderSn, closingOrderSns)
+                        .eq(OrderDO::getStatus, OrderStatusEnum.PENDING_PAYMENT.getStatus());
+                int updateResult = orderMapper.update(updateOrderDO, updateWrapper);
+                List<String> actualClosedOrderSns = updateResult == closingOrderSns.size()
+                        ? closingOrderSns
+                        : listOrderSnByStatus(closingOrderSns, OrderStatusEnum.CLOSED.getStatus());
+                if (actualClosedOrderSns.isEmpty()) {
+                    return new TicketOrderBatchCloseRespDTO(closedOrderSns, failedOrderSns);
+                }
+                OrderItemDO updateOrderItemDO = new OrderItemDO();
+                updateOrderItemDO.setStatus(OrderItemStatusEnum.CLOSED.getStatus());
+                LambdaUpdateWrapper<OrderItemDO> updateItemWrapper = Wrappers.lambdaUpdate(OrderItemDO.class)
+                        .in(OrderItemDO::getOrderSn, actualClosedOrderSns);
+                orderItemMapper.update(updateOrderItemDO, updateItemWrapper);
+                closedOrderSns.addAll(actualClosedOrderSns);
+            } catch (Throwable ex) {
+                log.error("批量关闭订单失败，订单号：{}", closingOrderSns, ex);
+                failedOrderSns.addAll(closingOrderSns);
+                return new TicketOrderBatchCloseRespDTO(closedOrderSns, failedOrderSns);
+            }
+        } finally {
+            lockList.forEach(RLock::unlock);
+        }
+        closedOrderSns.forEach(each -> {
+            try {
+                delayCloseOrderScheduler.cancel(each);
+            } catch (Throwable ex) {
+                log.error("移除延迟关闭订单任务失败，订单号：{}", each, ex);
+            }
+        });
+        return new TicketOrderBatchCloseRespDTO(closedOrderSns, failedOrderSns);
+    }
+
+    private List<String> listOrderSnByStatus(List<String> orderSns, Integer status) {
+        LambdaQueryWrapper<OrderDO> queryWrapper = Wrappers.lambdaQuery(OrderDO.class)
+                .in(OrderDO::getOrderSn, orderSns)
+                .eq(OrderDO::getStatus, status)
+                .select(OrderDO::getOrderSn);
+        return orderMapper.selectList(queryWrapper).stream().map(OrderDO::getOrderSn).collect(Collectors.toList());
+    }
+
     @Override
     public boolean cancelTickOrder(CancelTicketOrderReqDTO requestParam) {
         String orderSn = requestParam.getOrderSn();
@@ -239,6 +412,7 @@ public class OrderServiceImpl implements OrderService {
         } finally {
             lock.unlock();
         }
+        delayCloseOrderScheduler.cancel(orderSn);
         return true;
     }
 
@@ -276,6 +450,8 @@ public class OrderServiceImpl implements OrderService {
         } finally {
             lock.unlock();
         }
+        // 订单已支付，撤销延迟关闭订单任务
+        delayCloseOrderScheduler.cancel(requestParam.getOrderSn());
     }
 
     @Override
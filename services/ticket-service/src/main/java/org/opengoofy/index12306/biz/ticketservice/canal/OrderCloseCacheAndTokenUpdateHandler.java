@@ -18,6 +18,7 @@
 package org.opengoofy.index12306.biz.ticketservice.canal;
 
 import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.collection.ListUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.opengoofy.index12306.biz.ticketservice.common.enums.CanalExecuteStrategyMarkEnum;
@@ -29,13 +30,18 @@ import org.opengoofy.index12306.biz.ticketservice.service.SeatService;
 import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TrainPurchaseTicketRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.tokenbucket.TicketAvailabilityTokenBucket;
 import org.opengoofy.index12306.framework.starter.common.toolkit.BeanUtil;
+import org.opengoofy.index12306.framework.starter.convention.exception.ServiceException;
 import org.opengoofy.index12306.framework.starter.convention.result.Result;
 import org.opengoofy.index12306.framework.starter.designpattern.strategy.AbstractExecuteStrategy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * 订单关闭或取消后置处理组件
@@ -51,6 +57,12 @@ public class OrderCloseCacheAndTokenUpdateHandler implements AbstractExecuteStra
     private final SeatService seatService;
     private final TicketAvailabilityTokenBucket ticketAvailabilityTokenBucket;
 
+    /**
+     * 每次批量查询订单详情的订单数量上限
+     */
+    @Value("${ticket.order-close.batch-query-size:500}")
+    private int batchQuerySize;
+
     @Override
     public void execute(CanalBinlogEvent message) {
         List<Map<String, Object>> messageDataList = message.getData().stream()
@@ -60,16 +72,36 @@ public class OrderCloseCacheAndTokenUpdateHandler implements AbstractExecuteStra
         if (CollUtil.isEmpty(messageDataList)) {
             return;
         }
-        for (Map<String, Object> each : messageDataList) {
-            Result<TicketOrderDetailRespDTO> orderDetailResult = ticketOrderRemoteService.queryTicketOrderByOrderSn(each.get("order_sn").toString());
-            TicketOrderDetailRespDTO orderDetailResultData = orderDetailResult.getData();
-            if (orderDetailResult.isSuccess() && orderDetailResultData != null) {
-                String trainId = String.valueOf(orderDetailResultData.getTrainId());
-                List<TicketOrderPassengerDetailRespDTO> passengerDetails = orderDetailResultData.getPassengerDetails();
-                seatService.unlock(trainId, orderDetailResultData.getDeparture(), orderDetailResultData.getArrival(), BeanUtil.convert(passengerDetails, TrainPurchaseTicketRespDTO.class));
-                ticketAvailabilityTokenBucket.rollbackInBucket(orderDetailResultData);
+        List<String> orderSns = messageDataList.stream()
+                .map(each -> each.get("order_sn").toString())
+                .distinct()
+                .toList();
+        // 批量查询订单详情，按列车分组后每个列车出发站到达站一次释放座位，每个列车一次回滚令牌
+        List<TicketOrderDetailRespDTO> orderDetails = new ArrayList<>(orderSns.size());
+        for (List<String> each : ListUtil.partition(orderSns, batchQuerySize)) {
+            Result<List<TicketOrderDetailRespDTO>> orderDetailResult = ticketOrderRemoteService.queryTicketOrderByOrderSns(each);
+            if (!orderDetailResult.isSuccess()) {
+                throw new ServiceException("批量查询车票订单失败：" + orderDetailResult.getMessage());
+            }
+            if (CollUtil.isNotEmpty(orderDetailResult.getData())) {
+                orderDetails.addAll(orderDetailResult.getData());
             }
         }
+        Map<Long, List<TicketOrderDetailRespDTO>> trainOrderDetailMap = orderDetails.stream()
+                .collect(Collectors.groupingBy(TicketOrderDetailRespDTO::getTrainId, LinkedHashMap::new, Collectors.toList()));
+        trainOrderDetailMap.forEach((trainId, trainOrderDetails) -> {
+            String actualTrainId = String.valueOf(trainId);
+            Map<String, List<TicketOrderDetailRespDTO>> routeOrderDetailMap = trainOrderDetails.stream()
+                    .collect(Collectors.groupingBy(each -> each.getDeparture() + "_" + each.getArrival(), LinkedHashMap::new, Collectors.toList()));
+            routeOrderDetailMap.values().forEach(routeOrderDetails -> {
+                List<TicketOrderPassengerDetailRespDTO> passengerDetails = routeOrderDetails.stream()
+                        .flatMap(each -> each.getPassengerDetails().stream())
+                        .toList();
+                TicketOrderDetailRespDTO first = routeOrderDetails.get(0);
+                seatService.unlock(actualTrainId, first.getDeparture(), first.getArrival(), BeanUtil.convert(passengerDetails, TrainPurchaseTicketRespDTO.class));
+            });
+            ticketAvailabilityTokenBucket.rollbackInBucketBatch(actualTrainId, trainOrderDetails);
+        });
     }
 
     @Override
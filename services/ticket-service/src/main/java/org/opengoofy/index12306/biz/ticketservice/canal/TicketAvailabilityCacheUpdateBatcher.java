@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.canal;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.opengoofy.index12306.framework.starter.convention.exception.ServiceException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 列车余票缓存增量合并批处理器
+ * <p>
+ * 消费线程提交单条 Binlog 消息解析出的余票增量后等待写入完成，单个写入线程每次收集一个时间窗口或至多 max-events 条增量，
+ * 按 余票缓存 Key + 座位类型 轧差合并后一次写入 Redis；批次按到达顺序串行写入，同一列车的增量不会乱序，
+ * 写入失败时批次内所有消息消费失败，由 MQ 重新投递；等待超时的增量仅在撤销成功、确定不会被写入时才消费失败，避免重新投递后重复写入
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Slf4j
+public final class TicketAvailabilityCacheUpdateBatcher {
+
+    private final int maxEvents;
+    private final long windowNanos;
+    private final long timeoutMillis;
+    private final BlockingQueue<PendingUpdate> queue;
+    private final Consumer<Map<String, Map<Integer, Integer>>> flushHandler;
+
+    private final DistributionSummary batchSizeSummary;
+    private final DistributionSummary coalescedSummary;
+    private final Timer flushTimer;
+    private final Timer lagTimer;
+
+    private volatile boolean running;
+    private Thread flushThread;
+
+    public TicketAvailabilityCacheUpdateBatcher(int queueCapacity, int maxEvents, long windowMillis, long timeoutMillis,
+                                                Consumer<Map<String, Map<Integer, Integer>>> flushHandler, MeterRegistry meterRegistry) {
+        this.maxEvents = Math.max(maxEvents, 1);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(windowMillis, 0L));
+        this.timeoutMillis = timeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.flushHandler = flushHandler;
+        this.batchSizeSummary = DistributionSummary.builder("ticket.availability.cache-update.batch.size")
+                .description("余票缓存更新每批次合并的 Binlog 消息数量")
+                .register(meterRegistry);
+        this.coalescedSummary = DistributionSummary.builder("ticket.availability.cache-update.batch.commands")
+                .description("余票缓存更新每批次轧差后写入 Redis 的命令数量")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("ticket.availability.cache-update.batch.duration")
+                .description("余票缓存更新每批次写入耗时")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("ticket.availability.cache-update.lag")
+                .description("数据库 Binlog 产生到余票缓存更新完成的延迟")
+                .register(meterRegistry);
+    }
+
+    public void start() {
+        running = true;
+        flushThread = new Thread(this::flushLoop, "ticket-availability-cache-update-batcher");
+        flushThread.setDaemon(true);
+        flushThread.start();
+    }
+
+    /**
+     * 停止接收新的增量，已入队的增量写入完成后退出
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        flushThread.interrupt();
+        flushThread.join(timeoutMillis);
+    }
+
+    /**
+     * 提交单条 Binlog 消息的余票增量并等待写入完成
+     *
+     * @param increments      余票缓存 Key -> 座位类型 -> 增量
+     * @param binlogTimestamp Binlog 产生时间，为空时不统计延迟
+     */
+    public void submit(Map<String, Map<Integer, Integer>> increments, Long binlogTimestamp) {
+        PendingUpdate pendingUpdate = new PendingUpdate(increments, binlogTimestamp);
+        try {
+            if (!running || !queue.offer(pendingUpdate, timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new ServiceException("余票缓存更新排队超时");
+            }
+            awaitApplied(pendingUpdate);
+        } catch (ExecutionException ex) {
+            throw new ServiceException("余票缓存更新失败：" + ex.getCause().getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("余票缓存更新被中断");
+        }
+    }
+
+    private void awaitApplied(PendingUpdate pendingUpdate) throws ExecutionException, InterruptedException {
+        try {
+            pendingUpdate.future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            // 撤销成功说明写入线程尚未取走该增量，消费失败后由 MQ 重新投递
+            if (pendingUpdate.cancel()) {
+                throw new ServiceException("余票缓存更新超时");
+            }
+            // 写入线程已取走该增量，等待本批次写入结果，避免写入成功后消息又被重新投递
+            pendingUpdate.future.get();
+        }
+    }
+
+    private void flushLoop() {
+        List<PendingUpdate> batch = new ArrayList<>(maxEvents);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingUpdate first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxEvents) {
+                    if (queue.drainTo(batch, maxEvents - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remainingNanos = deadline - System.nanoTime();
+                    PendingUpdate next = remainingNanos > 0 ? queue.poll(remainingNanos, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException ex) {
+                // 停止时继续写入已入队的增量
+                queue.drainTo(batch, maxEvents - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingUpdate> polledBatch) {
+        // 跳过等待超时已撤销的增量，其余增量标记为写入中后不可再撤销
+        List<PendingUpdate> batch = polledBatch.stream().filter(PendingUpdate::claim).toList();
+        if (batch.isEmpty()) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        Map<String, Map<Integer, Integer>> merged = new LinkedHashMap<>();
+        batch.forEach(each -> each.increments.forEach((cacheKey, seatTypeMap) -> {
+            Map<Integer, Integer> mergedSeatTypeMap = merged.computeIfAbsent(cacheKey, key -> new HashMap<>());
+            seatTypeMap.forEach((seatType, num) -> mergedSeatTypeMap.merge(seatType, num, Integer::sum));
+        }));
+        // 锁定后又释放等相互抵消的增量无需写入
+        merged.values().forEach(each -> each.values().removeIf(num -> num == 0));
+        merged.values().removeIf(Map::isEmpty);
+        batchSizeSummary.record(batch.size());
+        coalescedSummary.record(merged.values().stream().mapToInt(Map::size).sum());
+        try {
+            if (!merged.isEmpty()) {
+                flushHandler.accept(merged);
+            }
+        } catch (Throwable ex) {
+            log.error("余票缓存批量更新失败，批次大小：{}", batch.size(), ex);
+            batch.forEach(each -> each.future.completeExceptionally(ex));
+            return;
+        } finally {
+            flushTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+        long appliedTime = System.currentTimeMillis();
+        batch.forEach(each -> {
+            if (each.binlogTimestamp != null) {
+                lagTimer.record(Math.max(appliedTime - each.binlogTimestamp, 0L), TimeUnit.MILLISECONDS);
+            }
+            each.future.complete(null);
+        });
+    }
+
+    private static final class PendingUpdate {
+
+        private static final int PENDING = 0;
+        private static final int CLAIMED = 1;
+        private static final int CANCELLED = 2;
+
+        private final Map<String, Map<Integer, Integer>> increments;
+        private final Long binlogTimestamp;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        private PendingUpdate(Map<String, Map<Integer, Integer>> increments, Long binlogTimestamp) {
+            this.increments = increments;
+            this.binlogTimestamp = binlogTimestamp;
+        }
+
+        /**
+         * 写入线程取走增量，已撤销的增量返回 false
+         */
+        private boolean claim() {
+            return state.compareAndSet(PENDING, CLAIMED);
+        }
+
+        /**
+         * 提交线程撤销增量，写入线程已取走的增量返回 false
+         */
+        private boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+    }
+}
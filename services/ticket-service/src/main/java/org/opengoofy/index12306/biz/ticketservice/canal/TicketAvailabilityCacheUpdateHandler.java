@@ -19,36 +19,112 @@ package org.opengoofy.index12306.biz.ticketservice.canal;
 
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import org.opengoofy.index12306.biz.ticketservice.common.enums.CanalExecuteStrategyMarkEnum;
 import org.opengoofy.index12306.biz.ticketservice.common.enums.SeatStatusEnum;
 import org.opengoofy.index12306.biz.ticketservice.mq.event.CanalBinlogEvent;
 import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
 import org.opengoofy.index12306.framework.starter.designpattern.strategy.AbstractExecuteStrategy;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.TRAIN_STATION_REMAINING_TICKET;
 
 /**
  * 列车余票缓存更新组件
+ * 开启批量模式后多条 Binlog 消息的余票增量合并轧差后批量写入，见 {@link TicketAvailabilityCacheUpdateBatcher}
  *
  * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
  */
 @Component
 @RequiredArgsConstructor
-public class TicketAvailabilityCacheUpdateHandler implements AbstractExecuteStrategy<CanalBinlogEvent, Void> {
+public class TicketAvailabilityCacheUpdateHandler implements AbstractExecuteStrategy<CanalBinlogEvent, Void>, InitializingBean, DisposableBean {
 
     private final DistributedCache distributedCache;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 是否合并多条 Binlog 消息的余票增量后批量写入缓存
+     */
+    @Value("${ticket.availability.cache-update.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    /**
+     * 合并时间窗口，第一条增量到达后至多等待该时间收集后续增量
+     */
+    @Value("${ticket.availability.cache-update.batch.window-millis:10}")
+    private long batchWindowMillis;
+
+    @Value("${ticket.availability.cache-update.batch.max-events:256}")
+    private int batchMaxEvents;
+
+    @Value("${ticket.availability.cache-update.batch.queue-capacity:4096}")
+    private int batchQueueCapacity;
+
+    @Value("${ticket.availability.cache-update.batch.timeout-millis:5000}")
+    private long batchTimeoutMillis;
+
+    @Value("${framework.cache.redis.prefix:}")
+    private String cacheRedisPrefix;
+
+    private TicketAvailabilityCacheUpdateBatcher batcher;
+    private Timer lagTimer;
+
+    @Override
+    public void afterPropertiesSet() {
+        lagTimer = Timer.builder("ticket.availability.cache-update.lag")
+                .description("数据库 Binlog 产生到余票缓存更新完成的延迟")
+                .register(meterRegistry);
+        if (batchEnabled) {
+            batcher = new TicketAvailabilityCacheUpdateBatcher(batchQueueCapacity, batchMaxEvents, batchWindowMillis, batchTimeoutMillis, this::applyIncrements, meterRegistry);
+            batcher.start();
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (batcher != null) {
+            batcher.stop();
+        }
+    }
 
     @Override
     public void execute(CanalBinlogEvent message) {
+        Map<String, Map<Integer, Integer>> cacheChangeKeyMap = collectIncrements(message);
+        if (cacheChangeKeyMap.isEmpty()) {
+            return;
+        }
+        if (batcher != null) {
+            batcher.submit(cacheChangeKeyMap, message.getEs());
+            return;
+        }
+        applyIncrements(cacheChangeKeyMap);
+        if (message.getEs() != null) {
+            lagTimer.record(Math.max(System.currentTimeMillis() - message.getEs(), 0L), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 解析座位表 Binlog 消息，按 余票缓存 Key + 座位类型 统计余票增量
+     *
+     * @param message 座位表 Binlog 消息
+     * @return 余票缓存 Key -> 座位类型 -> 增量
+     */
+    public static Map<String, Map<Integer, Integer>> collectIncrements(CanalBinlogEvent message) {
         List<Map<String, Object>> messageDataList = new ArrayList<>();
         List<Map<String, Object>> actualOldDataList = new ArrayList<>();
         for (int i = 0; i < message.getOld().size(); i++) {
@@ -61,10 +137,10 @@ public class TicketAvailabilityCacheUpdateHandler implements AbstractExecuteStra
                 }
             }
         }
+        Map<String, Map<Integer, Integer>> cacheChangeKeyMap = new HashMap<>();
         if (CollUtil.isEmpty(messageDataList) || CollUtil.isEmpty(actualOldDataList)) {
-            return;
+            return cacheChangeKeyMap;
         }
-        Map<String, Map<Integer, Integer>> cacheChangeKeyMap = new HashMap<>();
         for (int i = 0; i < messageDataList.size(); i++) {
             Map<String, Object> each = messageDataList.get(i);
             Map<String, Object> actualOldData = actualOldDataList.get(i);
@@ -81,8 +157,21 @@ public class TicketAvailabilityCacheUpdateHandler implements AbstractExecuteStra
             seatTypeMap.put(seatType, num == null ? increment : num + increment);
             cacheChangeKeyMap.put(hashCacheKey, seatTypeMap);
         }
+        return cacheChangeKeyMap;
+    }
+
+    /**
+     * 一次网络 IO 写入所有余票增量，管道命令不经过 Key 序列化器，需要手动拼接缓存前缀
+     */
+    private void applyIncrements(Map<String, Map<Integer, Integer>> cacheChangeKeyMap) {
         StringRedisTemplate instance = (StringRedisTemplate) distributedCache.getInstance();
-        cacheChangeKeyMap.forEach((cacheKey, cacheVal) -> cacheVal.forEach((seatType, num) -> instance.opsForHash().increment(cacheKey, String.valueOf(seatType), num)));
+        instance.executePipelined((RedisCallback<String>) connection -> {
+            cacheChangeKeyMap.forEach((cacheKey, cacheVal) -> {
+                byte[] rawKey = (cacheRedisPrefix + cacheKey).getBytes(StandardCharsets.UTF_8);
+                cacheVal.forEach((seatType, num) -> connection.hashCommands().hIncrBy(rawKey, String.valueOf(seatType).getBytes(StandardCharsets.UTF_8), num));
+            });
+            return null;
+        });
     }
 
     @Override
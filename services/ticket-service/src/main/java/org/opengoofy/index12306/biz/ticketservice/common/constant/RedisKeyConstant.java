@@ -69,6 +69,21 @@ public final class RedisKeyConstant {
      */
     public static final String TRAIN_STATION_REMAINING_TICKET = "index12306-ticket-service:train_station_remaining_ticket:";
 
+    /**
+     * 列车座位区段占用，Key Prefix + 列车ID
+     */
+    public static final String TRAIN_SEAT_SEGMENT = "index12306-ticket-service:train_seat_segment:";
+
+    /**
+     * 列车座位区段占用版本号，每次占用或释放区段自增，Key Prefix + 列车ID
+     */
+    public static final String TRAIN_SEAT_SEGMENT_VERSION = "index12306-ticket-service:train_seat_segment_version:";
+
+    /**
+     * 列车座位区段占用加载数据 Key
+     */
+    public static final String LOCK_TRAIN_SEAT_SEGMENT = "index12306-ticket-service:lock:train_seat_segment:%s";
+
     /**
      * 列车车厢查询，Key Prefix + 列车ID
      */
@@ -109,6 +124,11 @@ public final class RedisKeyConstant {
      */
     public static final String LOCK_PURCHASE_TICKETS_V2 = "${unique-name:}index12306-ticket-service:lock:purchase_tickets_%s_%d";
 
+    /**
+     * 异步购票单状态，Key Prefix + 购票单号
+     */
+    public static final String TICKET_PURCHASE_STATUS = "index12306-ticket-service:ticket_purchase_status:";
+
     /**
      * 获取全部地点集合 Key
      */
@@ -143,4 +163,14 @@ public final class RedisKeyConstant {
      * 列车购买令牌桶加载数据 Key
      */
     public static final String LOCK_TICKET_AVAILABILITY_TOKEN_BUCKET = "index12306-ticket-service:lock:ticket_availability_token_bucket:%s";
+
+    /**
+     * 延迟关闭订单队列，与订单服务保持一致，ZSet 成员为订单号，分值为订单关闭截止时间戳
+     */
+    public static final String ORDER_DELAY_CLOSE_QUEUE = "index12306-order-service:order_delay_close:queue";
+
+    /**
+     * 延迟关闭订单事件，与订单服务保持一致，Hash Field 为订单号，Value 为延迟关闭订单事件 JSON
+     */
+    public static final String ORDER_DELAY_CLOSE_PAYLOAD = "index12306-order-service:order_delay_close:payload";
 }
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.common.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import static org.opengoofy.index12306.biz.ticketservice.common.enums.VehicleSeatTypeEnum.BUSINESS_CLASS;
+import static org.opengoofy.index12306.biz.ticketservice.common.enums.VehicleSeatTypeEnum.FIRST_CLASS;
+import static org.opengoofy.index12306.biz.ticketservice.common.enums.VehicleSeatTypeEnum.FIRST_SLEEPER;
+import static org.opengoofy.index12306.biz.ticketservice.common.enums.VehicleSeatTypeEnum.HARD_SEAT;
+import static org.opengoofy.index12306.biz.ticketservice.common.enums.VehicleSeatTypeEnum.HARD_SLEEPER;
+import static org.opengoofy.index12306.biz.ticketservice.common.enums.VehicleSeatTypeEnum.SECOND_CLASS;
+import static org.opengoofy.index12306.biz.ticketservice.common.enums.VehicleSeatTypeEnum.SECOND_CLASS_CABIN_SEAT;
+import static org.opengoofy.index12306.biz.ticketservice.common.enums.VehicleSeatTypeEnum.SECOND_SLEEPER;
+import static org.opengoofy.index12306.biz.ticketservice.common.enums.VehicleSeatTypeEnum.SOFT_SLEEPER;
+import static org.opengoofy.index12306.biz.ticketservice.common.enums.VehicleTypeEnum.BULLET;
+import static org.opengoofy.index12306.biz.ticketservice.common.enums.VehicleTypeEnum.HIGH_SPEED_RAIN;
+import static org.opengoofy.index12306.biz.ticketservice.common.enums.VehicleTypeEnum.REGULAR_TRAIN;
+
+/**
+ * 列车车厢座位布局
+ * <p>
+ * 座位号由排号（两位）加座位字母组成，例如 05C，排数与座位字母数乘积与 t_carriage 中对应车厢类型的座位数一致
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Getter
+@RequiredArgsConstructor
+public enum TrainSeatLayoutEnum {
+
+    /**
+     * 高铁商务座，2 排 * 3 列
+     */
+    HIGH_SPEED_RAIN_BUSINESS_CLASS(HIGH_SPEED_RAIN, BUSINESS_CLASS, 2, "ACF", 3, 2),
+
+    /**
+     * 高铁一等座，7 排 * 4 列
+     */
+    HIGH_SPEED_RAIN_FIRST_CLASS(HIGH_SPEED_RAIN, FIRST_CLASS, 7, "ACDF", 5, 2),
+
+    /**
+     * 高铁二等座，18 排 * 5 列
+     */
+    HIGH_SPEED_RAIN_SECOND_CLASS(HIGH_SPEED_RAIN, SECOND_CLASS, 18, "ABCDF", 6, 3),
+
+    /**
+     * 动车二等包座，6 排 * 4 列
+     */
+    BULLET_SECOND_CLASS_CABIN_SEAT(BULLET, SECOND_CLASS_CABIN_SEAT, 6, "ACDF", 5, 2),
+
+    /**
+     * 动车一等卧，8 排 * 4 列
+     */
+    BULLET_FIRST_SLEEPER(BULLET, FIRST_SLEEPER, 8, "ACDF", 5, 2),
+
+    /**
+     * 动车二等卧，9 排 * 4 列
+     */
+    BULLET_SECOND_SLEEPER(BULLET, SECOND_SLEEPER, 9, "ACDF", 5, 2),
+
+    /**
+     * 普通车软卧，6 排 * 4 列
+     */
+    REGULAR_TRAIN_SOFT_SLEEPER(REGULAR_TRAIN, SOFT_SLEEPER, 6, "ACDF", 5, 2),
+
+    /**
+     * 普通车硬卧，8 排 * 4 列
+     */
+    REGULAR_TRAIN_HARD_SLEEPER(REGULAR_TRAIN, HARD_SLEEPER, 8, "ACDF", 5, 2),
+
+    /**
+     * 普通车硬座，9 排 * 4 列
+     */
+    REGULAR_TRAIN_HARD_SEAT(REGULAR_TRAIN, HARD_SEAT, 9, "ACDF", 5, 2);
+
+    /**
+     * 交通工具类型
+     */
+    private final VehicleTypeEnum vehicleType;
+
+    /**
+     * 座位类型
+     */
+    private final VehicleSeatTypeEnum seatType;
+
+    /**
+     * 车厢座位排数
+     */
+    private final int rowCount;
+
+    /**
+     * 每排座位字母，从左到右排列
+     */
+    private final String seatLetters;
+
+    /**
+     * 乘车人数小于该值时整体分配邻座，否则按分组分配邻座
+     */
+    private final int adjacentLimit;
+
+    /**
+     * 乘车人较多时每组邻座人数
+     */
+    private final int groupSize;
+
+    /**
+     * 购票策略标识，与 {@link VehicleTypeEnum#getName()} + {@link VehicleSeatTypeEnum#getName()} 一致
+     */
+    public String mark() {
+        return vehicleType.getName() + seatType.getName();
+    }
+}
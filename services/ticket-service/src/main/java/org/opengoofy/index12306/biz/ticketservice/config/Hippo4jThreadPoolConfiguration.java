@@ -62,4 +62,86 @@ public class Hippo4jThreadPoolConfiguration {
                 .dynamicPool()
                 .build();
     }
+
+    /**
+     * 购票定序器批量处理线程池，同一列车座位类型同一时刻最多占用一个线程
+     */
+    @Bean
+    @DynamicThreadPool
+    public ThreadPoolExecutor purchaseSequencerThreadPoolExecutor() {
+        String threadPoolId = "purchase-sequencer-thread-pool-executor";
+        return ThreadPoolBuilder.builder()
+                // 线程池ID
+                .threadPoolId(threadPoolId)
+                // 线程池名称
+                .threadFactory(threadPoolId)
+                // 阻塞队列类型 - 同步队列
+                .workQueue(BlockingQueueTypeEnum.SYNCHRONOUS_QUEUE)
+                // 核心线程数
+                .corePoolSize(16)
+                // 最大线程数
+                .maximumPoolSize(64)
+                // 线程空闲时间
+                .allowCoreThreadTimeOut(true)
+                .keepAliveTime(60, TimeUnit.MINUTES)
+                // 拒绝策略 - 调用者运行，由提交购票请求的线程处理当前批次
+                .rejected(new ThreadPoolExecutor.CallerRunsPolicy())
+                .dynamicPool()
+                .build();
+    }
+
+    /**
+     * 异步购票线程池，固定数量的处理线程控制同时进入购票流程的请求数，有界队列缓冲高峰流量
+     */
+    @Bean
+    @DynamicThreadPool
+    public ThreadPoolExecutor purchaseAsyncThreadPoolExecutor() {
+        String threadPoolId = "purchase-async-thread-pool-executor";
+        return ThreadPoolBuilder.builder()
+                // 线程池ID
+                .threadPoolId(threadPoolId)
+                // 线程池名称
+                .threadFactory(threadPoolId)
+                // 阻塞队列类型 - 有界数组队列
+                .workQueue(BlockingQueueTypeEnum.ARRAY_BLOCKING_QUEUE)
+                // 队列容量
+                .capacity(2048)
+                // 核心线程数
+                .corePoolSize(8)
+                // 最大线程数
+                .maximumPoolSize(8)
+                // 线程空闲时间
+                .keepAliveTime(60, TimeUnit.MINUTES)
+                // 拒绝策略 - 直接拒绝，由受理接口归还令牌并提示用户稍后重试
+                .rejected(new ThreadPoolExecutor.AbortPolicy())
+                .dynamicPool()
+                .build();
+    }
+
+    /**
+     * 开售前缓存预热线程池，限制同时预热的列车数量，避免预热任务压垮数据库
+     */
+    @Bean
+    @DynamicThreadPool
+    public ThreadPoolExecutor preSaleWarmUpThreadPoolExecutor() {
+        String threadPoolId = "pre-sale-warm-up-thread-pool-executor";
+        return ThreadPoolBuilder.builder()
+                // 线程池ID
+                .threadPoolId(threadPoolId)
+                // 线程池名称
+                .threadFactory(threadPoolId)
+                // 阻塞队列类型 - 同步队列
+                .workQueue(BlockingQueueTypeEnum.SYNCHRONOUS_QUEUE)
+                // 核心线程数
+                .corePoolSize(4)
+                // 最大线程数
+                .maximumPoolSize(8)
+                // 线程空闲时间
+                .allowCoreThreadTimeOut(true)
+                .keepAliveTime(60, TimeUnit.MINUTES)
+                // 拒绝策略 - 调用者运行，线程池满时由定时任务线程预热
+                .rejected(new ThreadPoolExecutor.CallerRunsPolicy())
+                .dynamicPool()
+                .build();
+    }
 }
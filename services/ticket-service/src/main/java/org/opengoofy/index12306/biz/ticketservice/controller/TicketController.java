@@ -24,7 +24,9 @@ import org.opengoofy.index12306.biz.ticketservice.dto.req.RefundTicketReqDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.req.TicketPageQueryReqDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.resp.RefundTicketRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPageQueryRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPurchaseAcceptRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPurchaseRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPurchaseStatusRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.remote.dto.PayInfoRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.service.TicketService;
 import org.opengoofy.index12306.framework.starter.convention.result.Result;
@@ -58,6 +60,14 @@ public class TicketController {
         return Results.success(ticketService.pageListTicketQueryV1(requestParam));
     }
 
+    /**
+     * 根据条件查询车票V3，基于地区查询快照本地缓存
+     */
+    @GetMapping("/api/ticket-service/ticket/query/v3")
+    public Result<TicketPageQueryRespDTO> pageListTicketQueryV3(TicketPageQueryReqDTO requestParam) {
+        return Results.success(ticketService.pageListTicketQueryV3(requestParam));
+    }
+
     /**
      * 购买车票
      */
@@ -94,6 +104,32 @@ public class TicketController {
         return Results.success(ticketService.purchaseTicketsV2(requestParam));
     }
 
+    /**
+     * 异步购买车票，受理后返回购票单号，通过购票状态查询接口获取购票结果
+     */
+    @ILog
+    @Idempotent(
+            uniqueKeyPrefix = "index12306-ticket:lock_purchase-tickets:",
+            key = "T(org.opengoofy.index12306.framework.starter.bases.ApplicationContextHolder).getBean('environment').getProperty('unique-name', '')"
+                    + "+'_'+"
+                    + "T(org.opengoofy.index12306.frameworks.starter.user.core.UserContext).getUsername()",
+            message = "正在执行下单流程，请稍后...",
+            scene = IdempotentSceneEnum.RESTAPI,
+            type = IdempotentTypeEnum.SPEL
+    )
+    @PostMapping("/api/ticket-service/ticket/purchase/async")
+    public Result<TicketPurchaseAcceptRespDTO> purchaseTicketsAsync(@RequestBody PurchaseTicketReqDTO requestParam) {
+        return Results.success(ticketService.purchaseTicketsAsync(requestParam));
+    }
+
+    /**
+     * 异步购票状态查询
+     */
+    @GetMapping("/api/ticket-service/ticket/purchase/status")
+    public Result<TicketPurchaseStatusRespDTO> queryPurchaseStatus(@RequestParam(value = "purchaseSn") String purchaseSn) {
+        return Results.success(ticketService.queryPurchaseStatus(purchaseSn));
+    }
+
     /**
      * 取消车票订单
      */
@@ -20,7 +20,10 @@ package org.opengoofy.index12306.biz.ticketservice.dao.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Param;
 import org.opengoofy.index12306.biz.ticketservice.dao.entity.SeatDO;
+import org.opengoofy.index12306.biz.ticketservice.dto.domain.RouteDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.domain.RouteSeatTypeCountDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.domain.SeatTypeCountDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TrainPurchaseTicketRespDTO;
 
 import java.util.List;
 
@@ -40,4 +43,25 @@ public interface SeatMapper extends BaseMapper<SeatDO> {
      * 获取列车 startStation 到 endStation 区间可用座位集合
      */
     List<SeatTypeCountDTO> listSeatTypeCount(@Param("trainId") Long trainId, @Param("startStation") String startStation, @Param("endStation") String endStation, @Param("seatTypes")  List<Integer> seatTypes);
+
+    /**
+     * 按站点区间以及座位类型聚合列车所有可用座位数量
+     */
+    List<RouteSeatTypeCountDTO> listRouteSeatTypeCount(@Param("trainId") Long trainId, @Param("seatTypes") List<Integer> seatTypes);
+
+    /**
+     * 批量变更座位在指定站点区间的状态，fromStatus 不为空时仅变更当前状态为 fromStatus 的记录
+     */
+    int updateSeatStatusBatch(@Param("trainId") Long trainId,
+                              @Param("seats") List<TrainPurchaseTicketRespDTO> seats,
+                              @Param("routes") List<RouteDTO> routes,
+                              @Param("fromStatus") Integer fromStatus,
+                              @Param("toStatus") Integer toStatus);
+
+    /**
+     * 批量变更座位在各自站点区间的状态，每条记录为 车厢号 + 座位号 + 出发站 + 到达站
+     */
+    int updateSeatRouteStatusBatch(@Param("trainId") Long trainId,
+                                   @Param("seatRoutes") List<SeatDO> seatRoutes,
+                                   @Param("toStatus") Integer toStatus);
 }
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.dao.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.opengoofy.index12306.biz.ticketservice.dao.entity.SeatSegmentDO;
+
+/**
+ * 座位区段占用持久层
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+public interface SeatSegmentMapper extends BaseMapper<SeatSegmentDO> {
+
+    /**
+     * 占用座位区段，区段掩码范围内已被占用时不会更新
+     */
+    int occupySegment(@Param("trainId") Long trainId, @Param("carriageNumber") String carriageNumber, @Param("seatNumber") String seatNumber, @Param("mask") Long mask);
+
+    /**
+     * 释放座位区段
+     */
+    int releaseSegment(@Param("trainId") Long trainId, @Param("carriageNumber") String carriageNumber, @Param("seatNumber") String seatNumber, @Param("mask") Long mask);
+}
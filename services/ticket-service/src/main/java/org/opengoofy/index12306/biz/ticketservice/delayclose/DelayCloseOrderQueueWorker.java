@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.delayclose;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.fastjson2.JSON;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.opengoofy.index12306.biz.ticketservice.dto.domain.RouteDTO;
+import org.opengoofy.index12306.biz.ticketservice.mq.event.DelayCloseOrderEvent;
+import org.opengoofy.index12306.biz.ticketservice.remote.TicketOrderRemoteService;
+import org.opengoofy.index12306.biz.ticketservice.remote.dto.TicketOrderBatchCloseRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.remote.dto.TicketOrderDetailRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.remote.dto.TicketOrderPassengerDetailRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.SeatService;
+import org.opengoofy.index12306.biz.ticketservice.service.TrainStationService;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TrainPurchaseTicketRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.tokenbucket.TicketAvailabilityTokenBucket;
+import org.opengoofy.index12306.framework.starter.bases.Singleton;
+import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
+import org.opengoofy.index12306.framework.starter.common.toolkit.BeanUtil;
+import org.opengoofy.index12306.framework.starter.convention.exception.ServiceException;
+import org.opengoofy.index12306.framework.starter.convention.result.Result;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.ORDER_DELAY_CLOSE_PAYLOAD;
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.ORDER_DELAY_CLOSE_QUEUE;
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.TRAIN_STATION_REMAINING_TICKET;
+
+/**
+ * 延迟关闭订单队列消费者，order.close.delay.type 为 redis 时生效
+ * 按关闭截止时间批量拉取到期订单，一次远程调用批量关闭订单后，按列车出发站到达站批量释放座位并回滚余票
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "order.close.delay.type", havingValue = "redis")
+public class DelayCloseOrderQueueWorker implements InitializingBean, DisposableBean {
+
+    private static final String LUA_ORDER_DELAY_CLOSE_CLAIM_PATH = "lua/order_delay_close_claim.lua";
+
+    private final DistributedCache distributedCache;
+    private final TicketOrderRemoteService ticketOrderRemoteService;
+    private final SeatService seatService;
+    private final TrainStationService trainStationService;
+    private final TicketAvailabilityTokenBucket ticketAvailabilityTokenBucket;
+
+    @Value("${ticket.availability.cache-update.type:}")
+    private String ticketAvailabilityCacheUpdateType;
+
+    @Value("${framework.cache.redis.prefix:}")
+    private String cacheRedisPrefix;
+
+    /**
+     * 单次拉取到期订单数量上限
+     */
+    @Value("${order.close.delay.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * 队列中没有到期订单时的拉取间隔
+     */
+    @Value("${order.close.delay.poll-interval-millis:500}")
+    private long pollIntervalMillis;
+
+    /**
+     * 拉取后处理租约时长，租约到期仍未确认的订单重新投递
+     */
+    @Value("${order.close.delay.lease-seconds:60}")
+    private long leaseSeconds;
+
+    private ScheduledExecutorService pollExecutor;
+
+    @Override
+    public void afterPropertiesSet() {
+        pollExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-delay-close-queue-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pollExecutor.scheduleWithFixedDelay(this::drain, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (pollExecutor != null) {
+            pollExecutor.shutdown();
+            pollExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 拉取满一批说明仍有积压，继续拉取直到到期订单处理完
+     */
+    private void drain() {
+        try {
+            int claimed;
+            do {
+                claimed = pollAndClose();
+            } while (claimed >= batchSize && !pollExecutor.isShutdown());
+        } catch (Throwable ex) {
+            log.error("[延迟关闭订单] 批量关闭到期订单失败，租约到期后重新拉取", ex);
+        }
+    }
+
+    /**
+     * 拉取一批到期订单并关闭
+     *
+     * @return 本次拉取的订单数量
+     */
+    @SuppressWarnings("unchecked")
+    private int pollAndClose() {
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        long now = System.currentTimeMillis();
+        List<String> payloads = stringRedisTemplate.execute(
+                getClaimScript(),
+                List.of(ORDER_DELAY_CLOSE_QUEUE, ORDER_DELAY_CLOSE_PAYLOAD),
+                String.valueOf(now),
+                String.valueOf(batchSize),
+                String.valueOf(now + TimeUnit.SECONDS.toMillis(leaseSeconds)));
+        if (CollUtil.isEmpty(payloads)) {
+            return 0;
+        }
+        List<DelayCloseOrderEvent> delayCloseOrderEvents = payloads.stream()
+                .map(each -> JSON.parseObject(each, DelayCloseOrderEvent.class))
+                .toList();
+        closeOrders(delayCloseOrderEvents);
+        return payloads.size();
+    }
+
+    private void closeOrders(List<DelayCloseOrderEvent> delayCloseOrderEvents) {
+        List<String> orderSns = delayCloseOrderEvents.stream().map(DelayCloseOrderEvent::getOrderSn).toList();
+        Result<TicketOrderBatchCloseRespDTO> closeResult = ticketOrderRemoteService.closeTickOrderBatch(orderSns);
+        if (!closeResult.isSuccess()) {
+            throw new ServiceException("批量关闭车票订单失败：" + closeResult.getMessage());
+        }
+        TicketOrderBatchCloseRespDTO closeResp = closeResult.getData();
+        Set<String> closedOrderSns = new HashSet<>(CollUtil.emptyIfNull(closeResp.getClosedOrderSns()));
+        Set<String> failedOrderSns = new HashSet<>(CollUtil.emptyIfNull(closeResp.getFailedOrderSns()));
+        // 关闭成功，并且不是binlog同步的消息才需要回滚
+        if (!closedOrderSns.isEmpty() && !StrUtil.equals(ticketAvailabilityCacheUpdateType, "binlog")) {
+            List<DelayCloseOrderEvent> closedEvents = delayCloseOrderEvents.stream()
+                    .filter(each -> closedOrderSns.contains(each.getOrderSn()))
+                    .toList();
+            try {
+                releaseTickets(closedEvents);
+            } catch (Throwable ex) {
+                // 订单已关闭，重新投递也不会再次回滚，与单条消费保持一致记录日志后确认
+                log.error("[延迟关闭订单] 订单号：{} 释放座位或回滚余票失败", closedOrderSns, ex);
+            }
+        }
+        // 关闭异常的订单不确认，租约到期后重新拉取；已支付或已关闭的订单直接确认
+        List<String> ackOrderSns = orderSns.stream().filter(each -> !failedOrderSns.contains(each)).toList();
+        if (!ackOrderSns.isEmpty()) {
+            StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+            stringRedisTemplate.opsForZSet().remove(ORDER_DELAY_CLOSE_QUEUE, ackOrderSns.toArray());
+            stringRedisTemplate.opsForHash().delete(ORDER_DELAY_CLOSE_PAYLOAD, ackOrderSns.toArray());
+        }
+        log.info("[延迟关闭订单] 拉取订单：{}，关闭订单：{}，关闭异常：{}", orderSns.size(), closedOrderSns.size(), failedOrderSns.size());
+    }
+
+    /**
+     * 按列车分组，每个列车一条 SQL 释放座位，每个列车一次回滚令牌，所有余票缓存增量一次管道写入
+     */
+    private void releaseTickets(List<DelayCloseOrderEvent> closedEvents) {
+        Map<String, Map<Integer, Integer>> cacheChangeKeyMap = new HashMap<>();
+        Map<String, List<DelayCloseOrderEvent>> trainEventMap = closedEvents.stream()
+                .collect(Collectors.groupingBy(DelayCloseOrderEvent::getTrainId, LinkedHashMap::new, Collectors.toList()));
+        trainEventMap.forEach((trainId, trainEvents) -> {
+            Map<String, List<DelayCloseOrderEvent>> routeEventMap = trainEvents.stream()
+                    .collect(Collectors.groupingBy(each -> each.getDeparture() + "_" + each.getArrival(), LinkedHashMap::new, Collectors.toList()));
+            Map<RouteDTO, List<TrainPurchaseTicketRespDTO>> routeSeatMap = new LinkedHashMap<>();
+            routeEventMap.values().forEach(routeEvents -> {
+                DelayCloseOrderEvent first = routeEvents.get(0);
+                List<TrainPurchaseTicketRespDTO> trainPurchaseTicketResults = routeEvents.stream()
+                        .flatMap(each -> each.getTrainPurchaseTicketResults().stream())
+                        .toList();
+                routeSeatMap.put(new RouteDTO(first.getDeparture(), first.getArrival()), trainPurchaseTicketResults);
+                // 余票由座位区段占用位图计算时释放座位即已回滚
+                if (!StrUtil.equals(ticketAvailabilityCacheUpdateType, "segment")) {
+                    Map<Integer, Long> seatTypeCountMap = trainPurchaseTicketResults.stream()
+                            .collect(Collectors.groupingBy(TrainPurchaseTicketRespDTO::getSeatType, Collectors.counting()));
+                    List<RouteDTO> routeDTOList = trainStationService.listTakeoutTrainStationRoute(trainId, first.getDeparture(), first.getArrival());
+                    routeDTOList.forEach(route -> {
+                        String cacheKey = TRAIN_STATION_REMAINING_TICKET + StrUtil.join("_", trainId, route.getStartStation(), route.getEndStation());
+                        Map<Integer, Integer> seatTypeMap = cacheChangeKeyMap.computeIfAbsent(cacheKey, key -> new HashMap<>());
+                        seatTypeCountMap.forEach((seatType, count) -> seatTypeMap.merge(seatType, count.intValue(), Integer::sum));
+                    });
+                }
+            });
+            seatService.unlockBatch(trainId, routeSeatMap);
+            List<TicketOrderDetailRespDTO> orderDetails = trainEvents.stream()
+                    .map(each -> {
+                        TicketOrderDetailRespDTO ticketOrderDetail = BeanUtil.convert(each, TicketOrderDetailRespDTO.class);
+                        ticketOrderDetail.setPassengerDetails(BeanUtil.convert(each.getTrainPurchaseTicketResults(), TicketOrderPassengerDetailRespDTO.class));
+                        return ticketOrderDetail;
+                    })
+                    .toList();
+            ticketAvailabilityTokenBucket.rollbackInBucketBatch(trainId, orderDetails);
+        });
+        if (!cacheChangeKeyMap.isEmpty()) {
+            // 管道命令不经过 Key 序列化器，需要手动拼接缓存前缀
+            StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+            stringRedisTemplate.executePipelined((RedisCallback<String>) connection -> {
+                cacheChangeKeyMap.forEach((cacheKey, cacheVal) -> {
+                    byte[] rawKey = (cacheRedisPrefix + cacheKey).getBytes(StandardCharsets.UTF_8);
+                    cacheVal.forEach((seatType, num) -> connection.hashCommands().hIncrBy(rawKey, String.valueOf(seatType).getBytes(StandardCharsets.UTF_8), num));
+                });
+                return null;
+            });
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static DefaultRedisScript<List> getClaimScript() {
+        return Singleton.get(LUA_ORDER_DELAY_CLOSE_CLAIM_PATH, () -> {
+            DefaultRedisScript<List> redisScript = new DefaultRedisScript<>();
+            redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource(LUA_ORDER_DELAY_CLOSE_CLAIM_PATH)));
+            redisScript.setResultType(List.class);
+            return redisScript;
+        });
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.dto.resp;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 异步购票状态查询返回参数
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TicketPurchaseStatusRespDTO {
+
+    /**
+     * 购票单号
+     */
+    private String purchaseSn;
+
+    /**
+     * 购票状态 0：已受理 1：处理中 2：购票成功 3：购票失败
+     */
+    private Integer status;
+
+    /**
+     * 购票失败原因
+     */
+    private String message;
+
+    /**
+     * 订单号，购票成功后返回
+     */
+    private String orderSn;
+
+    /**
+     * 乘车人订单详情，购票成功后返回
+     */
+    private List<TicketOrderDetailRespDTO> ticketOrderDetails;
+}
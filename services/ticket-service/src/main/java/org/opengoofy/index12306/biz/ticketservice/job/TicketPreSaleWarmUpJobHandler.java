@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.job;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.xxl.job.core.context.XxlJobHelper;
+import com.xxl.job.core.handler.annotation.XxlJob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.opengoofy.index12306.biz.ticketservice.common.enums.VehicleTypeEnum;
+import org.opengoofy.index12306.biz.ticketservice.dao.entity.TrainDO;
+import org.opengoofy.index12306.biz.ticketservice.dao.entity.TrainStationPriceDO;
+import org.opengoofy.index12306.biz.ticketservice.dao.mapper.TrainStationPriceMapper;
+import org.opengoofy.index12306.biz.ticketservice.job.base.AbstractTrainStationJobHandlerTemplate;
+import org.opengoofy.index12306.biz.ticketservice.service.TrainStationService;
+import org.opengoofy.index12306.biz.ticketservice.service.cache.SeatMarginCacheLoader;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.tokenbucket.TicketAvailabilityTokenBucket;
+import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
+import org.opengoofy.index12306.framework.starter.cache.MultistageCache;
+import org.opengoofy.index12306.framework.starter.cache.toolkit.CacheUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.Index12306Constant.ADVANCE_TICKET_DAY;
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.TICKET_AVAILABILITY_TOKEN_BUCKET;
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.TRAIN_INFO;
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.TRAIN_STATION_PRICE;
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.TRAIN_STATION_REMAINING_TICKET;
+
+/**
+ * 列车开售前缓存预热定时任务
+ * 开售时间落在预热窗口内的列车提前构建列车信息、站点路由、票价、余票以及令牌桶缓存，开售瞬间的购票请求不再承担缓存构建开销
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+public class TicketPreSaleWarmUpJobHandler extends AbstractTrainStationJobHandlerTemplate {
+
+    private final TrainStationPriceMapper trainStationPriceMapper;
+    private final TrainStationService trainStationService;
+    private final SeatMarginCacheLoader seatMarginCacheLoader;
+    private final TicketAvailabilityTokenBucket ticketAvailabilityTokenBucket;
+    private final DistributedCache distributedCache;
+    private final MultistageCache multistageCache;
+    private final ThreadPoolExecutor preSaleWarmUpThreadPoolExecutor;
+
+    /**
+     * 预热窗口，单位分钟，预热开售时间在当前时间到窗口结束之间的列车，定时任务执行间隔应小于窗口
+     */
+    @Value("${ticket.pre-sale.warm-up.window-minutes:30}")
+    private int windowMinutes;
+
+    @XxlJob(value = "ticketPreSaleWarmUpJobHandler")
+    @GetMapping("/api/ticket-service/ticket-pre-sale/job/cache-warm-up/execute")
+    @Override
+    public void execute() {
+        super.execute();
+    }
+
+    /**
+     * 请求参数为预热窗口分钟数，为空时使用配置的预热窗口
+     */
+    @Override
+    protected LambdaQueryWrapper<TrainDO> buildQueryWrapper(String requestParam) {
+        int actualWindowMinutes = NumberUtil.isInteger(requestParam) ? Integer.parseInt(requestParam) : windowMinutes;
+        Date now = new Date();
+        return Wrappers.lambdaQuery(TrainDO.class)
+                .between(TrainDO::getSaleTime, now, DateUtil.offsetMinute(now, actualWindowMinutes));
+    }
+
+    @Override
+    protected void actualExecute(List<TrainDO> trainDOPageRecords) {
+        long startTime = System.currentTimeMillis();
+        AtomicInteger failedCount = new AtomicInteger();
+        // 线程池限制同时预热的列车数量，线程池满时由当前线程执行
+        CompletableFuture<?>[] futures = trainDOPageRecords.stream()
+                .map(each -> CompletableFuture.runAsync(() -> warmUp(each), preSaleWarmUpThreadPoolExecutor)
+                        .exceptionally(ex -> {
+                            failedCount.incrementAndGet();
+                            log.error("列车开售前缓存预热失败，列车ID：{}", each.getId(), ex);
+                            return null;
+                        }))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(futures).join();
+        XxlJobHelper.log("列车开售前缓存预热完成，列车数量：{}，失败数量：{}，耗时：{}ms",
+                trainDOPageRecords.size(), failedCount.get(), System.currentTimeMillis() - startTime);
+    }
+
+    private void warmUp(TrainDO trainDO) {
+        long startTime = System.currentTimeMillis();
+        String trainId = String.valueOf(trainDO.getId());
+        multistageCache.put(TRAIN_INFO + trainId, trainDO, ADVANCE_TICKET_DAY, TimeUnit.DAYS);
+        // 加载列车站点路由
+        trainStationService.listTrainStationRoute(trainId, trainDO.getStartStation(), trainDO.getEndStation());
+        // 一次查询列车所有站点区间票价，按站点区间写入缓存，保持与运行时加载相同的座位类型顺序
+        LambdaQueryWrapper<TrainStationPriceDO> priceQueryWrapper = Wrappers.lambdaQuery(TrainStationPriceDO.class)
+                .eq(TrainStationPriceDO::getTrainId, trainDO.getId());
+        Map<String, List<TrainStationPriceDO>> trainStationPriceMap = trainStationPriceMapper.selectList(priceQueryWrapper).stream()
+                .collect(Collectors.groupingBy(each -> String.format(TRAIN_STATION_PRICE, trainId, each.getDeparture(), each.getArrival()), LinkedHashMap::new, Collectors.toList()));
+        trainStationPriceMap.forEach((cacheKey, cacheValue) -> distributedCache.put(cacheKey, JSON.toJSONString(cacheValue), ADVANCE_TICKET_DAY, TimeUnit.DAYS));
+        // 余票缓存不存在时一次聚合查询构建所有站点区间余票
+        List<Integer> seatTypes = VehicleTypeEnum.findSeatTypesByCode(trainDO.getTrainType());
+        if (CollUtil.isNotEmpty(seatTypes)) {
+            seatMarginCacheLoader.load(trainId, String.valueOf(seatTypes.get(0)), trainDO.getStartStation(), trainDO.getEndStation());
+        }
+        ticketAvailabilityTokenBucket.initializeTokens(trainDO);
+        boolean verified = distributedCache.hasKey(TICKET_AVAILABILITY_TOKEN_BUCKET + trainId)
+                && distributedCache.hasKey(TRAIN_STATION_REMAINING_TICKET + CacheUtil.buildKey(trainId, trainDO.getStartStation(), trainDO.getEndStation()));
+        long elapsed = System.currentTimeMillis() - startTime;
+        if (!verified) {
+            log.warn("列车开售前缓存预热校验未通过，列车ID：{}，开售时间：{}，耗时：{}ms", trainId, DateUtil.formatDateTime(trainDO.getSaleTime()), elapsed);
+            XxlJobHelper.log("列车开售前缓存预热校验未通过，列车ID：{}，耗时：{}ms", trainId, elapsed);
+            return;
+        }
+        log.info("列车开售前缓存预热完成，列车ID：{}，票价区间数量：{}，耗时：{}ms", trainId, trainStationPriceMap.size(), elapsed);
+        XxlJobHelper.log("列车开售前缓存预热完成，列车ID：{}，耗时：{}ms", trainId, elapsed);
+    }
+}
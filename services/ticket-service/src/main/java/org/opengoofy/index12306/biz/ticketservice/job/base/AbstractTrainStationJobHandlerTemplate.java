@@ -20,6 +20,7 @@ package org.opengoofy.index12306.biz.ticketservice.job.base;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.xxl.job.core.context.XxlJobHelper;
@@ -54,15 +55,11 @@ public abstract class AbstractTrainStationJobHandlerTemplate extends IJobHandler
         var currentPage = 1L;
         var size = 1000L;
         // 开发环境下，手动传入请求参数
-        var requestParam = getJobRequestParam();
-        // 如果请求参数为空，获取明天的日期
-        var dateTime = StrUtil.isNotBlank(requestParam) ? DateUtil.parse(requestParam, "yyyy-MM-dd") : DateUtil.tomorrow();
+        var queryWrapper = buildQueryWrapper(getJobRequestParam());
         // 获取列车信息
         var trainMapper = ApplicationContextHolder.getBean(TrainMapper.class);
         // 分页查询列车信息
         for (; ; currentPage++) {
-            var queryWrapper = Wrappers.lambdaQuery(TrainDO.class)
-                    .between(TrainDO::getDepartureTime, DateUtil.beginOfDay(dateTime), DateUtil.endOfDay(dateTime));
             var trainDOPage = trainMapper.selectPage(new Page<>(currentPage, size), queryWrapper);
             if (trainDOPage == null || CollUtil.isEmpty(trainDOPage.getRecords())) {
                 break;
@@ -72,6 +69,19 @@ public abstract class AbstractTrainStationJobHandlerTemplate extends IJobHandler
         }
     }
 
+    /**
+     * 构建列车分页查询条件，默认查询请求参数日期出发的列车
+     *
+     * @param requestParam 定时任务请求参数
+     * @return 列车查询条件
+     */
+    protected LambdaQueryWrapper<TrainDO> buildQueryWrapper(String requestParam) {
+        // 如果请求参数为空，获取明天的日期
+        var dateTime = StrUtil.isNotBlank(requestParam) ? DateUtil.parse(requestParam, "yyyy-MM-dd") : DateUtil.tomorrow();
+        return Wrappers.lambdaQuery(TrainDO.class)
+                .between(TrainDO::getDepartureTime, DateUtil.beginOfDay(dateTime), DateUtil.endOfDay(dateTime));
+    }
+
     private String getJobRequestParam() {
         return EnvironmentUtil.isDevEnvironment()
                 ? Optional.ofNullable(((ServletRequestAttributes) RequestContextHolder.getRequestAttributes())).map(ServletRequestAttributes::getRequest).map(each -> each.getHeader("requestParam")).orElse(null)
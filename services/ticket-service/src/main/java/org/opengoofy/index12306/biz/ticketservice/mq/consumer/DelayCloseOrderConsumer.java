@@ -102,18 +102,20 @@ public final class DelayCloseOrderConsumer implements RocketMQListener<MessageWr
                 throw ex;
             }
             try {
-                // 回滚缓存
-                StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
-                Map<Integer, List<TrainPurchaseTicketRespDTO>> seatTypeMap = trainPurchaseTicketResults.stream()
-                        .collect(Collectors.groupingBy(TrainPurchaseTicketRespDTO::getSeatType));
-                List<RouteDTO> routeDTOList = trainStationService.listTakeoutTrainStationRoute(trainId, departure, arrival);
-                routeDTOList.forEach(each -> {
-                    String keySuffix = StrUtil.join("_", trainId, each.getStartStation(), each.getEndStation());
-                    seatTypeMap.forEach((seatType, trainPurchaseTicketRespDTOList) -> {
-                        stringRedisTemplate.opsForHash()
-                                .increment(TRAIN_STATION_REMAINING_TICKET + keySuffix, String.valueOf(seatType), trainPurchaseTicketRespDTOList.size());
+                // 回滚缓存，余票由座位区段占用位图计算时释放座位即已回滚
+                if (!StrUtil.equals(ticketAvailabilityCacheUpdateType, "segment")) {
+                    StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+                    Map<Integer, List<TrainPurchaseTicketRespDTO>> seatTypeMap = trainPurchaseTicketResults.stream()
+                            .collect(Collectors.groupingBy(TrainPurchaseTicketRespDTO::getSeatType));
+                    List<RouteDTO> routeDTOList = trainStationService.listTakeoutTrainStationRoute(trainId, departure, arrival);
+                    routeDTOList.forEach(each -> {
+                        String keySuffix = StrUtil.join("_", trainId, each.getStartStation(), each.getEndStation());
+                        seatTypeMap.forEach((seatType, trainPurchaseTicketRespDTOList) -> {
+                            stringRedisTemplate.opsForHash()
+                                    .increment(TRAIN_STATION_REMAINING_TICKET + keySuffix, String.valueOf(seatType), trainPurchaseTicketRespDTOList.size());
+                        });
                     });
-                });
+                }
                 TicketOrderDetailRespDTO ticketOrderDetail = BeanUtil.convert(delayCloseOrderEvent, TicketOrderDetailRespDTO.class);
                 ticketOrderDetail.setPassengerDetails(BeanUtil.convert(delayCloseOrderEvent.getTrainPurchaseTicketResults(), TicketOrderPassengerDetailRespDTO.class));
                 ticketAvailabilityTokenBucket.rollbackInBucket(ticketOrderDetail);
@@ -19,6 +19,7 @@ package org.opengoofy.index12306.biz.ticketservice.remote;
 
 import org.opengoofy.index12306.biz.ticketservice.dto.req.CancelTicketOrderReqDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.req.TicketOrderItemQueryReqDTO;
+import org.opengoofy.index12306.biz.ticketservice.remote.dto.TicketOrderBatchCloseRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.remote.dto.TicketOrderCreateRemoteReqDTO;
 import org.opengoofy.index12306.biz.ticketservice.remote.dto.TicketOrderDetailRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.remote.dto.TicketOrderPassengerDetailRespDTO;
@@ -48,6 +49,24 @@ public interface TicketOrderRemoteService {
     @GetMapping("/api/order-service/order/ticket/query")
     Result<TicketOrderDetailRespDTO> queryTicketOrderByOrderSn(@RequestParam(value = "orderSn") String orderSn);
 
+    /**
+     * 跟据订单号集合批量查询车票订单
+     *
+     * @param orderSns 列车订单号集合
+     * @return 列车订单记录集合
+     */
+    @PostMapping("/api/order-service/order/ticket/query/batch")
+    Result<List<TicketOrderDetailRespDTO>> queryTicketOrderByOrderSns(@RequestBody List<String> orderSns);
+
+
+    /**
+     * 跟据创建订单请求 ID 查询订单号
+     *
+     * @param requestId 创建订单请求 ID
+     * @return 订单号，订单未创建时为空，订单仍在创建中时返回失败
+     */
+    @GetMapping("/api/order-service/order/ticket/query/request-id")
+    Result<String> queryOrderSnByRequestId(@RequestParam(value = "requestId") String requestId);
 
     /**
      * 跟据子订单记录id查询车票子订单详情
@@ -73,6 +92,15 @@ public interface TicketOrderRemoteService {
     @PostMapping("/api/order-service/order/ticket/close")
     Result<Boolean> closeTickOrder(@RequestBody CancelTicketOrderReqDTO requestParam);
 
+    /**
+     * 车票订单批量关闭
+     *
+     * @param orderSns 列车订单号集合
+     * @return 关闭成功以及关闭异常的订单号
+     */
+    @PostMapping("/api/order-service/order/ticket/close/batch")
+    Result<TicketOrderBatchCloseRespDTO> closeTickOrderBatch(@RequestBody List<String> orderSns);
+
     /**
      * 车票订单取消
      *
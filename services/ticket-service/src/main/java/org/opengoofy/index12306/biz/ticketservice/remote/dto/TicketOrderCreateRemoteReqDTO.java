@@ -36,6 +36,11 @@ import java.util.List;
 @Builder
 public class TicketOrderCreateRemoteReqDTO {
 
+    /**
+     * 创建订单请求 ID，相同请求 ID 重复调用返回同一订单号
+     */
+    private String requestId;
+
     /**
      * 用户 ID
      */
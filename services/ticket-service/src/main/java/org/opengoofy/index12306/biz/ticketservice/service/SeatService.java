@@ -18,10 +18,13 @@
 package org.opengoofy.index12306.biz.ticketservice.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import org.opengoofy.index12306.biz.ticketservice.common.enums.SeatStatusEnum;
 import org.opengoofy.index12306.biz.ticketservice.dao.entity.SeatDO;
+import org.opengoofy.index12306.biz.ticketservice.dto.domain.RouteDTO;
 import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TrainPurchaseTicketRespDTO;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 座位接口层
@@ -83,4 +86,57 @@ public interface SeatService extends IService<SeatDO> {
      * @param trainPurchaseTicketResults 乘车人以及座位信息
      */
     void unlock(String trainId, String departure, String arrival, List<TrainPurchaseTicketRespDTO> trainPurchaseTicketResults);
+
+    /**
+     * 批量解锁同一列车多个出发站到达站的选中以及沿途车票状态，所有座位通过一条 SQL 完成解锁
+     *
+     * @param trainId      列车 ID
+     * @param routeSeatMap 出发站到达站 -> 乘车人以及座位信息
+     */
+    void unlockBatch(String trainId, Map<RouteDTO, List<TrainPurchaseTicketRespDTO>> routeSeatMap);
+
+    /**
+     * 批量变更座位状态，所有座位以及站点区间通过一条 SQL 完成变更
+     *
+     * @param trainId    列车 ID
+     * @param routes     需要变更状态的站点区间
+     * @param seats      乘车人以及座位信息
+     * @param fromStatus 变更前状态，为空代表不校验当前状态
+     * @param toStatus   变更后状态
+     * @return 受影响行数
+     */
+    int changeSeatStatus(String trainId, List<RouteDTO> routes, List<TrainPurchaseTicketRespDTO> seats, SeatStatusEnum fromStatus, SeatStatusEnum toStatus);
+
+    /**
+     * 基于座位区段占用位图获取列车车厢中可用的座位集合
+     *
+     * @param trainId        列车 ID
+     * @param carriageNumber 车厢号
+     * @param seatType       座位类型
+     * @param departure      出发站
+     * @param arrival        到达站
+     * @return 可用座位集合
+     */
+    List<String> listAvailableSeatBySegment(String trainId, String carriageNumber, Integer seatType, String departure, String arrival);
+
+    /**
+     * 基于座位区段占用位图占用选中座位出发站到到达站的区段，所有座位要么全部占用成功，要么全部不占用
+     *
+     * @param trainId                     列车 ID
+     * @param departure                   出发站
+     * @param arrival                     到达站
+     * @param trainPurchaseTicketRespList 乘车人以及座位信息
+     * @return 是否占用成功
+     */
+    boolean occupySeatSegment(String trainId, String departure, String arrival, List<TrainPurchaseTicketRespDTO> trainPurchaseTicketRespList);
+
+    /**
+     * 基于座位区段占用位图释放选中座位出发站到到达站的区段
+     *
+     * @param trainId                    列车 ID
+     * @param departure                  出发站
+     * @param arrival                    到达站
+     * @param trainPurchaseTicketResults 乘车人以及座位信息
+     */
+    void releaseSeatSegment(String trainId, String departure, String arrival, List<TrainPurchaseTicketRespDTO> trainPurchaseTicketResults);
 }
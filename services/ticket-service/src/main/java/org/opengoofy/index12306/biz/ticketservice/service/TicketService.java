@@ -25,10 +25,16 @@ import org.opengoofy.index12306.biz.ticketservice.dto.req.RefundTicketReqDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.req.TicketPageQueryReqDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.resp.RefundTicketRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPageQueryRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPurchaseAcceptRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPurchaseRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPurchaseStatusRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.remote.dto.PayInfoRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TicketPurchaseReservationDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TicketPurchaseTaskDTO;
 import org.springframework.web.bind.annotation.RequestBody;
 
+import java.util.List;
+
 /**
  * 车票接口
  *
@@ -52,6 +58,14 @@ public interface TicketService extends IService<TicketDO> {
      */
     TicketPageQueryRespDTO pageListTicketQueryV2(TicketPageQueryReqDTO requestParam);
 
+    /**
+     * 根据条件分页查询车票V3版本，列车、票价以及筛选条件来自本地地区查询快照，仅余票实时读取
+     *
+     * @param requestParam 分页查询车票请求参数
+     * @return 查询车票返回结果
+     */
+    TicketPageQueryRespDTO pageListTicketQueryV3(TicketPageQueryReqDTO requestParam);
+
     /**
      * 购买车票
      *
@@ -69,13 +83,37 @@ public interface TicketService extends IService<TicketDO> {
     TicketPurchaseRespDTO purchaseTicketsV2(@RequestBody PurchaseTicketReqDTO requestParam);
 
     /**
-     * 执行购买车票
+     * 异步购买车票，校验参数并获取令牌后立即返回购票单号，购票流程由后台线程执行
+     *
+     * @param requestParam 车票购买请求参数
+     * @return 购票单号
+     */
+    TicketPurchaseAcceptRespDTO purchaseTicketsAsync(PurchaseTicketReqDTO requestParam);
+
+    /**
+     * 查询异步购票状态
+     *
+     * @param purchaseSn 购票单号
+     * @return 购票状态以及购票成功后的订单信息
+     */
+    TicketPurchaseStatusRespDTO queryPurchaseStatus(String purchaseSn);
+
+    /**
+     * 预留购买车票座位，在本地事务内锁定座位并写入车票，事务提交后由调用方创建订单
      * 被对应购票版本号接口调用 {@link TicketService#purchaseTicketsV1(PurchaseTicketReqDTO)} and {@link TicketService#purchaseTicketsV2(PurchaseTicketReqDTO)}
      *
      * @param requestParam 车票购买请求参数
-     * @return 订单号
+     * @return 座位预留结果
+     */
+    TicketPurchaseReservationDTO reservePurchaseTickets(@RequestBody PurchaseTicketReqDTO requestParam);
+
+    /**
+     * 批量预留购买车票座位，同一列车同一座位类型的购票请求在一个事务内分配座位、锁定座位以及写入车票
+     * 被购票定序器调用，每个请求的预留结果或异常写回对应任务
+     *
+     * @param tasks 购票任务集合
      */
-    TicketPurchaseRespDTO executePurchaseTickets(@RequestBody PurchaseTicketReqDTO requestParam);
+    void reservePurchaseTicketsBatch(List<TicketPurchaseTaskDTO> tasks);
 
     /**
      * 支付单详情查询
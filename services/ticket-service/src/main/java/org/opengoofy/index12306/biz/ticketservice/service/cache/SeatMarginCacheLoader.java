@@ -18,12 +18,8 @@
 package org.opengoofy.index12306.biz.ticketservice.service.cache;
 
 import cn.hutool.core.collection.CollUtil;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import lombok.RequiredArgsConstructor;
-import org.opengoofy.index12306.biz.ticketservice.common.enums.SeatStatusEnum;
 import org.opengoofy.index12306.biz.ticketservice.common.enums.VehicleTypeEnum;
-import org.opengoofy.index12306.biz.ticketservice.dao.entity.SeatDO;
 import org.opengoofy.index12306.biz.ticketservice.dao.entity.TrainDO;
 import org.opengoofy.index12306.biz.ticketservice.dao.mapper.SeatMapper;
 import org.opengoofy.index12306.biz.ticketservice.dao.mapper.TrainMapper;
@@ -33,9 +29,13 @@ import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
 import org.opengoofy.index12306.framework.starter.cache.toolkit.CacheUtil;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -60,6 +60,9 @@ public class SeatMarginCacheLoader {
     private final RedissonClient redissonClient;
     private final TrainStationService trainStationService;
 
+    @Value("${framework.cache.redis.prefix:}")
+    private String cacheRedisPrefix;
+
     public Map<String, String> load(String trainId, String seatType, String departure, String arrival) {
         Map<String, Map<String, String>> trainStationRemainingTicketMaps = new LinkedHashMap<>();
         String keySuffix = CacheUtil.buildKey(trainId, departure, arrival);
@@ -78,50 +81,37 @@ public class SeatMarginCacheLoader {
                         TimeUnit.DAYS
                 );
                 List<RouteDTO> routeDTOList = trainStationService.listTrainStationRoute(trainId, trainDO.getStartStation(), trainDO.getEndStation());
+                List<Integer> seatTypes = VehicleTypeEnum.findSeatTypesByCode(trainDO.getTrainType());
                 if (CollUtil.isNotEmpty(routeDTOList)) {
-                    switch (trainDO.getTrainType()) {
-                        // TODO 通过已有列车类型座位枚举重构
-                        case 0 -> {
-                            for (RouteDTO each : routeDTOList) {
-                                Map<String, String> trainStationRemainingTicket = new LinkedHashMap<>();
-                                trainStationRemainingTicket.put("0", selectSeatMargin(trainId, 0, each.getStartStation(), each.getEndStation()));
-                                trainStationRemainingTicket.put("1", selectSeatMargin(trainId, 1, each.getStartStation(), each.getEndStation()));
-                                trainStationRemainingTicket.put("2", selectSeatMargin(trainId, 2, each.getStartStation(), each.getEndStation()));
-                                String actualKeySuffix = CacheUtil.buildKey(trainId, each.getStartStation(), each.getEndStation());
-                                trainStationRemainingTicketMaps.put(TRAIN_STATION_REMAINING_TICKET + actualKeySuffix, trainStationRemainingTicket);
-                            }
-                        }
-                        case 1 -> {
-                            for (RouteDTO each : routeDTOList) {
-                                Map<String, String> trainStationRemainingTicket = new LinkedHashMap<>();
-                                trainStationRemainingTicket.put("3", selectSeatMargin(trainId, 3, each.getStartStation(), each.getEndStation()));
-                                trainStationRemainingTicket.put("4", selectSeatMargin(trainId, 4, each.getStartStation(), each.getEndStation()));
-                                trainStationRemainingTicket.put("5", selectSeatMargin(trainId, 5, each.getStartStation(), each.getEndStation()));
-                                trainStationRemainingTicket.put("13", selectSeatMargin(trainId, 13, each.getStartStation(), each.getEndStation()));
-                                String actualKeySuffix = CacheUtil.buildKey(trainId, each.getStartStation(), each.getEndStation());
-                                trainStationRemainingTicketMaps.put(TRAIN_STATION_REMAINING_TICKET + actualKeySuffix, trainStationRemainingTicket);
-                            }
-                        }
-                        case 2 -> {
-                            for (RouteDTO each : routeDTOList) {
-                                Map<String, String> trainStationRemainingTicket = new LinkedHashMap<>();
-                                trainStationRemainingTicket.put("6", selectSeatMargin(trainId, 6, each.getStartStation(), each.getEndStation()));
-                                trainStationRemainingTicket.put("7", selectSeatMargin(trainId, 7, each.getStartStation(), each.getEndStation()));
-                                trainStationRemainingTicket.put("8", selectSeatMargin(trainId, 8, each.getStartStation(), each.getEndStation()));
-                                trainStationRemainingTicket.put("13", selectSeatMargin(trainId, 13, each.getStartStation(), each.getEndStation()));
-                                String actualKeySuffix = CacheUtil.buildKey(trainId, each.getStartStation(), each.getEndStation());
-                                trainStationRemainingTicketMaps.put(TRAIN_STATION_REMAINING_TICKET + actualKeySuffix, trainStationRemainingTicket);
-                            }
-                        }
+                    // 一次聚合查询获取列车所有站点区间、所有座位类型的可用座位数量，未查询到的区间座位类型余量为 0
+                    Map<String, Integer> routeSeatTypeCountMap = new HashMap<>();
+                    seatMapper.listRouteSeatTypeCount(Long.parseLong(trainId), seatTypes)
+                            .forEach(each -> routeSeatTypeCountMap.put(CacheUtil.buildKey(each.getStartStation(), each.getEndStation(), String.valueOf(each.getSeatType())), each.getSeatCount()));
+                    for (RouteDTO each : routeDTOList) {
+                        Map<String, String> trainStationRemainingTicket = new LinkedHashMap<>();
+                        seatTypes.forEach(item -> trainStationRemainingTicket.put(
+                                String.valueOf(item),
+                                String.valueOf(routeSeatTypeCountMap.getOrDefault(CacheUtil.buildKey(each.getStartStation(), each.getEndStation(), String.valueOf(item)), 0))
+                        ));
+                        String actualKeySuffix = CacheUtil.buildKey(trainId, each.getStartStation(), each.getEndStation());
+                        trainStationRemainingTicketMaps.put(TRAIN_STATION_REMAINING_TICKET + actualKeySuffix, trainStationRemainingTicket);
                     }
                 } else {
                     Map<String, String> trainStationRemainingTicket = new LinkedHashMap<>();
-                    VehicleTypeEnum.findSeatTypesByCode(trainDO.getTrainType())
-                            .forEach(each -> trainStationRemainingTicket.put(String.valueOf(each), "0"));
+                    seatTypes.forEach(each -> trainStationRemainingTicket.put(String.valueOf(each), "0"));
                     trainStationRemainingTicketMaps.put(TRAIN_STATION_REMAINING_TICKET + keySuffix, trainStationRemainingTicket);
                 }
-                // TODO LUA 脚本执行
-                trainStationRemainingTicketMaps.forEach((cacheKey, cacheMap) -> stringRedisTemplate.opsForHash().putAll(cacheKey, cacheMap));
+                // 所有站点区间余量一次网络 IO 写入并设置过期时间，管道命令不经过 Key 序列化器，需要手动拼接缓存前缀
+                stringRedisTemplate.executePipelined((RedisCallback<String>) connection -> {
+                    trainStationRemainingTicketMaps.forEach((cacheKey, cacheMap) -> {
+                        byte[] rawKey = (cacheRedisPrefix + cacheKey).getBytes(StandardCharsets.UTF_8);
+                        Map<byte[], byte[]> rawHash = new LinkedHashMap<>();
+                        cacheMap.forEach((field, value) -> rawHash.put(field.getBytes(StandardCharsets.UTF_8), value.getBytes(StandardCharsets.UTF_8)));
+                        connection.hashCommands().hMSet(rawKey, rawHash);
+                        connection.keyCommands().expire(rawKey, TimeUnit.DAYS.toSeconds(ADVANCE_TICKET_DAY));
+                    });
+                    return null;
+                });
             }
         } finally {
             lock.unlock();
@@ -129,16 +119,4 @@ public class SeatMarginCacheLoader {
         return Optional.ofNullable(trainStationRemainingTicketMaps.get(TRAIN_STATION_REMAINING_TICKET + keySuffix))
                 .orElse(new LinkedHashMap<>());
     }
-
-    private String selectSeatMargin(String trainId, Integer type, String departure, String arrival) {
-        LambdaQueryWrapper<SeatDO> queryWrapper = Wrappers.lambdaQuery(SeatDO.class)
-                .eq(SeatDO::getTrainId, trainId)
-                .eq(SeatDO::getSeatType, type)
-                .eq(SeatDO::getSeatStatus, SeatStatusEnum.AVAILABLE.getCode())
-                .eq(SeatDO::getStartStation, departure)
-                .eq(SeatDO::getEndStation, arrival);
-        return Optional.ofNullable(seatMapper.selectCount(queryWrapper))
-                .map(String::valueOf)
-                .orElse("0");
-    }
 }
@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.service.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import org.opengoofy.index12306.biz.ticketservice.dao.entity.SeatSegmentDO;
+import org.opengoofy.index12306.biz.ticketservice.dao.mapper.SeatSegmentMapper;
+import org.opengoofy.index12306.biz.ticketservice.toolkit.SeatSegmentUtil;
+import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
+import org.opengoofy.index12306.framework.starter.convention.exception.ServiceException;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.LOCK_TRAIN_SEAT_SEGMENT;
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.TRAIN_SEAT_SEGMENT;
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.TRAIN_SEAT_SEGMENT_VERSION;
+
+/**
+ * 座位区段占用缓存加载
+ * <p>
+ * Redis 中以列车维度 Hash 存储每个座位的区段位串，本地 JVM 持有只读副本，余票数量直接由座位区段占用位图计算得出
+ * 副本通过 Redis 中的版本号判断是否过期，并且同一列车在刷新间隔内最多从 Redis 拉取一次
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Component
+@RequiredArgsConstructor
+public class SeatSegmentCacheLoader {
+
+    private final DistributedCache distributedCache;
+    private final RedissonClient redissonClient;
+    private final SeatSegmentMapper seatSegmentMapper;
+    private final TrainRouteTopologyIndex trainRouteTopologyIndex;
+
+    private static final long CARRIAGE_SCAN_COUNT = 1000L;
+
+    @Value("${ticket.availability.segment.refresh-interval:1000}")
+    private long refreshInterval;
+
+    private final Cache<String, TrainSeatSegmentReplica> replicaCache = Caffeine.newBuilder()
+            .expireAfterAccess(1, TimeUnit.DAYS)
+            .build();
+
+    /**
+     * 查询列车按站序排列的所有站点
+     *
+     * @param trainId 列车 ID
+     * @return 按站序排列的站点名称
+     */
+    public List<String> listOrderedStation(String trainId) {
+        List<String> stations = trainRouteTopologyIndex.get(trainId).getStations();
+        if (stations.size() - 1 > SeatSegmentUtil.MAX_SEGMENT_COUNT) {
+            throw new ServiceException(String.format("列车区段数量超过座位区段位图上限 %d，不支持区段余票模式", SeatSegmentUtil.MAX_SEGMENT_COUNT));
+        }
+        return stations;
+    }
+
+    /**
+     * 获取列车座位区段占用缓存，不存在则从数据库加载
+     *
+     * @param trainId      列车 ID
+     * @param segmentCount 列车区段数量
+     * @return Field 为 座位类型_车厢号_座位号，Value 为区段位串
+     */
+    public Map<Object, Object> load(String trainId, int segmentCount) {
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        String actualHashKey = TRAIN_SEAT_SEGMENT + trainId;
+        Map<Object, Object> seatSegmentMap = stringRedisTemplate.opsForHash().entries(actualHashKey);
+        if (CollUtil.isNotEmpty(seatSegmentMap)) {
+            return seatSegmentMap;
+        }
+        RLock lock = redissonClient.getLock(String.format(LOCK_TRAIN_SEAT_SEGMENT, trainId));
+        lock.lock();
+        try {
+            seatSegmentMap = stringRedisTemplate.opsForHash().entries(actualHashKey);
+            if (CollUtil.isEmpty(seatSegmentMap)) {
+                LambdaQueryWrapper<SeatSegmentDO> queryWrapper = Wrappers.lambdaQuery(SeatSegmentDO.class)
+                        .eq(SeatSegmentDO::getTrainId, trainId)
+                        .select(SeatSegmentDO::getSeatType, SeatSegmentDO::getCarriageNumber, SeatSegmentDO::getSeatNumber, SeatSegmentDO::getOccupancy);
+                List<SeatSegmentDO> seatSegmentDOList = seatSegmentMapper.selectList(queryWrapper);
+                seatSegmentMap = new HashMap<>(seatSegmentDOList.size() << 1);
+                for (SeatSegmentDO each : seatSegmentDOList) {
+                    String field = buildField(each.getSeatType(), each.getCarriageNumber(), each.getSeatNumber());
+                    seatSegmentMap.put(field, SeatSegmentUtil.toBitString(each.getOccupancy(), segmentCount));
+                }
+                if (CollUtil.isNotEmpty(seatSegmentMap)) {
+                    stringRedisTemplate.opsForHash().putAll(actualHashKey, seatSegmentMap);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return seatSegmentMap;
+    }
+
+    /**
+     * 获取列车某座位类型某车厢的座位区段占用，通过 HSCAN 按 Field 前缀匹配，避免读取整列车的座位区段缓存
+     *
+     * @param trainId        列车 ID
+     * @param segmentCount   列车区段数量
+     * @param seatType       座位类型
+     * @param carriageNumber 车厢号
+     * @return Field 为 座位类型_车厢号_座位号，Value 为区段位串
+     */
+    public Map<Object, Object> loadCarriage(String trainId, int segmentCount, Integer seatType, String carriageNumber) {
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        String fieldPrefix = StrUtil.join("_", seatType, carriageNumber) + "_";
+        Map<Object, Object> carriageSegmentMap = new HashMap<>();
+        ScanOptions scanOptions = ScanOptions.scanOptions().match(fieldPrefix + "*").count(CARRIAGE_SCAN_COUNT).build();
+        try (Cursor<Map.Entry<Object, Object>> cursor = stringRedisTemplate.opsForHash().scan(TRAIN_SEAT_SEGMENT + trainId, scanOptions)) {
+            cursor.forEachRemaining(each -> carriageSegmentMap.put(each.getKey(), each.getValue()));
+        }
+        // 扫描结果为空时缓存可能未加载，加载整列车后按前缀过滤
+        if (carriageSegmentMap.isEmpty()) {
+            load(trainId, segmentCount).forEach((field, occupancy) -> {
+                if (field.toString().startsWith(fieldPrefix)) {
+                    carriageSegmentMap.put(field, occupancy);
+                }
+            });
+        }
+        return carriageSegmentMap;
+    }
+
+    /**
+     * 批量刷新列车本地副本，只需一次 Redis 网络 IO 获取所有列车版本号，版本未变化的列车不会重新拉取
+     *
+     * @param trainIds 列车 ID 集合
+     */
+    public void refresh(Collection<String> trainIds) {
+        List<String> actualTrainIds = trainIds.stream().distinct().toList();
+        if (actualTrainIds.isEmpty()) {
+            return;
+        }
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        List<String> versionKeys = actualTrainIds.stream().map(each -> TRAIN_SEAT_SEGMENT_VERSION + each).toList();
+        List<String> versions = stringRedisTemplate.opsForValue().multiGet(versionKeys);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < actualTrainIds.size(); i++) {
+            String trainId = actualTrainIds.get(i);
+            long version = versions == null || versions.get(i) == null ? 0L : Long.parseLong(versions.get(i));
+            TrainSeatSegmentReplica replica = replicaCache.getIfPresent(trainId);
+            if (replica == null || (replica.version != version && now - replica.refreshTime >= refreshInterval)) {
+                replicaCache.put(trainId, buildReplica(trainId, version, replica));
+            } else if (replica.version == version) {
+                replica.refreshTime = now;
+            }
+        }
+    }
+
+    /**
+     * 根据座位区段占用位图计算出发站到到达站某座位类型余票数量
+     * 副本超过刷新间隔未校验版本号时先刷新，保证购票链路余票校验读取的数据最多延迟一个刷新间隔
+     *
+     * @param trainId   列车 ID
+     * @param seatType  座位类型
+     * @param departure 出发站
+     * @param arrival   到达站
+     * @return 余票数量
+     */
+    public int remainingTicket(String trainId, Integer seatType, String departure, String arrival) {
+        TrainSeatSegmentReplica replica = replicaCache.getIfPresent(trainId);
+        if (replica == null || System.currentTimeMillis() - replica.refreshTime >= refreshInterval) {
+            refresh(List.of(trainId));
+            replica = replicaCache.getIfPresent(trainId);
+        }
+        long mask = SeatSegmentUtil.segmentMask(replica.stations, departure, arrival);
+        long[] occupancies = replica.seatTypeOccupancies.get(seatType);
+        if (mask == 0L || occupancies == null) {
+            return 0;
+        }
+        int count = 0;
+        for (long each : occupancies) {
+            if ((each & mask) == 0L) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 构建座位区段占用 Hash Field
+     */
+    public static String buildField(Integer seatType, String carriageNumber, String seatNumber) {
+        return StrUtil.join("_", seatType, carriageNumber, seatNumber);
+    }
+
+    private TrainSeatSegmentReplica buildReplica(String trainId, long version, TrainSeatSegmentReplica previous) {
+        List<String> stations = previous != null ? previous.stations : listOrderedStation(trainId);
+        Map<Integer, List<Long>> seatTypeOccupancyMap = new HashMap<>();
+        load(trainId, stations.size() - 1).forEach((field, occupancy) -> {
+            String fieldStr = field.toString();
+            Integer seatType = Integer.parseInt(fieldStr.substring(0, fieldStr.indexOf('_')));
+            seatTypeOccupancyMap.computeIfAbsent(seatType, each -> new ArrayList<>()).add(SeatSegmentUtil.parseBitString(occupancy.toString()));
+        });
+        Map<Integer, long[]> seatTypeOccupancies = new HashMap<>(seatTypeOccupancyMap.size() << 1);
+        seatTypeOccupancyMap.forEach((seatType, occupancyList) -> seatTypeOccupancies.put(seatType, occupancyList.stream().mapToLong(Long::longValue).toArray()));
+        return new TrainSeatSegmentReplica(stations, seatTypeOccupancies, version, System.currentTimeMillis());
+    }
+
+    /**
+     * 列车座位区段占用本地只读副本
+     */
+    @AllArgsConstructor
+    private static final class TrainSeatSegmentReplica {
+
+        /**
+         * 按站序排列的站点
+         */
+        private final List<String> stations;
+
+        /**
+         * 座位类型对应的座位区段占用位图
+         */
+        private final Map<Integer, long[]> seatTypeOccupancies;
+
+        /**
+         * 拉取时 Redis 中的版本号
+         */
+        private final long version;
+
+        /**
+         * 最近一次拉取或确认版本号未变化的时间
+         */
+        private volatile long refreshTime;
+    }
+}
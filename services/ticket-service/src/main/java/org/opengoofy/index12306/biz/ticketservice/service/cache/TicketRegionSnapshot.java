@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.service.cache;
+
+import org.opengoofy.index12306.biz.ticketservice.dto.domain.SeatClassDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.domain.TicketListDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPageQueryRespDTO;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 地区车票查询快照
+ * <p>
+ * 出发地区到到达地区的列车按出发时间排好序，座位价格、筛选条件集合均已计算完成，快照创建后不再修改，
+ * 查询时只需按座位类型顺序填充余票数量即可生成返回结果
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+public final class TicketRegionSnapshot {
+
+    private final List<TicketListDTO> trainList;
+
+    /**
+     * 第 i 趟列车的座位类型下标范围为 [seatClassOffsets[i], seatClassOffsets[i + 1])
+     */
+    private final int[] seatClassOffsets;
+    private final int[] seatClassTrainIndexes;
+    private final Integer[] seatTypes;
+    private final BigDecimal[] prices;
+
+    /**
+     * 余票 Hash Key 以及 Field，提前编码为字节数组，查询时直接用于管道命令
+     */
+    private final byte[][] remainingKeys;
+    private final byte[][] remainingFields;
+
+    private final List<String> departureStationList;
+    private final List<String> arrivalStationList;
+    private final List<Integer> trainBrandList;
+    private final List<Integer> seatClassTypeList;
+
+    public TicketRegionSnapshot(List<TicketListDTO> trainList, int[] seatClassOffsets, Integer[] seatTypes, BigDecimal[] prices,
+                                byte[][] remainingKeys, byte[][] remainingFields, List<String> departureStationList,
+                                List<String> arrivalStationList, List<Integer> trainBrandList, List<Integer> seatClassTypeList) {
+        this.trainList = Collections.unmodifiableList(trainList);
+        this.seatClassOffsets = seatClassOffsets;
+        this.seatTypes = seatTypes;
+        this.prices = prices;
+        this.remainingKeys = remainingKeys;
+        this.remainingFields = remainingFields;
+        this.departureStationList = Collections.unmodifiableList(departureStationList);
+        this.arrivalStationList = Collections.unmodifiableList(arrivalStationList);
+        this.trainBrandList = Collections.unmodifiableList(trainBrandList);
+        this.seatClassTypeList = Collections.unmodifiableList(seatClassTypeList);
+        this.seatClassTrainIndexes = new int[seatTypes.length];
+        for (int i = 0; i < trainList.size(); i++) {
+            for (int j = seatClassOffsets[i]; j < seatClassOffsets[i + 1]; j++) {
+                seatClassTrainIndexes[j] = i;
+            }
+        }
+    }
+
+    /**
+     * 所有列车座位类型数量，即查询时需要填充的余票数量
+     */
+    public int seatClassCount() {
+        return seatTypes.length;
+    }
+
+    public List<String> getTrainIds() {
+        return trainList.stream().map(TicketListDTO::getTrainId).toList();
+    }
+
+    public TicketListDTO getTrain(int seatClassIndex) {
+        return trainList.get(seatClassTrainIndexes[seatClassIndex]);
+    }
+
+    public Integer getSeatType(int seatClassIndex) {
+        return seatTypes[seatClassIndex];
+    }
+
+    public byte[] getRemainingKey(int seatClassIndex) {
+        return remainingKeys[seatClassIndex];
+    }
+
+    public byte[] getRemainingField(int seatClassIndex) {
+        return remainingFields[seatClassIndex];
+    }
+
+    /**
+     * 填充余票数量生成查询结果，快照中的列车信息复制后返回，不会被调用方修改
+     *
+     * @param quantities 按座位类型顺序排列的余票数量
+     * @return 车票查询结果
+     */
+    public TicketPageQueryRespDTO toResponse(int[] quantities) {
+        List<TicketListDTO> actualTrainList = new ArrayList<>(trainList.size());
+        for (int i = 0; i < trainList.size(); i++) {
+            TicketListDTO actualTrain = copyOf(trainList.get(i));
+            List<SeatClassDTO> seatClassList = new ArrayList<>(seatClassOffsets[i + 1] - seatClassOffsets[i]);
+            for (int j = seatClassOffsets[i]; j < seatClassOffsets[i + 1]; j++) {
+                seatClassList.add(new SeatClassDTO(seatTypes[j], quantities[j], prices[j], false));
+            }
+            actualTrain.setSeatClassList(seatClassList);
+            actualTrainList.add(actualTrain);
+        }
+        return TicketPageQueryRespDTO.builder()
+                .trainList(actualTrainList)
+                .departureStationList(departureStationList)
+                .arrivalStationList(arrivalStationList)
+                .trainBrandList(trainBrandList)
+                .seatClassTypeList(seatClassTypeList)
+                .build();
+    }
+
+    private static TicketListDTO copyOf(TicketListDTO template) {
+        TicketListDTO result = new TicketListDTO();
+        result.setTrainId(template.getTrainId());
+        result.setTrainNumber(template.getTrainNumber());
+        result.setDepartureTime(template.getDepartureTime());
+        result.setArrivalTime(template.getArrivalTime());
+        result.setDuration(template.getDuration());
+        result.setDaysArrived(template.getDaysArrived());
+        result.setDeparture(template.getDeparture());
+        result.setArrival(template.getArrival());
+        result.setDepartureFlag(template.getDepartureFlag());
+        result.setArrivalFlag(template.getArrivalFlag());
+        result.setTrainType(template.getTrainType());
+        result.setSaleTime(template.getSaleTime());
+        result.setSaleStatus(template.getSaleStatus());
+        result.setTrainTags(template.getTrainTags());
+        result.setTrainBrand(template.getTrainBrand());
+        return result;
+    }
+}
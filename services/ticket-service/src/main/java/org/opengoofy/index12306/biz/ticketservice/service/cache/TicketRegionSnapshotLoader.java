@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.service.cache;
+
+import cn.hutool.core.map.MapUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.RequiredArgsConstructor;
+import org.opengoofy.index12306.biz.ticketservice.dao.entity.StationDO;
+import org.opengoofy.index12306.biz.ticketservice.dao.entity.TrainDO;
+import org.opengoofy.index12306.biz.ticketservice.dao.entity.TrainStationPriceDO;
+import org.opengoofy.index12306.biz.ticketservice.dao.entity.TrainStationRelationDO;
+import org.opengoofy.index12306.biz.ticketservice.dao.mapper.StationMapper;
+import org.opengoofy.index12306.biz.ticketservice.dao.mapper.TrainMapper;
+import org.opengoofy.index12306.biz.ticketservice.dao.mapper.TrainStationPriceMapper;
+import org.opengoofy.index12306.biz.ticketservice.dao.mapper.TrainStationRelationMapper;
+import org.opengoofy.index12306.biz.ticketservice.dto.domain.TicketListDTO;
+import org.opengoofy.index12306.biz.ticketservice.toolkit.DateUtil;
+import org.opengoofy.index12306.biz.ticketservice.toolkit.TimeStringComparator;
+import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
+import org.opengoofy.index12306.framework.starter.convention.exception.ClientException;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.Index12306Constant.ADVANCE_TICKET_DAY;
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.REGION_TRAIN_STATION;
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.REGION_TRAIN_STATION_MAPPING;
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.TRAIN_INFO;
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.TRAIN_STATION_PRICE;
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.TRAIN_STATION_REMAINING_TICKET;
+import static org.opengoofy.index12306.biz.ticketservice.toolkit.DateUtil.convertDateToLocalTime;
+
+/**
+ * 地区车票查询快照本地缓存
+ * <p>
+ * 车次、时刻以及票价数据变化频率低，按出发地区、到达地区构建查询快照缓存在本地，查询时不再读取 Redis 中的车次列表以及票价，
+ * 也不再反序列化、排序以及计算票价；快照按固定间隔在后台重新构建，重建期间仍返回旧快照
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Component
+@RequiredArgsConstructor
+public class TicketRegionSnapshotLoader implements InitializingBean {
+
+    private static final String STATION_REGION_MAPPING_KEY = "station_region_mapping";
+    private static final String REGION_SEPARATOR = "_";
+
+    private final TrainMapper trainMapper;
+    private final StationMapper stationMapper;
+    private final TrainStationRelationMapper trainStationRelationMapper;
+    private final TrainStationPriceMapper trainStationPriceMapper;
+    private final DistributedCache distributedCache;
+
+    /**
+     * 本地缓存地区快照数量上限
+     */
+    @Value("${ticket.query.region-snapshot.maximum-size:2048}")
+    private long maximumSize;
+
+    /**
+     * 快照后台重建间隔，单位秒
+     */
+    @Value("${ticket.query.region-snapshot.refresh-seconds:60}")
+    private long refreshSeconds;
+
+    @Value("${framework.cache.redis.prefix:}")
+    private String cacheRedisPrefix;
+
+    private LoadingCache<String, TicketRegionSnapshot> snapshotCache;
+    private LoadingCache<String, Map<String, String>> stationRegionCache;
+
+    @Override
+    public void afterPropertiesSet() {
+        snapshotCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .refreshAfterWrite(Math.max(refreshSeconds, 1L), TimeUnit.SECONDS)
+                .expireAfterAccess(1, TimeUnit.DAYS)
+                .build(this::buildSnapshot);
+        stationRegionCache = Caffeine.newBuilder()
+                .maximumSize(1)
+                .refreshAfterWrite(Math.max(refreshSeconds, 1L), TimeUnit.SECONDS)
+                .build(key -> loadStationRegionMapping());
+    }
+
+    /**
+     * 获取出发站点到到达站点所在地区的车票查询快照
+     *
+     * @param fromStation 出发站点编码
+     * @param toStation   到达站点编码
+     * @return 地区车票查询快照
+     */
+    public TicketRegionSnapshot load(String fromStation, String toStation) {
+        Map<String, String> stationRegionMap = stationRegionCache.get(STATION_REGION_MAPPING_KEY);
+        String fromRegion = stationRegionMap.get(fromStation);
+        String toRegion = stationRegionMap.get(toStation);
+        if (fromRegion == null || toRegion == null) {
+            throw new ClientException("出发地或目的地不存在");
+        }
+        return snapshotCache.get(fromRegion + REGION_SEPARATOR + toRegion);
+    }
+
+    private Map<String, String> loadStationRegionMapping() {
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        Map<Object, Object> stationRegionMapping = stringRedisTemplate.opsForHash().entries(REGION_TRAIN_STATION_MAPPING);
+        Map<String, String> result = new HashMap<>();
+        if (MapUtil.isNotEmpty(stationRegionMapping)) {
+            stationRegionMapping.forEach((key, value) -> result.put(key.toString(), value.toString()));
+            return result;
+        }
+        List<StationDO> stationDOList = stationMapper.selectList(Wrappers.emptyWrapper());
+        stationDOList.forEach(each -> result.put(each.getCode(), each.getRegionName()));
+        stringRedisTemplate.opsForHash().putAll(REGION_TRAIN_STATION_MAPPING, result);
+        return result;
+    }
+
+    private TicketRegionSnapshot buildSnapshot(String regionPair) {
+        int separatorIndex = regionPair.indexOf(REGION_SEPARATOR);
+        String fromRegion = regionPair.substring(0, separatorIndex);
+        String toRegion = regionPair.substring(separatorIndex + 1);
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        Map<Object, Object> regionTrainStationAllMap = stringRedisTemplate.opsForHash().entries(String.format(REGION_TRAIN_STATION, fromRegion, toRegion));
+        List<TicketListDTO> trainList = MapUtil.isNotEmpty(regionTrainStationAllMap)
+                ? new ArrayList<>(regionTrainStationAllMap.values().stream().map(each -> JSON.parseObject(each.toString(), TicketListDTO.class)).toList())
+                : loadTrainList(fromRegion, toRegion);
+        trainList.sort(new TimeStringComparator());
+        int[] seatClassOffsets = new int[trainList.size() + 1];
+        List<TrainStationPriceDO> seatClassPriceList = new ArrayList<>();
+        Set<String> departureStationSet = new LinkedHashSet<>();
+        Set<String> arrivalStationSet = new LinkedHashSet<>();
+        Set<Integer> trainBrandSet = new TreeSet<>();
+        Set<Integer> seatClassTypeSet = new TreeSet<>();
+        for (int i = 0; i < trainList.size(); i++) {
+            TicketListDTO each = trainList.get(i);
+            String trainStationPriceStr = distributedCache.safeGet(
+                    String.format(TRAIN_STATION_PRICE, each.getTrainId(), each.getDeparture(), each.getArrival()),
+                    String.class,
+                    () -> {
+                        LambdaQueryWrapper<TrainStationPriceDO> trainStationPriceQueryWrapper = Wrappers.lambdaQuery(TrainStationPriceDO.class)
+                                .eq(TrainStationPriceDO::getDeparture, each.getDeparture())
+                                .eq(TrainStationPriceDO::getArrival, each.getArrival())
+                                .eq(TrainStationPriceDO::getTrainId, each.getTrainId());
+                        return JSON.toJSONString(trainStationPriceMapper.selectList(trainStationPriceQueryWrapper));
+                    },
+                    ADVANCE_TICKET_DAY,
+                    TimeUnit.DAYS
+            );
+            List<TrainStationPriceDO> trainStationPriceDOList = JSON.parseArray(trainStationPriceStr, TrainStationPriceDO.class);
+            seatClassPriceList.addAll(trainStationPriceDOList);
+            seatClassOffsets[i + 1] = seatClassPriceList.size();
+            departureStationSet.add(each.getDeparture());
+            arrivalStationSet.add(each.getArrival());
+            if (StrUtil.isNotBlank(each.getTrainBrand())) {
+                StrUtil.split(each.getTrainBrand(), ",").forEach(item -> trainBrandSet.add(Integer.parseInt(item)));
+            }
+            trainStationPriceDOList.forEach(item -> seatClassTypeSet.add(item.getSeatType()));
+        }
+        int seatClassCount = seatClassPriceList.size();
+        Integer[] seatTypes = new Integer[seatClassCount];
+        BigDecimal[] prices = new BigDecimal[seatClassCount];
+        byte[][] remainingKeys = new byte[seatClassCount][];
+        byte[][] remainingFields = new byte[seatClassCount][];
+        for (int i = 0; i < seatClassCount; i++) {
+            TrainStationPriceDO each = seatClassPriceList.get(i);
+            seatTypes[i] = each.getSeatType();
+            prices[i] = new BigDecimal(each.getPrice()).divide(new BigDecimal("100"), 1, RoundingMode.HALF_UP);
+            String remainingKey = cacheRedisPrefix + TRAIN_STATION_REMAINING_TICKET + StrUtil.join("_", each.getTrainId(), each.getDeparture(), each.getArrival());
+            remainingKeys[i] = remainingKey.getBytes(StandardCharsets.UTF_8);
+            remainingFields[i] = String.valueOf(each.getSeatType()).getBytes(StandardCharsets.UTF_8);
+        }
+        return new TicketRegionSnapshot(
+                trainList,
+                seatClassOffsets,
+                seatTypes,
+                prices,
+                remainingKeys,
+                remainingFields,
+                new ArrayList<>(departureStationSet),
+                new ArrayList<>(arrivalStationSet),
+                new ArrayList<>(trainBrandSet),
+                new ArrayList<>(seatClassTypeSet));
+    }
+
+    /**
+     * 地区车次列表缓存不存在时从数据库构建，不回写缓存，由 v1 查询接口负责加载
+     */
+    private List<TicketListDTO> loadTrainList(String fromRegion, String toRegion) {
+        LambdaQueryWrapper<TrainStationRelationDO> queryWrapper = Wrappers.lambdaQuery(TrainStationRelationDO.class)
+                .eq(TrainStationRelationDO::getStartRegion, fromRegion)
+                .eq(TrainStationRelationDO::getEndRegion, toRegion);
+        List<TicketListDTO> result = new ArrayList<>();
+        for (TrainStationRelationDO each : trainStationRelationMapper.selectList(queryWrapper)) {
+            TrainDO trainDO = distributedCache.safeGet(
+                    TRAIN_INFO + each.getTrainId(),
+                    TrainDO.class,
+                    () -> trainMapper.selectById(each.getTrainId()),
+                    ADVANCE_TICKET_DAY,
+                    TimeUnit.DAYS);
+            TicketListDTO ticketListDTO = new TicketListDTO();
+            ticketListDTO.setTrainId(String.valueOf(trainDO.getId()));
+            ticketListDTO.setTrainNumber(trainDO.getTrainNumber());
+            ticketListDTO.setDepartureTime(convertDateToLocalTime(each.getDepartureTime(), "HH:mm"));
+            ticketListDTO.setArrivalTime(convertDateToLocalTime(each.getArrivalTime(), "HH:mm"));
+            ticketListDTO.setDuration(DateUtil.calculateHourDifference(each.getDepartureTime(), each.getArrivalTime()));
+            ticketListDTO.setDeparture(each.getDeparture());
+            ticketListDTO.setArrival(each.getArrival());
+            ticketListDTO.setDepartureFlag(each.getDepartureFlag());
+            ticketListDTO.setArrivalFlag(each.getArrivalFlag());
+            ticketListDTO.setTrainType(trainDO.getTrainType());
+            ticketListDTO.setTrainBrand(trainDO.getTrainBrand());
+            if (StrUtil.isNotBlank(trainDO.getTrainTag())) {
+                ticketListDTO.setTrainTags(StrUtil.split(trainDO.getTrainTag(), ","));
+            }
+            long betweenDay = cn.hutool.core.date.DateUtil.betweenDay(each.getDepartureTime(), each.getArrivalTime(), false);
+            ticketListDTO.setDaysArrived((int) betweenDay);
+            ticketListDTO.setSaleStatus(new Date().after(trainDO.getSaleTime()) ? 0 : 1);
+            ticketListDTO.setSaleTime(convertDateToLocalTime(trainDO.getSaleTime(), "MM-dd HH:mm"));
+            result.add(ticketListDTO);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.service.cache;
+
+import org.opengoofy.index12306.biz.ticketservice.dto.domain.RouteDTO;
+import org.opengoofy.index12306.biz.ticketservice.toolkit.StationCalculateUtil;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 列车线路拓扑
+ * <p>
+ * 按站序保存列车经停站，站点名称统一映射为整数 ID，按站点下标计算途经区间以及需扣减余票区间并按出发站、到达站下标缓存
+ * 列车经停站数据创建后不可变，返回的区间集合同样不可修改
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+public final class TrainRouteTopology {
+
+    /**
+     * 按站序排列的站点名称
+     */
+    private final List<String> stations;
+
+    /**
+     * 按站序排列的站点 ID
+     */
+    private final int[] stationIds;
+
+    /**
+     * 站点名称 -> 站点 ID，所有列车共享
+     */
+    private final Map<String, Integer> stationIdMap;
+
+    /**
+     * 下标为 出发站下标 * 站点数量 + 到达站下标
+     */
+    private final AtomicReferenceArray<List<RouteDTO>> throughRouteCache;
+    private final AtomicReferenceArray<List<RouteDTO>> takeoutRouteCache;
+
+    public TrainRouteTopology(List<String> stations, Map<String, Integer> stationIdMap) {
+        this.stations = Collections.unmodifiableList(stations);
+        this.stationIdMap = stationIdMap;
+        this.stationIds = new int[stations.size()];
+        for (int i = 0; i < stationIds.length; i++) {
+            stationIds[i] = stationIdMap.get(stations.get(i));
+        }
+        this.throughRouteCache = new AtomicReferenceArray<>(stations.size() * stations.size());
+        this.takeoutRouteCache = new AtomicReferenceArray<>(stations.size() * stations.size());
+    }
+
+    /**
+     * 按站序排列的站点名称
+     */
+    public List<String> getStations() {
+        return stations;
+    }
+
+    /**
+     * 站点在列车经停站中的下标
+     *
+     * @param station 站点名称
+     * @return 站点下标，不存在返回 -1
+     */
+    public int indexOf(String station) {
+        Integer stationId = station == null ? null : stationIdMap.get(station);
+        if (stationId == null) {
+            return -1;
+        }
+        for (int i = 0; i < stationIds.length; i++) {
+            if (stationIds[i] == stationId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 出发站和到达站之间的途经区间
+     *
+     * @param departure 出发站
+     * @param arrival   到达站
+     * @return 途经区间，站点不合法返回空集合
+     */
+    public List<RouteDTO> listThroughRoute(String departure, String arrival) {
+        int startIndex = indexOf(departure);
+        int endIndex = indexOf(arrival);
+        if (startIndex < 0 || endIndex < 0 || startIndex >= endIndex) {
+            return Collections.emptyList();
+        }
+        int cacheIndex = startIndex * stations.size() + endIndex;
+        List<RouteDTO> routes = throughRouteCache.get(cacheIndex);
+        if (routes == null) {
+            routes = Collections.unmodifiableList(StationCalculateUtil.throughStation(stations, startIndex, endIndex));
+            throughRouteCache.set(cacheIndex, routes);
+        }
+        return routes;
+    }
+
+    /**
+     * 出发站到到达站购票需要扣减余票的区间
+     *
+     * @param departure 出发站
+     * @param arrival   到达站
+     * @return 需扣减余票区间，站点不合法返回空集合
+     */
+    public List<RouteDTO> listTakeoutRoute(String departure, String arrival) {
+        int startIndex = indexOf(departure);
+        int endIndex = indexOf(arrival);
+        if (startIndex < 0 || endIndex < 0 || startIndex >= endIndex) {
+            return Collections.emptyList();
+        }
+        int cacheIndex = startIndex * stations.size() + endIndex;
+        List<RouteDTO> routes = takeoutRouteCache.get(cacheIndex);
+        if (routes == null) {
+            routes = Collections.unmodifiableList(StationCalculateUtil.takeoutStation(stations, startIndex, endIndex));
+            takeoutRouteCache.set(cacheIndex, routes);
+        }
+        return routes;
+    }
+}
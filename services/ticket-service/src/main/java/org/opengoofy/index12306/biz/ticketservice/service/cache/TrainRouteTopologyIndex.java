@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.service.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.RequiredArgsConstructor;
+import org.opengoofy.index12306.biz.ticketservice.dao.entity.TrainStationDO;
+import org.opengoofy.index12306.biz.ticketservice.dao.mapper.TrainStationMapper;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 列车线路拓扑本地索引
+ * <p>
+ * 列车经停站数据基本不变，每趟列车只在首次访问时查询一次 t_train_station，之后计算途经区间、扣减区间均在本地内存完成
+ * 定时刷新以感知时刻表变更，刷新期间仍返回旧数据，变更后也可以调用 {@link #invalidate(String)} 主动失效
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Component
+@RequiredArgsConstructor
+public class TrainRouteTopologyIndex implements InitializingBean {
+
+    private final TrainStationMapper trainStationMapper;
+
+    /**
+     * 列车线路拓扑刷新间隔，单位分钟
+     */
+    @Value("${ticket.route-topology.refresh-minutes:10}")
+    private long refreshMinutes;
+
+    /**
+     * 站点名称 -> 站点 ID，站点数量有限且不会删除，所有列车共享
+     */
+    private final Map<String, Integer> stationIdMap = new ConcurrentHashMap<>();
+    private final AtomicInteger stationIdGenerator = new AtomicInteger();
+
+    private LoadingCache<String, TrainRouteTopology> topologyCache;
+
+    @Override
+    public void afterPropertiesSet() {
+        topologyCache = Caffeine.newBuilder()
+                .refreshAfterWrite(Math.max(refreshMinutes, 1L), TimeUnit.MINUTES)
+                .expireAfterAccess(1, TimeUnit.DAYS)
+                .build(this::loadTopology);
+    }
+
+    /**
+     * 获取列车线路拓扑
+     *
+     * @param trainId 列车 ID
+     * @return 列车线路拓扑，列车不存在时站点为空
+     */
+    public TrainRouteTopology get(String trainId) {
+        return topologyCache.get(trainId);
+    }
+
+    /**
+     * 列车经停站变更后失效本地索引
+     *
+     * @param trainId 列车 ID
+     */
+    public void invalidate(String trainId) {
+        topologyCache.invalidate(trainId);
+    }
+
+    private TrainRouteTopology loadTopology(String trainId) {
+        LambdaQueryWrapper<TrainStationDO> queryWrapper = Wrappers.lambdaQuery(TrainStationDO.class)
+                .eq(TrainStationDO::getTrainId, trainId)
+                .select(TrainStationDO::getSequence, TrainStationDO::getDeparture);
+        List<String> stations = trainStationMapper.selectList(queryWrapper).stream()
+                .sorted(Comparator.comparingInt(each -> Integer.parseInt(each.getSequence())))
+                .map(TrainStationDO::getDeparture)
+                .toList();
+        stations.forEach(each -> stationIdMap.computeIfAbsent(each, key -> stationIdGenerator.getAndIncrement()));
+        return new TrainRouteTopology(stations, stationIdMap);
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.service.cache;
+
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import org.opengoofy.index12306.biz.ticketservice.common.enums.SeatStatusEnum;
+import org.opengoofy.index12306.biz.ticketservice.dao.entity.SeatDO;
+import org.opengoofy.index12306.biz.ticketservice.dao.mapper.SeatMapper;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TrainPurchaseTicketRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TrainSeatAvailabilitySnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 列车座位可用快照加载
+ * <p>
+ * 选座时只需一次数据库查询即可得到可用车厢、车厢余票以及每个座位是否可售，替代原先按车厢逐个查询可用座位
+ * 可选开启毫秒级本地缓存，仅适用于同一列车购票已在分布式锁内串行执行的场景，锁定座位后会主动失效
+ * 批量购票时开启批次作用域，同一批次内相同区间只查询一次数据库，前序订单分配的座位从后续快照中排除
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Component
+@RequiredArgsConstructor
+public class TrainSeatAvailabilitySnapshotLoader {
+
+    private final SeatMapper seatMapper;
+    private final TrainRouteTopologyIndex trainRouteTopologyIndex;
+
+    /**
+     * 快照本地缓存时间，单位毫秒，小于等于 0 表示不缓存
+     */
+    @Value("${ticket.seat-snapshot.cache-millis:0}")
+    private long cacheMillis;
+
+    private volatile Cache<String, TrainSeatAvailabilitySnapshot> snapshotCache;
+
+    /**
+     * 批次作用域快照，Key 为 座位类型_出发站_到达站
+     */
+    private final ThreadLocal<Map<String, BatchSnapshot>> batchSnapshotHolder = new ThreadLocal<>();
+
+    /**
+     * 加载列车指定座位类型在出发站到到达站区间的座位可用快照
+     *
+     * @param trainId   列车 ID
+     * @param seatType  座位类型
+     * @param departure 出发站
+     * @param arrival   到达站
+     * @return 座位可用快照
+     */
+    public TrainSeatAvailabilitySnapshot load(String trainId, Integer seatType, String departure, String arrival) {
+        Map<String, BatchSnapshot> batchSnapshotMap = batchSnapshotHolder.get();
+        if (batchSnapshotMap != null) {
+            BatchSnapshot batchSnapshot = batchSnapshotMap.computeIfAbsent(StrUtil.join("_", seatType, departure, arrival), key -> {
+                TrainRouteTopology topology = trainRouteTopologyIndex.get(trainId);
+                return new BatchSnapshot(seatType, topology.indexOf(departure), topology.indexOf(arrival), loadFromDatabase(trainId, seatType, departure, arrival));
+            });
+            return batchSnapshot.snapshot;
+        }
+        if (cacheMillis <= 0) {
+            return loadFromDatabase(trainId, seatType, departure, arrival);
+        }
+        String cacheKey = StrUtil.join("_", trainId, seatType, departure, arrival);
+        return getSnapshotCache().get(cacheKey, each -> loadFromDatabase(trainId, seatType, departure, arrival));
+    }
+
+    /**
+     * 失效列车所有座位可用快照，座位状态变更后调用
+     *
+     * @param trainId 列车 ID
+     */
+    public void invalidate(String trainId) {
+        Cache<String, TrainSeatAvailabilitySnapshot> cache = snapshotCache;
+        if (cache == null) {
+            return;
+        }
+        String keyPrefix = trainId + "_";
+        cache.asMap().keySet().removeIf(each -> each.startsWith(keyPrefix));
+    }
+
+    /**
+     * 开启当前线程批次作用域，需与 {@link #endBatch()} 成对调用
+     */
+    public void beginBatch() {
+        batchSnapshotHolder.set(new HashMap<>());
+    }
+
+    /**
+     * 关闭当前线程批次作用域
+     */
+    public void endBatch() {
+        batchSnapshotHolder.remove();
+    }
+
+    /**
+     * 将已分配座位从批次作用域内区间重叠的快照中排除
+     *
+     * @param trainId                    列车 ID
+     * @param departure                  出发站
+     * @param arrival                    到达站
+     * @param trainPurchaseTicketResults 已分配座位
+     */
+    public void occupyInBatch(String trainId, String departure, String arrival, List<TrainPurchaseTicketRespDTO> trainPurchaseTicketResults) {
+        Map<String, BatchSnapshot> batchSnapshotMap = batchSnapshotHolder.get();
+        if (batchSnapshotMap == null || batchSnapshotMap.isEmpty()) {
+            return;
+        }
+        TrainRouteTopology topology = trainRouteTopologyIndex.get(trainId);
+        int startIndex = topology.indexOf(departure);
+        int endIndex = topology.indexOf(arrival);
+        // 座位类型 -> 车厢号 -> 座位号
+        Map<Integer, Map<String, List<String>>> occupiedSeatMap = new HashMap<>();
+        for (TrainPurchaseTicketRespDTO each : trainPurchaseTicketResults) {
+            occupiedSeatMap.computeIfAbsent(each.getSeatType(), key -> new HashMap<>())
+                    .computeIfAbsent(each.getCarriageNumber(), key -> new ArrayList<>())
+                    .add(each.getSeatNumber());
+        }
+        batchSnapshotMap.values().forEach(each -> {
+            Map<String, List<String>> occupiedSeats = occupiedSeatMap.get(each.seatType);
+            // 区间 [startIndex, endIndex) 与 [each.startIndex, each.endIndex) 存在重叠时座位对该区间不可售
+            if (occupiedSeats != null && startIndex < each.endIndex && each.startIndex < endIndex) {
+                each.snapshot = each.snapshot.exclude(occupiedSeats);
+            }
+        });
+    }
+
+    private TrainSeatAvailabilitySnapshot loadFromDatabase(String trainId, Integer seatType, String departure, String arrival) {
+        LambdaQueryWrapper<SeatDO> queryWrapper = Wrappers.lambdaQuery(SeatDO.class)
+                .eq(SeatDO::getTrainId, trainId)
+                .eq(SeatDO::getSeatType, seatType)
+                .eq(SeatDO::getStartStation, departure)
+                .eq(SeatDO::getEndStation, arrival)
+                .eq(SeatDO::getSeatStatus, SeatStatusEnum.AVAILABLE.getCode())
+                .orderByAsc(SeatDO::getCarriageNumber)
+                .select(SeatDO::getCarriageNumber, SeatDO::getSeatNumber);
+        List<SeatDO> seatDOList = seatMapper.selectList(queryWrapper);
+        Map<String, List<String>> availableSeats = new LinkedHashMap<>();
+        for (SeatDO each : seatDOList) {
+            availableSeats.computeIfAbsent(each.getCarriageNumber(), key -> new ArrayList<>()).add(each.getSeatNumber());
+        }
+        return TrainSeatAvailabilitySnapshot.of(availableSeats);
+    }
+
+    private Cache<String, TrainSeatAvailabilitySnapshot> getSnapshotCache() {
+        Cache<String, TrainSeatAvailabilitySnapshot> cache = snapshotCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = snapshotCache;
+                if (cache == null) {
+                    cache = Caffeine.newBuilder()
+                            .expireAfterWrite(cacheMillis, TimeUnit.MILLISECONDS)
+                            .maximumSize(10000)
+                            .build();
+                    snapshotCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    private static final class BatchSnapshot {
+
+        private final Integer seatType;
+        private final int startIndex;
+        private final int endIndex;
+        private TrainSeatAvailabilitySnapshot snapshot;
+
+        private BatchSnapshot(Integer seatType, int startIndex, int endIndex, TrainSeatAvailabilitySnapshot snapshot) {
+            this.seatType = seatType;
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+            this.snapshot = snapshot;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.service.handler.ticket;
+
+import cn.hutool.core.collection.CollUtil;
+import lombok.RequiredArgsConstructor;
+import org.opengoofy.index12306.biz.ticketservice.common.enums.VehicleSeatTypeEnum;
+import org.opengoofy.index12306.biz.ticketservice.common.enums.VehicleTypeEnum;
+import org.opengoofy.index12306.biz.ticketservice.dto.domain.PurchaseTicketPassengerDetailDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.req.PurchaseTicketReqDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.cache.TrainSeatAvailabilitySnapshotLoader;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.base.AbstractTrainPurchaseTicketTemplate;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.SelectSeatDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TrainPurchaseTicketRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TrainSeatAvailabilitySnapshot;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.select.SeatSelection;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.select.TrainSeatLayout;
+import org.opengoofy.index12306.framework.starter.convention.exception.ServiceException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 按车厢座位布局选座的列车购票组件，所有 {@link org.opengoofy.index12306.biz.ticketservice.common.enums.TrainSeatLayoutEnum} 中定义的座位类型共用
+ * <p>
+ * 选座优先级：指定选座 -> 同车厢邻座 -> 同车厢不邻座 -> 不同车厢不邻座
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Component
+@RequiredArgsConstructor
+public class TrainSeatLayoutPurchaseTicketHandler extends AbstractTrainPurchaseTicketTemplate {
+
+    private final TrainSeatAvailabilitySnapshotLoader trainSeatAvailabilitySnapshotLoader;
+
+    @Override
+    public String mark() {
+        return "TRAIN_SEAT_LAYOUT";
+    }
+
+    @Override
+    public String patternMatchMark() {
+        return TrainSeatLayout.patternMatchMark();
+    }
+
+    @Override
+    protected List<TrainPurchaseTicketRespDTO> selectSeats(SelectSeatDTO requestParam) {
+        PurchaseTicketReqDTO purchaseTicketReqDTO = requestParam.getRequestParam();
+        String layoutMark = VehicleTypeEnum.findNameByCode(requestParam.getTrainType()) + VehicleSeatTypeEnum.findNameByCode(requestParam.getSeatType());
+        TrainSeatLayout layout = TrainSeatLayout.getInstance(layoutMark);
+        if (layout == null) {
+            throw new ServiceException(String.format("[%s] 座位布局未定义", layoutMark));
+        }
+        List<PurchaseTicketPassengerDetailDTO> passengerSeatDetails = requestParam.getPassengerSeatDetails();
+        int passengersNumber = passengerSeatDetails.size();
+        TrainSeatAvailabilitySnapshot snapshot = trainSeatAvailabilitySnapshotLoader.load(purchaseTicketReqDTO.getTrainId(), requestParam.getSeatType(), purchaseTicketReqDTO.getDeparture(), purchaseTicketReqDTO.getArrival());
+        if (snapshot.remainingTicketSum() < passengersNumber) {
+            throw new ServiceException("站点余票不足，请尝试更换座位类型或选择其它站点");
+        }
+        List<String> carriageNumbers = snapshot.listCarriageNumber();
+        int[][] carriageRowMasks = new int[carriageNumbers.size()][];
+        for (int i = 0; i < carriageRowMasks.length; i++) {
+            carriageRowMasks[i] = layout.rowMasks(snapshot, carriageNumbers.get(i));
+        }
+        int[][][] carriageSeats;
+        if (CollUtil.isNotEmpty(purchaseTicketReqDTO.getChooseSeats())) {
+            carriageSeats = matchChooseSeats(layout, carriageRowMasks, purchaseTicketReqDTO.getChooseSeats(), passengersNumber);
+        } else {
+            int groupSize = passengersNumber < layout.getAdjacentLimit() ? passengersNumber : layout.getGroupSize();
+            carriageSeats = selectAdjacentSeats(carriageRowMasks, passengersNumber, groupSize);
+        }
+        // 邻座无法匹配，降级为同车厢不邻座
+        if (carriageSeats == null) {
+            carriageSeats = selectSameCarriageSeats(carriageRowMasks, passengersNumber);
+        }
+        // 同车厢也无法匹配，再次降级为不同车厢不邻座
+        if (carriageSeats == null) {
+            carriageSeats = selectAcrossCarriageSeats(carriageRowMasks, passengersNumber);
+        }
+        if (carriageSeats == null) {
+            return Collections.emptyList();
+        }
+        List<TrainPurchaseTicketRespDTO> actualResult = new ArrayList<>(passengersNumber);
+        int passengerIndex = 0;
+        for (int i = 0; i < carriageSeats.length; i++) {
+            if (carriageSeats[i] == null) {
+                continue;
+            }
+            for (int[] seat : carriageSeats[i]) {
+                PurchaseTicketPassengerDetailDTO currentTicketPassenger = passengerSeatDetails.get(passengerIndex++);
+                TrainPurchaseTicketRespDTO result = new TrainPurchaseTicketRespDTO();
+                result.setSeatNumber(layout.seatNumber(seat[0] - 1, seat[1] - 1));
+                result.setSeatType(currentTicketPassenger.getSeatType());
+                result.setCarriageNumber(carriageNumbers.get(i));
+                result.setPassengerId(currentTicketPassenger.getPassengerId());
+                actualResult.add(result);
+            }
+        }
+        return actualResult;
+    }
+
+    /**
+     * 按乘车人选择的座位相对位置匹配，例如选择 A1、B1 表示同一排 A、B 两个座位，剩余乘车人在同车厢补齐
+     */
+    private int[][][] matchChooseSeats(TrainSeatLayout layout, int[][] carriageRowMasks, List<String> chooseSeatList, int passengersNumber) {
+        int chooseSeatSize = Math.min(chooseSeatList.size(), passengersNumber);
+        int[] rowOffsets = new int[chooseSeatSize];
+        int[] columns = new int[chooseSeatSize];
+        int firstSeatX = Integer.parseInt(chooseSeatList.get(0).substring(1));
+        int minRowOffset = 0;
+        for (int i = 0; i < chooseSeatSize; i++) {
+            String chooseSeat = chooseSeatList.get(i);
+            columns[i] = layout.columnOf(chooseSeat.charAt(0));
+            if (columns[i] < 0) {
+                return null;
+            }
+            rowOffsets[i] = Integer.parseInt(chooseSeat.substring(1)) - firstSeatX;
+            minRowOffset = Math.min(minRowOffset, rowOffsets[i]);
+        }
+        for (int i = 0; i < carriageRowMasks.length; i++) {
+            int[] rowMasks = carriageRowMasks[i];
+            if (countVacantSeat(rowMasks) < passengersNumber) {
+                continue;
+            }
+            int[][] chooseSeats = matchChooseSeatsInCarriage(rowMasks, rowOffsets, columns, -minRowOffset);
+            if (chooseSeats == null) {
+                continue;
+            }
+            int[][][] carriageSeats = new int[carriageRowMasks.length][][];
+            if (chooseSeats.length == passengersNumber) {
+                carriageSeats[i] = chooseSeats;
+                return carriageSeats;
+            }
+            int[] remainRowMasks = rowMasks.clone();
+            markOccupied(remainRowMasks, chooseSeats);
+            int[][] remainSeats = SeatSelection.nonAdjacent(passengersNumber - chooseSeats.length, remainRowMasks);
+            int[][] actualSeats = new int[chooseSeats.length + remainSeats.length][];
+            System.arraycopy(chooseSeats, 0, actualSeats, 0, chooseSeats.length);
+            System.arraycopy(remainSeats, 0, actualSeats, chooseSeats.length, remainSeats.length);
+            carriageSeats[i] = actualSeats;
+            return carriageSeats;
+        }
+        return null;
+    }
+
+    private int[][] matchChooseSeatsInCarriage(int[] rowMasks, int[] rowOffsets, int[] columns, int startRow) {
+        for (int row = startRow; row < rowMasks.length; row++) {
+            int matched = 0;
+            for (; matched < columns.length; matched++) {
+                int actualRow = row + rowOffsets[matched];
+                if (actualRow >= rowMasks.length) {
+                    return null;
+                }
+                if ((rowMasks[actualRow] & (1 << columns[matched])) == 0) {
+                    break;
+                }
+            }
+            if (matched == columns.length) {
+                int[][] chooseSeats = new int[columns.length][];
+                for (int i = 0; i < columns.length; i++) {
+                    chooseSeats[i] = new int[]{row + rowOffsets[i] + 1, columns[i] + 1};
+                }
+                return chooseSeats;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 同车厢按组分配邻座，所有分组都能分配时才算匹配成功
+     */
+    private int[][][] selectAdjacentSeats(int[][] carriageRowMasks, int passengersNumber, int groupSize) {
+        for (int i = 0; i < carriageRowMasks.length; i++) {
+            int[] remainRowMasks = carriageRowMasks[i].clone();
+            int[][] actualSeats = new int[passengersNumber][];
+            int selected = 0;
+            while (selected < passengersNumber) {
+                int[][] groupSeats = SeatSelection.adjacent(Math.min(groupSize, passengersNumber - selected), remainRowMasks);
+                if (groupSeats == null) {
+                    break;
+                }
+                markOccupied(remainRowMasks, groupSeats);
+                System.arraycopy(groupSeats, 0, actualSeats, selected, groupSeats.length);
+                selected += groupSeats.length;
+            }
+            if (selected == passengersNumber) {
+                int[][][] carriageSeats = new int[carriageRowMasks.length][][];
+                carriageSeats[i] = actualSeats;
+                return carriageSeats;
+            }
+        }
+        return null;
+    }
+
+    private int[][][] selectSameCarriageSeats(int[][] carriageRowMasks, int passengersNumber) {
+        for (int i = 0; i < carriageRowMasks.length; i++) {
+            if (countVacantSeat(carriageRowMasks[i]) >= passengersNumber) {
+                int[][][] carriageSeats = new int[carriageRowMasks.length][][];
+                carriageSeats[i] = SeatSelection.nonAdjacent(passengersNumber, carriageRowMasks[i]);
+                return carriageSeats;
+            }
+        }
+        return null;
+    }
+
+    private int[][][] selectAcrossCarriageSeats(int[][] carriageRowMasks, int passengersNumber) {
+        int[][][] carriageSeats = new int[carriageRowMasks.length][][];
+        int undistributedPassengerSize = passengersNumber;
+        for (int i = 0; i < carriageRowMasks.length && undistributedPassengerSize > 0; i++) {
+            int[][] actualSeats = SeatSelection.nonAdjacent(undistributedPassengerSize, carriageRowMasks[i]);
+            if (actualSeats.length > 0) {
+                carriageSeats[i] = actualSeats;
+                undistributedPassengerSize -= actualSeats.length;
+            }
+        }
+        return undistributedPassengerSize == 0 ? carriageSeats : null;
+    }
+
+    private static int countVacantSeat(int[] rowMasks) {
+        int count = 0;
+        for (int rowMask : rowMasks) {
+            count += Integer.bitCount(rowMask);
+        }
+        return count;
+    }
+
+    private static void markOccupied(int[] rowMasks, int[][] seats) {
+        for (int[] seat : seats) {
+            rowMasks[seat[0] - 1] &= ~(1 << (seat[1] - 1));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.async;
+
+import cn.hutool.core.map.MapUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.fastjson2.JSON;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.opengoofy.index12306.biz.ticketservice.common.enums.TicketPurchaseStatusEnum;
+import org.opengoofy.index12306.biz.ticketservice.dto.req.PurchaseTicketReqDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPurchaseRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPurchaseStatusRespDTO;
+import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
+import org.opengoofy.index12306.framework.starter.convention.exception.AbstractException;
+import org.opengoofy.index12306.framework.starter.convention.exception.ClientException;
+import org.opengoofy.index12306.framework.starter.distributedid.toolkit.SnowflakeIdUtil;
+import org.opengoofy.index12306.frameworks.starter.user.core.UserContext;
+import org.opengoofy.index12306.frameworks.starter.user.core.UserInfoDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.TICKET_PURCHASE_STATUS;
+
+/**
+ * 异步购票分发器
+ * <p>
+ * 受理接口校验参数并获取令牌后，将购票请求投递到有界队列并立即返回购票单号，由固定数量的处理线程执行购票流程，
+ * 请求线程不再等待锁以及远程调用，购票结果写入 Redis Hash，客户端通过购票单号轮询
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TicketPurchaseAsyncDispatcher {
+
+    private static final String FIELD_USERNAME = "username";
+    private static final String FIELD_STATUS = "status";
+    private static final String FIELD_MESSAGE = "message";
+    private static final String FIELD_RESULT = "result";
+
+    private final ThreadPoolExecutor purchaseAsyncThreadPoolExecutor;
+    private final DistributedCache distributedCache;
+
+    /**
+     * 购票单状态保留时间，需覆盖排队以及购票处理时间
+     */
+    @Value("${ticket.purchase.async.status-timeout-seconds:1800}")
+    private long statusTimeoutSeconds;
+
+    /**
+     * 投递购票请求
+     *
+     * @param requestParam    车票购买请求参数
+     * @param purchaseHandler 购票处理逻辑，在处理线程中以提交用户的上下文执行
+     * @return 购票单号
+     * @throws RejectedExecutionException 排队请求已满
+     */
+    public String dispatch(PurchaseTicketReqDTO requestParam, Function<PurchaseTicketReqDTO, TicketPurchaseRespDTO> purchaseHandler) {
+        String purchaseSn = SnowflakeIdUtil.nextIdStr();
+        UserInfoDTO user = UserInfoDTO.builder()
+                .userId(UserContext.getUserId())
+                .username(UserContext.getUsername())
+                .realName(UserContext.getRealName())
+                .token(UserContext.getToken())
+                .build();
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        String statusKey = TICKET_PURCHASE_STATUS + purchaseSn;
+        // 先写入受理状态再投递，避免处理线程写入的状态被覆盖
+        Map<String, String> statusMap = new HashMap<>();
+        statusMap.put(FIELD_USERNAME, user.getUsername());
+        statusMap.put(FIELD_STATUS, String.valueOf(TicketPurchaseStatusEnum.ACCEPTED.getCode()));
+        stringRedisTemplate.opsForHash().putAll(statusKey, statusMap);
+        stringRedisTemplate.expire(statusKey, statusTimeoutSeconds, TimeUnit.SECONDS);
+        try {
+            purchaseAsyncThreadPoolExecutor.execute(() -> execute(purchaseSn, requestParam, user, purchaseHandler));
+        } catch (RejectedExecutionException ex) {
+            stringRedisTemplate.delete(statusKey);
+            throw ex;
+        }
+        return purchaseSn;
+    }
+
+    /**
+     * 查询购票单状态，仅允许查询当前用户提交的购票单
+     *
+     * @param purchaseSn 购票单号
+     * @return 购票单状态
+     */
+    public TicketPurchaseStatusRespDTO queryStatus(String purchaseSn) {
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        Map<Object, Object> statusMap = stringRedisTemplate.opsForHash().entries(TICKET_PURCHASE_STATUS + purchaseSn);
+        if (MapUtil.isEmpty(statusMap) || !StrUtil.equals(UserContext.getUsername(), (String) statusMap.get(FIELD_USERNAME))) {
+            throw new ClientException("购票单不存在或已过期");
+        }
+        TicketPurchaseStatusRespDTO result = TicketPurchaseStatusRespDTO.builder()
+                .purchaseSn(purchaseSn)
+                .status(Integer.parseInt((String) statusMap.get(FIELD_STATUS)))
+                .message((String) statusMap.get(FIELD_MESSAGE))
+                .build();
+        String purchaseResultStr = (String) statusMap.get(FIELD_RESULT);
+        if (StrUtil.isNotBlank(purchaseResultStr)) {
+            TicketPurchaseRespDTO purchaseResult = JSON.parseObject(purchaseResultStr, TicketPurchaseRespDTO.class);
+            result.setOrderSn(purchaseResult.getOrderSn());
+            result.setTicketOrderDetails(purchaseResult.getTicketOrderDetails());
+        }
+        return result;
+    }
+
+    private void execute(String purchaseSn, PurchaseTicketReqDTO requestParam, UserInfoDTO user, Function<PurchaseTicketReqDTO, TicketPurchaseRespDTO> purchaseHandler) {
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        String statusKey = TICKET_PURCHASE_STATUS + purchaseSn;
+        Map<String, String> statusMap = new HashMap<>();
+        UserContext.setUser(user);
+        try {
+            stringRedisTemplate.opsForHash().put(statusKey, FIELD_STATUS, String.valueOf(TicketPurchaseStatusEnum.PROCESSING.getCode()));
+            TicketPurchaseRespDTO purchaseResult = purchaseHandler.apply(requestParam);
+            statusMap.put(FIELD_STATUS, String.valueOf(TicketPurchaseStatusEnum.SUCCESS.getCode()));
+            statusMap.put(FIELD_RESULT, JSON.toJSONString(purchaseResult));
+        } catch (Throwable ex) {
+            log.error("[异步购票] 购票单号：{} 购票失败，请求参数：{}", purchaseSn, JSON.toJSONString(requestParam), ex);
+            statusMap.put(FIELD_STATUS, String.valueOf(TicketPurchaseStatusEnum.FAILED.getCode()));
+            // 仅业务异常信息返回给用户，其它异常屏蔽内部细节
+            statusMap.put(FIELD_MESSAGE, ex instanceof AbstractException abstractException ? abstractException.getErrorMessage() : "购票失败，请稍后再试");
+        } finally {
+            UserContext.removeUser();
+        }
+        stringRedisTemplate.opsForHash().putAll(statusKey, statusMap);
+        stringRedisTemplate.expire(statusKey, statusTimeoutSeconds, TimeUnit.SECONDS);
+    }
+}
@@ -67,8 +67,8 @@ public abstract class AbstractTrainPurchaseTicketTemplate implements IPurchaseTi
     @Override
     public List<TrainPurchaseTicketRespDTO> executeResp(SelectSeatDTO requestParam) {
         List<TrainPurchaseTicketRespDTO> actualResult = selectSeats(requestParam);
-        // 扣减车厢余票缓存，扣减站点余票缓存
-        if (CollUtil.isNotEmpty(actualResult) && !StrUtil.equals(ticketAvailabilityCacheUpdateType, "binlog")) {
+        // 扣减车厢余票缓存，扣减站点余票缓存，余票由座位区段占用位图计算时无需扣减
+        if (CollUtil.isNotEmpty(actualResult) && !StrUtil.equalsAny(ticketAvailabilityCacheUpdateType, "binlog", "segment")) {
             String trainId = requestParam.getRequestParam().getTrainId();
             String departure = requestParam.getRequestParam().getDeparture();
             String arrival = requestParam.getRequestParam().getArrival();
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.opengoofy.index12306.biz.ticketservice.dao.entity.TrainDO;
+import org.opengoofy.index12306.biz.ticketservice.dto.req.PurchaseTicketReqDTO;
+
+import java.util.List;
+
+/**
+ * 购票座位预留实体，座位锁定以及车票写入的本地事务提交后，用于创建订单以及失败补偿
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketPurchaseReservationDTO {
+
+    /**
+     * 创建订单请求 ID，重试创建订单时保持不变，订单服务据此保证幂等
+     */
+    private String requestId;
+
+    /**
+     * 购票原始入参
+     */
+    private PurchaseTicketReqDTO requestParam;
+
+    /**
+     * 列车信息
+     */
+    private TrainDO trainDO;
+
+    /**
+     * 已锁定的座位
+     */
+    private List<TrainPurchaseTicketRespDTO> trainPurchaseTicketResults;
+
+    /**
+     * 已写入的车票 ID
+     */
+    private List<Long> ticketIds;
+
+    /**
+     * 是否已获取列车余量令牌，仅获取过令牌的购票请求补偿时才回滚令牌
+     */
+    private boolean tokenTaken;
+}
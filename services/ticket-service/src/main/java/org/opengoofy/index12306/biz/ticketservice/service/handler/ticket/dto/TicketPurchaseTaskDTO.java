@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto;
+
+import lombok.Data;
+import org.opengoofy.index12306.biz.ticketservice.dto.req.PurchaseTicketReqDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPurchaseRespDTO;
+import org.opengoofy.index12306.frameworks.starter.user.core.UserInfoDTO;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 购票定序器排队任务实体
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Data
+public final class TicketPurchaseTaskDTO {
+
+    /**
+     * 购票原始入参
+     */
+    private final PurchaseTicketReqDTO requestParam;
+
+    /**
+     * 提交购票请求的用户，批量处理线程中需要重新设置用户上下文
+     */
+    private final UserInfoDTO user;
+
+    /**
+     * 入队时间
+     */
+    private final long enqueueTime = System.nanoTime();
+
+    /**
+     * 购票结果，批次事务提交并创建订单后完成
+     */
+    private final CompletableFuture<TicketPurchaseRespDTO> future = new CompletableFuture<>();
+
+    /**
+     * 座位预留结果，批次事务提交后用于创建订单
+     */
+    private TicketPurchaseReservationDTO reservation;
+
+    /**
+     * 购票成功结果
+     */
+    private TicketPurchaseRespDTO result;
+
+    /**
+     * 购票失败异常
+     */
+    private Throwable exception;
+}
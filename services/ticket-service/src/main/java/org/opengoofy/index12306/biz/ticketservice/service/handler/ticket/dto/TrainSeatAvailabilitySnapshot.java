@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 列车座位可用快照
+ * <p>
+ * 一次查询出列车指定座位类型、出发站到到达站区间的全部可售座位，按车厢转换为位图，选座过程中所有乘车人共用同一份快照
+ * 座位号形如 05C，位图下标为 (排号 - 1) * 8 + (座位字母 - 'A')
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+public final class TrainSeatAvailabilitySnapshot {
+
+    /**
+     * 每排占用的位数，覆盖 A~H 座位字母
+     */
+    private static final int ROW_STRIDE = 8;
+
+    /**
+     * 车厢号 -> 可售座位位图，按车厢号顺序排列
+     */
+    private final Map<String, long[]> carriageSeatBitmap;
+
+    private final List<String> carriageNumberList;
+
+    private final List<Integer> remainingTicketList;
+
+    private final int remainingTicketSum;
+
+    private TrainSeatAvailabilitySnapshot(Map<String, long[]> carriageSeatBitmap) {
+        this.carriageSeatBitmap = carriageSeatBitmap;
+        List<String> carriageNumbers = new ArrayList<>(carriageSeatBitmap.size());
+        List<Integer> remainingTickets = new ArrayList<>(carriageSeatBitmap.size());
+        int sum = 0;
+        for (Map.Entry<String, long[]> entry : carriageSeatBitmap.entrySet()) {
+            int count = 0;
+            for (long word : entry.getValue()) {
+                count += Long.bitCount(word);
+            }
+            carriageNumbers.add(entry.getKey());
+            remainingTickets.add(count);
+            sum += count;
+        }
+        this.carriageNumberList = Collections.unmodifiableList(carriageNumbers);
+        this.remainingTicketList = Collections.unmodifiableList(remainingTickets);
+        this.remainingTicketSum = sum;
+    }
+
+    /**
+     * 根据可售座位构建快照
+     *
+     * @param availableSeats 车厢号 -> 可售座位号集合，需按车厢号顺序传入
+     * @return 座位可用快照
+     */
+    public static TrainSeatAvailabilitySnapshot of(Map<String, List<String>> availableSeats) {
+        Map<String, long[]> carriageSeatBitmap = new LinkedHashMap<>(availableSeats.size() * 2);
+        availableSeats.forEach((carriageNumber, seatNumbers) -> {
+            if (seatNumbers.isEmpty()) {
+                return;
+            }
+            int maxIndex = 0;
+            for (String seatNumber : seatNumbers) {
+                maxIndex = Math.max(maxIndex, bitIndex(seatNumber));
+            }
+            long[] bitmap = new long[(maxIndex >> 6) + 1];
+            for (String seatNumber : seatNumbers) {
+                int index = bitIndex(seatNumber);
+                bitmap[index >> 6] |= 1L << index;
+            }
+            carriageSeatBitmap.put(carriageNumber, bitmap);
+        });
+        return new TrainSeatAvailabilitySnapshot(carriageSeatBitmap);
+    }
+
+    /**
+     * 排除已分配座位后生成新的快照，原快照可能被多个线程共享，因此不做修改
+     *
+     * @param occupiedSeats 车厢号 -> 已分配座位号集合
+     * @return 排除已分配座位后的快照
+     */
+    public TrainSeatAvailabilitySnapshot exclude(Map<String, List<String>> occupiedSeats) {
+        Map<String, long[]> actualCarriageSeatBitmap = new LinkedHashMap<>(carriageSeatBitmap.size() * 2);
+        carriageSeatBitmap.forEach((carriageNumber, bitmap) -> {
+            List<String> seatNumbers = occupiedSeats.get(carriageNumber);
+            if (seatNumbers == null) {
+                actualCarriageSeatBitmap.put(carriageNumber, bitmap);
+                return;
+            }
+            long[] actualBitmap = bitmap.clone();
+            for (String seatNumber : seatNumbers) {
+                int index = bitIndex(seatNumber);
+                if ((index >> 6) < actualBitmap.length) {
+                    actualBitmap[index >> 6] &= ~(1L << index);
+                }
+            }
+            actualCarriageSeatBitmap.put(carriageNumber, actualBitmap);
+        });
+        return new TrainSeatAvailabilitySnapshot(actualCarriageSeatBitmap);
+    }
+
+    /**
+     * 判断座位是否可售
+     *
+     * @param carriageNumber 车厢号
+     * @param row            排号，从 1 开始
+     * @param seatLetter     座位字母
+     * @return 是否可售
+     */
+    public boolean isAvailable(String carriageNumber, int row, String seatLetter) {
+        long[] bitmap = carriageSeatBitmap.get(carriageNumber);
+        if (bitmap == null || row < 1) {
+            return false;
+        }
+        int index = (row - 1) * ROW_STRIDE + (seatLetter.charAt(0) - 'A');
+        int word = index >> 6;
+        return word < bitmap.length && (bitmap[word] & (1L << index)) != 0;
+    }
+
+    /**
+     * 获取车厢某一排的可售座位字母位，第 n 位为 1 表示字母 'A' + n 可售
+     *
+     * @param carriageNumber 车厢号
+     * @param row            排号，从 1 开始
+     * @return 8 位座位字母位
+     */
+    public int rowSeatBits(String carriageNumber, int row) {
+        long[] bitmap = carriageSeatBitmap.get(carriageNumber);
+        if (bitmap == null || row < 1) {
+            return 0;
+        }
+        int index = (row - 1) * ROW_STRIDE;
+        int word = index >> 6;
+        return word < bitmap.length ? (int) (bitmap[word] >>> (index & 63)) & 0xFF : 0;
+    }
+
+    /**
+     * 有可售座位的车厢号
+     */
+    public List<String> listCarriageNumber() {
+        return carriageNumberList;
+    }
+
+    /**
+     * 各车厢余票数量，与 {@link #listCarriageNumber()} 顺序一致
+     */
+    public List<Integer> listRemainingTicket() {
+        return remainingTicketList;
+    }
+
+    /**
+     * 总余票数量
+     */
+    public int remainingTicketSum() {
+        return remainingTicketSum;
+    }
+
+    private static int bitIndex(String seatNumber) {
+        int letterIndex = seatNumber.length() - 1;
+        int row = Integer.parseInt(seatNumber.substring(0, letterIndex));
+        return (row - 1) * ROW_STRIDE + (seatNumber.charAt(letterIndex) - 'A');
+    }
+}
@@ -22,8 +22,10 @@ import lombok.RequiredArgsConstructor;
 import org.opengoofy.index12306.biz.ticketservice.dto.domain.PurchaseTicketPassengerDetailDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.req.PurchaseTicketReqDTO;
 import org.opengoofy.index12306.biz.ticketservice.service.cache.SeatMarginCacheLoader;
+import org.opengoofy.index12306.biz.ticketservice.service.cache.SeatSegmentCacheLoader;
 import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
 import org.opengoofy.index12306.framework.starter.convention.exception.ClientException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
@@ -45,6 +47,10 @@ public class TrainPurchaseTicketParamStockChainHandler implements TrainPurchaseT
 
     private final SeatMarginCacheLoader seatMarginCacheLoader;
     private final DistributedCache distributedCache;
+    private final SeatSegmentCacheLoader seatSegmentCacheLoader;
+
+    @Value("${ticket.availability.cache-update.type:}")
+    private String ticketAvailabilityCacheUpdateType;
 
     @Override
     public void handler(PurchaseTicketReqDTO requestParam) {
@@ -55,6 +61,13 @@ public class TrainPurchaseTicketParamStockChainHandler implements TrainPurchaseT
         Map<Integer, List<PurchaseTicketPassengerDetailDTO>> seatTypeMap = passengerDetails.stream()
                 .collect(Collectors.groupingBy(PurchaseTicketPassengerDetailDTO::getSeatType));
         seatTypeMap.forEach((seatType, passengerSeatDetails) -> {
+            if (StrUtil.equals(ticketAvailabilityCacheUpdateType, "segment")) {
+                int stock = seatSegmentCacheLoader.remainingTicket(requestParam.getTrainId(), seatType, requestParam.getDeparture(), requestParam.getArrival());
+                if (stock < passengerSeatDetails.size()) {
+                    throw new ClientException("列车站点已无余票");
+                }
+                return;
+            }
             Object stockObj = stringRedisTemplate.opsForHash().get(TRAIN_STATION_REMAINING_TICKET + keySuffix, String.valueOf(seatType));
             int stock = Optional.ofNullable(stockObj).map(each -> Integer.parseInt(each.toString())).orElseGet(() -> {
                 Map<String, String> seatMarginMap = seatMarginCacheLoader.load(String.valueOf(requestParam.getTrainId()), String.valueOf(seatType), requestParam.getDeparture(), requestParam.getArrival());
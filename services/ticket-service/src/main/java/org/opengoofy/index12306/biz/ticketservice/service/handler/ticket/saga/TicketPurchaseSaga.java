@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.saga;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.opengoofy.index12306.biz.ticketservice.common.enums.SourceEnum;
+import org.opengoofy.index12306.biz.ticketservice.dao.entity.TrainStationRelationDO;
+import org.opengoofy.index12306.biz.ticketservice.dao.mapper.TicketMapper;
+import org.opengoofy.index12306.biz.ticketservice.dao.mapper.TrainStationRelationMapper;
+import org.opengoofy.index12306.biz.ticketservice.dto.domain.RouteDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.req.PurchaseTicketReqDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketOrderDetailRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPurchaseRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.remote.TicketOrderRemoteService;
+import org.opengoofy.index12306.biz.ticketservice.remote.dto.TicketOrderCreateRemoteReqDTO;
+import org.opengoofy.index12306.biz.ticketservice.remote.dto.TicketOrderItemCreateRemoteReqDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.SeatService;
+import org.opengoofy.index12306.biz.ticketservice.service.TrainStationService;
+import org.opengoofy.index12306.biz.ticketservice.service.cache.TrainSeatAvailabilitySnapshotLoader;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TicketPurchaseReservationDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TrainPurchaseTicketRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.tokenbucket.TicketAvailabilityTokenBucket;
+import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
+import org.opengoofy.index12306.framework.starter.convention.exception.ServiceException;
+import org.opengoofy.index12306.framework.starter.convention.result.Result;
+import org.opengoofy.index12306.frameworks.starter.user.core.UserContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.TRAIN_STATION_REMAINING_TICKET;
+
+/**
+ * 购票 Saga 流程编排
+ * <p>
+ * 座位锁定以及车票写入在本地短事务内提交，提交后再远程创建订单，数据库行锁以及购票锁不再等待订单服务响应；
+ * 订单创建携带不变的请求 ID 重试，最终失败时先按请求 ID 确认订单未创建，再释放座位、删除车票并归还余票以及令牌
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TicketPurchaseSaga {
+
+    private final TicketOrderRemoteService ticketOrderRemoteService;
+    private final TrainStationRelationMapper trainStationRelationMapper;
+    private final SeatService seatService;
+    private final TicketMapper ticketMapper;
+    private final TrainStationService trainStationService;
+    private final DistributedCache distributedCache;
+    private final TicketAvailabilityTokenBucket ticketAvailabilityTokenBucket;
+    private final TrainSeatAvailabilitySnapshotLoader trainSeatAvailabilitySnapshotLoader;
+
+    /**
+     * 创建订单最大尝试次数，重试使用同一请求 ID
+     */
+    @Value("${ticket.purchase.order-create.max-attempts:3}")
+    private int orderCreateMaxAttempts;
+
+    /**
+     * 补偿前按请求 ID 查询订单创建结果的最大尝试次数，订单服务仍在处理时间隔重试
+     */
+    @Value("${ticket.purchase.order-create.lookup-max-attempts:5}")
+    private int orderLookupMaxAttempts;
+
+    /**
+     * 补偿前按请求 ID 查询订单创建结果的间隔时间，单位毫秒
+     */
+    @Value("${ticket.purchase.order-create.lookup-interval-millis:200}")
+    private long orderLookupIntervalMillis;
+
+    @Value("${ticket.availability.cache-update.type:}")
+    private String ticketAvailabilityCacheUpdateType;
+
+    /**
+     * 执行购票流程
+     *
+     * @param reserveAction 座位预留动作，需在返回前提交本地事务并释放购票锁
+     * @return 订单号以及乘车人订单详情
+     */
+    public TicketPurchaseRespDTO execute(Supplier<TicketPurchaseReservationDTO> reserveAction) {
+        TicketPurchaseReservationDTO reservation = reserveAction.get();
+        return createOrder(reservation);
+    }
+
+    /**
+     * 根据已提交的座位预留创建订单，失败时执行补偿
+     *
+     * @param reservation 座位预留结果
+     * @return 订单号以及乘车人订单详情
+     */
+    public TicketPurchaseRespDTO createOrder(TicketPurchaseReservationDTO reservation) {
+        PurchaseTicketReqDTO requestParam = reservation.getRequestParam();
+        List<TicketOrderItemCreateRemoteReqDTO> orderItemCreateRemoteReqDTOList = new ArrayList<>();
+        List<TicketOrderDetailRespDTO> ticketOrderDetailResults = new ArrayList<>();
+        reservation.getTrainPurchaseTicketResults().forEach(each -> {
+            TicketOrderItemCreateRemoteReqDTO orderItemCreateRemoteReqDTO = TicketOrderItemCreateRemoteReqDTO.builder()
+                    .amount(each.getAmount())
+                    .carriageNumber(each.getCarriageNumber())
+                    .seatNumber(each.getSeatNumber())
+                    .idCard(each.getIdCard())
+                    .idType(each.getIdType())
+                    .phone(each.getPhone())
+                    .seatType(each.getSeatType())
+                    .ticketType(each.getUserType())
+                    .realName(each.getRealName())
+                    .build();
+            TicketOrderDetailRespDTO ticketOrderDetailRespDTO = TicketOrderDetailRespDTO.builder()
+                    .amount(each.getAmount())
+                    .carriageNumber(each.getCarriageNumber())
+                    .seatNumber(each.getSeatNumber())
+                    .idCard(each.getIdCard())
+                    .idType(each.getIdType())
+                    .seatType(each.getSeatType())
+                    .ticketType(each.getUserType())
+                    .realName(each.getRealName())
+                    .build();
+            orderItemCreateRemoteReqDTOList.add(orderItemCreateRemoteReqDTO);
+            ticketOrderDetailResults.add(ticketOrderDetailRespDTO);
+        });
+        Throwable lastException = null;
+        for (int attempt = 1; attempt <= orderCreateMaxAttempts; attempt++) {
+            try {
+                LambdaQueryWrapper<TrainStationRelationDO> queryWrapper = Wrappers.lambdaQuery(TrainStationRelationDO.class)
+                        .eq(TrainStationRelationDO::getTrainId, requestParam.getTrainId())
+                        .eq(TrainStationRelationDO::getDeparture, requestParam.getDeparture())
+                        .eq(TrainStationRelationDO::getArrival, requestParam.getArrival());
+                TrainStationRelationDO trainStationRelationDO = trainStationRelationMapper.selectOne(queryWrapper);
+                TicketOrderCreateRemoteReqDTO orderCreateRemoteReqDTO = TicketOrderCreateRemoteReqDTO.builder()
+                        .requestId(reservation.getRequestId())
+                        .departure(requestParam.getDeparture())
+                        .arrival(requestParam.getArrival())
+                        .orderTime(new Date())
+                        .source(SourceEnum.INTERNET.getCode())
+                        .trainNumber(reservation.getTrainDO().getTrainNumber())
+                        .departureTime(trainStationRelationDO.getDepartureTime())
+                        .arrivalTime(trainStationRelationDO.getArrivalTime())
+                        .ridingDate(trainStationRelationDO.getDepartureTime())
+                        .userId(UserContext.getUserId())
+                        .username(UserContext.getUsername())
+                        .trainId(Long.parseLong(requestParam.getTrainId()))
+                        .ticketOrderItems(orderItemCreateRemoteReqDTOList)
+                        .build();
+                // 远程调用订单服务创建订单
+                Result<String> ticketOrderResult = ticketOrderRemoteService.createTicketOrder(orderCreateRemoteReqDTO);
+                if (ticketOrderResult.isSuccess() && StrUtil.isNotBlank(ticketOrderResult.getData())) {
+                    return new TicketPurchaseRespDTO(ticketOrderResult.getData(), ticketOrderDetailResults);
+                }
+                log.error("订单服务调用失败，第 {} 次尝试，返回结果：{}", attempt, ticketOrderResult.getMessage());
+                lastException = new ServiceException("订单服务调用失败");
+            } catch (Throwable ex) {
+                log.error("远程调用订单服务创建错误，第 {} 次尝试，请求参数：{}", attempt, JSON.toJSONString(requestParam), ex);
+                lastException = ex;
+            }
+        }
+        // 重试耗尽不代表订单未创建，例如首次请求超时但已提交，补偿前按请求 ID 确认
+        OrderCreateOutcome outcome = lookupOrderCreateOutcome(reservation.getRequestId());
+        if (StrUtil.isNotBlank(outcome.orderSn())) {
+            return new TicketPurchaseRespDTO(outcome.orderSn(), ticketOrderDetailResults);
+        }
+        if (!outcome.determined()) {
+            // 无法确认订单是否创建时不补偿，订单已创建则由延迟关闭订单释放座位
+            log.error("[购票补偿] 请求 ID：{} 无法确认订单创建结果，跳过补偿", reservation.getRequestId());
+            throw lastException instanceof ServiceException serviceException ? serviceException : new ServiceException("订单服务调用失败");
+        }
+        compensate(reservation);
+        throw lastException instanceof ServiceException serviceException ? serviceException : new ServiceException("订单服务调用失败");
+    }
+
+    /**
+     * 按请求 ID 查询订单创建结果，订单服务返回失败（订单仍在创建中或调用异常）时间隔重试
+     */
+    private OrderCreateOutcome lookupOrderCreateOutcome(String requestId) {
+        for (int attempt = 1; attempt <= orderLookupMaxAttempts; attempt++) {
+            try {
+                Result<String> lookupResult = ticketOrderRemoteService.queryOrderSnByRequestId(requestId);
+                if (lookupResult.isSuccess()) {
+                    return new OrderCreateOutcome(true, lookupResult.getData());
+                }
+                log.warn("[购票补偿] 请求 ID：{} 第 {} 次查询订单创建结果失败：{}", requestId, attempt, lookupResult.getMessage());
+            } catch (Throwable ex) {
+                log.warn("[购票补偿] 请求 ID：{} 第 {} 次查询订单创建结果异常", requestId, attempt, ex);
+            }
+            if (attempt < orderLookupMaxAttempts && orderLookupIntervalMillis > 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(orderLookupIntervalMillis);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        return new OrderCreateOutcome(false, null);
+    }
+
+    /**
+     * 订单创建结果
+     *
+     * @param determined 是否确认订单创建结果
+     * @param orderSn    已创建的订单号，确认未创建时为空
+     */
+    private record OrderCreateOutcome(boolean determined, String orderSn) {
+    }
+
+    /**
+     * 补偿已提交的座位预留，各步骤互不影响，单步失败仅记录日志
+     */
+    private void compensate(TicketPurchaseReservationDTO reservation) {
+        PurchaseTicketReqDTO requestParam = reservation.getRequestParam();
+        String trainId = requestParam.getTrainId();
+        String departure = requestParam.getDeparture();
+        String arrival = requestParam.getArrival();
+        List<TrainPurchaseTicketRespDTO> trainPurchaseTicketResults = reservation.getTrainPurchaseTicketResults();
+        try {
+            seatService.unlock(trainId, departure, arrival, trainPurchaseTicketResults);
+        } catch (Throwable ex) {
+            log.error("[购票补偿] 请求 ID：{} 释放列车座位失败", reservation.getRequestId(), ex);
+        } finally {
+            trainSeatAvailabilitySnapshotLoader.invalidate(trainId);
+        }
+        try {
+            if (CollUtil.isNotEmpty(reservation.getTicketIds())) {
+                ticketMapper.deleteBatchIds(reservation.getTicketIds());
+            }
+        } catch (Throwable ex) {
+            log.error("[购票补偿] 请求 ID：{} 删除车票失败", reservation.getRequestId(), ex);
+        }
+        if (!StrUtil.equalsAny(ticketAvailabilityCacheUpdateType, "binlog", "segment")) {
+            try {
+                StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+                Map<Integer, Long> seatTypeCountMap = trainPurchaseTicketResults.stream()
+                        .collect(Collectors.groupingBy(TrainPurchaseTicketRespDTO::getSeatType, Collectors.counting()));
+                List<RouteDTO> routeDTOList = trainStationService.listTakeoutTrainStationRoute(trainId, departure, arrival);
+                routeDTOList.forEach(each -> {
+                    String keySuffix = StrUtil.join("_", trainId, each.getStartStation(), each.getEndStation());
+                    seatTypeCountMap.forEach((seatType, count) -> stringRedisTemplate.opsForHash()
+                            .increment(TRAIN_STATION_REMAINING_TICKET + keySuffix, String.valueOf(seatType), count));
+                });
+            } catch (Throwable ex) {
+                log.error("[购票补偿] 请求 ID：{} 回滚列车Cache余票失败", reservation.getRequestId(), ex);
+            }
+        }
+        if (!reservation.isTokenTaken()) {
+            return;
+        }
+        try {
+            ticketAvailabilityTokenBucket.rollbackInBucket(requestParam);
+        } catch (Throwable ex) {
+            log.error("[购票补偿] 请求 ID：{} 回滚列车余票令牌失败", reservation.getRequestId(), ex);
+        }
+    }
+}
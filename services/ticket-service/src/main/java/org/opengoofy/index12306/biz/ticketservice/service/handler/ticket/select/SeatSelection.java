@@ -17,97 +17,132 @@
 
 package org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.select;
 
-import cn.hutool.core.collection.CollUtil;
-
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * 座位选择器
+ * <p>
+ * 车厢每排座位压缩为一个 int 位掩码，第 c 位为 1 表示第 c 列可售，相邻座位通过位运算 {@code x & (x >>> 1) & ...} 一次求出
+ * 返回结果均为从 1 开始的 [排, 列] 基本类型数组，不产生中间集合与装箱对象
  *
  * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
  */
 public class SeatSelection {
 
+    /**
+     * 单排最大列数
+     */
+    public static final int MAX_COLUMN_COUNT = 32;
+
     public static int[][] adjacent(int numSeats, int[][] seatLayout) {
-        int numRows = seatLayout.length;
-        int numCols = seatLayout[0].length;
-        List<int[]> selectedSeats = new ArrayList<>();
-        // 邻近座位遍历
-        for (int i = 0; i < numRows; i++) {
-            for (int j = 0; j < numCols; j++) {
-                if (seatLayout[i][j] == 0) {
-                    int consecutiveSeats = 0;
-                    for (int k = j; k < numCols; k++) {
-                        if (seatLayout[i][k] == 0) {
-                            consecutiveSeats++;
-                            if (consecutiveSeats == numSeats) {
-                                for (int l = k - numSeats + 1; l <= k; l++) {
-                                    selectedSeats.add(new int[]{i, l});
-                                }
-                                break;
-                            }
-                        } else {
-                            consecutiveSeats = 0;
-                        }
-                    }
-                    if (!selectedSeats.isEmpty()) {
-                        break;
-                    }
-                }
-            }
-            if (!selectedSeats.isEmpty()) {
-                break;
+        for (int row = 0; row < seatLayout.length; row++) {
+            int startCol = findConsecutive(numSeats, rowMask(seatLayout[row]));
+            if (startCol >= 0) {
+                return buildAdjacentSeat(numSeats, row, startCol);
             }
         }
         // 无法找到邻近座位
-        if (CollUtil.isEmpty(selectedSeats)) {
-            return null;
-        }
-        int[][] actualSeat = new int[numSeats][2];
-        int i = 0;
-        for (int[] seat : selectedSeats) {
-            int row = seat[0] + 1;
-            int col = seat[1] + 1;
-            actualSeat[i][0] = row;
-            actualSeat[i][1] = col;
-            i++;
-        }
-        return actualSeat;
+        return null;
     }
 
     public static int[][] nonAdjacent(int numSeats, int[][] seatLayout) {
-        int numRows = seatLayout.length;
-        int numCols = seatLayout[0].length;
-        List<int[]> selectedSeats = new ArrayList<>();
-        for (int i = 0; i < numRows; i++) {
-            for (int j = 0; j < numCols; j++) {
-                if (seatLayout[i][j] == 0) {
-                    selectedSeats.add(new int[]{i, j});
-                    if (selectedSeats.size() == numSeats) {
-                        break;
-                    }
-                }
+        int[][] actualSeat = new int[Math.max(numSeats, 0)][];
+        int selected = 0;
+        for (int row = 0; row < seatLayout.length && selected < actualSeat.length; row++) {
+            selected = collectSeat(actualSeat, selected, row, rowMask(seatLayout[row]));
+        }
+        return selected == actualSeat.length ? actualSeat : Arrays.copyOf(actualSeat, selected);
+    }
+
+    /**
+     * 在同一排中查找连续可售座位，按排、列从小到大返回第一组
+     *
+     * @param numSeats 座位数量
+     * @param rowMasks 每排可售座位位掩码
+     * @return 座位坐标，不存在返回 null
+     */
+    public static int[][] adjacent(int numSeats, int[] rowMasks) {
+        for (int row = 0; row < rowMasks.length; row++) {
+            int startCol = findConsecutive(numSeats, rowMasks[row]);
+            if (startCol >= 0) {
+                return buildAdjacentSeat(numSeats, row, startCol);
             }
-            if (selectedSeats.size() == numSeats) {
-                break;
+        }
+        return null;
+    }
+
+    /**
+     * 按排、列从小到大选择可售座位，不要求相邻
+     *
+     * @param numSeats 座位数量
+     * @param rowMasks 每排可售座位位掩码
+     * @return 座位坐标，可售座位不足时返回全部可售座位
+     */
+    public static int[][] nonAdjacent(int numSeats, int[] rowMasks) {
+        int[][] actualSeat = new int[Math.max(numSeats, 0)][];
+        int selected = 0;
+        for (int row = 0; row < rowMasks.length && selected < actualSeat.length; row++) {
+            selected = collectSeat(actualSeat, selected, row, rowMasks[row]);
+        }
+        return selected == actualSeat.length ? actualSeat : Arrays.copyOf(actualSeat, selected);
+    }
+
+    /**
+     * 将座位布局转换为每排可售座位位掩码，布局中 0 表示可售
+     *
+     * @param seatLayout 座位布局
+     * @return 每排可售座位位掩码
+     */
+    public static int[] buildRowMasks(int[][] seatLayout) {
+        int[] rowMasks = new int[seatLayout.length];
+        for (int i = 0; i < seatLayout.length; i++) {
+            rowMasks[i] = rowMask(seatLayout[i]);
+        }
+        return rowMasks;
+    }
+
+    private static int rowMask(int[] row) {
+        int mask = 0;
+        for (int j = 0; j < row.length && j < MAX_COLUMN_COUNT; j++) {
+            if (row[j] == 0) {
+                mask |= 1 << j;
             }
         }
-        return convertToActualSeat(selectedSeats);
+        return mask;
+    }
+
+    /**
+     * 返回第一个连续 numSeats 个可售座位的起始列，不存在返回 -1
+     */
+    private static int findConsecutive(int numSeats, int free) {
+        if (numSeats <= 0 || numSeats > MAX_COLUMN_COUNT) {
+            return -1;
+        }
+        // 第 c 位为 1 表示从第 c 列开始有 numSeats 个连续可售座位
+        int runStart = free;
+        for (int shift = 1; shift < numSeats && runStart != 0; shift++) {
+            runStart &= free >>> shift;
+        }
+        return runStart == 0 ? -1 : Integer.numberOfTrailingZeros(runStart);
     }
 
-    private static int[][] convertToActualSeat(List<int[]> selectedSeats) {
-        int[][] actualSeat = new int[selectedSeats.size()][2];
-        for (int i = 0; i < selectedSeats.size(); i++) {
-            int[] seat = selectedSeats.get(i);
-            int row = seat[0] + 1;
-            int col = seat[1] + 1;
-            actualSeat[i][0] = row;
-            actualSeat[i][1] = col;
+    private static int[][] buildAdjacentSeat(int numSeats, int row, int startCol) {
+        int[][] actualSeat = new int[numSeats][];
+        for (int i = 0; i < numSeats; i++) {
+            actualSeat[i] = new int[]{row + 1, startCol + i + 1};
         }
         return actualSeat;
     }
 
+    private static int collectSeat(int[][] actualSeat, int selected, int row, int free) {
+        while (free != 0 && selected < actualSeat.length) {
+            actualSeat[selected++] = new int[]{row + 1, Integer.numberOfTrailingZeros(free) + 1};
+            // 清除最低位的可售座位
+            free &= free - 1;
+        }
+        return selected;
+    }
+
     public static void main(String[] args) {
         int[][] seatLayout = {
                 {1, 1, 1, 1},
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.select;
+
+import lombok.Getter;
+import org.opengoofy.index12306.biz.ticketservice.common.enums.TrainSeatLayoutEnum;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TrainSeatAvailabilitySnapshot;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 列车车厢座位布局，由 {@link TrainSeatLayoutEnum} 预先编译
+ * <p>
+ * 座位号按 排 * 列数 + 列 下标预先生成，选座结果转换座位号时直接查表，不再拼接字符串
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+public final class TrainSeatLayout {
+
+    private static final Map<String, TrainSeatLayout> LAYOUT_MAP = new HashMap<>();
+
+    /**
+     * 所有布局购票策略标识的正则匹配表达式
+     */
+    private static final String PATTERN_MATCH_MARK;
+
+    static {
+        for (TrainSeatLayoutEnum each : TrainSeatLayoutEnum.values()) {
+            LAYOUT_MAP.put(each.mark(), new TrainSeatLayout(each));
+        }
+        PATTERN_MATCH_MARK = Arrays.stream(TrainSeatLayoutEnum.values())
+                .map(each -> Pattern.quote(each.mark()))
+                .collect(Collectors.joining("|"));
+    }
+
+    @Getter
+    private final int rowCount;
+
+    @Getter
+    private final int columnCount;
+
+    @Getter
+    private final int adjacentLimit;
+
+    @Getter
+    private final int groupSize;
+
+    /**
+     * 座位号表，下标为 排 * 列数 + 列，均从 0 开始
+     */
+    private final String[] seatNumberTable;
+
+    /**
+     * 座位字母 -> 列下标，不属于当前布局为 -1
+     */
+    private final int[] letterColumn = new int[26];
+
+    /**
+     * 快照中一排 8 位座位字母位 -> 当前布局的列位掩码
+     */
+    private final int[] letterBitsColumnMask = new int[256];
+
+    private TrainSeatLayout(TrainSeatLayoutEnum layoutEnum) {
+        String seatLetters = layoutEnum.getSeatLetters();
+        this.rowCount = layoutEnum.getRowCount();
+        this.columnCount = seatLetters.length();
+        this.adjacentLimit = layoutEnum.getAdjacentLimit();
+        this.groupSize = layoutEnum.getGroupSize();
+        this.seatNumberTable = new String[rowCount * columnCount];
+        Arrays.fill(letterColumn, -1);
+        for (int column = 0; column < columnCount; column++) {
+            char letter = seatLetters.charAt(column);
+            letterColumn[letter - 'A'] = column;
+            for (int row = 0; row < rowCount; row++) {
+                seatNumberTable[row * columnCount + column] = String.format("%02d%c", row + 1, letter);
+            }
+        }
+        for (int letterBits = 0; letterBits < letterBitsColumnMask.length; letterBits++) {
+            int columnMask = 0;
+            for (int column = 0; column < columnCount; column++) {
+                if ((letterBits & (1 << (seatLetters.charAt(column) - 'A'))) != 0) {
+                    columnMask |= 1 << column;
+                }
+            }
+            letterBitsColumnMask[letterBits] = columnMask;
+        }
+    }
+
+    /**
+     * 根据购票策略标识获取座位布局
+     *
+     * @param mark 交通工具类型名称 + 座位类型名称
+     * @return 座位布局，未适配返回 null
+     */
+    public static TrainSeatLayout getInstance(String mark) {
+        return LAYOUT_MAP.get(mark);
+    }
+
+    /**
+     * 所有布局购票策略标识的正则匹配表达式
+     */
+    public static String patternMatchMark() {
+        return PATTERN_MATCH_MARK;
+    }
+
+    /**
+     * 获取座位号
+     *
+     * @param row    排下标，从 0 开始
+     * @param column 列下标，从 0 开始
+     * @return 座位号，例如 05C
+     */
+    public String seatNumber(int row, int column) {
+        return seatNumberTable[row * columnCount + column];
+    }
+
+    /**
+     * 获取座位字母对应列下标
+     *
+     * @param letter 座位字母
+     * @return 列下标，不属于当前布局返回 -1
+     */
+    public int columnOf(char letter) {
+        int index = letter - 'A';
+        return index >= 0 && index < letterColumn.length ? letterColumn[index] : -1;
+    }
+
+    /**
+     * 从座位可用快照中构建车厢每排可售座位位掩码
+     *
+     * @param snapshot       座位可用快照
+     * @param carriageNumber 车厢号
+     * @return 每排可售座位位掩码，第 c 位为 1 表示第 c 列可售
+     */
+    public int[] rowMasks(TrainSeatAvailabilitySnapshot snapshot, String carriageNumber) {
+        int[] rowMasks = new int[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            rowMasks[row] = letterBitsColumnMask[snapshot.rowSeatBits(carriageNumber, row + 1)];
+        }
+        return rowMasks;
+    }
+}
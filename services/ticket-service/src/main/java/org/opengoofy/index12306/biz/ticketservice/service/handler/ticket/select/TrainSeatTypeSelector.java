@@ -31,6 +31,7 @@ import org.opengoofy.index12306.biz.ticketservice.dto.req.PurchaseTicketReqDTO;
 import org.opengoofy.index12306.biz.ticketservice.remote.UserRemoteService;
 import org.opengoofy.index12306.biz.ticketservice.remote.dto.PassengerRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.service.SeatService;
+import org.opengoofy.index12306.biz.ticketservice.service.cache.TrainSeatAvailabilitySnapshotLoader;
 import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.SelectSeatDTO;
 import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TrainPurchaseTicketRespDTO;
 import org.opengoofy.index12306.framework.starter.convention.exception.RemoteException;
@@ -64,8 +65,28 @@ public final class TrainSeatTypeSelector {
     private final TrainStationPriceMapper trainStationPriceMapper;
     private final AbstractStrategyChoose abstractStrategyChoose;
     private final ThreadPoolExecutor selectSeatThreadPoolExecutor;
+    private final TrainSeatAvailabilitySnapshotLoader trainSeatAvailabilitySnapshotLoader;
 
     public List<TrainPurchaseTicketRespDTO> select(Integer trainType, PurchaseTicketReqDTO requestParam) {
+        List<TrainPurchaseTicketRespDTO> actualResult = allocate(trainType, requestParam);
+        // 购买列车中间站点余票如何更新？详细查看：https://nageoffer.com/12306/question
+        try {
+            seatService.lockSeat(requestParam.getTrainId(), requestParam.getDeparture(), requestParam.getArrival(), actualResult);
+        } finally {
+            // 座位状态已变更，失效本地座位可用快照
+            trainSeatAvailabilitySnapshotLoader.invalidate(requestParam.getTrainId());
+        }
+        return actualResult;
+    }
+
+    /**
+     * 分配座位并补齐乘车人、票价信息，不锁定座位
+     *
+     * @param trainType    列车类型
+     * @param requestParam 购票请求参数
+     * @return 分配的座位
+     */
+    public List<TrainPurchaseTicketRespDTO> allocate(Integer trainType, PurchaseTicketReqDTO requestParam) {
         List<PurchaseTicketPassengerDetailDTO> passengerDetails = requestParam.getPassengers();
         // 通过座位类型分组
         Map<Integer, List<PurchaseTicketPassengerDetailDTO>> seatTypeMap = passengerDetails.stream()
@@ -136,22 +157,21 @@ public final class TrainSeatTypeSelector {
             TrainStationPriceDO trainStationPriceDO = trainStationPriceMapper.selectOne(lambdaQueryWrapper);
             each.setAmount(trainStationPriceDO.getPrice());
         });
-        // 购买列车中间站点余票如何更新？详细查看：https://nageoffer.com/12306/question
-        seatService.lockSeat(requestParam.getTrainId(), requestParam.getDeparture(), requestParam.getArrival(), actualResult);
         return actualResult;
     }
 
     private List<TrainPurchaseTicketRespDTO> distributeSeats(Integer trainType, Integer seatType, PurchaseTicketReqDTO requestParam, List<PurchaseTicketPassengerDetailDTO> passengerSeatDetails) {
         String buildStrategyKey = VehicleTypeEnum.findNameByCode(trainType) + VehicleSeatTypeEnum.findNameByCode(seatType);
         SelectSeatDTO selectSeatDTO = SelectSeatDTO.builder()
+                .trainType(trainType)
                 .seatType(seatType)
                 .passengerSeatDetails(passengerSeatDetails)
                 .requestParam(requestParam)
                 .build();
         try {
-            return abstractStrategyChoose.chooseAndExecuteResp(buildStrategyKey, selectSeatDTO);
+            return abstractStrategyChoose.chooseAndExecuteResp(buildStrategyKey, selectSeatDTO, true);
         } catch (ServiceException ex) {
-            throw new ServiceException("当前车次列车类型暂未适配，请购买G35或G39车次");
+            throw new ServiceException("当前车次列车类型暂未适配");
         }
     }
 }
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.sequencer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPurchaseRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TicketPurchaseTaskDTO;
+import org.opengoofy.index12306.framework.starter.convention.exception.ServiceException;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 购票定序器
+ * <p>
+ * 同一列车同一座位类型的购票请求进入有界队列，由单个处理线程每次取出至多 max-batch-size 个请求合并处理：
+ * 一次获取分布式锁、一次遍历座位快照分配座位、一个事务内写入车票以及锁定座位，吞吐随批次大小增长，不再受锁交接延迟限制
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TicketPurchaseSequencer implements InitializingBean {
+
+    private final ThreadPoolExecutor purchaseSequencerThreadPoolExecutor;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 每个列车座位类型的排队上限，超出直接拒绝
+     */
+    @Value("${ticket.purchase.sequencer.queue-capacity:512}")
+    private int queueCapacity;
+
+    @Value("${ticket.purchase.sequencer.max-batch-size:32}")
+    private int maxBatchSize;
+
+    /**
+     * 用户等待购票结果的超时时间
+     */
+    @Value("${ticket.purchase.sequencer.timeout-millis:10000}")
+    private long timeoutMillis;
+
+    private final Map<String, PurchaseLane> laneMap = new ConcurrentHashMap<>();
+
+    private DistributionSummary batchSizeSummary;
+    private Timer batchTimer;
+    private Timer queueWaitTimer;
+    private Counter rejectedCounter;
+
+    @Override
+    public void afterPropertiesSet() {
+        Gauge.builder("ticket.purchase.sequencer.queue.depth", laneMap, each -> each.values().stream().mapToInt(lane -> lane.queue.size()).sum())
+                .description("购票定序器排队中的请求数量")
+                .register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("ticket.purchase.sequencer.batch.size")
+                .description("购票定序器每批次处理的请求数量")
+                .register(meterRegistry);
+        batchTimer = Timer.builder("ticket.purchase.sequencer.batch.duration")
+                .description("购票定序器每批次处理耗时")
+                .register(meterRegistry);
+        queueWaitTimer = Timer.builder("ticket.purchase.sequencer.queue.wait")
+                .description("购票请求排队等待耗时")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("ticket.purchase.sequencer.rejected")
+                .description("购票定序器队列已满拒绝的请求数量")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 提交购票请求并等待批次处理结果
+     *
+     * @param laneKey      排队标识，列车 ID + 座位类型
+     * @param task         购票任务
+     * @param batchHandler 批次处理逻辑，需为每个任务设置购票结果或异常
+     * @return 购票结果
+     */
+    public TicketPurchaseRespDTO submit(String laneKey, TicketPurchaseTaskDTO task, Consumer<List<TicketPurchaseTaskDTO>> batchHandler) {
+        PurchaseLane lane = laneMap.computeIfAbsent(laneKey, key -> new PurchaseLane(key, queueCapacity, batchHandler));
+        if (!lane.queue.offer(task)) {
+            rejectedCounter.increment();
+            throw new ServiceException("当前车次购票人数过多，请稍后再试");
+        }
+        schedule(lane);
+        try {
+            return task.getFuture().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new ServiceException("车票购买失败，请稍后再试");
+        } catch (TimeoutException ex) {
+            throw new ServiceException("购票请求处理超时，请稍后在订单列表中查看");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("车票购买失败，请稍后再试");
+        }
+    }
+
+    private void schedule(PurchaseLane lane) {
+        if (lane.running.compareAndSet(false, true)) {
+            purchaseSequencerThreadPoolExecutor.execute(() -> drain(lane));
+        }
+    }
+
+    private void drain(PurchaseLane lane) {
+        try {
+            List<TicketPurchaseTaskDTO> batch = new ArrayList<>(maxBatchSize);
+            while (lane.queue.drainTo(batch, maxBatchSize) > 0) {
+                executeBatch(lane, batch);
+                batch.clear();
+            }
+        } finally {
+            lane.running.set(false);
+            // 释放处理权后可能有新请求入队，重新调度避免请求滞留
+            if (!lane.queue.isEmpty()) {
+                schedule(lane);
+            }
+        }
+    }
+
+    private void executeBatch(PurchaseLane lane, List<TicketPurchaseTaskDTO> batch) {
+        long startTime = System.nanoTime();
+        batchSizeSummary.record(batch.size());
+        batch.forEach(each -> queueWaitTimer.record(startTime - each.getEnqueueTime(), TimeUnit.NANOSECONDS));
+        try {
+            lane.batchHandler.accept(batch);
+        } catch (Throwable ex) {
+            log.error("购票定序器批次处理失败，排队标识：{}，批次大小：{}", lane.laneKey, batch.size(), ex);
+            // 批次事务已回滚，之前设置的成功结果同样无效
+            batch.stream()
+                    .filter(each -> each.getException() == null)
+                    .forEach(each -> {
+                        each.setResult(null);
+                        each.setException(ex);
+                    });
+        } finally {
+            batchTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+        batch.forEach(each -> {
+            if (each.getException() != null) {
+                each.getFuture().completeExceptionally(each.getException());
+            } else if (each.getResult() != null) {
+                each.getFuture().complete(each.getResult());
+            } else {
+                each.getFuture().completeExceptionally(new ServiceException("站点余票不足，请尝试更换座位类型或选择其它站点"));
+            }
+        });
+    }
+
+    private static final class PurchaseLane {
+
+        private final String laneKey;
+        private final BlockingQueue<TicketPurchaseTaskDTO> queue;
+        private final Consumer<List<TicketPurchaseTaskDTO>> batchHandler;
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        private PurchaseLane(String laneKey, int queueCapacity, Consumer<List<TicketPurchaseTaskDTO>> batchHandler) {
+            this.laneKey = laneKey;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.batchHandler = batchHandler;
+        }
+    }
+}
@@ -19,8 +19,6 @@ package org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.tokenb
 
 import cn.hutool.core.util.StrUtil;
 import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson2.JSONArray;
-import com.alibaba.fastjson2.JSONObject;
 import com.google.common.collect.Lists;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -30,27 +28,36 @@ import org.opengoofy.index12306.biz.ticketservice.dao.mapper.SeatMapper;
 import org.opengoofy.index12306.biz.ticketservice.dao.mapper.TrainMapper;
 import org.opengoofy.index12306.biz.ticketservice.dto.domain.PurchaseTicketPassengerDetailDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.domain.RouteDTO;
-import org.opengoofy.index12306.biz.ticketservice.dto.domain.SeatTypeCountDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.domain.RouteSeatTypeCountDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.req.PurchaseTicketReqDTO;
 import org.opengoofy.index12306.biz.ticketservice.remote.dto.TicketOrderDetailRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.remote.dto.TicketOrderPassengerDetailRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.service.TrainStationService;
 import org.opengoofy.index12306.framework.starter.bases.Singleton;
 import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
-import org.opengoofy.index12306.framework.starter.common.toolkit.Assert;
 import org.opengoofy.index12306.framework.starter.convention.exception.ServiceException;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -67,7 +74,7 @@ import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKe
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public final class TicketAvailabilityTokenBucket {
+public final class TicketAvailabilityTokenBucket implements InitializingBean, DisposableBean {
     /*
      *  1. 如果令牌容器在缓存中失效需要重新读取并放入缓存；
      *  2. 准备执行 Lua 脚本的数据；
@@ -80,8 +87,51 @@ public final class TicketAvailabilityTokenBucket {
     private final SeatMapper seatMapper;
     private final TrainMapper trainMapper;
 
-    private static final String LUA_TICKET_AVAILABILITY_TOKEN_BUCKET_PATH = "lua/ticket_availability_token_bucket.lua";
-    private static final String LUA_TICKET_AVAILABILITY_ROLLBACK_TOKEN_BUCKET_PATH = "lua/ticket_availability_rollback_token_bucket.lua";
+    private static final String LUA_TICKET_AVAILABILITY_TOKEN_BUCKET_PATH = "lua/ticket_availability_token_bucket_v2.lua";
+    private static final String LUA_TICKET_AVAILABILITY_ROLLBACK_TOKEN_BUCKET_PATH = "lua/ticket_availability_rollback_token_bucket_v2.lua";
+    private static final String LUA_TICKET_AVAILABILITY_ROLLBACK_TOKEN_BUCKET_BATCH_PATH = "lua/ticket_availability_rollback_token_bucket_batch.lua";
+    private static final String LUA_TICKET_AVAILABILITY_TOKEN_LEASE_PATH = "lua/ticket_availability_token_lease.lua";
+    private static final String LUA_TICKET_AVAILABILITY_TOKEN_LEASE_RELEASE_PATH = "lua/ticket_availability_token_lease_release.lua";
+    private static final String[] LUA_SCRIPT_PATHS = {
+            LUA_TICKET_AVAILABILITY_TOKEN_BUCKET_PATH,
+            LUA_TICKET_AVAILABILITY_ROLLBACK_TOKEN_BUCKET_PATH,
+            LUA_TICKET_AVAILABILITY_ROLLBACK_TOKEN_BUCKET_BATCH_PATH,
+            LUA_TICKET_AVAILABILITY_TOKEN_LEASE_PATH,
+            LUA_TICKET_AVAILABILITY_TOKEN_LEASE_RELEASE_PATH
+    };
+
+    /**
+     * 是否开启节点本地令牌租约，开启后购票优先扣减本地预占的令牌
+     */
+    @Value("${ticket.availability.token-lease.enabled:false}")
+    private boolean tokenLeaseEnabled;
+
+    @Value("${ticket.availability.token-lease.min-size:0}")
+    private int tokenLeaseMinSize;
+
+    @Value("${ticket.availability.token-lease.max-size:20}")
+    private int tokenLeaseMaxSize;
+
+    /**
+     * 租约大小约等于该时间窗口内的购票令牌数
+     */
+    @Value("${ticket.availability.token-lease.window-millis:200}")
+    private long tokenLeaseWindowMillis;
+
+    /**
+     * 租约最多预占剩余令牌的 1 / share-divisor
+     */
+    @Value("${ticket.availability.token-lease.share-divisor:10}")
+    private int tokenLeaseShareDivisor;
+
+    /**
+     * 租约空闲超过该时间归还 Redis
+     */
+    @Value("${ticket.availability.token-lease.idle-millis:1000}")
+    private long tokenLeaseIdleMillis;
+
+    private TicketAvailabilityTokenLeasePool tokenLeasePool;
+    private ScheduledExecutorService tokenLeaseReturnExecutor;
 
     /**
      * 获取车站间令牌桶中的令牌访问
@@ -92,6 +142,13 @@ public final class TicketAvailabilityTokenBucket {
      * @return 是否获取列车车票余量令牌桶中的令牌，{@link Boolean#TRUE} or {@link Boolean#FALSE}
      */
     public boolean takeTokenFromBucket(PurchaseTicketReqDTO requestParam) {
+        // 根据座位类型分组统计
+        Map<Integer, Long> seatTypeCountMap = requestParam.getPassengers().stream()
+                .collect(Collectors.groupingBy(PurchaseTicketPassengerDetailDTO::getSeatType, Collectors.counting()));
+        // 本地租约令牌充足时无需访问 Redis
+        if (tokenLeaseEnabled && tryAcquireFromLease(requestParam, seatTypeCountMap)) {
+            return true;
+        }
         // 获取列车信息
         TrainDO trainDO = distributedCache.safeGet(
                 TRAIN_INFO + requestParam.getTrainId(),
@@ -99,60 +156,18 @@ public final class TicketAvailabilityTokenBucket {
                 () -> trainMapper.selectById(requestParam.getTrainId()),
                 ADVANCE_TICKET_DAY,
                 TimeUnit.DAYS);
-        // 获取列车途径站点信息
-        List<RouteDTO> routeDTOList = trainStationService
-                .listTrainStationRoute(requestParam.getTrainId(), trainDO.getStartStation(), trainDO.getEndStation());
         StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
         String actualHashKey = TICKET_AVAILABILITY_TOKEN_BUCKET + requestParam.getTrainId();
-        Boolean hasKey = distributedCache.hasKey(actualHashKey);
         // 先判断容器是否存在，不存在则需要重新构建
-        if (!hasKey) {
-            RLock lock = redissonClient.getLock(String.format(LOCK_TICKET_AVAILABILITY_TOKEN_BUCKET, requestParam.getTrainId()));
-            lock.lock();
-            try {
-                Boolean hasKeyTwo = distributedCache.hasKey(actualHashKey);
-                if (!hasKeyTwo) {
-                    List<Integer> seatTypes = VehicleTypeEnum.findSeatTypesByCode(trainDO.getTrainType());
-                    Map<String, String> ticketAvailabilityTokenMap = new HashMap<>();
-                    for (RouteDTO each : routeDTOList) {
-                        List<SeatTypeCountDTO> seatTypeCountDTOList = seatMapper.listSeatTypeCount(Long.parseLong(requestParam.getTrainId()), each.getStartStation(), each.getEndStation(), seatTypes);
-                        // 避免多次网络IO，这里组成本地map，最后一次性写入缓存
-                        for (SeatTypeCountDTO eachSeatTypeCountDTO : seatTypeCountDTOList) {
-                            String buildCacheKey = StrUtil.join("_", each.getStartStation(), each.getEndStation(), eachSeatTypeCountDTO.getSeatType());
-                            ticketAvailabilityTokenMap.put(buildCacheKey, String.valueOf(eachSeatTypeCountDTO.getSeatCount()));
-                        }
-                    }
-                    stringRedisTemplate.opsForHash().putAll(TICKET_AVAILABILITY_TOKEN_BUCKET + requestParam.getTrainId(), ticketAvailabilityTokenMap);
-                }
-            } finally {
-                lock.unlock();
-            }
+        initializeTokens(trainDO);
+        if (tokenLeaseEnabled) {
+            return acquireWithLease(requestParam, seatTypeCountMap);
         }
-        // 获取lua脚本
-        DefaultRedisScript<Long> actual = Singleton.get(LUA_TICKET_AVAILABILITY_TOKEN_BUCKET_PATH, () -> {
-            DefaultRedisScript<Long> redisScript = new DefaultRedisScript<>();
-            redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource(LUA_TICKET_AVAILABILITY_TOKEN_BUCKET_PATH)));
-            redisScript.setResultType(Long.class);
-            return redisScript;
-        });
-        // 判空
-        Assert.notNull(actual);
-        // 根据座位类型分组统计
-        Map<Integer, Long> seatTypeCountMap = requestParam.getPassengers().stream()
-                .collect(Collectors.groupingBy(PurchaseTicketPassengerDetailDTO::getSeatType, Collectors.counting()));
-        JSONArray seatTypeCountArray = seatTypeCountMap.entrySet().stream()
-                .map(entry -> {
-                    JSONObject jsonObject = new JSONObject();
-                    jsonObject.put("seatType", String.valueOf(entry.getKey()));
-                    jsonObject.put("count", String.valueOf(entry.getValue()));
-                    return jsonObject;
-                })
-                .collect(Collectors.toCollection(JSONArray::new));
         List<RouteDTO> takeoutRouteDTOList = trainStationService
                 .listTakeoutTrainStationRoute(requestParam.getTrainId(), requestParam.getDeparture(), requestParam.getArrival());
-        String luaScriptKey = StrUtil.join("_", requestParam.getDeparture(), requestParam.getArrival());
-        // 执行lua脚本
-        Long result = stringRedisTemplate.execute(actual, Lists.newArrayList(actualHashKey, luaScriptKey), JSON.toJSONString(seatTypeCountArray), JSON.toJSONString(takeoutRouteDTOList));
+        Object[] args = TicketAvailabilityTokenScriptArgs.build(seatTypeCountMap, requestParam.getDeparture(), requestParam.getArrival(), takeoutRouteDTOList);
+        // 执行lua脚本，RedisTemplate 优先使用 EVALSHA，脚本不存在时自动降级为 EVAL
+        Long result = stringRedisTemplate.execute(getScript(LUA_TICKET_AVAILABILITY_TOKEN_BUCKET_PATH), Collections.singletonList(actualHashKey), args);
         return result != null && Objects.equals(result, 0L);
     }
 
@@ -162,40 +177,258 @@ public final class TicketAvailabilityTokenBucket {
      * @param requestParam 回滚列车余量令牌入参
      */
     public void rollbackInBucket(TicketOrderDetailRespDTO requestParam) {
-        DefaultRedisScript<Long> actual = Singleton.get(LUA_TICKET_AVAILABILITY_ROLLBACK_TOKEN_BUCKET_PATH, () -> {
-            DefaultRedisScript<Long> redisScript = new DefaultRedisScript<>();
-            redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource(LUA_TICKET_AVAILABILITY_ROLLBACK_TOKEN_BUCKET_PATH)));
-            redisScript.setResultType(Long.class);
-            return redisScript;
-        });
-        Assert.notNull(actual);
+        // 本地持有该区间租约时令牌优先归还本地租约，由定时任务统一归还 Redis
+        if (tokenLeaseEnabled) {
+            giveBackToLease(requestParam);
+            return;
+        }
         List<TicketOrderPassengerDetailRespDTO> passengerDetails = requestParam.getPassengerDetails();
         Map<Integer, Long> seatTypeCountMap = passengerDetails.stream()
                 .collect(Collectors.groupingBy(TicketOrderPassengerDetailRespDTO::getSeatType, Collectors.counting()));
-        JSONArray seatTypeCountArray = seatTypeCountMap.entrySet().stream()
-                .map(entry -> {
-                    JSONObject jsonObject = new JSONObject();
-                    jsonObject.put("seatType", String.valueOf(entry.getKey()));
-                    jsonObject.put("count", String.valueOf(entry.getValue()));
-                    return jsonObject;
-                })
-                .collect(Collectors.toCollection(JSONArray::new));
         StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
         String actualHashKey = TICKET_AVAILABILITY_TOKEN_BUCKET + requestParam.getTrainId();
-        String luaScriptKey = StrUtil.join("_", requestParam.getDeparture(), requestParam.getArrival());
         List<RouteDTO> takeoutRouteDTOList = trainStationService.listTakeoutTrainStationRoute(String.valueOf(requestParam.getTrainId()), requestParam.getDeparture(), requestParam.getArrival());
-        Long result = stringRedisTemplate.execute(actual, Lists.newArrayList(actualHashKey, luaScriptKey), JSON.toJSONString(seatTypeCountArray), JSON.toJSONString(takeoutRouteDTOList));
+        Object[] args = TicketAvailabilityTokenScriptArgs.build(seatTypeCountMap, requestParam.getDeparture(), requestParam.getArrival(), takeoutRouteDTOList);
+        Long result = stringRedisTemplate.execute(getScript(LUA_TICKET_AVAILABILITY_ROLLBACK_TOKEN_BUCKET_PATH), Collections.singletonList(actualHashKey), args);
         if (result == null || !Objects.equals(result, 0L)) {
             log.error("回滚列车余票令牌失败，订单信息：{}", JSON.toJSONString(requestParam));
             throw new ServiceException("回滚列车余票令牌失败");
         }
     }
 
-    public void putTokenInBucket() {
+    /**
+     * 批量回滚同一列车多个订单的余量令牌，一般为大量订单超时关闭触发
+     * 所有订单的回滚数量按 站点区间_座位类型 汇总后一次执行 Lua 脚本
+     *
+     * @param trainId      列车 ID
+     * @param orderDetails 同一列车的订单集合
+     */
+    public void rollbackInBucketBatch(String trainId, List<TicketOrderDetailRespDTO> orderDetails) {
+        if (tokenLeaseEnabled) {
+            orderDetails.forEach(this::giveBackToLease);
+            return;
+        }
+        Map<String, Long> fieldCountMap = new HashMap<>();
+        Map<String, List<RouteDTO>> takeoutRouteMap = new HashMap<>();
+        for (TicketOrderDetailRespDTO each : orderDetails) {
+            List<RouteDTO> takeoutRouteDTOList = takeoutRouteMap.computeIfAbsent(
+                    StrUtil.join("_", each.getDeparture(), each.getArrival()),
+                    key -> trainStationService.listTakeoutTrainStationRoute(trainId, each.getDeparture(), each.getArrival()));
+            Map<Integer, Long> seatTypeCountMap = each.getPassengerDetails().stream()
+                    .collect(Collectors.groupingBy(TicketOrderPassengerDetailRespDTO::getSeatType, Collectors.counting()));
+            seatTypeCountMap.forEach((seatType, count) -> takeoutRouteDTOList.forEach(route ->
+                    fieldCountMap.merge(StrUtil.join("_", route.getStartStation(), route.getEndStation(), seatType), count, Long::sum)));
+        }
+        if (fieldCountMap.isEmpty()) {
+            return;
+        }
+        List<String> args = new ArrayList<>(fieldCountMap.size() * 2);
+        fieldCountMap.forEach((field, count) -> {
+            args.add(field);
+            args.add(String.valueOf(count));
+        });
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        Long result = stringRedisTemplate.execute(getScript(LUA_TICKET_AVAILABILITY_ROLLBACK_TOKEN_BUCKET_BATCH_PATH), Collections.singletonList(TICKET_AVAILABILITY_TOKEN_BUCKET + trainId), args.toArray());
+        if (result == null || !Objects.equals(result, 0L)) {
+            log.error("批量回滚列车余票令牌失败，列车ID：{}，订单数量：{}", trainId, orderDetails.size());
+            throw new ServiceException("回滚列车余票令牌失败");
+        }
+    }
 
+    /**
+     * 回滚购票请求已获取的列车余量令牌，一般为购票请求未能下单触发
+     *
+     * @param requestParam 购票请求参数入参
+     */
+    public void rollbackInBucket(PurchaseTicketReqDTO requestParam) {
+        TicketOrderDetailRespDTO ticketOrderDetail = new TicketOrderDetailRespDTO();
+        ticketOrderDetail.setTrainId(Long.parseLong(requestParam.getTrainId()));
+        ticketOrderDetail.setDeparture(requestParam.getDeparture());
+        ticketOrderDetail.setArrival(requestParam.getArrival());
+        ticketOrderDetail.setPassengerDetails(requestParam.getPassengers().stream()
+                .map(each -> TicketOrderPassengerDetailRespDTO.builder().seatType(each.getSeatType()).build())
+                .toList());
+        rollbackInBucket(ticketOrderDetail);
     }
 
-    public void initializeTokens() {
+    @Override
+    public void afterPropertiesSet() {
+        preloadScripts();
+        if (!tokenLeaseEnabled) {
+            return;
+        }
+        tokenLeasePool = new TicketAvailabilityTokenLeasePool(tokenLeaseMinSize, tokenLeaseMaxSize, tokenLeaseWindowMillis);
+        tokenLeaseReturnExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ticket-availability-token-lease-return");
+            thread.setDaemon(true);
+            return thread;
+        });
+        tokenLeaseReturnExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                tokenLeasePool.drainIdle(tokenLeaseIdleMillis, this::releaseLease);
+            } catch (Throwable ex) {
+                log.error("归还空闲列车余票令牌租约失败", ex);
+            }
+        }, tokenLeaseIdleMillis, tokenLeaseIdleMillis, TimeUnit.MILLISECONDS);
+    }
 
+    @Override
+    public void destroy() {
+        if (!tokenLeaseEnabled) {
+            return;
+        }
+        tokenLeaseReturnExecutor.shutdown();
+        tokenLeasePool.drainAll(this::releaseLease);
+    }
+
+    private boolean tryAcquireFromLease(PurchaseTicketReqDTO requestParam, Map<Integer, Long> seatTypeCountMap) {
+        List<Map.Entry<Integer, Long>> acquiredList = new ArrayList<>(seatTypeCountMap.size());
+        for (Map.Entry<Integer, Long> entry : seatTypeCountMap.entrySet()) {
+            String leaseKey = buildLeaseKey(requestParam.getTrainId(), requestParam.getDeparture(), requestParam.getArrival(), entry.getKey());
+            if (!tokenLeasePool.tryAcquire(leaseKey, entry.getValue().intValue())) {
+                giveBackAcquired(requestParam, acquiredList);
+                return false;
+            }
+            acquiredList.add(entry);
+        }
+        return true;
+    }
+
+    private boolean acquireWithLease(PurchaseTicketReqDTO requestParam, Map<Integer, Long> seatTypeCountMap) {
+        String trainId = requestParam.getTrainId();
+        List<RouteDTO> takeoutRouteDTOList = trainStationService.listTakeoutTrainStationRoute(trainId, requestParam.getDeparture(), requestParam.getArrival());
+        List<Map.Entry<Integer, Long>> acquiredList = new ArrayList<>(seatTypeCountMap.size());
+        for (Map.Entry<Integer, Long> entry : seatTypeCountMap.entrySet()) {
+            Integer seatType = entry.getKey();
+            String leaseKey = buildLeaseKey(trainId, requestParam.getDeparture(), requestParam.getArrival(), seatType);
+            boolean acquired = tokenLeasePool.acquire(leaseKey, entry.getValue().intValue(),
+                    (required, leaseSize) -> grantLease(trainId, requestParam.getDeparture(), requestParam.getArrival(), seatType, takeoutRouteDTOList, required, leaseSize));
+            if (!acquired) {
+                giveBackAcquired(requestParam, acquiredList);
+                return false;
+            }
+            acquiredList.add(entry);
+        }
+        return true;
+    }
+
+    private void giveBackAcquired(PurchaseTicketReqDTO requestParam, List<Map.Entry<Integer, Long>> acquiredList) {
+        acquiredList.forEach(each -> {
+            String leaseKey = buildLeaseKey(requestParam.getTrainId(), requestParam.getDeparture(), requestParam.getArrival(), each.getKey());
+            if (!tokenLeasePool.giveBack(leaseKey, each.getValue().intValue())) {
+                releaseLease(leaseKey, each.getValue().intValue());
+            }
+        });
+    }
+
+    private void giveBackToLease(TicketOrderDetailRespDTO requestParam) {
+        Map<Integer, Long> seatTypeCountMap = requestParam.getPassengerDetails().stream()
+                .collect(Collectors.groupingBy(TicketOrderPassengerDetailRespDTO::getSeatType, Collectors.counting()));
+        String trainId = String.valueOf(requestParam.getTrainId());
+        for (Map.Entry<Integer, Long> entry : seatTypeCountMap.entrySet()) {
+            String leaseKey = buildLeaseKey(trainId, requestParam.getDeparture(), requestParam.getArrival(), entry.getKey());
+            if (!tokenLeasePool.giveBack(leaseKey, entry.getValue().intValue())) {
+                releaseLease(leaseKey, entry.getValue().intValue());
+            }
+        }
+    }
+
+    private int grantLease(String trainId, String departure, String arrival, Integer seatType, List<RouteDTO> takeoutRouteDTOList, int required, int leaseSize) {
+        DefaultRedisScript<Long> actual = getScript(LUA_TICKET_AVAILABILITY_TOKEN_LEASE_PATH);
+        List<String> args = new ArrayList<>(takeoutRouteDTOList.size() + 4);
+        args.add(StrUtil.join("_", departure, arrival, seatType));
+        args.add(String.valueOf(required));
+        args.add(String.valueOf(leaseSize));
+        args.add(String.valueOf(Math.max(tokenLeaseShareDivisor, 1)));
+        takeoutRouteDTOList.forEach(each -> args.add(StrUtil.join("_", each.getStartStation(), each.getEndStation(), seatType)));
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        Long granted = stringRedisTemplate.execute(actual, Lists.newArrayList(TICKET_AVAILABILITY_TOKEN_BUCKET + trainId), args.toArray());
+        return granted == null ? -1 : granted.intValue();
+    }
+
+    private void releaseLease(String leaseKey, Integer count) {
+        DefaultRedisScript<Long> actual = getScript(LUA_TICKET_AVAILABILITY_TOKEN_LEASE_RELEASE_PATH);
+        // 租约标识：列车ID_出发站_到达站_座位类型
+        List<String> leaseKeyParts = StrUtil.split(leaseKey, '_');
+        String trainId = leaseKeyParts.get(0);
+        String seatType = leaseKeyParts.get(3);
+        List<RouteDTO> takeoutRouteDTOList = trainStationService.listTakeoutTrainStationRoute(trainId, leaseKeyParts.get(1), leaseKeyParts.get(2));
+        List<String> args = new ArrayList<>(takeoutRouteDTOList.size() + 1);
+        args.add(String.valueOf(count));
+        takeoutRouteDTOList.forEach(each -> args.add(StrUtil.join("_", each.getStartStation(), each.getEndStation(), seatType)));
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        stringRedisTemplate.execute(actual, Lists.newArrayList(TICKET_AVAILABILITY_TOKEN_BUCKET + trainId), args.toArray());
+    }
+
+    /**
+     * 启动时通过 SCRIPT LOAD 预加载脚本，避免首次 EVALSHA 返回 NOSCRIPT 后再传输完整脚本
+     */
+    private void preloadScripts() {
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        for (String each : LUA_SCRIPT_PATHS) {
+            DefaultRedisScript<Long> script = getScript(each);
+            try {
+                byte[] scriptBytes = script.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+                stringRedisTemplate.execute((RedisCallback<String>) connection -> connection.scriptingCommands().scriptLoad(scriptBytes));
+            } catch (Throwable ex) {
+                log.warn("预加载列车余量令牌桶 Lua 脚本失败，首次执行时加载，脚本：{}", each, ex);
+            }
+        }
+    }
+
+    private static DefaultRedisScript<Long> getScript(String scriptPath) {
+        return Singleton.get(scriptPath, () -> {
+            DefaultRedisScript<Long> redisScript = new DefaultRedisScript<>();
+            redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource(scriptPath)));
+            redisScript.setResultType(Long.class);
+            return redisScript;
+        });
+    }
+
+    private static String buildLeaseKey(Object trainId, String departure, String arrival, Integer seatType) {
+        return StrUtil.join("_", trainId, departure, arrival, seatType);
+    }
+
+    /**
+     * 列车余量令牌桶不存在时构建令牌桶，购票请求以及开售前预热任务共用
+     *
+     * @param trainDO 列车信息
+     */
+    public void initializeTokens(TrainDO trainDO) {
+        String actualHashKey = TICKET_AVAILABILITY_TOKEN_BUCKET + trainDO.getId();
+        if (distributedCache.hasKey(actualHashKey)) {
+            return;
+        }
+        RLock lock = redissonClient.getLock(String.format(LOCK_TICKET_AVAILABILITY_TOKEN_BUCKET, trainDO.getId()));
+        lock.lock();
+        try {
+            if (!distributedCache.hasKey(actualHashKey)) {
+                putTokenInBucket(trainDO);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 按列车座位余量写入令牌桶，一次聚合查询获取所有站点区间座位类型余量，避免多次网络IO，组成本地map后一次性写入缓存
+     * 会覆盖已有令牌，仅在令牌桶不存在时调用
+     */
+    private void putTokenInBucket(TrainDO trainDO) {
+        String trainId = String.valueOf(trainDO.getId());
+        List<RouteDTO> routeDTOList = trainStationService.listTrainStationRoute(trainId, trainDO.getStartStation(), trainDO.getEndStation());
+        Set<String> routeKeys = routeDTOList.stream()
+                .map(each -> StrUtil.join("_", each.getStartStation(), each.getEndStation()))
+                .collect(Collectors.toSet());
+        List<Integer> seatTypes = VehicleTypeEnum.findSeatTypesByCode(trainDO.getTrainType());
+        Map<String, String> ticketAvailabilityTokenMap = new HashMap<>();
+        for (RouteSeatTypeCountDTO each : seatMapper.listRouteSeatTypeCount(trainDO.getId(), seatTypes)) {
+            if (each.getSeatCount() > 0 && routeKeys.contains(StrUtil.join("_", each.getStartStation(), each.getEndStation()))) {
+                String buildCacheKey = StrUtil.join("_", each.getStartStation(), each.getEndStation(), each.getSeatType());
+                ticketAvailabilityTokenMap.put(buildCacheKey, String.valueOf(each.getSeatCount()));
+            }
+        }
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        stringRedisTemplate.opsForHash().putAll(TICKET_AVAILABILITY_TOKEN_BUCKET + trainId, ticketAvailabilityTokenMap);
     }
 }
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.tokenbucket;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * 节点本地令牌租约池
+ * <p>
+ * 每个节点按 列车_出发站_到达站_座位类型 从 Redis 令牌桶中批量预占一批令牌，之后的购票请求直接扣减本地计数器，无需访问 Redis
+ * 租约大小根据最近一段时间的购票速率自适应调整，长时间未使用的租约由定时任务归还 Redis，避免余票被单个节点长期占用
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+public final class TicketAvailabilityTokenLeasePool {
+
+    /**
+     * 从 Redis 令牌桶预占令牌
+     */
+    @FunctionalInterface
+    public interface LeaseGrant {
+
+        /**
+         * 预占令牌
+         *
+         * @param required  本次购票必须的令牌数量
+         * @param leaseSize 额外预占的租约令牌数量上限
+         * @return 实际预占令牌数量，余量不足返回 -1
+         */
+        int grant(int required, int leaseSize);
+    }
+
+    private final int minLeaseSize;
+    private final int maxLeaseSize;
+
+    /**
+     * 租约期望覆盖的购票时间窗口，租约大小约等于该窗口内的购票令牌数
+     */
+    private final long leaseWindowMillis;
+
+    private final Map<String, TokenLease> leaseMap = new ConcurrentHashMap<>();
+
+    public TicketAvailabilityTokenLeasePool(int minLeaseSize, int maxLeaseSize, long leaseWindowMillis) {
+        this.minLeaseSize = Math.max(minLeaseSize, 0);
+        this.maxLeaseSize = Math.max(maxLeaseSize, this.minLeaseSize);
+        this.leaseWindowMillis = Math.max(leaseWindowMillis, 1L);
+    }
+
+    /**
+     * 仅从本地租约获取令牌，不访问 Redis
+     *
+     * @param leaseKey 租约标识
+     * @param count    令牌数量
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(String leaseKey, int count) {
+        TokenLease lease = leaseMap.get(leaseKey);
+        return lease != null && lease.tryAcquire(count);
+    }
+
+    /**
+     * 获取令牌，本地租约不足时从 Redis 预占本次所需令牌以及下一批租约令牌
+     *
+     * @param leaseKey   租约标识
+     * @param count      令牌数量
+     * @param leaseGrant Redis 预占令牌
+     * @return 是否获取成功
+     */
+    public boolean acquire(String leaseKey, int count, LeaseGrant leaseGrant) {
+        TokenLease lease = leaseMap.computeIfAbsent(leaseKey, key -> new TokenLease(minLeaseSize));
+        lease.recordDemand(count);
+        if (lease.tryAcquire(count)) {
+            return true;
+        }
+        int granted = leaseGrant.grant(count, lease.nextLeaseSize(System.currentTimeMillis()));
+        if (granted < count) {
+            return false;
+        }
+        lease.release(granted - count);
+        return true;
+    }
+
+    /**
+     * 令牌优先归还本地租约
+     *
+     * @param leaseKey 租约标识
+     * @param count    令牌数量
+     * @return 本地不存在该租约时返回 false，需要直接归还 Redis
+     */
+    public boolean giveBack(String leaseKey, int count) {
+        TokenLease lease = leaseMap.get(leaseKey);
+        if (lease == null) {
+            return false;
+        }
+        lease.release(count);
+        return true;
+    }
+
+    /**
+     * 归还超过空闲时间未使用的租约令牌
+     *
+     * @param idleMillis 空闲时间
+     * @param returner   租约标识、令牌数量 -> 归还 Redis
+     */
+    public void drainIdle(long idleMillis, BiConsumer<String, Integer> returner) {
+        long now = System.currentTimeMillis();
+        leaseMap.forEach((leaseKey, lease) -> {
+            if (now - lease.lastAccessTime >= idleMillis) {
+                drain(leaseKey, lease, returner);
+            }
+        });
+    }
+
+    /**
+     * 归还全部租约令牌，一般在节点下线时调用
+     *
+     * @param returner 租约标识、令牌数量 -> 归还 Redis
+     */
+    public void drainAll(BiConsumer<String, Integer> returner) {
+        leaseMap.forEach((leaseKey, lease) -> drain(leaseKey, lease, returner));
+    }
+
+    private void drain(String leaseKey, TokenLease lease, BiConsumer<String, Integer> returner) {
+        int tokens = lease.available.getAndSet(0);
+        leaseMap.remove(leaseKey, lease);
+        // 移除前可能有并发归还的令牌，再次清空
+        tokens += lease.available.getAndSet(0);
+        if (tokens > 0) {
+            returner.accept(leaseKey, tokens);
+        }
+    }
+
+    private final class TokenLease {
+
+        private final AtomicInteger available = new AtomicInteger();
+        private final AtomicInteger demand = new AtomicInteger();
+        private volatile long windowStartTime = System.currentTimeMillis();
+        private volatile long lastAccessTime = System.currentTimeMillis();
+        private volatile int leaseSize;
+
+        private TokenLease(int leaseSize) {
+            this.leaseSize = leaseSize;
+        }
+
+        private boolean tryAcquire(int count) {
+            lastAccessTime = System.currentTimeMillis();
+            for (; ; ) {
+                int current = available.get();
+                if (current < count) {
+                    return false;
+                }
+                if (available.compareAndSet(current, current - count)) {
+                    return true;
+                }
+            }
+        }
+
+        private void release(int count) {
+            if (count > 0) {
+                available.addAndGet(count);
+            }
+        }
+
+        private void recordDemand(int count) {
+            demand.addAndGet(count);
+        }
+
+        /**
+         * 按上次续约以来的购票速率估算下一批租约大小，与上次租约大小取平均平滑抖动
+         */
+        private int nextLeaseSize(long now) {
+            long elapsed = Math.max(now - windowStartTime, 1L);
+            windowStartTime = now;
+            long expected = demand.getAndSet(0) * leaseWindowMillis / elapsed;
+            int actualLeaseSize = (int) Math.min(Math.max((leaseSize + expected) / 2, minLeaseSize), maxLeaseSize);
+            leaseSize = actualLeaseSize;
+            return actualLeaseSize;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.tokenbucket;
+
+import org.opengoofy.index12306.biz.ticketservice.dto.domain.RouteDTO;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 列车余量令牌桶 Lua 脚本位置参数构建
+ * <p>
+ * 参数直接按 Hash field 平铺，避免每次调用构建 JSON 对象以及 Lua 侧 cjson 反序列化
+ * 格式：座位类型数量 n、途径站点区间数量 m，之后每种座位类型一组 m + 2 个参数：出发站_到达站_座位类型、数量、m 个途径站点区间_座位类型
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+public final class TicketAvailabilityTokenScriptArgs {
+
+    private TicketAvailabilityTokenScriptArgs() {
+    }
+
+    /**
+     * 构建扣减、回滚令牌 Lua 脚本参数
+     *
+     * @param seatTypeCountMap    座位类型 -> 数量
+     * @param departure           出发站点
+     * @param arrival             到达站点
+     * @param takeoutRouteDTOList 需要扣减的途径站点区间
+     * @return 脚本 ARGV
+     */
+    public static Object[] build(Map<Integer, Long> seatTypeCountMap, String departure, String arrival, List<RouteDTO> takeoutRouteDTOList) {
+        int routeSize = takeoutRouteDTOList.size();
+        Object[] args = new Object[2 + seatTypeCountMap.size() * (routeSize + 2)];
+        args[0] = String.valueOf(seatTypeCountMap.size());
+        args[1] = String.valueOf(routeSize);
+        int index = 2;
+        for (Map.Entry<Integer, Long> entry : seatTypeCountMap.entrySet()) {
+            String seatTypeSuffix = "_" + entry.getKey();
+            args[index++] = departure + "_" + arrival + seatTypeSuffix;
+            args[index++] = String.valueOf(entry.getValue());
+            for (int i = 0; i < routeSize; i++) {
+                RouteDTO route = takeoutRouteDTOList.get(i);
+                args[index++] = route.getStartStation() + "_" + route.getEndStation() + seatTypeSuffix;
+            }
+        }
+        return args;
+    }
+}
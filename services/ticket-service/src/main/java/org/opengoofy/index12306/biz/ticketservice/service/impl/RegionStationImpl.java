@@ -33,6 +33,7 @@ import org.opengoofy.index12306.biz.ticketservice.dto.resp.RegionStationQueryRes
 import org.opengoofy.index12306.biz.ticketservice.dto.resp.StationQueryRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.service.RegionStationService;
 import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
+import org.opengoofy.index12306.framework.starter.cache.MultistageCache;
 import org.opengoofy.index12306.framework.starter.cache.core.CacheLoader;
 import org.opengoofy.index12306.framework.starter.cache.toolkit.CacheUtil;
 import org.opengoofy.index12306.framework.starter.common.enums.FlagEnum;
@@ -62,6 +63,7 @@ public class RegionStationImpl implements RegionStationService {
     private final RegionMapper regionMapper;
     private final StationMapper stationMapper;
     private final DistributedCache distributedCache;
+    private final MultistageCache multistageCache;
     private final RedissonClient redissonClient;
 
     @Override
@@ -112,7 +114,7 @@ public class RegionStationImpl implements RegionStationService {
 
     @Override
     public List<StationQueryRespDTO> listAllStation() {
-        return distributedCache.safeGet(
+        return multistageCache.safeGet(
                 STATION_ALL,
                 List.class,
                 () -> BeanUtil.convert(stationMapper.selectList(Wrappers.emptyWrapper()), StationQueryRespDTO.class),
@@ -20,25 +20,43 @@ package org.opengoofy.index12306.biz.ticketservice.service.impl;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.google.common.collect.Lists;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.opengoofy.index12306.biz.ticketservice.common.enums.SeatStatusEnum;
 import org.opengoofy.index12306.biz.ticketservice.dao.entity.SeatDO;
 import org.opengoofy.index12306.biz.ticketservice.dao.mapper.SeatMapper;
+import org.opengoofy.index12306.biz.ticketservice.dao.mapper.SeatSegmentMapper;
 import org.opengoofy.index12306.biz.ticketservice.dto.domain.RouteDTO;
 import org.opengoofy.index12306.biz.ticketservice.service.SeatService;
 import org.opengoofy.index12306.biz.ticketservice.service.TrainStationService;
+import org.opengoofy.index12306.biz.ticketservice.service.cache.SeatSegmentCacheLoader;
 import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TrainPurchaseTicketRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.toolkit.SeatSegmentUtil;
+import org.opengoofy.index12306.framework.starter.bases.Singleton;
 import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
+import org.opengoofy.index12306.framework.starter.convention.exception.ServiceException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.TRAIN_SEAT_SEGMENT;
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.TRAIN_SEAT_SEGMENT_VERSION;
 import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.TRAIN_STATION_CARRIAGE_REMAINING_TICKET;
 
 /**
@@ -46,6 +64,7 @@ import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKe
  *
  * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class SeatServiceImpl extends ServiceImpl<SeatMapper, SeatDO> implements SeatService {
@@ -53,6 +72,15 @@ public class SeatServiceImpl extends ServiceImpl<SeatMapper, SeatDO> implements
     private final SeatMapper seatMapper;
     private final TrainStationService trainStationService;
     private final DistributedCache distributedCache;
+    private final SeatSegmentMapper seatSegmentMapper;
+    private final SeatSegmentCacheLoader seatSegmentCacheLoader;
+
+    @Value("${ticket.availability.cache-update.type:}")
+    private String ticketAvailabilityCacheUpdateType;
+
+    private static final String LUA_SEAT_SEGMENT_OCCUPY_PATH = "lua/seat_segment_occupy.lua";
+    private static final String LUA_SEAT_SEGMENT_RELEASE_PATH = "lua/seat_segment_release.lua";
+    private static final Long SEAT_SEGMENT_NOT_LOADED = -1L;
 
     @Override
     public List<String> listAvailableSeat(String trainId, String carriageNumber, Integer seatType, String departure, String arrival) {
@@ -103,35 +131,159 @@ public class SeatServiceImpl extends ServiceImpl<SeatMapper, SeatDO> implements
 
     @Override
     public void lockSeat(String trainId, String departure, String arrival, List<TrainPurchaseTicketRespDTO> trainPurchaseTicketRespList) {
-        List<RouteDTO> routeList = trainStationService.listTakeoutTrainStationRoute(trainId, departure, arrival);
-        trainPurchaseTicketRespList.forEach(each -> routeList.forEach(item -> {
-            LambdaUpdateWrapper<SeatDO> updateWrapper = Wrappers.lambdaUpdate(SeatDO.class)
-                    .eq(SeatDO::getTrainId, trainId)
-                    .eq(SeatDO::getCarriageNumber, each.getCarriageNumber())
-                    .eq(SeatDO::getStartStation, item.getStartStation())
-                    .eq(SeatDO::getEndStation, item.getEndStation())
-                    .eq(SeatDO::getSeatNumber, each.getSeatNumber());
-            SeatDO updateSeatDO = SeatDO.builder()
-                    .seatStatus(SeatStatusEnum.LOCKED.getCode())
-                    .build();
-            seatMapper.update(updateSeatDO, updateWrapper);
-        }));
+        // 出发站到到达站区间以当前状态为可售作为乐观校验，受影响行数不等于座位数说明座位已被他人锁定
+        RouteDTO purchaseRoute = new RouteDTO(departure, arrival);
+        int lockedCount = changeSeatStatus(trainId, List.of(purchaseRoute), trainPurchaseTicketRespList, SeatStatusEnum.AVAILABLE, SeatStatusEnum.LOCKED);
+        if (lockedCount != trainPurchaseTicketRespList.size()) {
+            throw new ServiceException("座位已被占用，请重新选择");
+        }
+        // 沿途站点区间可能已被其他区间的车票锁定，无需校验状态
+        List<RouteDTO> alongRouteList = trainStationService.listTakeoutTrainStationRoute(trainId, departure, arrival).stream()
+                .filter(each -> !Objects.equals(each, purchaseRoute))
+                .toList();
+        changeSeatStatus(trainId, alongRouteList, trainPurchaseTicketRespList, null, SeatStatusEnum.LOCKED);
+        // 余票由座位区段占用位图计算时，需要同步占用座位区段
+        if (StrUtil.equals(ticketAvailabilityCacheUpdateType, "segment") && !occupySeatSegment(trainId, departure, arrival, trainPurchaseTicketRespList)) {
+            throw new ServiceException("座位已被占用，请重新选择");
+        }
     }
 
     @Override
     public void unlock(String trainId, String departure, String arrival, List<TrainPurchaseTicketRespDTO> trainPurchaseTicketResults) {
+        if (StrUtil.equals(ticketAvailabilityCacheUpdateType, "segment")) {
+            releaseSeatSegment(trainId, departure, arrival, trainPurchaseTicketResults);
+        }
         List<RouteDTO> routeList = trainStationService.listTakeoutTrainStationRoute(trainId, departure, arrival);
-        trainPurchaseTicketResults.forEach(each -> routeList.forEach(item -> {
-            LambdaUpdateWrapper<SeatDO> updateWrapper = Wrappers.lambdaUpdate(SeatDO.class)
-                    .eq(SeatDO::getTrainId, trainId)
-                    .eq(SeatDO::getCarriageNumber, each.getCarriageNumber())
-                    .eq(SeatDO::getStartStation, item.getStartStation())
-                    .eq(SeatDO::getEndStation, item.getEndStation())
-                    .eq(SeatDO::getSeatNumber, each.getSeatNumber());
-            SeatDO updateSeatDO = SeatDO.builder()
-                    .seatStatus(SeatStatusEnum.AVAILABLE.getCode())
-                    .build();
-            seatMapper.update(updateSeatDO, updateWrapper);
-        }));
+        changeSeatStatus(trainId, routeList, trainPurchaseTicketResults, null, SeatStatusEnum.AVAILABLE);
+    }
+
+    @Override
+    public void unlockBatch(String trainId, Map<RouteDTO, List<TrainPurchaseTicketRespDTO>> routeSeatMap) {
+        List<SeatDO> seatRoutes = new ArrayList<>();
+        routeSeatMap.forEach((route, trainPurchaseTicketResults) -> {
+            if (StrUtil.equals(ticketAvailabilityCacheUpdateType, "segment")) {
+                releaseSeatSegment(trainId, route.getStartStation(), route.getEndStation(), trainPurchaseTicketResults);
+            }
+            // 不同出发站到达站的座位沿途区间不同，按 座位 + 站点区间 逐条组装，不能取座位与区间的笛卡尔积
+            trainStationService.listTakeoutTrainStationRoute(trainId, route.getStartStation(), route.getEndStation()).forEach(each ->
+                    trainPurchaseTicketResults.forEach(seat -> seatRoutes.add(SeatDO.builder()
+                            .carriageNumber(seat.getCarriageNumber())
+                            .seatNumber(seat.getSeatNumber())
+                            .startStation(each.getStartStation())
+                            .endStation(each.getEndStation())
+                            .build())));
+        });
+        if (CollUtil.isNotEmpty(seatRoutes)) {
+            seatMapper.updateSeatRouteStatusBatch(Long.parseLong(trainId), seatRoutes, SeatStatusEnum.AVAILABLE.getCode());
+        }
+    }
+
+    @Override
+    public int changeSeatStatus(String trainId, List<RouteDTO> routes, List<TrainPurchaseTicketRespDTO> seats, SeatStatusEnum fromStatus, SeatStatusEnum toStatus) {
+        if (CollUtil.isEmpty(routes) || CollUtil.isEmpty(seats)) {
+            return 0;
+        }
+        return seatMapper.updateSeatStatusBatch(
+                Long.parseLong(trainId),
+                seats,
+                routes,
+                fromStatus == null ? null : fromStatus.getCode(),
+                toStatus.getCode());
+    }
+
+    @Override
+    public List<String> listAvailableSeatBySegment(String trainId, String carriageNumber, Integer seatType, String departure, String arrival) {
+        List<String> stations = seatSegmentCacheLoader.listOrderedStation(trainId);
+        long mask = SeatSegmentUtil.segmentMask(stations, departure, arrival);
+        String fieldPrefix = StrUtil.join("_", seatType, carriageNumber) + "_";
+        List<String> availableSeats = new ArrayList<>();
+        seatSegmentCacheLoader.loadCarriage(trainId, stations.size() - 1, seatType, carriageNumber).forEach((field, occupancy) -> {
+            String seat = field.toString();
+            if (seat.startsWith(fieldPrefix) && SeatSegmentUtil.isAvailable(SeatSegmentUtil.parseBitString(occupancy.toString()), mask)) {
+                availableSeats.add(seat.substring(fieldPrefix.length()));
+            }
+        });
+        availableSeats.sort(Comparator.naturalOrder());
+        return availableSeats;
+    }
+
+    @Override
+    public boolean occupySeatSegment(String trainId, String departure, String arrival, List<TrainPurchaseTicketRespDTO> trainPurchaseTicketRespList) {
+        List<String> stations = seatSegmentCacheLoader.listOrderedStation(trainId);
+        int startIndex = stations.indexOf(departure);
+        int endIndex = stations.indexOf(arrival);
+        long mask = SeatSegmentUtil.segmentMask(startIndex, endIndex);
+        if (mask == 0L) {
+            throw new ServiceException("出发站或到达站不合法");
+        }
+        Long result = executeSeatSegmentScript(LUA_SEAT_SEGMENT_OCCUPY_PATH, trainId, startIndex, endIndex, trainPurchaseTicketRespList);
+        // 座位区段缓存未加载时才加载，已加载时单次 Lua 脚本调用即可完成占用
+        if (Objects.equals(result, SEAT_SEGMENT_NOT_LOADED)) {
+            seatSegmentCacheLoader.load(trainId, stations.size() - 1);
+            result = executeSeatSegmentScript(LUA_SEAT_SEGMENT_OCCUPY_PATH, trainId, startIndex, endIndex, trainPurchaseTicketRespList);
+        }
+        if (!Objects.equals(result, 0L)) {
+            return false;
+        }
+        // 缓存中已占用成功，数据库按座位逐条占用，任一座位占用失败则回滚已占用的区段
+        List<TrainPurchaseTicketRespDTO> occupiedList = new ArrayList<>();
+        for (TrainPurchaseTicketRespDTO each : trainPurchaseTicketRespList) {
+            int updated = seatSegmentMapper.occupySegment(Long.parseLong(trainId), each.getCarriageNumber(), each.getSeatNumber(), mask);
+            if (updated != 1) {
+                log.error("座位区段占用失败，列车：{}，车厢：{}，座位：{}", trainId, each.getCarriageNumber(), each.getSeatNumber());
+                occupiedList.forEach(item -> seatSegmentMapper.releaseSegment(Long.parseLong(trainId), item.getCarriageNumber(), item.getSeatNumber(), mask));
+                executeSeatSegmentScript(LUA_SEAT_SEGMENT_RELEASE_PATH, trainId, startIndex, endIndex, trainPurchaseTicketRespList);
+                return false;
+            }
+            occupiedList.add(each);
+        }
+        // 数据库区段占用随调用方事务回滚，缓存区段占用需在事务未提交时同步释放，否则座位在缓存中永久不可售
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        try {
+                            executeSeatSegmentScript(LUA_SEAT_SEGMENT_RELEASE_PATH, trainId, startIndex, endIndex, trainPurchaseTicketRespList);
+                        } catch (Throwable ex) {
+                            log.error("事务回滚释放座位区段缓存失败，列车：{}，出发站：{}，到达站：{}", trainId, departure, arrival, ex);
+                        }
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    @Override
+    public void releaseSeatSegment(String trainId, String departure, String arrival, List<TrainPurchaseTicketRespDTO> trainPurchaseTicketResults) {
+        List<String> stations = seatSegmentCacheLoader.listOrderedStation(trainId);
+        int startIndex = stations.indexOf(departure);
+        int endIndex = stations.indexOf(arrival);
+        long mask = SeatSegmentUtil.segmentMask(startIndex, endIndex);
+        if (mask == 0L) {
+            throw new ServiceException("出发站或到达站不合法");
+        }
+        trainPurchaseTicketResults.forEach(each -> seatSegmentMapper.releaseSegment(Long.parseLong(trainId), each.getCarriageNumber(), each.getSeatNumber(), mask));
+        if (distributedCache.hasKey(TRAIN_SEAT_SEGMENT + trainId)) {
+            executeSeatSegmentScript(LUA_SEAT_SEGMENT_RELEASE_PATH, trainId, startIndex, endIndex, trainPurchaseTicketResults);
+        }
+    }
+
+    private Long executeSeatSegmentScript(String scriptPath, String trainId, int startIndex, int endIndex, List<TrainPurchaseTicketRespDTO> trainPurchaseTicketRespList) {
+        DefaultRedisScript<Long> actual = Singleton.get(scriptPath, () -> {
+            DefaultRedisScript<Long> redisScript = new DefaultRedisScript<>();
+            redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource(scriptPath)));
+            redisScript.setResultType(Long.class);
+            return redisScript;
+        });
+        // Lua 字符串下标从 1 开始，区段 [startIndex, endIndex) 对应位串 [startIndex + 1, endIndex]
+        List<String> args = new ArrayList<>(trainPurchaseTicketRespList.size() + 2);
+        args.add(String.valueOf(startIndex + 1));
+        args.add(String.valueOf(endIndex));
+        trainPurchaseTicketRespList.forEach(each -> args.add(SeatSegmentCacheLoader.buildField(each.getSeatType(), each.getCarriageNumber(), each.getSeatNumber())));
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        return stringRedisTemplate.execute(actual, Lists.newArrayList(TRAIN_SEAT_SEGMENT + trainId, TRAIN_SEAT_SEGMENT_VERSION + trainId), args.toArray());
     }
 }
@@ -31,7 +31,6 @@ import com.google.common.collect.Lists;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.opengoofy.index12306.biz.ticketservice.common.enums.RefundTypeEnum;
-import org.opengoofy.index12306.biz.ticketservice.common.enums.SourceEnum;
 import org.opengoofy.index12306.biz.ticketservice.common.enums.TicketChainMarkEnum;
 import org.opengoofy.index12306.biz.ticketservice.common.enums.TicketStatusEnum;
 import org.opengoofy.index12306.biz.ticketservice.common.enums.VehicleTypeEnum;
@@ -55,34 +54,45 @@ import org.opengoofy.index12306.biz.ticketservice.dto.req.RefundTicketReqDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.req.TicketOrderItemQueryReqDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.req.TicketPageQueryReqDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.resp.RefundTicketRespDTO;
-import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketOrderDetailRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPageQueryRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPurchaseAcceptRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPurchaseRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPurchaseStatusRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.remote.PayRemoteService;
 import org.opengoofy.index12306.biz.ticketservice.remote.TicketOrderRemoteService;
 import org.opengoofy.index12306.biz.ticketservice.remote.dto.PayInfoRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.remote.dto.RefundReqDTO;
 import org.opengoofy.index12306.biz.ticketservice.remote.dto.RefundRespDTO;
-import org.opengoofy.index12306.biz.ticketservice.remote.dto.TicketOrderCreateRemoteReqDTO;
-import org.opengoofy.index12306.biz.ticketservice.remote.dto.TicketOrderItemCreateRemoteReqDTO;
 import org.opengoofy.index12306.biz.ticketservice.remote.dto.TicketOrderPassengerDetailRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.service.SeatService;
 import org.opengoofy.index12306.biz.ticketservice.service.TicketService;
 import org.opengoofy.index12306.biz.ticketservice.service.TrainStationService;
 import org.opengoofy.index12306.biz.ticketservice.service.cache.SeatMarginCacheLoader;
+import org.opengoofy.index12306.biz.ticketservice.service.cache.SeatSegmentCacheLoader;
+import org.opengoofy.index12306.biz.ticketservice.service.cache.TicketRegionSnapshot;
+import org.opengoofy.index12306.biz.ticketservice.service.cache.TicketRegionSnapshotLoader;
+import org.opengoofy.index12306.biz.ticketservice.service.cache.TrainSeatAvailabilitySnapshotLoader;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.async.TicketPurchaseAsyncDispatcher;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TicketPurchaseReservationDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TicketPurchaseTaskDTO;
 import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TrainPurchaseTicketRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.saga.TicketPurchaseSaga;
 import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.select.TrainSeatTypeSelector;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.sequencer.TicketPurchaseSequencer;
 import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.tokenbucket.TicketAvailabilityTokenBucket;
 import org.opengoofy.index12306.biz.ticketservice.toolkit.DateUtil;
 import org.opengoofy.index12306.biz.ticketservice.toolkit.TimeStringComparator;
 import org.opengoofy.index12306.framework.starter.bases.ApplicationContextHolder;
 import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
+import org.opengoofy.index12306.framework.starter.cache.MultistageCache;
 import org.opengoofy.index12306.framework.starter.cache.toolkit.CacheUtil;
 import org.opengoofy.index12306.framework.starter.common.toolkit.BeanUtil;
 import org.opengoofy.index12306.framework.starter.convention.exception.ServiceException;
 import org.opengoofy.index12306.framework.starter.convention.result.Result;
 import org.opengoofy.index12306.framework.starter.designpattern.chain.AbstractChainContext;
+import org.opengoofy.index12306.framework.starter.distributedid.toolkit.SnowflakeIdUtil;
 import org.opengoofy.index12306.frameworks.starter.user.core.UserContext;
+import org.opengoofy.index12306.frameworks.starter.user.core.UserInfoDTO;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.annotation.Value;
@@ -91,7 +101,9 @@ import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -104,6 +116,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
@@ -134,6 +147,7 @@ public class TicketServiceImpl extends ServiceImpl<TicketMapper, TicketDO> imple
     private final TrainStationRelationMapper trainStationRelationMapper;
     private final TrainStationPriceMapper trainStationPriceMapper;
     private final DistributedCache distributedCache;
+    private final MultistageCache multistageCache;
     private final TicketOrderRemoteService ticketOrderRemoteService;
     private final PayRemoteService payRemoteService;
     private final StationMapper stationMapper;
@@ -141,18 +155,26 @@ public class TicketServiceImpl extends ServiceImpl<TicketMapper, TicketDO> imple
     private final TrainStationService trainStationService;
     private final TrainSeatTypeSelector trainSeatTypeSelector;
     private final SeatMarginCacheLoader seatMarginCacheLoader;
+    private final SeatSegmentCacheLoader seatSegmentCacheLoader;
+    private final TicketRegionSnapshotLoader ticketRegionSnapshotLoader;
     private final AbstractChainContext<TicketPageQueryReqDTO> ticketPageQueryAbstractChainContext;
     private final AbstractChainContext<PurchaseTicketReqDTO> purchaseTicketAbstractChainContext;
     private final AbstractChainContext<RefundTicketReqDTO> refundReqDTOAbstractChainContext;
     private final RedissonClient redissonClient;
     private final ConfigurableEnvironment environment;
     private final TicketAvailabilityTokenBucket ticketAvailabilityTokenBucket;
+    private final TicketPurchaseSequencer ticketPurchaseSequencer;
+    private final TicketPurchaseAsyncDispatcher ticketPurchaseAsyncDispatcher;
+    private final TicketPurchaseSaga ticketPurchaseSaga;
+    private final TrainSeatAvailabilitySnapshotLoader trainSeatAvailabilitySnapshotLoader;
     private TicketService ticketService;
 
     @Value("${ticket.availability.cache-update.type:}")
     private String ticketAvailabilityCacheUpdateType;
     @Value("${framework.cache.redis.prefix:}")
     private String cacheRedisPrefix;
+    @Value("${ticket.purchase.sequencer.enabled:false}")
+    private boolean purchaseSequencerEnabled;
 
     @Override
     public TicketPageQueryRespDTO pageListTicketQueryV1(TicketPageQueryReqDTO requestParam) {
@@ -203,14 +225,19 @@ public class TicketServiceImpl extends ServiceImpl<TicketMapper, TicketDO> imple
                             .eq(TrainStationRelationDO::getStartRegion, stationDetails.get(0))
                             .eq(TrainStationRelationDO::getEndRegion, stationDetails.get(1));
                     List<TrainStationRelationDO> trainStationRelationList = trainStationRelationMapper.selectList(queryWrapper);
-                    for (TrainStationRelationDO each : trainStationRelationList) {
-                        // 通过车次id获取车次
-                        TrainDO trainDO = distributedCache.safeGet(
-                                TRAIN_INFO + each.getTrainId(),
-                                TrainDO.class,
-                                () -> trainMapper.selectById(each.getTrainId()),
-                                ADVANCE_TICKET_DAY,
-                                TimeUnit.DAYS);
+                    // 一次网络 IO 批量获取车次，未命中的车次通过一次数据库查询加载并批量写回缓存
+                    List<String> trainInfoKeys = trainStationRelationList.stream().map(each -> TRAIN_INFO + each.getTrainId()).toList();
+                    List<TrainDO> trainDOList = distributedCache.safeMultiGet(
+                            trainInfoKeys,
+                            TrainDO.class,
+                            missingKeys -> trainMapper.selectBatchIds(missingKeys.stream().map(each -> Long.parseLong(each.substring(TRAIN_INFO.length()))).toList())
+                                    .stream()
+                                    .collect(Collectors.toMap(each -> TRAIN_INFO + each.getId(), each -> each)),
+                            ADVANCE_TICKET_DAY,
+                            TimeUnit.DAYS);
+                    for (int i = 0; i < trainStationRelationList.size(); i++) {
+                        TrainStationRelationDO each = trainStationRelationList.get(i);
+                        TrainDO trainDO = trainDOList.get(i);
                         // 构造车次实体
                         TicketListDTO result = new TicketListDTO();
                         result.setTrainId(String.valueOf(trainDO.getId()));
@@ -245,29 +272,35 @@ public class TicketServiceImpl extends ServiceImpl<TicketMapper, TicketDO> imple
                 ? regionTrainStationAllMap.values().stream().map(each -> JSON.parseObject(each.toString(), TicketListDTO.class)).toList()
                 : seatResults;
         seatResults = seatResults.stream().sorted(new TimeStringComparator()).toList();
+        boolean segmentRemaining = StrUtil.equals(ticketAvailabilityCacheUpdateType, "segment");
+        if (segmentRemaining) {
+            seatSegmentCacheLoader.refresh(seatResults.stream().map(TicketListDTO::getTrainId).toList());
+        }
+        // 加载列车对应的座位价格数据，一次网络 IO 批量获取，未命中的价格通过一次数据库查询加载并批量写回缓存
+        Map<String, TicketListDTO> trainStationPriceKeyMap = seatResults.stream()
+                .collect(Collectors.toMap(each -> String.format(TRAIN_STATION_PRICE, each.getTrainId(), each.getDeparture(), each.getArrival()), each -> each, (v1, v2) -> v1));
+        List<String> trainStationPriceKeys = seatResults.stream()
+                .map(each -> String.format(TRAIN_STATION_PRICE, each.getTrainId(), each.getDeparture(), each.getArrival()))
+                .toList();
+        List<String> trainStationPriceStrList = distributedCache.safeMultiGet(
+                trainStationPriceKeys,
+                String.class,
+                missingKeys -> loadTrainStationPrices(missingKeys, trainStationPriceKeyMap),
+                ADVANCE_TICKET_DAY,
+                TimeUnit.DAYS);
         // 余票查询逻辑
-        for (TicketListDTO each : seatResults) {
-            // 加载列车对应的座位价格数据
-            // safeGet 就是安全获取缓存方案，底层加了分布式锁和双重判定锁
-            // 如果查询 TRAIN_STATION_PRICE 数据为空，则加载数据库，并放入缓存
-            String trainStationPriceStr = distributedCache.safeGet(
-                    String.format(TRAIN_STATION_PRICE, each.getTrainId(), each.getDeparture(), each.getArrival()),
-                    String.class,
-                    () -> {
-                        LambdaQueryWrapper<TrainStationPriceDO> trainStationPriceQueryWrapper = Wrappers.lambdaQuery(TrainStationPriceDO.class)
-                                .eq(TrainStationPriceDO::getDeparture, each.getDeparture())
-                                .eq(TrainStationPriceDO::getArrival, each.getArrival())
-                                .eq(TrainStationPriceDO::getTrainId, each.getTrainId());
-                        return JSON.toJSONString(trainStationPriceMapper.selectList(trainStationPriceQueryWrapper));
-                    },
-                    ADVANCE_TICKET_DAY,
-                    TimeUnit.DAYS
-            );
-            List<TrainStationPriceDO> trainStationPriceDOList = JSON.parseArray(trainStationPriceStr, TrainStationPriceDO.class);
+        for (int i = 0; i < seatResults.size(); i++) {
+            TicketListDTO each = seatResults.get(i);
+            List<TrainStationPriceDO> trainStationPriceDOList = JSON.parseArray(trainStationPriceStrList.get(i), TrainStationPriceDO.class);
             List<SeatClassDTO> seatClassList = new ArrayList<>();
             trainStationPriceDOList.forEach(item -> {
                 // 循环遍历座位价格数据，获取到座位对应的余票，并最终放入到列车基本信息中
                 String seatType = String.valueOf(item.getSeatType());
+                if (segmentRemaining) {
+                    int quantity = seatSegmentCacheLoader.remainingTicket(each.getTrainId(), item.getSeatType(), item.getDeparture(), item.getArrival());
+                    seatClassList.add(new SeatClassDTO(item.getSeatType(), quantity, new BigDecimal(item.getPrice()).divide(new BigDecimal("100"), 1, RoundingMode.HALF_UP), false));
+                    return;
+                }
                 String keySuffix = StrUtil.join("_", each.getTrainId(), item.getDeparture(), item.getArrival());
                 Object quantityObj = stringRedisTemplate.opsForHash().get(TRAIN_STATION_REMAINING_TICKET + keySuffix, seatType);
                 int quantity = Optional.ofNullable(quantityObj)
@@ -290,6 +323,23 @@ public class TicketServiceImpl extends ServiceImpl<TicketMapper, TicketDO> imple
                 .build();
     }
 
+    /**
+     * 一次数据库查询加载多个车次区间的座位价格，没有价格数据的区间同样返回空集合，与逐个加载时写入的缓存内容保持一致
+     */
+    private Map<String, String> loadTrainStationPrices(List<String> missingKeys, Map<String, TicketListDTO> trainStationPriceKeyMap) {
+        List<TicketListDTO> missingTickets = missingKeys.stream().map(trainStationPriceKeyMap::get).toList();
+        LambdaQueryWrapper<TrainStationPriceDO> queryWrapper = Wrappers.lambdaQuery(TrainStationPriceDO.class)
+                .in(TrainStationPriceDO::getTrainId, missingTickets.stream().map(TicketListDTO::getTrainId).collect(Collectors.toSet()))
+                .in(TrainStationPriceDO::getDeparture, missingTickets.stream().map(TicketListDTO::getDeparture).collect(Collectors.toSet()))
+                .in(TrainStationPriceDO::getArrival, missingTickets.stream().map(TicketListDTO::getArrival).collect(Collectors.toSet()));
+        // 出发站、到达站集合交叉可能查出未请求的区间，按缓存 Key 分组后只返回未命中的 Key
+        Map<String, List<TrainStationPriceDO>> trainStationPriceMap = trainStationPriceMapper.selectList(queryWrapper).stream()
+                .collect(Collectors.groupingBy(each -> String.format(TRAIN_STATION_PRICE, each.getTrainId(), each.getDeparture(), each.getArrival())));
+        Map<String, String> result = new HashMap<>();
+        missingKeys.forEach(each -> result.put(each, JSON.toJSONString(trainStationPriceMap.getOrDefault(each, new ArrayList<>()))));
+        return result;
+    }
+
     // 通过binlog同步更新余票缓存
     @Override
     public TicketPageQueryRespDTO pageListTicketQueryV2(TicketPageQueryReqDTO requestParam) {
@@ -308,28 +358,34 @@ public class TicketServiceImpl extends ServiceImpl<TicketMapper, TicketDO> imple
                 .sorted(new TimeStringComparator())
                 .toList();
         List<String> trainStationPriceKeys = seatResults.stream()
-                .map(each -> String.format(cacheRedisPrefix + TRAIN_STATION_PRICE, each.getTrainId(), each.getDeparture(), each.getArrival()))
+                .map(each -> String.format(TRAIN_STATION_PRICE, each.getTrainId(), each.getDeparture(), each.getArrival()))
                 .toList();
-        List<Object> trainStationPriceObjs = stringRedisTemplate.executePipelined((RedisCallback<String>) connection -> {
-            trainStationPriceKeys.forEach(each -> connection.stringCommands().get(each.getBytes()));
-            return null;
-        });
+        List<String> trainStationPriceObjs = distributedCache.multiGet(trainStationPriceKeys, String.class);
         List<TrainStationPriceDO> trainStationPriceDOList = new ArrayList<>();
         List<String> trainStationRemainingKeyList = new ArrayList<>();
-        for (Object each : trainStationPriceObjs) {
-            List<TrainStationPriceDO> trainStationPriceList = JSON.parseArray(each.toString(), TrainStationPriceDO.class);
+        for (String each : trainStationPriceObjs) {
+            List<TrainStationPriceDO> trainStationPriceList = JSON.parseArray(each, TrainStationPriceDO.class);
             trainStationPriceDOList.addAll(trainStationPriceList);
             for (TrainStationPriceDO item : trainStationPriceList) {
                 String trainStationRemainingKey = cacheRedisPrefix + TRAIN_STATION_REMAINING_TICKET + StrUtil.join("_", item.getTrainId(), item.getDeparture(), item.getArrival());
                 trainStationRemainingKeyList.add(trainStationRemainingKey);
             }
         }
-        List<Object> TrainStationRemainingObjs = stringRedisTemplate.executePipelined((RedisCallback<String>) connection -> {
-            for (int i = 0; i < trainStationRemainingKeyList.size(); i++) {
-                connection.hashCommands().hGet(trainStationRemainingKeyList.get(i).getBytes(), trainStationPriceDOList.get(i).getSeatType().toString().getBytes());
-            }
-            return null;
-        });
+        List<Object> TrainStationRemainingObjs;
+        if (StrUtil.equals(ticketAvailabilityCacheUpdateType, "segment")) {
+            // 余票由座位区段占用位图计算，一次网络 IO 校验所有列车本地副本版本，余票在本地计算
+            seatSegmentCacheLoader.refresh(seatResults.stream().map(TicketListDTO::getTrainId).toList());
+            TrainStationRemainingObjs = trainStationPriceDOList.stream()
+                    .map(each -> (Object) seatSegmentCacheLoader.remainingTicket(String.valueOf(each.getTrainId()), each.getSeatType(), each.getDeparture(), each.getArrival()))
+                    .collect(Collectors.toList());
+        } else {
+            TrainStationRemainingObjs = stringRedisTemplate.executePipelined((RedisCallback<String>) connection -> {
+                for (int i = 0; i < trainStationRemainingKeyList.size(); i++) {
+                    connection.hashCommands().hGet(trainStationRemainingKeyList.get(i).getBytes(), trainStationPriceDOList.get(i).getSeatType().toString().getBytes());
+                }
+                return null;
+            });
+        }
         for (TicketListDTO each : seatResults) {
             List<Integer> seatTypesByCode = VehicleTypeEnum.findSeatTypesByCode(each.getTrainType());
             List<Object> remainingTicket = new ArrayList<>(TrainStationRemainingObjs.subList(0, seatTypesByCode.size()));
@@ -358,6 +414,47 @@ public class TicketServiceImpl extends ServiceImpl<TicketMapper, TicketDO> imple
                 .build();
     }
 
+    @Override
+    public TicketPageQueryRespDTO pageListTicketQueryV3(TicketPageQueryReqDTO requestParam) {
+        // 责任链模式 验证城市名称是否存在、不存在加载缓存以及出发日期不能小于当前日期等等
+        ticketPageQueryAbstractChainContext.handler(TicketChainMarkEnum.TRAIN_QUERY_FILTER.name(), requestParam);
+        // 列车、票价以及筛选条件来自本地快照，快照在后台定时重建，查询时只读取余票
+        TicketRegionSnapshot snapshot = ticketRegionSnapshotLoader.load(requestParam.getFromStation(), requestParam.getToStation());
+        int seatClassCount = snapshot.seatClassCount();
+        int[] quantities = new int[seatClassCount];
+        if (seatClassCount == 0) {
+            return snapshot.toResponse(quantities);
+        }
+        if (StrUtil.equals(ticketAvailabilityCacheUpdateType, "segment")) {
+            seatSegmentCacheLoader.refresh(snapshot.getTrainIds());
+            for (int i = 0; i < seatClassCount; i++) {
+                TicketListDTO train = snapshot.getTrain(i);
+                quantities[i] = seatSegmentCacheLoader.remainingTicket(train.getTrainId(), snapshot.getSeatType(i), train.getDeparture(), train.getArrival());
+            }
+            return snapshot.toResponse(quantities);
+        }
+        StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
+        // 一次网络 IO 读取所有座位类型余票
+        List<Object> trainStationRemainingObjs = stringRedisTemplate.executePipelined((RedisCallback<String>) connection -> {
+            for (int i = 0; i < seatClassCount; i++) {
+                connection.hashCommands().hGet(snapshot.getRemainingKey(i), snapshot.getRemainingField(i));
+            }
+            return null;
+        });
+        for (int i = 0; i < seatClassCount; i++) {
+            Object quantityObj = trainStationRemainingObjs.get(i);
+            if (quantityObj != null) {
+                quantities[i] = Integer.parseInt(quantityObj.toString());
+                continue;
+            }
+            TicketListDTO train = snapshot.getTrain(i);
+            String seatType = String.valueOf(snapshot.getSeatType(i));
+            Map<String, String> seatMarginMap = seatMarginCacheLoader.load(train.getTrainId(), seatType, train.getDeparture(), train.getArrival());
+            quantities[i] = Optional.ofNullable(seatMarginMap.get(seatType)).map(Integer::parseInt).orElse(0);
+        }
+        return snapshot.toResponse(quantities);
+    }
+
     @Override
     public TicketPurchaseRespDTO purchaseTicketsV1(PurchaseTicketReqDTO requestParam) {
         // 责任链模式，验证 1：参数必填 2：参数正确性 3：乘客是否已买当前车次等...
@@ -366,12 +463,15 @@ public class TicketServiceImpl extends ServiceImpl<TicketMapper, TicketDO> imple
         // 写了详细的 v2 版本购票升级指南，欢迎查阅 https://nageoffer.com/12306/question
         String lockKey = environment.resolvePlaceholders(String.format(LOCK_PURCHASE_TICKETS, requestParam.getTrainId()));
         RLock lock = redissonClient.getLock(lockKey);
-        lock.lock();
-        try {
-            return ticketService.executePurchaseTickets(requestParam);
-        } finally {
-            lock.unlock();
-        }
+        // 座位锁定以及车票写入提交并释放购票锁后再创建订单
+        return ticketPurchaseSaga.execute(() -> {
+            lock.lock();
+            try {
+                return ticketService.reservePurchaseTickets(requestParam);
+            } finally {
+                lock.unlock();
+            }
+        });
     }
 
     private final Cache<String, ReentrantLock> localLockMap = Caffeine.newBuilder()
@@ -388,11 +488,85 @@ public class TicketServiceImpl extends ServiceImpl<TicketMapper, TicketDO> imple
         }
         // v1 版本购票存在 4 个较为严重的问题，v2 版本相比较 v1 版本更具有业务特点以及性能，整体提升较大
         // 写了详细的 v2 版本购票升级指南，欢迎查阅 https://nageoffer.com/12306/question
+        return executePurchaseTicketsWithLock(requestParam);
+    }
+
+    @Override
+    public TicketPurchaseAcceptRespDTO purchaseTicketsAsync(PurchaseTicketReqDTO requestParam) {
+        // 责任链模式，验证 1：参数必填 2：参数正确性 3：乘客是否已买当前车次等...
+        purchaseTicketAbstractChainContext.handler(TicketChainMarkEnum.TRAIN_PURCHASE_TICKET_FILTER.name(), requestParam);
+        boolean tokenResult = ticketAvailabilityTokenBucket.takeTokenFromBucket(requestParam);
+        if (!tokenResult) {
+            throw new ServiceException("列车站点已无余票");
+        }
+        // 获取令牌后投递到购票队列，请求线程不参与锁竞争
+        try {
+            String purchaseSn = ticketPurchaseAsyncDispatcher.dispatch(requestParam, this::executePurchaseTicketsWithLock);
+            return new TicketPurchaseAcceptRespDTO(purchaseSn);
+        } catch (RejectedExecutionException ex) {
+            ticketAvailabilityTokenBucket.rollbackInBucket(requestParam);
+            throw new ServiceException("当前购票人数过多，请稍后再试");
+        }
+    }
+
+    @Override
+    public TicketPurchaseStatusRespDTO queryPurchaseStatus(String purchaseSn) {
+        return ticketPurchaseAsyncDispatcher.queryStatus(purchaseSn);
+    }
+
+    private TicketPurchaseRespDTO executePurchaseTicketsWithLock(PurchaseTicketReqDTO requestParam) {
         List<ReentrantLock> localLockList = new ArrayList<>();
         List<RLock> distributedLockList = new ArrayList<>();
         // 通过座位类型分组，获取到每个座位类型对应的乘客信息
         Map<Integer, List<PurchaseTicketPassengerDetailDTO>> seatTypeMap = requestParam.getPassengers().stream()
                 .collect(Collectors.groupingBy(PurchaseTicketPassengerDetailDTO::getSeatType));
+        // 开启购票定序器后，单一座位类型的购票请求按列车座位类型排队，合并为批次处理
+        if (purchaseSequencerEnabled && seatTypeMap.size() == 1) {
+            Integer seatType = seatTypeMap.keySet().iterator().next();
+            String lockKey = environment.resolvePlaceholders(String.format(LOCK_PURCHASE_TICKETS_V2, requestParam.getTrainId(), seatType));
+            UserInfoDTO user = UserInfoDTO.builder()
+                    .userId(UserContext.getUserId())
+                    .username(UserContext.getUsername())
+                    .realName(UserContext.getRealName())
+                    .token(UserContext.getToken())
+                    .build();
+            return ticketPurchaseSequencer.submit(lockKey, new TicketPurchaseTaskDTO(requestParam, user), batch -> {
+                RLock distributedLock = redissonClient.getFairLock(lockKey);
+                distributedLock.lock();
+                try {
+                    ticketService.reservePurchaseTicketsBatch(batch);
+                } catch (Throwable ex) {
+                    log.error("购票定序器批次预留座位失败，排队标识：{}，批次大小：{}", lockKey, batch.size(), ex);
+                    // 批次事务已回滚，已设置的座位预留同样无效
+                    batch.forEach(each -> {
+                        each.setReservation(null);
+                        if (each.getException() == null) {
+                            each.setException(ex);
+                        }
+                    });
+                } finally {
+                    try {
+                        distributedLock.unlock();
+                    } catch (Throwable ignored) {
+                    }
+                }
+                // 预留座位失败的请求未进入 Saga 补偿，需逐个归还已获取的令牌
+                batch.stream()
+                        .filter(each -> each.getException() != null)
+                        .forEach(each -> rollbackTokenQuietly(each.getRequestParam()));
+                // 批次事务已提交并释放购票锁，逐个创建订单，单个订单失败仅补偿对应请求
+                batch.stream()
+                        .filter(each -> each.getReservation() != null && each.getException() == null)
+                        .forEach(each -> runWithUser(each.getUser(), () -> {
+                            each.getReservation().setTokenTaken(true);
+                            try {
+                                each.setResult(ticketPurchaseSaga.createOrder(each.getReservation()));
+                            } catch (Throwable ex) {
+                                each.setException(ex);
+                            }
+                        }));
+            });
+        }
         // 构造本地锁和分布式锁
         seatTypeMap.forEach((searType, count) -> {
             String lockKey = environment.resolvePlaceholders(String.format(LOCK_PURCHASE_TICKETS_V2, requestParam.getTrainId(), searType));
@@ -410,33 +584,42 @@ public class TicketServiceImpl extends ServiceImpl<TicketMapper, TicketDO> imple
             RLock distributedLock = redissonClient.getFairLock(lockKey);
             distributedLockList.add(distributedLock);
         });
-        try {
-            localLockList.forEach(ReentrantLock::lock);
-            distributedLockList.forEach(RLock::lock);
-            return ticketService.executePurchaseTickets(requestParam);
-        } finally {
-            localLockList.forEach(localLock -> {
-                try {
-                    localLock.unlock();
-                } catch (Throwable ignored) {
-                }
-            });
-            distributedLockList.forEach(distributedLock -> {
-                try {
-                    distributedLock.unlock();
-                } catch (Throwable ignored) {
-                }
-            });
-        }
+        // 座位锁定以及车票写入提交并释放购票锁后再创建订单
+        return ticketPurchaseSaga.execute(() -> {
+            try {
+                localLockList.forEach(ReentrantLock::lock);
+                distributedLockList.forEach(RLock::lock);
+                TicketPurchaseReservationDTO reservation = ticketService.reservePurchaseTickets(requestParam);
+                // 调用方已获取列车余量令牌，创建订单失败时由 Saga 补偿归还
+                reservation.setTokenTaken(true);
+                return reservation;
+            } catch (RuntimeException ex) {
+                // 预留座位失败的请求未进入 Saga 补偿，需归还已获取的令牌
+                rollbackTokenQuietly(requestParam);
+                throw ex;
+            } finally {
+                localLockList.forEach(localLock -> {
+                    try {
+                        localLock.unlock();
+                    } catch (Throwable ignored) {
+                    }
+                });
+                distributedLockList.forEach(distributedLock -> {
+                    try {
+                        distributedLock.unlock();
+                    } catch (Throwable ignored) {
+                    }
+                });
+            }
+        });
     }
 
     @Override
     @Transactional(rollbackFor = Throwable.class)
-    public TicketPurchaseRespDTO executePurchaseTickets(PurchaseTicketReqDTO requestParam) {
-        List<TicketOrderDetailRespDTO> ticketOrderDetailResults = new ArrayList<>();
+    public TicketPurchaseReservationDTO reservePurchaseTickets(PurchaseTicketReqDTO requestParam) {
         String trainId = requestParam.getTrainId();
         // 节假日高并发购票Redis能扛得住么？详情查看：https://nageoffer.com/12306/question
-        TrainDO trainDO = distributedCache.safeGet(
+        TrainDO trainDO = multistageCache.safeGet(
                 TRAIN_INFO + trainId,
                 TrainDO.class,
                 () -> trainMapper.selectById(trainId),
@@ -444,9 +627,148 @@ public class TicketServiceImpl extends ServiceImpl<TicketMapper, TicketDO> imple
                 TimeUnit.DAYS);
         // 选择座位
         List<TrainPurchaseTicketRespDTO> trainPurchaseTicketResults = trainSeatTypeSelector.select(trainDO.getTrainType(), requestParam);
-        List<TicketDO> ticketDOList = trainPurchaseTicketResults.stream()
+        // 批量提交
+        List<TicketDO> ticketDOList = buildTicketDOList(requestParam, UserContext.getUsername(), trainPurchaseTicketResults);
+        saveBatch(ticketDOList);
+        return buildReservation(requestParam, trainDO, trainPurchaseTicketResults, ticketDOList);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Throwable.class)
+    public void reservePurchaseTicketsBatch(List<TicketPurchaseTaskDTO> tasks) {
+        String trainId = tasks.get(0).getRequestParam().getTrainId();
+        TrainDO trainDO = multistageCache.safeGet(
+                TRAIN_INFO + trainId,
+                TrainDO.class,
+                () -> trainMapper.selectById(trainId),
+                ADVANCE_TICKET_DAY,
+                TimeUnit.DAYS);
+        // 同一批次共用座位快照依次分配座位，前序请求分配的座位从快照中排除，单个请求分配失败不影响其它请求
+        List<TicketPurchaseTaskDTO> allocatedTasks = new ArrayList<>(tasks.size());
+        List<List<TrainPurchaseTicketRespDTO>> allocatedResults = new ArrayList<>(tasks.size());
+        trainSeatAvailabilitySnapshotLoader.beginBatch();
+        try {
+            for (TicketPurchaseTaskDTO each : tasks) {
+                PurchaseTicketReqDTO requestParam = each.getRequestParam();
+                runWithUser(each.getUser(), () -> {
+                    try {
+                        List<TrainPurchaseTicketRespDTO> trainPurchaseTicketResults = trainSeatTypeSelector.allocate(trainDO.getTrainType(), requestParam);
+                        trainSeatAvailabilitySnapshotLoader.occupyInBatch(trainId, requestParam.getDeparture(), requestParam.getArrival(), trainPurchaseTicketResults);
+                        allocatedTasks.add(each);
+                        allocatedResults.add(trainPurchaseTicketResults);
+                    } catch (Throwable ex) {
+                        each.setException(ex);
+                    }
+                });
+            }
+        } finally {
+            trainSeatAvailabilitySnapshotLoader.endBatch();
+        }
+        if (allocatedTasks.isEmpty()) {
+            return;
+        }
+        // 相同出发站、到达站的座位合并为一次锁定
+        Map<String, List<Integer>> routeTaskIndexMap = new HashMap<>();
+        for (int i = 0; i < allocatedTasks.size(); i++) {
+            PurchaseTicketReqDTO requestParam = allocatedTasks.get(i).getRequestParam();
+            routeTaskIndexMap.computeIfAbsent(requestParam.getDeparture() + "_" + requestParam.getArrival(), key -> new ArrayList<>()).add(i);
+        }
+        // 每次锁定前创建保存点，锁定失败只回滚本次锁定；合并锁定失败时逐个请求重新锁定，仅冲突的请求失败
+        TransactionStatus transactionStatus = TransactionAspectSupport.currentTransactionStatus();
+        try {
+            routeTaskIndexMap.values().forEach(each -> {
+                Throwable routeException = lockSeatWithSavepoint(transactionStatus, trainId, each, allocatedTasks, allocatedResults);
+                if (routeException == null) {
+                    return;
+                }
+                if (each.size() == 1) {
+                    allocatedTasks.get(each.get(0)).setException(routeException);
+                    return;
+                }
+                each.forEach(index -> {
+                    Throwable taskException = lockSeatWithSavepoint(transactionStatus, trainId, List.of(index), allocatedTasks, allocatedResults);
+                    if (taskException != null) {
+                        allocatedTasks.get(index).setException(taskException);
+                    }
+                });
+            });
+        } finally {
+            trainSeatAvailabilitySnapshotLoader.invalidate(trainId);
+        }
+        List<Integer> lockedIndexes = new ArrayList<>(allocatedTasks.size());
+        for (int i = 0; i < allocatedTasks.size(); i++) {
+            if (allocatedTasks.get(i).getException() == null) {
+                lockedIndexes.add(i);
+            }
+        }
+        if (lockedIndexes.isEmpty()) {
+            return;
+        }
+        // 批次内所有车票一次批量写入
+        Map<Integer, List<TicketDO>> taskTicketMap = new HashMap<>();
+        lockedIndexes.forEach(index -> {
+            TicketPurchaseTaskDTO each = allocatedTasks.get(index);
+            taskTicketMap.put(index, buildTicketDOList(each.getRequestParam(), each.getUser().getUsername(), allocatedResults.get(index)));
+        });
+        saveBatch(lockedIndexes.stream().flatMap(index -> taskTicketMap.get(index).stream()).toList());
+        lockedIndexes.forEach(index -> {
+            TicketPurchaseTaskDTO each = allocatedTasks.get(index);
+            each.setReservation(buildReservation(each.getRequestParam(), trainDO, allocatedResults.get(index), taskTicketMap.get(index)));
+        });
+    }
+
+    /**
+     * 在保存点内锁定同一区间多个请求的座位，锁定失败回滚到保存点
+     *
+     * @return 锁定失败的异常，锁定成功返回 null
+     */
+    private Throwable lockSeatWithSavepoint(TransactionStatus transactionStatus, String trainId, List<Integer> taskIndexes,
+                                            List<TicketPurchaseTaskDTO> allocatedTasks, List<List<TrainPurchaseTicketRespDTO>> allocatedResults) {
+        PurchaseTicketReqDTO requestParam = allocatedTasks.get(taskIndexes.get(0)).getRequestParam();
+        List<TrainPurchaseTicketRespDTO> trainPurchaseTicketResults = taskIndexes.stream()
+                .flatMap(index -> allocatedResults.get(index).stream())
+                .toList();
+        Object savepoint = transactionStatus.createSavepoint();
+        try {
+            seatService.lockSeat(trainId, requestParam.getDeparture(), requestParam.getArrival(), trainPurchaseTicketResults);
+            transactionStatus.releaseSavepoint(savepoint);
+            return null;
+        } catch (Throwable ex) {
+            transactionStatus.rollbackToSavepoint(savepoint);
+            return ex;
+        }
+    }
+
+    /**
+     * 以指定用户上下文执行，结束后恢复当前线程原有的用户上下文
+     * 定序器线程池饱和时批次由请求线程执行，不能直接清理请求线程自身的用户上下文
+     */
+    private static void runWithUser(UserInfoDTO user, Runnable action) {
+        UserInfoDTO previousUser = UserContext.getUser();
+        UserContext.setUser(user);
+        try {
+            action.run();
+        } finally {
+            if (previousUser != null) {
+                UserContext.setUser(previousUser);
+            } else {
+                UserContext.removeUser();
+            }
+        }
+    }
+
+    private void rollbackTokenQuietly(PurchaseTicketReqDTO requestParam) {
+        try {
+            ticketAvailabilityTokenBucket.rollbackInBucket(requestParam);
+        } catch (Throwable ex) {
+            log.error("归还列车余票令牌失败，请求参数：{}", JSON.toJSONString(requestParam), ex);
+        }
+    }
+
+    private List<TicketDO> buildTicketDOList(PurchaseTicketReqDTO requestParam, String username, List<TrainPurchaseTicketRespDTO> trainPurchaseTicketResults) {
+        return trainPurchaseTicketResults.stream()
                 .map(each -> TicketDO.builder()
-                        .username(UserContext.getUsername())
+                        .username(username)
                         .trainId(Long.parseLong(requestParam.getTrainId()))
                         .carriageNumber(each.getCarriageNumber())
                         .seatNumber(each.getSeatNumber())
@@ -454,66 +776,16 @@ public class TicketServiceImpl extends ServiceImpl<TicketMapper, TicketDO> imple
                         .ticketStatus(TicketStatusEnum.UNPAID.getCode())
                         .build())
                 .toList();
-        // 批量提交
-        saveBatch(ticketDOList);
-        Result<String> ticketOrderResult;
-        try {
-            List<TicketOrderItemCreateRemoteReqDTO> orderItemCreateRemoteReqDTOList = new ArrayList<>();
-            trainPurchaseTicketResults.forEach(each -> {
-                TicketOrderItemCreateRemoteReqDTO orderItemCreateRemoteReqDTO = TicketOrderItemCreateRemoteReqDTO.builder()
-                        .amount(each.getAmount())
-                        .carriageNumber(each.getCarriageNumber())
-                        .seatNumber(each.getSeatNumber())
-                        .idCard(each.getIdCard())
-                        .idType(each.getIdType())
-                        .phone(each.getPhone())
-                        .seatType(each.getSeatType())
-                        .ticketType(each.getUserType())
-                        .realName(each.getRealName())
-                        .build();
-                TicketOrderDetailRespDTO ticketOrderDetailRespDTO = TicketOrderDetailRespDTO.builder()
-                        .amount(each.getAmount())
-                        .carriageNumber(each.getCarriageNumber())
-                        .seatNumber(each.getSeatNumber())
-                        .idCard(each.getIdCard())
-                        .idType(each.getIdType())
-                        .seatType(each.getSeatType())
-                        .ticketType(each.getUserType())
-                        .realName(each.getRealName())
-                        .build();
-                orderItemCreateRemoteReqDTOList.add(orderItemCreateRemoteReqDTO);
-                ticketOrderDetailResults.add(ticketOrderDetailRespDTO);
-            });
-            LambdaQueryWrapper<TrainStationRelationDO> queryWrapper = Wrappers.lambdaQuery(TrainStationRelationDO.class)
-                    .eq(TrainStationRelationDO::getTrainId, trainId)
-                    .eq(TrainStationRelationDO::getDeparture, requestParam.getDeparture())
-                    .eq(TrainStationRelationDO::getArrival, requestParam.getArrival());
-            TrainStationRelationDO trainStationRelationDO = trainStationRelationMapper.selectOne(queryWrapper);
-            TicketOrderCreateRemoteReqDTO orderCreateRemoteReqDTO = TicketOrderCreateRemoteReqDTO.builder()
-                    .departure(requestParam.getDeparture())
-                    .arrival(requestParam.getArrival())
-                    .orderTime(new Date())
-                    .source(SourceEnum.INTERNET.getCode())
-                    .trainNumber(trainDO.getTrainNumber())
-                    .departureTime(trainStationRelationDO.getDepartureTime())
-                    .arrivalTime(trainStationRelationDO.getArrivalTime())
-                    .ridingDate(trainStationRelationDO.getDepartureTime())
-                    .userId(UserContext.getUserId())
-                    .username(UserContext.getUsername())
-                    .trainId(Long.parseLong(requestParam.getTrainId()))
-                    .ticketOrderItems(orderItemCreateRemoteReqDTOList)
-                    .build();
-            // 远程调用订单服务创建订单
-            ticketOrderResult = ticketOrderRemoteService.createTicketOrder(orderCreateRemoteReqDTO);
-            if (!ticketOrderResult.isSuccess() || StrUtil.isBlank(ticketOrderResult.getData())) {
-                log.error("订单服务调用失败，返回结果：{}", ticketOrderResult.getMessage());
-                throw new ServiceException("订单服务调用失败");
-            }
-        } catch (Throwable ex) {
-            log.error("远程调用订单服务创建错误，请求参数：{}", JSON.toJSONString(requestParam), ex);
-            throw ex;
-        }
-        return new TicketPurchaseRespDTO(ticketOrderResult.getData(), ticketOrderDetailResults);
+    }
+
+    private TicketPurchaseReservationDTO buildReservation(PurchaseTicketReqDTO requestParam, TrainDO trainDO, List<TrainPurchaseTicketRespDTO> trainPurchaseTicketResults, List<TicketDO> ticketDOList) {
+        return TicketPurchaseReservationDTO.builder()
+                .requestId(SnowflakeIdUtil.nextIdStr())
+                .requestParam(requestParam)
+                .trainDO(trainDO)
+                .trainPurchaseTicketResults(trainPurchaseTicketResults)
+                .ticketIds(ticketDOList.stream().map(TicketDO::getId).toList())
+                .build();
     }
 
     @Override
@@ -538,6 +810,9 @@ public class TicketServiceImpl extends ServiceImpl<TicketMapper, TicketDO> imple
                 throw ex;
             }
             ticketAvailabilityTokenBucket.rollbackInBucket(ticketOrderDetail);
+            if (StrUtil.equals(ticketAvailabilityCacheUpdateType, "segment")) {
+                return;
+            }
             try {
                 StringRedisTemplate stringRedisTemplate = (StringRedisTemplate) distributedCache.getInstance();
                 Map<Integer, List<TicketOrderPassengerDetailRespDTO>> seatTypeMap = trainPurchaseTicketResults.stream()
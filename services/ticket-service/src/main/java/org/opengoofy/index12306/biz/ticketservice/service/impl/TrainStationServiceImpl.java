@@ -25,12 +25,11 @@ import org.opengoofy.index12306.biz.ticketservice.dao.mapper.TrainStationMapper;
 import org.opengoofy.index12306.biz.ticketservice.dto.domain.RouteDTO;
 import org.opengoofy.index12306.biz.ticketservice.dto.resp.TrainStationQueryRespDTO;
 import org.opengoofy.index12306.biz.ticketservice.service.TrainStationService;
-import org.opengoofy.index12306.biz.ticketservice.toolkit.StationCalculateUtil;
+import org.opengoofy.index12306.biz.ticketservice.service.cache.TrainRouteTopologyIndex;
 import org.opengoofy.index12306.framework.starter.common.toolkit.BeanUtil;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * 列车站点接口实现层
@@ -42,6 +41,7 @@ import java.util.stream.Collectors;
 public class TrainStationServiceImpl implements TrainStationService {
 
     private final TrainStationMapper trainStationMapper;
+    private final TrainRouteTopologyIndex trainRouteTopologyIndex;
 
     @Override
     public List<TrainStationQueryRespDTO> listTrainStationQuery(String trainId) {
@@ -53,25 +53,12 @@ public class TrainStationServiceImpl implements TrainStationService {
 
     @Override
     public List<RouteDTO> listTrainStationRoute(String trainId, String departure, String arrival) {
-        LambdaQueryWrapper<TrainStationDO> queryWrapper = Wrappers.lambdaQuery(TrainStationDO.class)
-                .eq(TrainStationDO::getTrainId, trainId)
-                .select(TrainStationDO::getDeparture);
-        List<TrainStationDO> trainStationDOList = trainStationMapper.selectList(queryWrapper);
-        List<String> trainStationAllList = trainStationDOList.stream().map(TrainStationDO::getDeparture).collect(Collectors.toList());
-        return StationCalculateUtil.throughStation(trainStationAllList, departure, arrival);
+        return trainRouteTopologyIndex.get(trainId).listThroughRoute(departure, arrival);
     }
 
     @Override
     public List<RouteDTO> listTakeoutTrainStationRoute(String trainId, String departure, String arrival) {
-        // 根据trainId查询出所有的站点
-        LambdaQueryWrapper<TrainStationDO> queryWrapper = Wrappers.lambdaQuery(TrainStationDO.class)
-                .eq(TrainStationDO::getTrainId, trainId)
-                .select(TrainStationDO::getDeparture);
-        // TrainStationDO中只departure字段有值，其他字段都是null
-        List<TrainStationDO> trainStationDOList = trainStationMapper.selectList(queryWrapper);
-        // 取出所有的站点
-        List<String> trainStationAllList = trainStationDOList.stream().map(TrainStationDO::getDeparture).collect(Collectors.toList());
-        // 计算出发站和终点站需要扣减余票的站点（包含出发站和终点站）
-        return StationCalculateUtil.takeoutStation(trainStationAllList, departure, arrival);
+        // 计算出发站和终点站需要扣减余票的站点（包含出发站和终点站），列车经停站从本地线路拓扑索引获取
+        return trainRouteTopologyIndex.get(trainId).listTakeoutRoute(departure, arrival);
     }
 }
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice.toolkit;
+
+import java.util.List;
+
+/**
+ * 座位区段占用位图计算工具
+ * <p>
+ * 列车相邻两站之间称为一个区段，第 i 个区段表示站序 i 到 i + 1，座位占用情况以 long 位图表示，第 i 位为 1 代表该区段已被占用
+ * 购买出发站到到达站的车票时，只需要判断 {@code (occupancy & mask) == 0} 即可知道座位是否可售，售出后 {@code occupancy | mask}
+ *
+ * @公众号：马丁玩编程，回复：加群，添加马哥微信（备注：12306）获取项目资料
+ */
+public final class SeatSegmentUtil {
+
+    /**
+     * 单个座位位图最多支持的区段数量，数据库以有符号 BIGINT 存储，不使用符号位
+     */
+    public static final int MAX_SEGMENT_COUNT = Long.SIZE - 1;
+
+    private static final char OCCUPIED = '1';
+
+    private static final char VACANT = '0';
+
+    /**
+     * 计算出发站下标到到达站下标之间的区段掩码
+     *
+     * @param startIndex 出发站站序下标（从 0 开始）
+     * @param endIndex   到达站站序下标（从 0 开始）
+     * @return 区段掩码，站点不合法返回 0
+     */
+    public static long segmentMask(int startIndex, int endIndex) {
+        if (startIndex < 0 || endIndex <= startIndex || endIndex > MAX_SEGMENT_COUNT) {
+            return 0L;
+        }
+        return ((1L << endIndex) - 1) & (-1L << startIndex);
+    }
+
+    /**
+     * 计算出发站到到达站之间的区段掩码
+     *
+     * @param stations     按站序排列的所有站点
+     * @param startStation 出发站
+     * @param endStation   到达站
+     * @return 区段掩码，站点不合法返回 0
+     */
+    public static long segmentMask(List<String> stations, String startStation, String endStation) {
+        return segmentMask(stations.indexOf(startStation), stations.indexOf(endStation));
+    }
+
+    /**
+     * 判断座位在区段掩码范围内是否可售
+     */
+    public static boolean isAvailable(long occupancy, long mask) {
+        return mask != 0L && (occupancy & mask) == 0L;
+    }
+
+    /**
+     * 占用区段
+     */
+    public static long occupy(long occupancy, long mask) {
+        return occupancy | mask;
+    }
+
+    /**
+     * 释放区段
+     */
+    public static long release(long occupancy, long mask) {
+        return occupancy & ~mask;
+    }
+
+    /**
+     * 位图转换为 Redis 中存储的区段位串，第 i 个字符代表第 i 个区段
+     *
+     * @param occupancy    座位区段占用位图
+     * @param segmentCount 列车区段数量
+     * @return 区段位串，例如 0110
+     */
+    public static String toBitString(long occupancy, int segmentCount) {
+        char[] chars = new char[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            chars[i] = (occupancy & (1L << i)) != 0L ? OCCUPIED : VACANT;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Redis 中存储的区段位串转换为位图
+     *
+     * @param bitString 区段位串
+     * @return 座位区段占用位图
+     */
+    public static long parseBitString(String bitString) {
+        long occupancy = 0L;
+        for (int i = 0; i < bitString.length(); i++) {
+            if (bitString.charAt(i) == OCCUPIED) {
+                occupancy |= 1L << i;
+            }
+        }
+        return occupancy;
+    }
+}
@@ -39,18 +39,26 @@ public final class StationCalculateUtil {
      * @return 出发站和终点站中间的站点（包含出发站和终点站）
      */
     public static List<RouteDTO> throughStation(List<String> stations, String startStation, String endStation) {
-        List<RouteDTO> routesToDeduct = new ArrayList<>();
-        int startIndex = stations.indexOf(startStation);
-        int endIndex = stations.indexOf(endStation);
+        return throughStation(stations, stations.indexOf(startStation), stations.indexOf(endStation));
+    }
+
+    /**
+     * 计算出发站和终点站中间的站点（包含出发站和终点站）
+     *
+     * @param stations   所有站点数据
+     * @param startIndex 出发站下标
+     * @param endIndex   终点站下标
+     * @return 出发站和终点站中间的站点（包含出发站和终点站）
+     */
+    public static List<RouteDTO> throughStation(List<String> stations, int startIndex, int endIndex) {
         if (startIndex < 0 || endIndex < 0 || startIndex >= endIndex) {
-            return routesToDeduct;
+            return new ArrayList<>();
         }
+        int length = endIndex - startIndex;
+        List<RouteDTO> routesToDeduct = new ArrayList<>(length * (length + 1) / 2);
         for (int i = startIndex; i < endIndex; i++) {
             for (int j = i + 1; j <= endIndex; j++) {
-                String currentStation = stations.get(i);
-                String nextStation = stations.get(j);
-                RouteDTO routeDTO = new RouteDTO(currentStation, nextStation);
-                routesToDeduct.add(routeDTO);
+                routesToDeduct.add(new RouteDTO(stations.get(i), stations.get(j)));
             }
         }
         return routesToDeduct;
@@ -65,25 +73,36 @@ public final class StationCalculateUtil {
      * @return 出发站和终点站需要扣减余票的站点（包含出发站和终点站）
      */
     public static List<RouteDTO> takeoutStation(List<String> stations, String startStation, String endStation) {
-        List<RouteDTO> takeoutStationList = new ArrayList<>();
-        int startIndex = stations.indexOf(startStation);
-        int endIndex = stations.indexOf(endStation);
-        if (startIndex == -1 || endIndex == -1 || startIndex >= endIndex) {
-            return takeoutStationList;
+        return takeoutStation(stations, stations.indexOf(startStation), stations.indexOf(endStation));
+    }
+
+    /**
+     * 计算出发站和终点站需要扣减余票的站点（包含出发站和终点站）
+     *
+     * @param stations   所有站点数据
+     * @param startIndex 出发站下标
+     * @param endIndex   终点站下标
+     * @return 出发站和终点站需要扣减余票的站点（包含出发站和终点站）
+     */
+    public static List<RouteDTO> takeoutStation(List<String> stations, int startIndex, int endIndex) {
+        if (startIndex < 0 || endIndex < 0 || startIndex >= endIndex) {
+            return new ArrayList<>();
         }
+        int size = stations.size();
+        List<RouteDTO> takeoutStationList = new ArrayList<>();
         if (startIndex != 0) {
             // 计算起始站到出发站需要扣减余票的站点
-            // {0 ~ start - 1} ~ {start ~ n}
+            // {0 ~ start - 1} ~ {start + 1 ~ n}
             for (int i = 0; i < startIndex; i++) {
-                for (int j = 1; j < stations.size() - startIndex; j++) {
-                    takeoutStationList.add(new RouteDTO(stations.get(i), stations.get(startIndex + j)));
+                for (int j = startIndex + 1; j < size; j++) {
+                    takeoutStationList.add(new RouteDTO(stations.get(i), stations.get(j)));
                 }
             }
         }
         // 计算出发站到目标站需要扣减余票的站点
-        // {start ~ end} ~ {start + 1 ~ n};
-        for (int i = startIndex; i <= endIndex; i++) {
-            for (int j = i + 1; j < stations.size() && i < endIndex; j++) {
+        // {start ~ end - 1} ~ {start + 1 ~ n};
+        for (int i = startIndex; i < endIndex; i++) {
+            for (int j = i + 1; j < size; j++) {
                 takeoutStationList.add(new RouteDTO(stations.get(i), stations.get(j)));
             }
         }
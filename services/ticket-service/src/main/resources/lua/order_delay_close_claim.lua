@@ -0,0 +1,16 @@
+-- KEYS[1]：延迟关闭订单有序集合，KEYS[2]：延迟关闭订单事件 Hash
+-- ARGV[1]：当前时间戳，ARGV[2]：单次拉取数量，ARGV[3]：租约到期时间戳
+-- 拉取到期订单后将分值推迟到租约到期时间，处理节点宕机时租约到期后由其它节点重新拉取
+local orderSns = redis.call('zrangebyscore', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+local result = {}
+for _, orderSn in ipairs(orderSns) do
+    local payload = redis.call('hget', KEYS[2], orderSn)
+    if payload then
+        redis.call('zadd', KEYS[1], ARGV[3], orderSn)
+        table.insert(result, payload)
+    else
+        redis.call('zrem', KEYS[1], orderSn)
+    end
+end
+
+return result
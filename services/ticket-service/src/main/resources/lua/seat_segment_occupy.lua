@@ -0,0 +1,33 @@
+-- KEYS[1] 列车座位区段占用 Hash，Field 为 座位类型_车厢号_座位号，Value 为区段位串，第 i 个字符代表第 i 个区段，比如 0110
+-- KEYS[2] 列车座位区段占用版本号，用于通知本地副本刷新
+-- ARGV[1] 出发站对应的起始区段（Lua 字符串下标从 1 开始），ARGV[2] 到达站前一个区段
+-- ARGV[3...] 需要占用的座位，所有座位要么全部占用成功，要么全部不占用
+-- 返回 -1 代表座位区段缓存未加载，由调用方加载后重新执行
+if redis.call('exists', KEYS[1]) == 0 then
+    return -1
+end
+
+local startIndex = tonumber(ARGV[1])
+local endIndex = tonumber(ARGV[2])
+
+-- 判断所有座位在出发站到到达站区段内是否都未被占用
+for i = 3, #ARGV do
+    local occupancy = redis.call('hget', KEYS[1], ARGV[i])
+    if not occupancy then
+        return 2
+    end
+    if string.find(string.sub(occupancy, startIndex, endIndex), '1', 1, true) then
+        return 1
+    end
+end
+
+-- 占用区段
+local occupied = string.rep('1', endIndex - startIndex + 1)
+for i = 3, #ARGV do
+    local occupancy = redis.call('hget', KEYS[1], ARGV[i])
+    redis.call('hset', KEYS[1], ARGV[i], string.sub(occupancy, 1, startIndex - 1) .. occupied .. string.sub(occupancy, endIndex + 1))
+end
+
+redis.call('incr', KEYS[2])
+
+return 0
@@ -0,0 +1,18 @@
+-- KEYS[1] 列车座位区段占用 Hash，Field 为 座位类型_车厢号_座位号，Value 为区段位串，第 i 个字符代表第 i 个区段，比如 0110
+-- KEYS[2] 列车座位区段占用版本号，用于通知本地副本刷新
+-- ARGV[1] 出发站对应的起始区段（Lua 字符串下标从 1 开始），ARGV[2] 到达站前一个区段
+-- ARGV[3...] 需要释放的座位
+local startIndex = tonumber(ARGV[1])
+local endIndex = tonumber(ARGV[2])
+
+local vacant = string.rep('0', endIndex - startIndex + 1)
+for i = 3, #ARGV do
+    local occupancy = redis.call('hget', KEYS[1], ARGV[i])
+    if occupancy then
+        redis.call('hset', KEYS[1], ARGV[i], string.sub(occupancy, 1, startIndex - 1) .. vacant .. string.sub(occupancy, endIndex + 1))
+    end
+end
+
+redis.call('incr', KEYS[2])
+
+return 0
@@ -0,0 +1,10 @@
+-- KEYS[1]：列车令牌桶 Hash
+-- ARGV：站点区间_座位类型、回滚数量成对平铺，同一列车多个订单的回滚数量已在调用方按 Hash field 汇总
+for i = 1, #ARGV, 2 do
+    local available = tonumber(redis.call('hget', KEYS[1], ARGV[i]))
+    if available ~= nil and available >= 0 then
+        redis.call('hincrby', KEYS[1], ARGV[i], ARGV[i + 1])
+    end
+end
+
+return 0
@@ -0,0 +1,17 @@
+-- KEYS[1]：列车令牌桶 Hash
+-- ARGV 与 ticket_availability_token_bucket_v2.lua 保持一致，每组第一个参数回滚时不使用
+local seatTypeSize = tonumber(ARGV[1])
+local groupSize = tonumber(ARGV[2]) + 2
+
+for i = 0, seatTypeSize - 1 do
+    local offset = 3 + i * groupSize
+    local count = tonumber(ARGV[offset + 1])
+    for j = offset + 2, offset + groupSize - 1 do
+        local available = tonumber(redis.call('hget', KEYS[1], ARGV[j]))
+        if available ~= nil and available >= 0 then
+            redis.call('hincrby', KEYS[1], ARGV[j], count)
+        end
+    end
+end
+
+return 0
@@ -0,0 +1,29 @@
+-- KEYS[1]：列车令牌桶 Hash
+-- ARGV[1]：座位类型数量 n
+-- ARGV[2]：需要扣减的途径站点区间数量 m
+-- ARGV[3..]：按座位类型依次排列 n 组参数，每组 m + 2 个
+--   出发站_到达站_座位类型，用于判断余量是否充足
+--   购票数量
+--   m 个途径站点区间_座位类型，用于扣减令牌
+local seatTypeSize = tonumber(ARGV[1])
+local groupSize = tonumber(ARGV[2]) + 2
+
+-- 判断对于不同座位类型是否有足量令牌
+for i = 0, seatTypeSize - 1 do
+    local offset = 3 + i * groupSize
+    local available = tonumber(redis.call('hget', KEYS[1], ARGV[offset]))
+    if available == nil or available < tonumber(ARGV[offset + 1]) then
+        return 1
+    end
+end
+
+-- 扣减令牌
+for i = 0, seatTypeSize - 1 do
+    local offset = 3 + i * groupSize
+    local count = -tonumber(ARGV[offset + 1])
+    for j = offset + 2, offset + groupSize - 1 do
+        redis.call('hincrby', KEYS[1], ARGV[j], count)
+    end
+end
+
+return 0
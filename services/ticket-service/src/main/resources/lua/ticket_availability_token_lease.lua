@@ -0,0 +1,19 @@
+-- KEYS[1]：列车令牌桶 Hash
+-- ARGV[1]：出发站_到达站_座位类型，用于判断余量是否充足
+-- ARGV[2]：本次购票必须的令牌数量
+-- ARGV[3]：额外预占的租约令牌数量上限
+-- ARGV[4]：租约最多预占剩余令牌的 1 / ARGV[4]，避免余票较少时被单个节点占用
+-- ARGV[5..n]：需要扣减的途径站点区间_座位类型
+local available = tonumber(redis.call('hget', KEYS[1], ARGV[1]))
+local required = tonumber(ARGV[2])
+if available == nil or available < required then
+    return -1
+end
+
+local extra = math.min(tonumber(ARGV[3]), math.floor((available - required) / tonumber(ARGV[4])))
+local granted = required + extra
+for i = 5, #ARGV do
+    redis.call('hincrby', KEYS[1], ARGV[i], -granted)
+end
+
+return granted
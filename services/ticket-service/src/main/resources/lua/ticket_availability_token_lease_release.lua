@@ -0,0 +1,12 @@
+-- KEYS[1]：列车令牌桶 Hash
+-- ARGV[1]：归还的令牌数量
+-- ARGV[2..n]：需要归还的途径站点区间_座位类型
+local count = tonumber(ARGV[1])
+for i = 2, #ARGV do
+    local value = tonumber(redis.call('hget', KEYS[1], ARGV[i]))
+    if value ~= nil and value >= 0 then
+        redis.call('hincrby', KEYS[1], ARGV[i], count)
+    end
+end
+
+return 0
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opengoofy.index12306.biz.ticketservice.canal.OrderCloseCacheAndTokenUpdateHandler;
+import org.opengoofy.index12306.biz.ticketservice.dto.domain.RouteDTO;
+import org.opengoofy.index12306.biz.ticketservice.mq.event.CanalBinlogEvent;
+import org.opengoofy.index12306.biz.ticketservice.remote.TicketOrderRemoteService;
+import org.opengoofy.index12306.biz.ticketservice.remote.dto.TicketOrderDetailRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.remote.dto.TicketOrderPassengerDetailRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.SeatService;
+import org.opengoofy.index12306.biz.ticketservice.service.TrainStationService;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.tokenbucket.TicketAvailabilityTokenBucket;
+import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
+import org.opengoofy.index12306.framework.starter.convention.result.Result;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 大量订单关闭后批量释放座位以及回滚令牌测试
+ */
+class OrderCloseCacheAndTokenUpdateTests {
+
+    private static final String[][] ROUTES = {{"北京南", "济南西"}, {"北京南", "南京南"}, {"济南西", "南京南"}};
+
+    @Test
+    void testCloseTenThousandOrders() {
+        int orderCount = 10000;
+        int trainCount = 20;
+        Random random = new Random(12306);
+        Map<String, TicketOrderDetailRespDTO> orderDetailMap = new HashMap<>();
+        List<Map<String, Object>> data = new ArrayList<>(orderCount);
+        Map<String, Long> expectedTokenMap = new HashMap<>();
+        int passengerCount = 0;
+        for (int i = 0; i < orderCount; i++) {
+            String[] route = ROUTES[random.nextInt(ROUTES.length)];
+            TicketOrderDetailRespDTO orderDetail = new TicketOrderDetailRespDTO();
+            orderDetail.setOrderSn("order-" + i);
+            orderDetail.setTrainId((long) random.nextInt(trainCount));
+            orderDetail.setDeparture(route[0]);
+            orderDetail.setArrival(route[1]);
+            List<TicketOrderPassengerDetailRespDTO> passengerDetails = new ArrayList<>();
+            for (int j = 0, size = 1 + random.nextInt(3); j < size; j++) {
+                int seatType = random.nextInt(3);
+                passengerDetails.add(TicketOrderPassengerDetailRespDTO.builder()
+                        .seatType(seatType)
+                        .carriageNumber("0" + (1 + random.nextInt(8)))
+                        .seatNumber(String.valueOf(i * 4 + j))
+                        .build());
+                expectedTokenMap.merge(orderDetail.getTrainId() + ":" + route[0] + "_" + route[1] + "_" + seatType, 1L, Long::sum);
+            }
+            passengerCount += passengerDetails.size();
+            orderDetail.setPassengerDetails(passengerDetails);
+            orderDetailMap.put(orderDetail.getOrderSn(), orderDetail);
+            Map<String, Object> row = new HashMap<>();
+            row.put("order_sn", orderDetail.getOrderSn());
+            row.put("status", "30");
+            data.add(row);
+        }
+        TicketOrderRemoteService ticketOrderRemoteService = mock(TicketOrderRemoteService.class);
+        when(ticketOrderRemoteService.queryTicketOrderByOrderSns(anyList())).thenAnswer(invocation -> {
+            List<TicketOrderDetailRespDTO> result = invocation.<List<String>>getArgument(0).stream().map(orderDetailMap::get).toList();
+            return new Result<List<TicketOrderDetailRespDTO>>().setCode(Result.SUCCESS_CODE).setData(result);
+        });
+        AtomicInteger unlockSeatCount = new AtomicInteger();
+        SeatService seatService = mock(SeatService.class);
+        doAnswer(invocation -> {
+            unlockSeatCount.addAndGet(invocation.<List<?>>getArgument(3).size());
+            return null;
+        }).when(seatService).unlock(anyString(), anyString(), anyString(), anyList());
+        TrainStationService trainStationService = mock(TrainStationService.class);
+        when(trainStationService.listTakeoutTrainStationRoute(anyString(), anyString(), anyString()))
+                .thenAnswer(invocation -> List.of(new RouteDTO(invocation.getArgument(1), invocation.getArgument(2))));
+        Map<String, Long> actualTokenMap = new HashMap<>();
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any())).thenAnswer(invocation -> {
+            String key = invocation.<List<String>>getArgument(1).get(0);
+            String trainId = key.substring(key.lastIndexOf(':') + 1);
+            // 可变参数展开后，第 3 个参数起为脚本参数
+            Object[] args = invocation.getArguments();
+            for (int i = 2; i < args.length; i += 2) {
+                actualTokenMap.merge(trainId + ":" + args[i], Long.parseLong(args[i + 1].toString()), Long::sum);
+            }
+            return 0L;
+        });
+        DistributedCache distributedCache = mock(DistributedCache.class);
+        when(distributedCache.getInstance()).thenReturn(stringRedisTemplate);
+        TicketAvailabilityTokenBucket ticketAvailabilityTokenBucket = new TicketAvailabilityTokenBucket(trainStationService, distributedCache, null, null, null);
+        OrderCloseCacheAndTokenUpdateHandler handler = new OrderCloseCacheAndTokenUpdateHandler(ticketOrderRemoteService, seatService, ticketAvailabilityTokenBucket);
+        ReflectionTestUtils.setField(handler, "batchQuerySize", 500);
+        CanalBinlogEvent message = new CanalBinlogEvent();
+        message.setData(data);
+
+        handler.execute(message);
+
+        verify(ticketOrderRemoteService, times(orderCount / 500)).queryTicketOrderByOrderSns(anyList());
+        verify(seatService, atMost(trainCount * ROUTES.length)).unlock(anyString(), anyString(), anyString(), anyList());
+        Assertions.assertEquals(passengerCount, unlockSeatCount.get());
+        verify(stringRedisTemplate, times(trainCount)).execute(any(RedisScript.class), anyList(), any());
+        Assertions.assertEquals(expectedTokenMap, actualTokenMap);
+    }
+}
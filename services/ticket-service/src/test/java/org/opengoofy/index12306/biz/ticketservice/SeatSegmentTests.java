@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opengoofy.index12306.biz.ticketservice.canal.TicketAvailabilityCacheUpdateHandler;
+import org.opengoofy.index12306.biz.ticketservice.dao.mapper.SeatSegmentMapper;
+import org.opengoofy.index12306.biz.ticketservice.dto.domain.RouteDTO;
+import org.opengoofy.index12306.biz.ticketservice.mq.event.CanalBinlogEvent;
+import org.opengoofy.index12306.biz.ticketservice.service.cache.SeatSegmentCacheLoader;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TrainPurchaseTicketRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.impl.SeatServiceImpl;
+import org.opengoofy.index12306.biz.ticketservice.toolkit.SeatSegmentUtil;
+import org.opengoofy.index12306.biz.ticketservice.toolkit.StationCalculateUtil;
+import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisHashCommands;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.TRAIN_SEAT_SEGMENT;
+
+/**
+ * 座位区段占用位图与 t_seat 站点对模型售票结果一致性测试
+ */
+class SeatSegmentTests {
+
+    @Test
+    void testSegmentMask() {
+        Assertions.assertEquals(0b0110L, SeatSegmentUtil.segmentMask(1, 3));
+        Assertions.assertEquals(Long.MAX_VALUE, SeatSegmentUtil.segmentMask(0, 63));
+        Assertions.assertEquals(0L, SeatSegmentUtil.segmentMask(0, 64));
+        Assertions.assertEquals(0L, SeatSegmentUtil.segmentMask(2, 2));
+        Assertions.assertEquals(0L, SeatSegmentUtil.segmentMask(-1, 2));
+        long occupancy = SeatSegmentUtil.occupy(0L, SeatSegmentUtil.segmentMask(1, 3));
+        Assertions.assertEquals("0110", SeatSegmentUtil.toBitString(occupancy, 4));
+        Assertions.assertEquals(occupancy, SeatSegmentUtil.parseBitString("0110"));
+        Assertions.assertEquals(0L, SeatSegmentUtil.release(occupancy, SeatSegmentUtil.segmentMask(1, 3)));
+    }
+
+    @Test
+    void testSellParityWithRowModel() {
+        List<String> stations = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            stations.add("站点" + i);
+        }
+        int seatCount = 5;
+        Random random = new Random(12306L);
+        // 站点对模型：记录已不可售的 座位_出发站_到达站
+        Set<String> soldRows = new HashSet<>();
+        long[] occupancies = new long[seatCount];
+        for (int round = 0; round < 5000; round++) {
+            int seat = random.nextInt(seatCount);
+            int startIndex = random.nextInt(stations.size() - 1);
+            int endIndex = startIndex + 1 + random.nextInt(stations.size() - startIndex - 1);
+            String departure = stations.get(startIndex);
+            String arrival = stations.get(endIndex);
+            boolean rowAvailable = !soldRows.contains(seat + "_" + departure + "_" + arrival);
+            long mask = SeatSegmentUtil.segmentMask(stations, departure, arrival);
+            boolean segmentAvailable = SeatSegmentUtil.isAvailable(occupancies[seat], mask);
+            Assertions.assertEquals(rowAvailable, segmentAvailable);
+            if (rowAvailable) {
+                for (RouteDTO each : StationCalculateUtil.takeoutStation(stations, departure, arrival)) {
+                    soldRows.add(seat + "_" + each.getStartStation() + "_" + each.getEndStation());
+                }
+                occupancies[seat] = SeatSegmentUtil.occupy(occupancies[seat], mask);
+            }
+        }
+        for (int seat = 0; seat < seatCount; seat++) {
+            for (int i = 0; i < stations.size(); i++) {
+                for (int j = i + 1; j < stations.size(); j++) {
+                    boolean rowAvailable = !soldRows.contains(seat + "_" + stations.get(i) + "_" + stations.get(j));
+                    Assertions.assertEquals(rowAvailable, SeatSegmentUtil.isAvailable(occupancies[seat], SeatSegmentUtil.segmentMask(i, j)));
+                }
+            }
+        }
+    }
+
+    /**
+     * 统计单笔订单维护余票实际发出的 Redis 命令数
+     * 站点对模型：每个需要扣减的站点对 × 座位类型各一次 HINCRBY；区段位图模型：缓存已加载时仅一次 Lua 脚本调用
+     */
+    @Test
+    void testRedisOpsPerOrder() {
+        int seatTypeCount = 3;
+        RedisHashCommands hashCommands = mock(RedisHashCommands.class);
+        RedisConnection connection = mock(RedisConnection.class);
+        when(connection.hashCommands()).thenReturn(hashCommands);
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        when(stringRedisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+            return List.of();
+        });
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any())).thenReturn(0L);
+        DistributedCache distributedCache = mock(DistributedCache.class);
+        when(distributedCache.getInstance()).thenReturn(stringRedisTemplate);
+        TicketAvailabilityCacheUpdateHandler cacheUpdateHandler = new TicketAvailabilityCacheUpdateHandler(distributedCache, new SimpleMeterRegistry());
+        cacheUpdateHandler.afterPropertiesSet();
+        for (int stationCount : new int[]{5, 10, 20, 40}) {
+            List<String> stations = new ArrayList<>();
+            for (int i = 0; i < stationCount; i++) {
+                stations.add("站点" + i);
+            }
+            SeatSegmentCacheLoader seatSegmentCacheLoader = buildSeatSegmentCacheLoader(distributedCache, stations);
+            SeatSegmentMapper seatSegmentMapper = mock(SeatSegmentMapper.class);
+            when(seatSegmentMapper.occupySegment(anyLong(), anyString(), anyString(), anyLong())).thenReturn(1);
+            SeatServiceImpl seatService = new SeatServiceImpl(null, null, distributedCache, seatSegmentMapper, seatSegmentCacheLoader);
+            for (int i = 0; i < stationCount - 1; i++) {
+                for (int j = i + 1; j < stationCount; j++) {
+                    List<RouteDTO> takeoutRoutes = StationCalculateUtil.takeoutStation(stations, stations.get(i), stations.get(j));
+                    List<TrainPurchaseTicketRespDTO> seats = new ArrayList<>();
+                    for (int seatType = 0; seatType < seatTypeCount; seatType++) {
+                        TrainPurchaseTicketRespDTO seat = new TrainPurchaseTicketRespDTO();
+                        seat.setSeatType(seatType);
+                        seat.setCarriageNumber("01");
+                        seat.setSeatNumber(i + "_" + j + "_" + seatType);
+                        seats.add(seat);
+                    }
+
+                    clearInvocations(hashCommands);
+                    cacheUpdateHandler.execute(buildLockEvent(takeoutRoutes, seats));
+                    Assertions.assertEquals(takeoutRoutes.size() * seatTypeCount, mockingDetails(hashCommands).getInvocations().size());
+
+                    // 缓存已加载时 StringRedisTemplate 上只有一次 Lua 脚本调用
+                    clearInvocations(stringRedisTemplate);
+                    Assertions.assertTrue(seatService.occupySeatSegment("1", stations.get(i), stations.get(j), seats));
+                    Assertions.assertEquals(1, mockingDetails(stringRedisTemplate).getInvocations().size());
+                }
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOccupySeatSegmentLoadsCacheOnlyWhenMissing() {
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(stringRedisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.entries(TRAIN_SEAT_SEGMENT + "1")).thenReturn(Map.of("0_01_01A", "0000"));
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any())).thenReturn(-1L, 0L);
+        DistributedCache distributedCache = mock(DistributedCache.class);
+        when(distributedCache.getInstance()).thenReturn(stringRedisTemplate);
+        SeatSegmentMapper seatSegmentMapper = mock(SeatSegmentMapper.class);
+        when(seatSegmentMapper.occupySegment(anyLong(), anyString(), anyString(), anyLong())).thenReturn(1);
+        SeatServiceImpl seatService = new SeatServiceImpl(null, null, distributedCache, seatSegmentMapper, buildSeatSegmentCacheLoader(distributedCache, List.of("A", "B", "C", "D", "E")));
+        TrainPurchaseTicketRespDTO seat = new TrainPurchaseTicketRespDTO();
+        seat.setSeatType(0);
+        seat.setCarriageNumber("01");
+        seat.setSeatNumber("01A");
+        // 第一次脚本调用返回缓存未加载，加载后重新执行
+        Assertions.assertTrue(seatService.occupySeatSegment("1", "B", "D", List.of(seat)));
+        verify(hashOperations).entries(TRAIN_SEAT_SEGMENT + "1");
+        verify(stringRedisTemplate, times(2)).execute(any(RedisScript.class), anyList(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testListAvailableSeatBySegmentScansCarriage() {
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(stringRedisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        Map<Object, Object> carriageSegmentMap = new HashMap<>();
+        carriageSegmentMap.put("0_01_01A", "0110");
+        carriageSegmentMap.put("0_01_01B", "0001");
+        carriageSegmentMap.put("0_01_01C", "0000");
+        Cursor<Map.Entry<Object, Object>> cursor = mock(Cursor.class);
+        doAnswer(invocation -> {
+            carriageSegmentMap.entrySet().forEach(invocation.getArgument(0));
+            return null;
+        }).when(cursor).forEachRemaining(any());
+        when(hashOperations.scan(eq(TRAIN_SEAT_SEGMENT + "1"), any(ScanOptions.class))).thenReturn(cursor);
+        DistributedCache distributedCache = mock(DistributedCache.class);
+        when(distributedCache.getInstance()).thenReturn(stringRedisTemplate);
+        SeatServiceImpl seatService = new SeatServiceImpl(null, null, distributedCache, null, buildSeatSegmentCacheLoader(distributedCache, List.of("A", "B", "C", "D", "E")));
+        Assertions.assertEquals(List.of("01B", "01C"), seatService.listAvailableSeatBySegment("1", "01", 0, "A", "C"));
+        verify(hashOperations, never()).entries(any());
+    }
+
+    private static SeatSegmentCacheLoader buildSeatSegmentCacheLoader(DistributedCache distributedCache, List<String> stations) {
+        return new SeatSegmentCacheLoader(distributedCache, null, null, null) {
+            @Override
+            public List<String> listOrderedStation(String trainId) {
+                return stations;
+            }
+        };
+    }
+
+    /**
+     * 座位锁定时每个沿途站点对 × 座位产生一行 t_seat 状态变更
+     */
+    private static CanalBinlogEvent buildLockEvent(List<RouteDTO> routes, List<TrainPurchaseTicketRespDTO> seats) {
+        List<Map<String, Object>> data = new ArrayList<>();
+        List<Map<String, Object>> old = new ArrayList<>();
+        for (RouteDTO route : routes) {
+            for (TrainPurchaseTicketRespDTO seat : seats) {
+                Map<String, Object> currentData = new HashMap<>();
+                currentData.put("train_id", "1");
+                currentData.put("start_station", route.getStartStation());
+                currentData.put("end_station", route.getEndStation());
+                currentData.put("seat_type", String.valueOf(seat.getSeatType()));
+                currentData.put("seat_status", "1");
+                data.add(currentData);
+                Map<String, Object> oldData = new HashMap<>();
+                oldData.put("seat_status", "0");
+                old.add(oldData);
+            }
+        }
+        CanalBinlogEvent event = new CanalBinlogEvent();
+        event.setIsDdl(false);
+        event.setType("UPDATE");
+        event.setTable("t_seat");
+        event.setData(data);
+        event.setOld(old);
+        return event;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.select.SeatSelection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 座位位掩码选座与原二维数组扫描选座结果一致性测试
+ */
+class SeatSelectionTests {
+
+    private static final int ROWS = 18;
+    private static final int COLS = 5;
+
+    @Test
+    void testParityWithLegacyScan() {
+        Random random = new Random(12306L);
+        for (int round = 0; round < 20000; round++) {
+            int[][] seatLayout = randomLayout(random, random.nextDouble());
+            int numSeats = 1 + random.nextInt(COLS);
+            Assertions.assertArrayEquals(legacyAdjacent(numSeats, seatLayout), SeatSelection.adjacent(numSeats, seatLayout));
+            Assertions.assertArrayEquals(legacyNonAdjacent(numSeats, seatLayout), SeatSelection.nonAdjacent(numSeats, seatLayout));
+            int[] rowMasks = SeatSelection.buildRowMasks(seatLayout);
+            Assertions.assertArrayEquals(legacyAdjacent(numSeats, seatLayout), SeatSelection.adjacent(numSeats, rowMasks));
+            Assertions.assertArrayEquals(legacyNonAdjacent(numSeats, seatLayout), SeatSelection.nonAdjacent(numSeats, rowMasks));
+        }
+    }
+
+    @Test
+    void testFullyOccupiedCarriage() {
+        int[][] seatLayout = randomLayout(new Random(12306L), 1.0D);
+        Assertions.assertNull(SeatSelection.adjacent(3, seatLayout));
+        Assertions.assertEquals(0, SeatSelection.nonAdjacent(3, seatLayout).length);
+    }
+
+    @Test
+    void testFragmentedCarriage() {
+        // 每排仅隔座空出，无法选出连座，非连座按排序依次选取
+        int[][] seatLayout = new int[ROWS][COLS];
+        for (int i = 0; i < ROWS; i++) {
+            for (int j = 0; j < COLS; j++) {
+                seatLayout[i][j] = (i + j) % 2 == 0 ? 1 : 0;
+            }
+        }
+        Assertions.assertNull(SeatSelection.adjacent(2, seatLayout));
+        Assertions.assertArrayEquals(new int[][]{{1, 2}, {1, 4}, {2, 1}}, SeatSelection.nonAdjacent(3, seatLayout));
+        Assertions.assertArrayEquals(new int[][]{{1, 2}}, SeatSelection.adjacent(1, seatLayout));
+    }
+
+    @Test
+    void testAdjacentSkipsPartiallyOccupiedRow() {
+        int[][] seatLayout = new int[ROWS][COLS];
+        for (int[] each : seatLayout) {
+            Arrays.fill(each, 1);
+        }
+        seatLayout[0] = new int[]{0, 0, 1, 0, 0};
+        seatLayout[1] = new int[]{1, 0, 0, 0, 1};
+        Assertions.assertArrayEquals(new int[][]{{2, 2}, {2, 3}, {2, 4}}, SeatSelection.adjacent(3, seatLayout));
+        Assertions.assertArrayEquals(new int[][]{{1, 1}, {1, 2}}, SeatSelection.adjacent(2, SeatSelection.buildRowMasks(seatLayout)));
+    }
+
+    private static int[][] randomLayout(Random random, double occupiedRate) {
+        int[][] seatLayout = new int[ROWS][COLS];
+        for (int i = 0; i < ROWS; i++) {
+            for (int j = 0; j < COLS; j++) {
+                seatLayout[i][j] = random.nextDouble() < occupiedRate ? 1 : 0;
+            }
+        }
+        return seatLayout;
+    }
+
+    private static int[][] legacyAdjacent(int numSeats, int[][] seatLayout) {
+        List<int[]> selectedSeats = new ArrayList<>();
+        for (int i = 0; i < seatLayout.length && selectedSeats.isEmpty(); i++) {
+            for (int j = 0; j < seatLayout[0].length && selectedSeats.isEmpty(); j++) {
+                if (seatLayout[i][j] == 0) {
+                    int consecutiveSeats = 0;
+                    for (int k = j; k < seatLayout[0].length; k++) {
+                        if (seatLayout[i][k] == 0) {
+                            consecutiveSeats++;
+                            if (consecutiveSeats == numSeats) {
+                                for (int l = k - numSeats + 1; l <= k; l++) {
+                                    selectedSeats.add(new int[]{i + 1, l + 1});
+                                }
+                                break;
+                            }
+                        } else {
+                            consecutiveSeats = 0;
+                        }
+                    }
+                }
+            }
+        }
+        return selectedSeats.isEmpty() ? null : selectedSeats.toArray(new int[0][]);
+    }
+
+    private static int[][] legacyNonAdjacent(int numSeats, int[][] seatLayout) {
+        List<int[]> selectedSeats = new ArrayList<>();
+        for (int i = 0; i < seatLayout.length && selectedSeats.size() < numSeats; i++) {
+            for (int j = 0; j < seatLayout[0].length && selectedSeats.size() < numSeats; j++) {
+                if (seatLayout[i][j] == 0) {
+                    selectedSeats.add(new int[]{i + 1, j + 1});
+                }
+            }
+        }
+        return selectedSeats.toArray(new int[0][]);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opengoofy.index12306.biz.ticketservice.canal.TicketAvailabilityCacheUpdateBatcher;
+import org.opengoofy.index12306.biz.ticketservice.canal.TicketAvailabilityCacheUpdateHandler;
+import org.opengoofy.index12306.biz.ticketservice.mq.event.CanalBinlogEvent;
+import org.opengoofy.index12306.framework.starter.convention.exception.ServiceException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 余票缓存 Binlog 增量合并批量写入回放测试
+ */
+class TicketAvailabilityCacheUpdateBatcherTests {
+
+    @Test
+    void testReplayBatchedEqualsSequential() throws InterruptedException {
+        List<CanalBinlogEvent> events = buildEvents(2000);
+        Map<String, Integer> sequential = new HashMap<>();
+        events.forEach(each -> applyTo(sequential, TicketAvailabilityCacheUpdateHandler.collectIncrements(each)));
+
+        Map<String, Integer> batched = new HashMap<>();
+        AtomicInteger flushCount = new AtomicInteger();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TicketAvailabilityCacheUpdateBatcher batcher = new TicketAvailabilityCacheUpdateBatcher(4096, 256, 5, 10000, increments -> {
+            flushCount.incrementAndGet();
+            applyTo(batched, increments);
+        }, meterRegistry);
+        batcher.start();
+        ConcurrentLinkedQueue<CanalBinlogEvent> pending = new ConcurrentLinkedQueue<>(events);
+        List<Throwable> errors = new ArrayList<>();
+        int threadCount = 16;
+        CountDownLatch doneLatch = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(() -> {
+                try {
+                    CanalBinlogEvent each;
+                    while ((each = pending.poll()) != null) {
+                        Map<String, Map<Integer, Integer>> increments = TicketAvailabilityCacheUpdateHandler.collectIncrements(each);
+                        if (!increments.isEmpty()) {
+                            batcher.submit(increments, each.getEs());
+                        }
+                    }
+                } catch (Throwable ex) {
+                    synchronized (errors) {
+                        errors.add(ex);
+                    }
+                } finally {
+                    doneLatch.countDown();
+                }
+            }).start();
+        }
+        doneLatch.await();
+        batcher.stop();
+
+        Assertions.assertTrue(errors.isEmpty());
+        sequential.values().removeIf(each -> each == 0);
+        batched.values().removeIf(each -> each == 0);
+        Assertions.assertEquals(sequential, batched);
+        Assertions.assertTrue(flushCount.get() < events.size());
+        Assertions.assertTrue(meterRegistry.get("ticket.availability.cache-update.lag").timer().count() > 0);
+    }
+
+    @Test
+    void testTimedOutUpdateIsAppliedAtMostOnce() throws InterruptedException {
+        Map<String, Integer> applied = new HashMap<>();
+        CountDownLatch flushingLatch = new CountDownLatch(1);
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+        TicketAvailabilityCacheUpdateBatcher batcher = new TicketAvailabilityCacheUpdateBatcher(16, 1, 0, 200, increments -> {
+            flushingLatch.countDown();
+            try {
+                releaseLatch.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            applyTo(applied, increments);
+        }, new SimpleMeterRegistry());
+        batcher.start();
+        List<Throwable> claimedErrors = new ArrayList<>();
+        Thread claimedThread = new Thread(() -> {
+            try {
+                batcher.submit(Map.of("train-1", Map.of(0, -1)), null);
+            } catch (Throwable ex) {
+                claimedErrors.add(ex);
+            }
+        });
+        claimedThread.start();
+        Assertions.assertTrue(flushingLatch.await(5, TimeUnit.SECONDS));
+        // 写入线程阻塞在首个增量上，第二个增量等待超时并被撤销
+        Assertions.assertThrows(ServiceException.class, () -> batcher.submit(Map.of("train-2", Map.of(0, -1)), null));
+        releaseLatch.countDown();
+        claimedThread.join();
+        batcher.stop();
+
+        // 已被写入线程取走的增量超时后继续等待写入结果，不会让消息重新投递
+        Assertions.assertTrue(claimedErrors.isEmpty());
+        Assertions.assertEquals(Map.of("train-1:0", -1), applied);
+    }
+
+    private static void applyTo(Map<String, Integer> cache, Map<String, Map<Integer, Integer>> increments) {
+        increments.forEach((cacheKey, seatTypeMap) -> seatTypeMap.forEach((seatType, num) -> cache.merge(cacheKey + ":" + seatType, num, Integer::sum)));
+    }
+
+    /**
+     * 模拟座位锁定、释放以及支付后售出的 Binlog 消息，售出不改变余票
+     */
+    private static List<CanalBinlogEvent> buildEvents(int count) {
+        Random random = new Random(12306);
+        String[][] routes = {{"北京南", "济南西"}, {"北京南", "南京南"}, {"济南西", "南京南"}};
+        String[][] statusChanges = {{"0", "1"}, {"1", "0"}, {"1", "2"}};
+        List<CanalBinlogEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<Map<String, Object>> data = new ArrayList<>();
+            List<Map<String, Object>> old = new ArrayList<>();
+            int rows = 1 + random.nextInt(4);
+            for (int j = 0; j < rows; j++) {
+                String[] route = routes[random.nextInt(routes.length)];
+                String[] statusChange = statusChanges[random.nextInt(statusChanges.length)];
+                Map<String, Object> currentData = new HashMap<>();
+                currentData.put("train_id", String.valueOf(1 + random.nextInt(3)));
+                currentData.put("start_station", route[0]);
+                currentData.put("end_station", route[1]);
+                currentData.put("seat_type", String.valueOf(random.nextInt(3)));
+                currentData.put("seat_status", statusChange[1]);
+                data.add(currentData);
+                Map<String, Object> oldData = new HashMap<>();
+                oldData.put("seat_status", statusChange[0]);
+                old.add(oldData);
+            }
+            CanalBinlogEvent event = new CanalBinlogEvent();
+            event.setIsDdl(false);
+            event.setType("UPDATE");
+            event.setTable("t_seat");
+            event.setData(data);
+            event.setOld(old);
+            event.setEs(System.currentTimeMillis());
+            events.add(event);
+        }
+        return events;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.tokenbucket.TicketAvailabilityTokenLeasePool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 节点本地令牌租约防超卖及 Redis 访问次数测试
+ */
+class TicketAvailabilityTokenLeaseTests {
+
+    private static final String LEASE_KEY = "1_北京南_济南西_3";
+
+    @Test
+    void testLeaseNeverOversell() throws InterruptedException {
+        int evalCount = simulate(5000);
+        Assertions.assertTrue(evalCount > 0);
+    }
+
+    @Test
+    void testLeaseReduceRedisEval() {
+        // 租约大小固定为 10，每次访问 Redis 预占本次 1 张以及后续 10 张
+        TicketAvailabilityTokenLeasePool pool = new TicketAvailabilityTokenLeasePool(10, 10, 200L);
+        AtomicInteger evalCount = new AtomicInteger();
+        AtomicInteger central = new AtomicInteger(1000);
+        TicketAvailabilityTokenLeasePool.LeaseGrant leaseGrant = (required, leaseSize) -> {
+            evalCount.incrementAndGet();
+            Assertions.assertEquals(10, leaseSize);
+            central.addAndGet(-(required + leaseSize));
+            return required + leaseSize;
+        };
+        for (int i = 0; i < 110; i++) {
+            Assertions.assertTrue(pool.tryAcquire(LEASE_KEY, 1) || pool.acquire(LEASE_KEY, 1, leaseGrant));
+        }
+        Assertions.assertEquals(10, evalCount.get());
+        Assertions.assertEquals(1000 - 110, central.get());
+
+        // 取消的令牌归还本地租约，之后的购票不再访问 Redis
+        Assertions.assertTrue(pool.giveBack(LEASE_KEY, 2));
+        Assertions.assertTrue(pool.tryAcquire(LEASE_KEY, 2));
+        Assertions.assertEquals(10, evalCount.get());
+
+        Assertions.assertTrue(pool.acquire(LEASE_KEY, 1, leaseGrant));
+        Assertions.assertEquals(11, evalCount.get());
+        pool.drainAll((leaseKey, tokens) -> central.addAndGet(tokens));
+        Assertions.assertEquals(1000 - 111, central.get());
+        Assertions.assertFalse(pool.giveBack(LEASE_KEY, 1));
+    }
+
+    /**
+     * 模拟多个节点并发购票，返回访问 Redis 令牌桶次数
+     */
+    private int simulate(int initialTokens) throws InterruptedException {
+        int nodeCount = 4;
+        int threadPerNode = 4;
+        int purchasePerThread = 2000;
+        // 模拟 Redis 令牌桶
+        AtomicInteger central = new AtomicInteger(initialTokens);
+        AtomicInteger evalCount = new AtomicInteger();
+        AtomicInteger sold = new AtomicInteger();
+        TicketAvailabilityTokenLeasePool.LeaseGrant leaseGrant = (required, leaseSize) -> {
+            evalCount.incrementAndGet();
+            synchronized (central) {
+                int available = central.get();
+                if (available < required) {
+                    return -1;
+                }
+                int granted = required + Math.min(leaseSize, (available - required) / 10);
+                central.addAndGet(-granted);
+                return granted;
+            }
+        };
+        List<TicketAvailabilityTokenLeasePool> pools = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        CountDownLatch startLatch = new CountDownLatch(1);
+        for (int i = 0; i < nodeCount; i++) {
+            TicketAvailabilityTokenLeasePool pool = new TicketAvailabilityTokenLeasePool(0, 20, 200L);
+            pools.add(pool);
+            for (int j = 0; j < threadPerNode; j++) {
+                threads.add(new Thread(() -> {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException ignored) {
+                        return;
+                    }
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int k = 0; k < purchasePerThread; k++) {
+                        int count = random.nextInt(1, 4);
+                        boolean acquired = pool.tryAcquire(LEASE_KEY, count) || pool.acquire(LEASE_KEY, count, leaseGrant);
+                        if (!acquired) {
+                            continue;
+                        }
+                        // 模拟部分订单取消回滚令牌
+                        if (random.nextInt(10) == 0) {
+                            if (!pool.giveBack(LEASE_KEY, count)) {
+                                central.addAndGet(count);
+                            }
+                        } else {
+                            sold.addAndGet(count);
+                        }
+                    }
+                }));
+            }
+        }
+        threads.forEach(Thread::start);
+        startLatch.countDown();
+        for (Thread each : threads) {
+            each.join();
+        }
+        pools.forEach(each -> each.drainAll((leaseKey, tokens) -> central.addAndGet(tokens)));
+        Assertions.assertTrue(sold.get() <= initialTokens);
+        Assertions.assertTrue(central.get() >= 0);
+        Assertions.assertEquals(initialTokens, sold.get() + central.get());
+        return evalCount.get();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opengoofy.index12306.biz.ticketservice.dto.domain.RouteDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.tokenbucket.TicketAvailabilityTokenScriptArgs;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 令牌桶 Lua 脚本位置参数构建测试
+ */
+class TicketAvailabilityTokenScriptArgsTests {
+
+    @Test
+    void testBuildArgs() {
+        Map<Integer, Long> seatTypeCountMap = new LinkedHashMap<>();
+        seatTypeCountMap.put(1, 2L);
+        seatTypeCountMap.put(2, 1L);
+        List<RouteDTO> takeoutRouteDTOList = List.of(new RouteDTO("北京南", "济南西"), new RouteDTO("北京南", "南京南"));
+        Object[] args = TicketAvailabilityTokenScriptArgs.build(seatTypeCountMap, "北京南", "济南西", takeoutRouteDTOList);
+        Assertions.assertArrayEquals(new Object[]{
+                "2", "2",
+                "北京南_济南西_1", "2", "北京南_济南西_1", "北京南_南京南_1",
+                "北京南_济南西_2", "1", "北京南_济南西_2", "北京南_南京南_2"
+        }, args);
+    }
+
+    /**
+     * 位置参数与原 JSON 参数携带相同的座位类型数量以及扣减区间
+     */
+    @Test
+    void testParityWithJsonArgs() {
+        List<String> stations = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            stations.add("站点" + i);
+        }
+        // 第 3 站到第 8 站，需要扣减所有与该区间重叠的途径区间
+        List<RouteDTO> takeoutRouteDTOList = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            for (int j = Math.max(i + 1, 4); j < stations.size(); j++) {
+                takeoutRouteDTOList.add(new RouteDTO(stations.get(i), stations.get(j)));
+            }
+        }
+        Map<Integer, Long> seatTypeCountMap = new LinkedHashMap<>();
+        seatTypeCountMap.put(0, 2L);
+        seatTypeCountMap.put(1, 1L);
+        Object[] args = TicketAvailabilityTokenScriptArgs.build(seatTypeCountMap, stations.get(3), stations.get(8), takeoutRouteDTOList);
+        Object[] jsonArgs = buildJsonArgs(seatTypeCountMap, takeoutRouteDTOList);
+
+        JSONArray seatTypeCountArray = com.alibaba.fastjson2.JSON.parseArray(jsonArgs[0].toString());
+        JSONArray routeArray = com.alibaba.fastjson2.JSON.parseArray(jsonArgs[1].toString());
+        Assertions.assertEquals(String.valueOf(seatTypeCountArray.size()), args[0]);
+        Assertions.assertEquals(String.valueOf(routeArray.size()), args[1]);
+        Assertions.assertEquals(2 + seatTypeCountArray.size() * (2 + routeArray.size()), args.length);
+        int index = 2;
+        for (int i = 0; i < seatTypeCountArray.size(); i++) {
+            String seatType = seatTypeCountArray.getJSONObject(i).getString("seatType");
+            Assertions.assertEquals(stations.get(3) + "_" + stations.get(8) + "_" + seatType, args[index++]);
+            Assertions.assertEquals(seatTypeCountArray.getJSONObject(i).getString("count"), args[index++]);
+            for (int j = 0; j < routeArray.size(); j++) {
+                JSONObject route = routeArray.getJSONObject(j);
+                Assertions.assertEquals(route.getString("startStation") + "_" + route.getString("endStation") + "_" + seatType, args[index++]);
+            }
+        }
+    }
+
+    private static Object[] buildJsonArgs(Map<Integer, Long> seatTypeCountMap, List<RouteDTO> takeoutRouteDTOList) {
+        JSONArray seatTypeCountArray = seatTypeCountMap.entrySet().stream()
+                .map(entry -> {
+                    JSONObject jsonObject = new JSONObject();
+                    jsonObject.put("seatType", String.valueOf(entry.getKey()));
+                    jsonObject.put("count", String.valueOf(entry.getValue()));
+                    return jsonObject;
+                })
+                .collect(Collectors.toCollection(JSONArray::new));
+        return new Object[]{JSON.toJSONString(seatTypeCountArray), JSON.toJSONString(takeoutRouteDTOList)};
+    }
+}
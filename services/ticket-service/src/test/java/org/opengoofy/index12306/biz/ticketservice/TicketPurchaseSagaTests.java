@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opengoofy.index12306.biz.ticketservice.dao.entity.TrainDO;
+import org.opengoofy.index12306.biz.ticketservice.dao.entity.TrainStationRelationDO;
+import org.opengoofy.index12306.biz.ticketservice.dao.mapper.TicketMapper;
+import org.opengoofy.index12306.biz.ticketservice.dao.mapper.TrainStationRelationMapper;
+import org.opengoofy.index12306.biz.ticketservice.dto.domain.PurchaseTicketPassengerDetailDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.req.PurchaseTicketReqDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPurchaseRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.remote.TicketOrderRemoteService;
+import org.opengoofy.index12306.biz.ticketservice.remote.dto.TicketOrderCreateRemoteReqDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.SeatService;
+import org.opengoofy.index12306.biz.ticketservice.service.TrainStationService;
+import org.opengoofy.index12306.biz.ticketservice.service.cache.TrainSeatAvailabilitySnapshotLoader;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TicketPurchaseReservationDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TrainPurchaseTicketRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.saga.TicketPurchaseSaga;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.tokenbucket.TicketAvailabilityTokenBucket;
+import org.opengoofy.index12306.framework.starter.cache.DistributedCache;
+import org.opengoofy.index12306.framework.starter.convention.exception.ServiceException;
+import org.opengoofy.index12306.framework.starter.convention.result.Result;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.opengoofy.index12306.biz.ticketservice.common.constant.RedisKeyConstant.TICKET_AVAILABILITY_TOKEN_BUCKET;
+
+/**
+ * 购票 Saga 测试，座位行锁持有时间不受订单服务响应时间影响，订单创建失败时补偿座位以及车票
+ */
+class TicketPurchaseSagaTests {
+
+    @BeforeAll
+    static void initTableInfo() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), TrainStationRelationDO.class);
+    }
+
+    @Test
+    void testRowLockHoldTimeIndependentOfOrderLatency() {
+        long fastHoldMillis = measureRowLockHoldMillis(0L);
+        long slowHoldMillis = measureRowLockHoldMillis(500L);
+        Assertions.assertTrue(slowHoldMillis < 100L, "座位行锁持有时间受订单服务响应时间影响：" + slowHoldMillis + "ms");
+        Assertions.assertTrue(Math.abs(slowHoldMillis - fastHoldMillis) < 50L, "fast=" + fastHoldMillis + "ms, slow=" + slowHoldMillis + "ms");
+    }
+
+    @Test
+    void testCompensateWhenOrderCreateFailed() {
+        List<String> requestIds = new ArrayList<>();
+        List<String> compensations = new ArrayList<>();
+        TicketOrderRemoteService ticketOrderRemoteService = buildFailingOrderRemoteService(requestIds, new Result<String>().setCode(Result.SUCCESS_CODE));
+        TicketPurchaseSaga saga = buildSaga(ticketOrderRemoteService, buildRecordingSeatService(compensations), buildRecordingTicketMapper(compensations));
+        Assertions.assertThrows(ServiceException.class, () -> saga.createOrder(buildReservation()));
+        Assertions.assertEquals(List.of("create:1", "create:1", "create:1", "lookup:1"), requestIds);
+        Assertions.assertEquals(List.of("unlock:2", "deleteBatchIds:2"), compensations);
+    }
+
+    @Test
+    void testSkipCompensateWhenOrderCreatedByEarlierAttempt() {
+        List<String> requestIds = new ArrayList<>();
+        List<String> compensations = new ArrayList<>();
+        TicketOrderRemoteService ticketOrderRemoteService = buildFailingOrderRemoteService(requestIds, new Result<String>().setCode(Result.SUCCESS_CODE).setData("order-sn"));
+        TicketPurchaseSaga saga = buildSaga(ticketOrderRemoteService, buildRecordingSeatService(compensations), buildRecordingTicketMapper(compensations));
+        TicketPurchaseRespDTO result = saga.createOrder(buildReservation());
+        Assertions.assertEquals("order-sn", result.getOrderSn());
+        Assertions.assertTrue(compensations.isEmpty(), "订单已创建时不应补偿：" + compensations);
+    }
+
+    @Test
+    void testSkipCompensateWhenOrderCreateStillProcessing() {
+        List<String> requestIds = new ArrayList<>();
+        List<String> compensations = new ArrayList<>();
+        TicketOrderRemoteService ticketOrderRemoteService = buildFailingOrderRemoteService(requestIds, new Result<String>().setCode("B000001").setMessage("订单创建中，请稍后重试"));
+        TicketPurchaseSaga saga = buildSaga(ticketOrderRemoteService, buildRecordingSeatService(compensations), buildRecordingTicketMapper(compensations));
+        ReflectionTestUtils.setField(saga, "orderLookupMaxAttempts", 2);
+        Assertions.assertThrows(ServiceException.class, () -> saga.createOrder(buildReservation()));
+        Assertions.assertEquals(2L, requestIds.stream().filter(each -> each.startsWith("lookup")).count());
+        Assertions.assertTrue(compensations.isEmpty(), "订单创建结果未知时不应补偿：" + compensations);
+    }
+
+    @Test
+    void testSkipTokenRollbackWhenTokenNotTaken() {
+        TrainStationService trainStationService = mock(TrainStationService.class);
+        DistributedCache distributedCache = mock(DistributedCache.class);
+        TicketAvailabilityTokenBucket ticketAvailabilityTokenBucket = new TicketAvailabilityTokenBucket(trainStationService, distributedCache, null, null, null);
+        List<String> compensations = new ArrayList<>();
+        TicketOrderRemoteService ticketOrderRemoteService = buildFailingOrderRemoteService(new ArrayList<>(), new Result<String>().setCode(Result.SUCCESS_CODE));
+        TicketPurchaseSaga saga = buildSaga(ticketOrderRemoteService, buildRecordingSeatService(compensations), buildRecordingTicketMapper(compensations), ticketAvailabilityTokenBucket);
+        // v1 购票未获取令牌，补偿时令牌桶余量保持不变
+        Assertions.assertThrows(ServiceException.class, () -> saga.createOrder(buildReservation(false)));
+        Assertions.assertEquals(List.of("unlock:2", "deleteBatchIds:2"), compensations);
+        verifyNoInteractions(trainStationService, distributedCache);
+    }
+
+    @Test
+    void testRollbackTokenWhenTokenTaken() {
+        TrainStationService trainStationService = mock(TrainStationService.class);
+        DistributedCache distributedCache = mock(DistributedCache.class);
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        when(distributedCache.getInstance()).thenReturn(stringRedisTemplate);
+        when(trainStationService.listTakeoutTrainStationRoute(anyString(), anyString(), anyString())).thenReturn(new ArrayList<>());
+        when(stringRedisTemplate.execute(any(RedisScript.class), any(), any())).thenReturn(0L);
+        TicketAvailabilityTokenBucket ticketAvailabilityTokenBucket = new TicketAvailabilityTokenBucket(trainStationService, distributedCache, null, null, null);
+        List<String> compensations = new ArrayList<>();
+        TicketOrderRemoteService ticketOrderRemoteService = buildFailingOrderRemoteService(new ArrayList<>(), new Result<String>().setCode(Result.SUCCESS_CODE));
+        TicketPurchaseSaga saga = buildSaga(ticketOrderRemoteService, buildRecordingSeatService(compensations), buildRecordingTicketMapper(compensations), ticketAvailabilityTokenBucket);
+        Assertions.assertThrows(ServiceException.class, () -> saga.createOrder(buildReservation(true)));
+        verify(stringRedisTemplate).execute(any(RedisScript.class), eq(Collections.singletonList(TICKET_AVAILABILITY_TOKEN_BUCKET + "1")), any());
+    }
+
+    private TicketOrderRemoteService buildFailingOrderRemoteService(List<String> requestIds, Result<String> lookupResult) {
+        TicketOrderRemoteService ticketOrderRemoteService = mock(TicketOrderRemoteService.class);
+        when(ticketOrderRemoteService.queryOrderSnByRequestId(anyString())).thenAnswer(invocation -> {
+            requestIds.add("lookup:" + invocation.getArgument(0));
+            return lookupResult;
+        });
+        when(ticketOrderRemoteService.createTicketOrder(any())).thenAnswer(invocation -> {
+            requestIds.add("create:" + invocation.<TicketOrderCreateRemoteReqDTO>getArgument(0).getRequestId());
+            throw new IllegalStateException("order service unavailable");
+        });
+        return ticketOrderRemoteService;
+    }
+
+    private SeatService buildRecordingSeatService(List<String> compensations) {
+        SeatService seatService = mock(SeatService.class);
+        doAnswer(invocation -> {
+            compensations.add("unlock:" + invocation.<List<?>>getArgument(3).size());
+            return null;
+        }).when(seatService).unlock(anyString(), anyString(), anyString(), anyList());
+        return seatService;
+    }
+
+    private TicketMapper buildRecordingTicketMapper(List<String> compensations) {
+        TicketMapper ticketMapper = mock(TicketMapper.class);
+        when(ticketMapper.deleteBatchIds(anyCollection())).thenAnswer(invocation -> {
+            compensations.add("deleteBatchIds:" + invocation.<Collection<?>>getArgument(0).size());
+            return invocation.<Collection<?>>getArgument(0).size();
+        });
+        return ticketMapper;
+    }
+
+    private long measureRowLockHoldMillis(long orderLatencyMillis) {
+        ReentrantLock rowLock = new ReentrantLock();
+        TicketOrderRemoteService ticketOrderRemoteService = mock(TicketOrderRemoteService.class);
+        when(ticketOrderRemoteService.createTicketOrder(any())).thenAnswer(invocation -> {
+            Assertions.assertFalse(rowLock.isLocked(), "创建订单时座位行锁未释放");
+            TimeUnit.MILLISECONDS.sleep(orderLatencyMillis);
+            return new Result<String>().setCode(Result.SUCCESS_CODE).setData("order-sn");
+        });
+        TicketPurchaseSaga saga = buildSaga(ticketOrderRemoteService, null, null);
+        long[] holdNanos = new long[1];
+        long startTime = System.nanoTime();
+        TicketPurchaseRespDTO result = saga.execute(() -> {
+            // 模拟本地事务：锁定座位、写入车票后提交
+            rowLock.lock();
+            long lockTime = System.nanoTime();
+            try {
+                TimeUnit.MILLISECONDS.sleep(5L);
+                return buildReservation();
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            } finally {
+                holdNanos[0] = System.nanoTime() - lockTime;
+                rowLock.unlock();
+            }
+        });
+        long totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        Assertions.assertEquals("order-sn", result.getOrderSn());
+        Assertions.assertTrue(totalMillis >= orderLatencyMillis);
+        return TimeUnit.NANOSECONDS.toMillis(holdNanos[0]);
+    }
+
+    private TicketPurchaseSaga buildSaga(TicketOrderRemoteService ticketOrderRemoteService, SeatService seatService, TicketMapper ticketMapper) {
+        return buildSaga(ticketOrderRemoteService, seatService, ticketMapper, null);
+    }
+
+    private TicketPurchaseSaga buildSaga(TicketOrderRemoteService ticketOrderRemoteService, SeatService seatService, TicketMapper ticketMapper,
+                                         TicketAvailabilityTokenBucket ticketAvailabilityTokenBucket) {
+        TrainStationRelationDO trainStationRelationDO = new TrainStationRelationDO();
+        trainStationRelationDO.setDepartureTime(new Date());
+        trainStationRelationDO.setArrivalTime(new Date());
+        TrainStationRelationMapper trainStationRelationMapper = mock(TrainStationRelationMapper.class);
+        when(trainStationRelationMapper.selectOne(any())).thenReturn(trainStationRelationDO);
+        TicketPurchaseSaga saga = new TicketPurchaseSaga(
+                ticketOrderRemoteService,
+                trainStationRelationMapper,
+                seatService,
+                ticketMapper,
+                null,
+                null,
+                ticketAvailabilityTokenBucket,
+                new TrainSeatAvailabilitySnapshotLoader(null, null));
+        ReflectionTestUtils.setField(saga, "orderCreateMaxAttempts", 3);
+        ReflectionTestUtils.setField(saga, "orderLookupMaxAttempts", 1);
+        ReflectionTestUtils.setField(saga, "orderLookupIntervalMillis", 0L);
+        ReflectionTestUtils.setField(saga, "ticketAvailabilityCacheUpdateType", "segment");
+        return saga;
+    }
+
+    private TicketPurchaseReservationDTO buildReservation() {
+        return buildReservation(true);
+    }
+
+    private TicketPurchaseReservationDTO buildReservation(boolean tokenTaken) {
+        PurchaseTicketReqDTO requestParam = new PurchaseTicketReqDTO();
+        requestParam.setTrainId("1");
+        requestParam.setDeparture("北京南");
+        requestParam.setArrival("济南西");
+        List<PurchaseTicketPassengerDetailDTO> passengers = new ArrayList<>();
+        List<TrainPurchaseTicketRespDTO> trainPurchaseTicketResults = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            PurchaseTicketPassengerDetailDTO passenger = new PurchaseTicketPassengerDetailDTO();
+            passenger.setPassengerId(String.valueOf(i));
+            passenger.setSeatType(0);
+            passengers.add(passenger);
+            TrainPurchaseTicketRespDTO trainPurchaseTicketResp = new TrainPurchaseTicketRespDTO();
+            trainPurchaseTicketResp.setPassengerId(String.valueOf(i));
+            trainPurchaseTicketResp.setSeatType(0);
+            trainPurchaseTicketResp.setCarriageNumber("01");
+            trainPurchaseTicketResp.setSeatNumber("0" + (i + 1) + "A");
+            trainPurchaseTicketResp.setAmount(100);
+            trainPurchaseTicketResults.add(trainPurchaseTicketResp);
+        }
+        requestParam.setPassengers(passengers);
+        TrainDO trainDO = new TrainDO();
+        trainDO.setTrainNumber("G1");
+        return TicketPurchaseReservationDTO.builder()
+                .requestId("1")
+                .requestParam(requestParam)
+                .trainDO(trainDO)
+                .trainPurchaseTicketResults(trainPurchaseTicketResults)
+                .ticketIds(List.of(1L, 2L))
+                .tokenTaken(tokenTaken)
+                .build();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opengoofy.index12306.biz.ticketservice.dto.req.PurchaseTicketReqDTO;
+import org.opengoofy.index12306.biz.ticketservice.dto.resp.TicketPurchaseRespDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.dto.TicketPurchaseTaskDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.handler.ticket.sequencer.TicketPurchaseSequencer;
+import org.opengoofy.index12306.framework.starter.convention.exception.ServiceException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 购票定序器批量合并以及单线程处理测试
+ */
+class TicketPurchaseSequencerTests {
+
+    @Test
+    void testSubmitInBatch() throws InterruptedException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(0, 8, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), new ThreadPoolExecutor.CallerRunsPolicy());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TicketPurchaseSequencer sequencer = new TicketPurchaseSequencer(executor, meterRegistry);
+        ReflectionTestUtils.setField(sequencer, "queueCapacity", 1024);
+        ReflectionTestUtils.setField(sequencer, "maxBatchSize", 16);
+        ReflectionTestUtils.setField(sequencer, "timeoutMillis", 10000L);
+        sequencer.afterPropertiesSet();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger batchCount = new AtomicInteger();
+        AtomicInteger batchedRequestCount = new AtomicInteger();
+        AtomicInteger maxBatchSize = new AtomicInteger();
+        int requestCount = 400;
+        List<Throwable> errors = new ArrayList<>();
+        AtomicInteger successCount = new AtomicInteger();
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < requestCount; i++) {
+            int index = i;
+            threads.add(new Thread(() -> {
+                PurchaseTicketReqDTO requestParam = new PurchaseTicketReqDTO();
+                requestParam.setTrainId(String.valueOf(index));
+                try {
+                    startLatch.await();
+                    TicketPurchaseRespDTO result = sequencer.submit("1_3", new TicketPurchaseTaskDTO(requestParam, null), batch -> {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        batchCount.incrementAndGet();
+                        batchedRequestCount.addAndGet(batch.size());
+                        maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+                        try {
+                            // 模拟一次批次事务耗时，奇数请求购票失败
+                            Thread.sleep(2);
+                            batch.forEach(each -> {
+                                if (Integer.parseInt(each.getRequestParam().getTrainId()) % 2 == 0) {
+                                    each.setResult(new TicketPurchaseRespDTO(each.getRequestParam().getTrainId(), null));
+                                } else {
+                                    each.setException(new ServiceException("站点余票不足"));
+                                }
+                            });
+                        } catch (InterruptedException ignored) {
+                        } finally {
+                            running.decrementAndGet();
+                        }
+                    });
+                    Assertions.assertEquals(requestParam.getTrainId(), result.getOrderSn());
+                    successCount.incrementAndGet();
+                } catch (ServiceException ex) {
+                    if (index % 2 == 0) {
+                        synchronized (errors) {
+                            errors.add(ex);
+                        }
+                    }
+                } catch (Throwable ex) {
+                    synchronized (errors) {
+                        errors.add(ex);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        startLatch.countDown();
+        for (Thread each : threads) {
+            each.join();
+        }
+        Assertions.assertTrue(errors.isEmpty(), errors.toString());
+        Assertions.assertEquals(requestCount / 2, successCount.get());
+        Assertions.assertEquals(1, maxRunning.get());
+        Assertions.assertTrue(batchCount.get() < requestCount);
+        // 每个请求恰好处理一次，批次大小不超过上限
+        Assertions.assertEquals(requestCount, batchedRequestCount.get());
+        Assertions.assertTrue(maxBatchSize.get() <= 16, "最大批次大小：" + maxBatchSize.get());
+        Assertions.assertEquals(batchCount.get(), meterRegistry.summary("ticket.purchase.sequencer.batch.size").count());
+        Assertions.assertEquals(requestCount, (int) meterRegistry.summary("ticket.purchase.sequencer.batch.size").totalAmount());
+        executor.shutdown();
+    }
+}
@@ -24,10 +24,12 @@ import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import org.junit.jupiter.api.Test;
 import org.opengoofy.index12306.biz.ticketservice.dao.entity.CarriageDO;
 import org.opengoofy.index12306.biz.ticketservice.dao.entity.SeatDO;
+import org.opengoofy.index12306.biz.ticketservice.dao.entity.SeatSegmentDO;
 import org.opengoofy.index12306.biz.ticketservice.dao.entity.TrainDO;
 import org.opengoofy.index12306.biz.ticketservice.dao.entity.TrainStationPriceDO;
 import org.opengoofy.index12306.biz.ticketservice.dao.mapper.CarriageMapper;
 import org.opengoofy.index12306.biz.ticketservice.dao.mapper.SeatMapper;
+import org.opengoofy.index12306.biz.ticketservice.dao.mapper.SeatSegmentMapper;
 import org.opengoofy.index12306.biz.ticketservice.dao.mapper.TrainMapper;
 import org.opengoofy.index12306.biz.ticketservice.dao.mapper.TrainStationPriceMapper;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -49,6 +51,8 @@ class TicketSeatTests {
     private SeatMapper seatMapper;
     @Autowired
     private CarriageMapper carriageMapper;
+    @Autowired
+    private SeatSegmentMapper seatSegmentMapper;
 
     @Test
     void testInitData() {
@@ -81,6 +85,30 @@ class TicketSeatTests {
         }
     }
 
+    @Test
+    void testInitSegmentData() {
+        String trainId = "2";
+        TrainDO trainDO = trainMapper.selectById(trainId);
+        LambdaQueryWrapper<SeatDO> queryWrapper = Wrappers.lambdaQuery(SeatDO.class)
+                .eq(SeatDO::getTrainId, trainId)
+                .eq(SeatDO::getStartStation, trainDO.getStartStation())
+                .eq(SeatDO::getEndStation, trainDO.getEndStation());
+        List<SeatDO> seats = seatMapper.selectList(queryWrapper);
+        for (SeatDO each : seats) {
+            SeatSegmentDO seatSegmentDO = SeatSegmentDO.builder()
+                    .trainId(each.getTrainId())
+                    .carriageNumber(each.getCarriageNumber())
+                    .seatNumber(each.getSeatNumber())
+                    .seatType(each.getSeatType())
+                    .occupancy(0L)
+                    .build();
+            seatSegmentDO.setCreateTime(new Date());
+            seatSegmentDO.setUpdateTime(new Date());
+            seatSegmentDO.setDelFlag(0);
+            seatSegmentMapper.insert(seatSegmentDO);
+        }
+    }
+
     public List<TrainStationPriceDO> selectTrainStationPrices(String trainId) {
         LambdaQueryWrapper<TrainStationPriceDO> queryWrapper = Wrappers.lambdaQuery(TrainStationPriceDO.class)
                 .eq(TrainStationPriceDO::getTrainId, trainId);
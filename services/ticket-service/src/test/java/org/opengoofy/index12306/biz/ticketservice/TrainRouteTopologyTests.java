@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opengoofy.index12306.biz.ticketservice;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.opengoofy.index12306.biz.ticketservice.dto.domain.RouteDTO;
+import org.opengoofy.index12306.biz.ticketservice.service.cache.TrainRouteTopology;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 列车线路拓扑途经区间、扣减区间计算测试
+ */
+class TrainRouteTopologyTests {
+
+    @Test
+    void testRoutes() {
+        List<String> stations = new ArrayList<>();
+        Map<String, Integer> stationIdMap = new HashMap<>();
+        for (int i = 0; i < 15; i++) {
+            stations.add("站点" + i);
+            stationIdMap.put("站点" + i, 100 - i);
+        }
+        stationIdMap.put("其他站点", 0);
+        TrainRouteTopology topology = new TrainRouteTopology(stations, stationIdMap);
+        Assertions.assertEquals(-1, topology.indexOf("其他站点"));
+        Assertions.assertEquals(-1, topology.indexOf("未知站点"));
+        Assertions.assertTrue(topology.listTakeoutRoute("站点3", "站点3").isEmpty());
+        Assertions.assertTrue(topology.listTakeoutRoute("站点5", "站点2").isEmpty());
+        Assertions.assertTrue(topology.listThroughRoute("站点0", "未知站点").isEmpty());
+        for (int start = 0; start < stations.size(); start++) {
+            Assertions.assertEquals(start, topology.indexOf(stations.get(start)));
+            for (int end = start + 1; end < stations.size(); end++) {
+                Set<String> expectedThrough = new HashSet<>();
+                Set<String> expectedTakeout = new HashSet<>();
+                for (int i = 0; i < stations.size(); i++) {
+                    for (int j = i + 1; j < stations.size(); j++) {
+                        if (i >= start && j <= end) {
+                            expectedThrough.add(stations.get(i) + "_" + stations.get(j));
+                        }
+                        // 与购票区间存在重叠的区间都需要扣减余票
+                        if (i < end && j > start) {
+                            expectedTakeout.add(stations.get(i) + "_" + stations.get(j));
+                        }
+                    }
+                }
+                List<RouteDTO> throughRoutes = topology.listThroughRoute(stations.get(start), stations.get(end));
+                List<RouteDTO> takeoutRoutes = topology.listTakeoutRoute(stations.get(start), stations.get(end));
+                Assertions.assertEquals(expectedThrough, toRouteKeys(throughRoutes));
+                Assertions.assertEquals(expectedThrough.size(), throughRoutes.size());
+                Assertions.assertEquals(expectedTakeout, toRouteKeys(takeoutRoutes));
+                Assertions.assertEquals(expectedTakeout.size(), takeoutRoutes.size());
+                Assertions.assertSame(takeoutRoutes, topology.listTakeoutRoute(stations.get(start), stations.get(end)));
+            }
+        }
+    }
+
+    private static Set<String> toRouteKeys(List<RouteDTO> routes) {
+        Set<String> routeKeys = new HashSet<>();
+        routes.forEach(each -> routeKeys.add(each.getStartStation() + "_" + each.getEndStation()));
+        return routeKeys;
+    }
+}